@@ -0,0 +1,53 @@
+package uk.gov.pay.directdebit.benchmarks;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Builds webhook bodies shaped like the ones GoCardless send: a mix of mandate and payment events spread over a
+ * handful of organisations, with several events for some of the same mandates and payments.
+ */
+public final class GoCardlessWebhookPayloads {
+
+    public static final String WEBHOOK_SECRET = "ElfJ-3tF9I_zutNVK2lBABQrw-BgAhkZKIlvmbgk";
+
+    private static final String[] MANDATE_ACTIONS = {"submitted", "active", "failed", "cancelled", "expired", "reinstated"};
+    private static final String[] PAYMENT_ACTIONS = {"submitted", "confirmed", "paid_out", "failed", "customer_approval_denied", "cancelled"};
+    private static final int ORGANISATIONS = 5;
+    private static final ZonedDateTime START = ZonedDateTime.of(2020, 7, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    private GoCardlessWebhookPayloads() {
+    }
+
+    public static byte[] webhookWithEvents(int numberOfEvents) {
+        StringBuilder body = new StringBuilder("{\"events\":[");
+        for (int i = 0; i < numberOfEvents; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(i % 3 == 0 ? mandateEvent(i) : paymentEvent(i));
+        }
+        return body.append("],\"meta\":{\"webhook_id\":\"WB000").append(numberOfEvents).append("\"}}").toString().getBytes(UTF_8);
+    }
+
+    private static String mandateEvent(int i) {
+        String action = MANDATE_ACTIONS[i % MANDATE_ACTIONS.length];
+        return format("{\"id\":\"EV%010d\",\"created_at\":\"%s\",\"resource_type\":\"mandates\",\"action\":\"%s\"," +
+                        "\"links\":{\"mandate\":\"MD%08d\",\"organisation\":\"OR%04d\"}," +
+                        "\"details\":{\"origin\":\"bank\",\"cause\":\"mandate_%s\",\"scheme\":\"bacs\",\"reason_code\":\"ADDACS-0\"," +
+                        "\"description\":\"The mandate has changed state to %s.\"},\"metadata\":{}}",
+                i, START.plusSeconds(i), action, i / 4, i % ORGANISATIONS, action, action);
+    }
+
+    private static String paymentEvent(int i) {
+        String action = PAYMENT_ACTIONS[i % PAYMENT_ACTIONS.length];
+        return format("{\"id\":\"EV%010d\",\"created_at\":\"%s\",\"resource_type\":\"payments\",\"action\":\"%s\"," +
+                        "\"links\":{\"payment\":\"PM%08d\",\"organisation\":\"OR%04d\",\"payout\":\"PO%08d\"}," +
+                        "\"details\":{\"origin\":\"gocardless\",\"cause\":\"payment_%s\"," +
+                        "\"description\":\"The payment has changed state to %s. [SANDBOX TRANSITION]\"},\"metadata\":{}}",
+                i, START.plusSeconds(i), action, i / 3, i % ORGANISATIONS, i / 50, action, action);
+    }
+}
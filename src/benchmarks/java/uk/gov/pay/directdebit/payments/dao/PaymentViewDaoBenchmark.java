@@ -0,0 +1,124 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.jdbi.v3.core.Jdbi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.payments.api.PaymentResponse;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams.PaymentViewSearchParamsBuilder.aPaymentViewSearchParams;
+
+/**
+ * Compares fetching an early and a deep page of a large account's payments by page number (OFFSET) and by cursor
+ * (index seek). Needs a migrated Postgres database, found through the same DB_HOST, DB_NAME, DB_USER and
+ * DB_PASSWORD variables as the application; the payments are inserted on the first run and reused afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentViewDaoBenchmark {
+
+    private static final String GATEWAY_ACCOUNT_EXTERNAL_ID = "benchmark-payment-search";
+    private static final int DISPLAY_SIZE = 20;
+    private static final int NUMBER_OF_PAYMENTS = 5000 * DISPLAY_SIZE;
+
+    public enum Pagination {PAGE_NUMBER, CURSOR}
+
+    @Param({"PAGE_NUMBER", "CURSOR"})
+    private Pagination pagination;
+
+    @Param({"1", "5000"})
+    private int page;
+
+    private PaymentViewDao paymentViewDao;
+    private PaymentViewSearchParams searchParams;
+
+    @Setup
+    public void setUp() {
+        Jdbi jdbi = Jdbi.create(
+                "jdbc:postgresql://" + env("DB_HOST", "localhost:5432") + "/" + env("DB_NAME", "directdebit_connector"),
+                env("DB_USER", "postgres"),
+                env("DB_PASSWORD", "mysecretpassword"));
+        paymentViewDao = new PaymentViewDao(jdbi);
+
+        insertPaymentsIfMissing(jdbi);
+
+        if (pagination == Pagination.PAGE_NUMBER) {
+            searchParams = aPaymentViewSearchParams().withPage(page).withDisplaySize(DISPLAY_SIZE).build();
+        } else {
+            searchParams = aPaymentViewSearchParams().withAfter(SearchCursor.encode(cursorForPage(jdbi, page))).withDisplaySize(DISPLAY_SIZE).build();
+        }
+    }
+
+    @Benchmark
+    public SearchPage<PaymentResponse> searchPaymentViewPage() {
+        return paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_EXTERNAL_ID);
+    }
+
+    private static void insertPaymentsIfMissing(Jdbi jdbi) {
+        boolean alreadyInserted = jdbi.withHandle(handle -> handle
+                .createQuery("SELECT EXISTS (SELECT 1 FROM gateway_accounts WHERE external_id = :externalId)")
+                .bind("externalId", GATEWAY_ACCOUNT_EXTERNAL_ID)
+                .mapTo(Boolean.class)
+                .findOnly());
+        if (alreadyInserted) {
+            return;
+        }
+
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
+                .withExternalId(GATEWAY_ACCOUNT_EXTERNAL_ID)
+                .insert(jdbi);
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(jdbi);
+
+        jdbi.useHandle(handle -> handle.createUpdate("INSERT INTO payments(mandate_id, gateway_account_id, external_id, amount, state, reference, description, created_date) " +
+                "SELECT :mandateId, :gatewayAccountId, 'bench' || n, 100 + n % 1000, 'SUBMITTED_TO_PROVIDER', 'REF' || n, 'Benchmark payment ' || n, " +
+                "now() - (n || ' minutes')::interval FROM generate_series(1, :numberOfPayments) AS n")
+                .bind("mandateId", mandateFixture.getId())
+                .bind("gatewayAccountId", gatewayAccountFixture.getId())
+                .bind("numberOfPayments", NUMBER_OF_PAYMENTS)
+                .execute());
+        jdbi.useHandle(handle -> handle.execute("ANALYZE payments"));
+    }
+
+    private static long cursorForPage(Jdbi jdbi, int page) {
+        if (page == 1) {
+            return Long.MAX_VALUE;
+        }
+        Optional<Long> lastIdOnPreviousPage = jdbi.withHandle(handle -> handle
+                .createQuery("SELECT p.id FROM payments p JOIN mandates m ON m.id = p.mandate_id " +
+                        "JOIN gateway_accounts ga ON ga.id = p.gateway_account_id WHERE ga.external_id = :externalId " +
+                        "ORDER BY p.id DESC OFFSET :offset LIMIT 1")
+                .bind("externalId", GATEWAY_ACCOUNT_EXTERNAL_ID)
+                .bind("offset", (page - 1) * DISPLAY_SIZE - 1)
+                .mapTo(Long.class)
+                .findFirst());
+        return lastIdOnPreviousPage.orElseThrow(() -> new IllegalStateException("Not enough payments for page " + page));
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Optional.ofNullable(System.getenv(name)).orElse(defaultValue);
+    }
+}
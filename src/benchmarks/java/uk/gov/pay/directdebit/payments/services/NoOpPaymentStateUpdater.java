@@ -0,0 +1,20 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.Collection;
+
+/**
+ * A {@link PaymentStateUpdater} for benchmarks that updates nothing. It lives in this package because the real
+ * updater's constructor is package-private.
+ */
+public class NoOpPaymentStateUpdater extends PaymentStateUpdater {
+
+    public NoOpPaymentStateUpdater() {
+        super(null, null, null);
+    }
+
+    @Override
+    public void updateStatesIfNecessary(Collection<Payment> payments) {
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.pay.directdebit.webhook.gocardless.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.webhookWithEvents;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoCardlessWebhookParserBenchmark {
+
+    @Param({"1", "10", "50", "100", "500", "1000"})
+    private int numberOfEvents;
+
+    private ObjectMapper objectMapper;
+    private GoCardlessWebhookParser parser;
+    private byte[] body;
+    private String bodyAsString;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        parser = new GoCardlessWebhookParser(objectMapper);
+        body = webhookWithEvents(numberOfEvents);
+        bodyAsString = new String(body, UTF_8);
+    }
+
+    @Benchmark
+    public List<GoCardlessEvent> parse() {
+        return parser.parse(body);
+    }
+
+    /**
+     * The work the parser did before it streamed the body: read the whole String body into a tree and serialise each
+     * event back to JSON to store it. Compare its gc.alloc.rate.norm with that of {@link #parse()}.
+     */
+    @Benchmark
+    public void readTreeBaseline(Blackhole blackhole) throws IOException {
+        for (JsonNode event : objectMapper.readTree(bodyAsString).get("events")) {
+            blackhole.consume(event.toString());
+        }
+    }
+}
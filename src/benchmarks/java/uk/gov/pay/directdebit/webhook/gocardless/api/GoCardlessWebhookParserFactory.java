@@ -0,0 +1,16 @@
+package uk.gov.pay.directdebit.webhook.gocardless.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Lets benchmarks outside this package build a parser without going through Guice.
+ */
+public final class GoCardlessWebhookParserFactory {
+
+    private GoCardlessWebhookParserFactory() {
+    }
+
+    public static GoCardlessWebhookParser create(ObjectMapper objectMapper) {
+        return new GoCardlessWebhookParser(objectMapper);
+    }
+}
@@ -0,0 +1,154 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.util.Duration;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.services.NoOpPaymentStateUpdater;
+import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
+import uk.gov.pay.directdebit.webhook.gocardless.api.GoCardlessWebhookParserFactory;
+import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.SendEmailsForGoCardlessEventsHandler;
+import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.UnhandledGoCardlessEventsLogger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.webhookWithEvents;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+
+/**
+ * Measures grouping the events from a webhook by resource, de-duplicating the mandates and payments they affect
+ * and looking them up in bulk. Collaborators that would talk to the database, send emails or log are hand-written
+ * fakes that return immediately, so the figures cover the in-memory pipeline rather than I/O or a mocking library.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebhookGoCardlessServiceBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int numberOfEvents;
+
+    private WebhookGoCardlessService webhookGoCardlessService;
+    private List<GoCardlessEvent> events;
+
+    @Setup
+    public void setUp() {
+        webhookGoCardlessService = new WebhookGoCardlessService(
+                new NoOpGoCardlessEventService(),
+                new NoOpMandateStateUpdater(),
+                new NoOpPaymentStateUpdater(),
+                new FindsEveryMandateQueryService(aMandateFixture().toEntity()),
+                new FindsEveryPaymentQueryService(aPaymentFixture().toEntity()),
+                new NoOpSendEmailsForGoCardlessEventsHandler(),
+                new NoOpUnhandledGoCardlessEventsLogger(),
+                GoCardlessEventExecutor.synchronous(new MetricRegistry()));
+
+        events = GoCardlessWebhookParserFactory.create(new ObjectMapper()).parse(webhookWithEvents(numberOfEvents));
+    }
+
+    @Benchmark
+    public void handleStoredEvents() {
+        webhookGoCardlessService.handleStoredEvents(events);
+    }
+
+    private static class NoOpGoCardlessEventService extends GoCardlessEventService {
+
+        private NoOpGoCardlessEventService() {
+            super(null, Duration.minutes(1), new MetricRegistry());
+        }
+
+        @Override
+        public void markEventsAsProcessed(List<GoCardlessEvent> events) {
+        }
+    }
+
+    private static class NoOpMandateStateUpdater extends MandateStateUpdater {
+
+        private NoOpMandateStateUpdater() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void updateStatesIfNecessary(Collection<Mandate> mandates) {
+        }
+    }
+
+    private static class FindsEveryMandateQueryService extends MandateQueryService {
+
+        private final Mandate mandate;
+
+        private FindsEveryMandateQueryService(Mandate mandate) {
+            super(null);
+            this.mandate = mandate;
+        }
+
+        @Override
+        public Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, Mandate> findByGoCardlessMandateIdsAndOrganisationIds(
+                Collection<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds) {
+            return goCardlessMandateIdsAndOrganisationIds.stream().collect(toMap(identity(), key -> mandate));
+        }
+    }
+
+    private static class FindsEveryPaymentQueryService extends PaymentQueryService {
+
+        private final Payment payment;
+
+        private FindsEveryPaymentQueryService(Payment payment) {
+            super(null);
+            this.payment = payment;
+        }
+
+        @Override
+        public Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, Payment> findByGoCardlessPaymentIdsAndOrganisationIds(
+                Collection<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds) {
+            return goCardlessPaymentIdsAndOrganisationIds.stream().collect(toMap(identity(), key -> payment));
+        }
+    }
+
+    private static class NoOpSendEmailsForGoCardlessEventsHandler extends SendEmailsForGoCardlessEventsHandler {
+
+        private NoOpSendEmailsForGoCardlessEventsHandler() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void sendEmails(List<GoCardlessEvent> events) {
+        }
+    }
+
+    private static class NoOpUnhandledGoCardlessEventsLogger extends UnhandledGoCardlessEventsLogger {
+
+        @Override
+        public void logUnhandledEvents(List<GoCardlessEvent> events) {
+        }
+    }
+}
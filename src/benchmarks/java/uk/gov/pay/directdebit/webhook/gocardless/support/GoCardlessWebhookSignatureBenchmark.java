@@ -0,0 +1,61 @@
+package uk.gov.pay.directdebit.webhook.gocardless.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.WEBHOOK_SECRET;
+import static uk.gov.pay.directdebit.benchmarks.GoCardlessWebhookPayloads.webhookWithEvents;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoCardlessWebhookSignatureBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int numberOfEvents;
+
+    private GoCardlessWebhookSignatureCalculator calculator;
+    private GoCardlessWebhookVerifier verifier;
+    private byte[] body;
+    private String bodyAsString;
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        calculator = new GoCardlessWebhookSignatureCalculator(WEBHOOK_SECRET);
+        verifier = new GoCardlessWebhookVerifier(calculator);
+        body = webhookWithEvents(numberOfEvents);
+        bodyAsString = new String(body, UTF_8);
+        signature = calculator.calculate(bodyAsString);
+    }
+
+    @Benchmark
+    public String calculate() {
+        return calculator.calculate(bodyAsString);
+    }
+
+    @Benchmark
+    public byte[] calculateDigest() {
+        return calculator.calculateDigest(body);
+    }
+
+    @Benchmark
+    public void verify() {
+        verifier.verify(body, signature);
+    }
+}
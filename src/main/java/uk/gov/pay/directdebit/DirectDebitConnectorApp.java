@@ -9,6 +9,7 @@ import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
 import io.dropwizard.jdbi3.JdbiFactory;
 import io.dropwizard.jdbi3.bundles.JdbiExceptionsBundle;
 import io.dropwizard.migrations.MigrationsBundle;
@@ -17,10 +18,13 @@ import io.dropwizard.setup.Environment;
 import org.jdbi.v3.core.Jdbi;
 import uk.gov.pay.commons.utils.metrics.DatabaseMetricsService;
 import uk.gov.pay.directdebit.app.bootstrap.DependentResourcesWaitCommand;
+import uk.gov.pay.directdebit.app.bootstrap.RebuildResourceEventHeadsCommand;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.app.config.DirectDebitModule;
 import uk.gov.pay.directdebit.app.config.GraphiteConfig;
+import uk.gov.pay.directdebit.app.config.ReadReplicaConfig;
 import uk.gov.pay.directdebit.app.healthcheck.Ping;
+import uk.gov.pay.directdebit.app.tasks.InvalidateSunNameCacheTask;
 import uk.gov.pay.directdebit.common.exception.BadRequestExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.ConflictExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.GoCardlessAccountAlreadyConnectedExceptionMapper;
@@ -32,6 +36,7 @@ import uk.gov.pay.directdebit.common.exception.NoAccessTokenExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.NotFoundExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.PreconditionFailedExceptionMapper;
 import uk.gov.pay.directdebit.common.exception.UnlinkedGCMerchantAccountExceptionMapper;
+import uk.gov.pay.directdebit.common.dao.ReadReplicaDataSource;
 import uk.gov.pay.directdebit.common.proxy.CustomInetSocketAddressProxySelector;
 import uk.gov.pay.directdebit.filters.LoggingMDCRequestFilter;
 import uk.gov.pay.directdebit.filters.LoggingMDCResponseFilter;
@@ -48,6 +53,7 @@ import uk.gov.pay.directdebit.tasks.resources.ExpireResource;
 import uk.gov.pay.directdebit.tokens.resources.SecurityTokensResource;
 import uk.gov.pay.directdebit.webhook.gocardless.exception.InvalidWebhookExceptionMapper;
 import uk.gov.pay.directdebit.webhook.gocardless.resources.WebhookGoCardlessResource;
+import uk.gov.pay.directdebit.webhook.gocardless.services.UnprocessedGoCardlessEventsResumer;
 import uk.gov.pay.directdebit.webhook.sandbox.resources.WebhookSandboxResource;
 import uk.gov.pay.logging.GovUkPayDropwizardRequestJsonLogLayoutFactory;
 import uk.gov.pay.logging.LoggingFilter;
@@ -86,6 +92,7 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
         });
         bootstrap.addBundle(new JdbiExceptionsBundle());
         bootstrap.addCommand(new DependentResourcesWaitCommand());
+        bootstrap.addCommand(new RebuildResourceEventHeadsCommand());
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(LogstashConsoleAppenderFactory.class);
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(GovUkPayDropwizardRequestJsonLogLayoutFactory.class);
     }
@@ -102,8 +109,11 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
             ProxySelector.setDefault(customInetSocketAddressProxySelector);
         }
 
-        final Jdbi jdbi = new JdbiFactory().build(environment, configuration.getDataSourceFactory(), "postgresql");
-        final Injector injector = Guice.createInjector(new DirectDebitModule(configuration, environment, jdbi));
+        final JdbiFactory jdbiFactory = new JdbiFactory();
+        final ManagedDataSource dataSource = configuration.getDataSourceFactory().build(environment.metrics(), "postgresql");
+        final Jdbi jdbi = jdbiFactory.build(environment, configuration.getDataSourceFactory(), dataSource, "postgresql");
+        final Jdbi readOnlyJdbi = buildReadOnlyJdbi(configuration.getReadReplicaConfig(), environment, jdbiFactory, dataSource, jdbi);
+        final Injector injector = Guice.createInjector(new DirectDebitModule(configuration, environment, jdbi, readOnlyJdbi));
 
         environment.jersey().register(injector.getInstance(LoggingMDCRequestFilter.class));
         environment.jersey().register(injector.getInstance(LoggingMDCResponseFilter.class));
@@ -124,6 +134,8 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
         environment.jersey().register(injector.getInstance(GoCardlessAppConnectAccountStateResource.class));
         environment.jersey().register(injector.getInstance(GoCardlessAppConnectAccountTokenResource.class));
 
+        environment.admin().addTask(injector.getInstance(InvalidateSunNameCacheTask.class));
+
         environment.jersey().register(new JerseyViolationExceptionMapper());
         environment.jersey().register(new InvalidWebhookExceptionMapper());
         environment.jersey().register(new BadRequestExceptionMapper());
@@ -136,9 +148,29 @@ public class DirectDebitConnectorApp extends Application<DirectDebitConfig> {
         environment.jersey().register(new UnlinkedGCMerchantAccountExceptionMapper());
         environment.jersey().register(new MandateStateInvalidExceptionMapper());
         environment.jersey().register(new GoCardlessAccountAlreadyConnectedExceptionMapper());
+
+        environment.lifecycle().manage(injector.getInstance(UnprocessedGoCardlessEventsResumer.class));
+
         initialiseMetrics(configuration, environment);
     }
 
+    private Jdbi buildReadOnlyJdbi(ReadReplicaConfig readReplicaConfig, Environment environment, JdbiFactory jdbiFactory,
+                                   ManagedDataSource primaryDataSource, Jdbi jdbi) {
+        if (!readReplicaConfig.isEnabled()) {
+            return jdbi;
+        }
+        DataSourceFactory replicaDataSourceFactory = readReplicaConfig.getDataSourceFactory();
+        ManagedDataSource replicaDataSource = replicaDataSourceFactory.build(environment.metrics(), "postgresql-read-replica");
+        ManagedDataSource searchDataSource = new ReadReplicaDataSource(
+                replicaDataSource,
+                primaryDataSource,
+                readReplicaConfig.getMaximumLag(),
+                readReplicaConfig.getLagCheckInterval(),
+                environment.lifecycle().scheduledExecutorService("read-replica-lag-check-%d").build(),
+                environment.metrics());
+        return jdbiFactory.build(environment, replicaDataSourceFactory, searchDataSource, "postgresql-search");
+    }
+
     private void initialiseMetrics(DirectDebitConfig configuration, Environment environment) {
         GraphiteConfig graphiteConfig = configuration.getGraphiteConfig();
         DatabaseMetricsService metricsService = new DatabaseMetricsService(configuration.getDataSourceFactory(), environment.metrics(), "directdebit_connector");
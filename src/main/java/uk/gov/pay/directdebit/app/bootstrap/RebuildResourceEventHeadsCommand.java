@@ -0,0 +1,46 @@
+package uk.gov.pay.directdebit.app.bootstrap;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
+import uk.gov.pay.directdebit.events.services.ResourceEventHeadService;
+
+public class RebuildResourceEventHeadsCommand extends ConfiguredCommand<DirectDebitConfig> {
+
+    private static final String BATCH_SIZE = "batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    public RebuildResourceEventHeadsCommand() {
+        super("rebuildResourceEventHeads", "Rebuilds the latest applicable event for every mandate and payment from the event history");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--batch-size")
+                .dest(BATCH_SIZE)
+                .type(Integer.class)
+                .setDefault(DEFAULT_BATCH_SIZE)
+                .help("Number of mandates or payments to rebuild per statement");
+    }
+
+    @Override
+    protected void run(Bootstrap<DirectDebitConfig> bs, Namespace ns, DirectDebitConfig conf) throws Exception {
+        ManagedDataSource dataSource = conf.getDataSourceFactory().build(new MetricRegistry(), "rebuild-resource-event-heads");
+        dataSource.start();
+        try {
+            Jdbi jdbi = Jdbi.create(dataSource);
+            jdbi.installPlugin(new SqlObjectPlugin());
+            new ResourceEventHeadService(jdbi.onDemand(ResourceEventHeadDao.class)).rebuild(ns.getInt(BATCH_SIZE));
+        } finally {
+            dataSource.stop();
+        }
+    }
+}
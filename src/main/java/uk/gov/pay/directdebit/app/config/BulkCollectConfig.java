@@ -0,0 +1,40 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class BulkCollectConfig extends Configuration {
+
+    // the most payments that can be collected with one bulk collect request
+    @JsonProperty
+    @Min(1)
+    private int maximumPayments = 1000;
+
+    // number of threads, shared by all bulk collect requests, that submit payments to the payment provider; this
+    // should stay below goCardless.maximumConcurrentRequests so single payments and mandates can still get through
+    @JsonProperty
+    @Min(1)
+    private int threads = 10;
+
+    // how long a bulk collect request waits for its payments to be submitted to the payment provider; payments not
+    // yet submitted after this are marked as not submitted and can be collected again
+    @JsonProperty
+    @NotNull
+    private Duration timeout = Duration.seconds(30);
+
+    public int getMaximumPayments() {
+        return maximumPayments;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
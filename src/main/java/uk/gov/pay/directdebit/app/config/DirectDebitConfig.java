@@ -36,6 +36,22 @@ public class DirectDebitConfig extends Configuration {
     @NotNull
     private GoCardlessAppConnectConfig goCardlessAppConnectConfig;
 
+    @Valid
+    @NotNull
+    private WebhookProcessingConfig webhookProcessingConfig;
+
+    @Valid
+    @NotNull
+    private SearchConfig searchConfig = new SearchConfig();
+
+    @Valid
+    @NotNull
+    private ReadReplicaConfig readReplicaConfig = new ReadReplicaConfig();
+
+    @Valid
+    @NotNull
+    private BulkCollectConfig bulkCollectConfig = new BulkCollectConfig();
+
     @JsonProperty("adminusers")
     public AdminUsersConfig getAdminUsersConfig() {
         return adminUsersConfig;
@@ -66,4 +82,24 @@ public class DirectDebitConfig extends Configuration {
     public JerseyClientConfiguration getClientConfiguration() {
         return jerseyClientConfig;
     }
+
+    @JsonProperty("webhookProcessing")
+    public WebhookProcessingConfig getWebhookProcessingConfig() {
+        return webhookProcessingConfig;
+    }
+
+    @JsonProperty("search")
+    public SearchConfig getSearchConfig() {
+        return searchConfig;
+    }
+
+    @JsonProperty("readReplica")
+    public ReadReplicaConfig getReadReplicaConfig() {
+        return readReplicaConfig;
+    }
+
+    @JsonProperty("bulkCollect")
+    public BulkCollectConfig getBulkCollectConfig() {
+        return bulkCollectConfig;
+    }
 }
@@ -8,12 +8,18 @@ import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
+import uk.gov.pay.directdebit.common.services.SearchCounter;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.dao.SandboxEventDao;
 import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
+import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountIdCache;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
 import uk.gov.pay.directdebit.notifications.clients.AdminUsersClient;
 import uk.gov.pay.directdebit.notifications.clients.ClientFactory;
 import uk.gov.pay.directdebit.partnerapp.client.GoCardlessAppConnectClient;
@@ -22,20 +28,35 @@ import uk.gov.pay.directdebit.payers.dao.GoCardlessCustomerDao;
 import uk.gov.pay.directdebit.payers.dao.PayerDao;
 import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.dao.PaymentViewDao;
+import uk.gov.pay.directdebit.payments.services.BulkCollectService;
+import uk.gov.pay.directdebit.payments.services.PaymentService;
 import uk.gov.pay.directdebit.tokens.dao.TokenDao;
+import uk.gov.pay.directdebit.webhook.gocardless.services.GoCardlessEventExecutor;
+import uk.gov.pay.directdebit.webhook.gocardless.services.UnprocessedGoCardlessEventsResumer;
+import uk.gov.pay.directdebit.webhook.gocardless.services.WebhookGoCardlessService;
 import uk.gov.pay.directdebit.webhook.gocardless.support.GoCardlessWebhookSignatureCalculator;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
 public class DirectDebitModule extends AbstractModule {
 
     private final DirectDebitConfig configuration;
     private final Environment environment;
     private final Jdbi jdbi;
+    private final Jdbi readOnlyJdbi;
 
     public DirectDebitModule(final DirectDebitConfig configuration, final Environment environment, final Jdbi jdbi) {
+        this(configuration, environment, jdbi, jdbi);
+    }
+
+    public DirectDebitModule(final DirectDebitConfig configuration, final Environment environment, final Jdbi jdbi,
+                             final Jdbi readOnlyJdbi) {
         super();
         this.configuration = configuration;
         this.environment = environment;
         this.jdbi = jdbi;
+        this.readOnlyJdbi = readOnlyJdbi;
     }
 
     @Override
@@ -48,7 +69,18 @@ public class DirectDebitModule extends AbstractModule {
     @Provides
     @Singleton
     public GoCardlessClientFactory provideGoCardlessClientFactory() {
-        return new GoCardlessClientFactory(configuration);
+        return new GoCardlessClientFactory(configuration, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public GoCardlessSunNameCache provideGoCardlessSunNameCache() {
+        ExecutorService refreshExecutorService = environment.lifecycle()
+                .executorService("gocardless-sun-name-refresh-%d")
+                .minThreads(1)
+                .maxThreads(1)
+                .build();
+        return new GoCardlessSunNameCache(configuration.getGoCardless().getSunNameRefreshInterval(), refreshExecutorService);
     }
 
     @Provides
@@ -76,6 +108,49 @@ public class DirectDebitModule extends AbstractModule {
         return new GoCardlessWebhookSignatureCalculator(configuration.getGoCardless().getWebhookSecret());
     }
 
+    @Provides
+    @Singleton
+    public BulkCollectService provideBulkCollectService(MandateQueryService mandateQueryService, PaymentService paymentService) {
+        BulkCollectConfig bulkCollectConfig = configuration.getBulkCollectConfig();
+        ExecutorService submissionExecutorService = environment.lifecycle()
+                .executorService("bulk-collect-submission-%d")
+                .minThreads(bulkCollectConfig.getThreads())
+                .maxThreads(bulkCollectConfig.getThreads())
+                .build();
+        return new BulkCollectService(mandateQueryService, paymentService, submissionExecutorService,
+                bulkCollectConfig.getMaximumPayments(), bulkCollectConfig.getTimeout());
+    }
+
+    @Provides
+    @Singleton
+    public GoCardlessEventExecutor provideGoCardlessEventExecutor() {
+        return GoCardlessEventExecutor.from(configuration.getWebhookProcessingConfig(), environment);
+    }
+
+    @Provides
+    @Singleton
+    public UnprocessedGoCardlessEventsResumer provideUnprocessedGoCardlessEventsResumer(
+            GoCardlessEventService goCardlessEventService, WebhookGoCardlessService webhookGoCardlessService) {
+        ScheduledExecutorService resumerExecutorService = environment.lifecycle()
+                .scheduledExecutorService("gocardless-webhook-events-resumer-%d")
+                .build();
+        return new UnprocessedGoCardlessEventsResumer(goCardlessEventService, webhookGoCardlessService,
+                resumerExecutorService, configuration.getWebhookProcessingConfig().getResumeInterval());
+    }
+
+    @Provides
+    @Singleton
+    public SearchCounter provideSearchCounter() {
+        return new SearchCounter(configuration.getSearchConfig());
+    }
+
+    @Provides
+    @Singleton
+    @ReadOnly
+    public Jdbi provideReadOnlyJdbi() {
+        return readOnlyJdbi;
+    }
+
     @Provides
     @Singleton
     public ObjectMapper provideObjectMapper() {
@@ -100,6 +175,12 @@ public class DirectDebitModule extends AbstractModule {
         return jdbi.onDemand(GatewayAccountDao.class);
     }
 
+    @Provides
+    @Singleton
+    public GatewayAccountIdCache provideGatewayAccountIdCache(GatewayAccountDao gatewayAccountDao) {
+        return new GatewayAccountIdCache(gatewayAccountDao);
+    }
+
     @Provides
     @Singleton
     public PayerDao providePayerDao() {
@@ -132,8 +213,8 @@ public class DirectDebitModule extends AbstractModule {
 
     @Provides
     @Singleton
-    public PaymentViewDao providePaymentViewDao() {
-        return new PaymentViewDao(jdbi);
+    public PaymentViewDao providePaymentViewDao(@ReadOnly Jdbi readOnlyJdbi, GatewayAccountIdCache gatewayAccountIdCache) {
+        return new PaymentViewDao(readOnlyJdbi, gatewayAccountIdCache, environment.metrics());
     }
 
     @Provides
@@ -144,11 +225,15 @@ public class DirectDebitModule extends AbstractModule {
     
     @Provides
     @Singleton
-    public MandateSearchDao provideMandateSearchDao() {
-        return new MandateSearchDao(jdbi);
+    public MandateSearchDao provideMandateSearchDao(@ReadOnly Jdbi readOnlyJdbi) {
+        return new MandateSearchDao(readOnlyJdbi, environment.metrics());
     }
     
     @Provides
     @Singleton
     public GovUkPayEventDao provideGovUkPayEventDao() { return jdbi.onDemand(GovUkPayEventDao.class); }
+
+    @Provides
+    @Singleton
+    public ResourceEventHeadDao provideResourceEventHeadDao() { return jdbi.onDemand(ResourceEventHeadDao.class); }
 }
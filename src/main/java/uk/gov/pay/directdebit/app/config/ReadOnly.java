@@ -0,0 +1,21 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.google.inject.BindingAnnotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks the {@link org.jdbi.v3.core.Jdbi} that reads from the read replica when one is configured. Only inject it
+ * where results that are a few seconds out of date are acceptable, such as searches.
+ */
+@BindingAnnotation
+@Target({FIELD, PARAMETER, METHOD})
+@Retention(RUNTIME)
+public @interface ReadOnly {
+}
@@ -0,0 +1,55 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.TimeUnit;
+
+public class ReadReplicaConfig extends Configuration {
+
+    // whether searches read from the replica; when false every query goes to the primary database
+    @JsonProperty
+    private boolean enabled = false;
+
+    // searches go to the primary database while the replica is further behind it than this
+    @JsonProperty
+    @NotNull
+    private Duration maximumLag = Duration.seconds(30);
+
+    // how often the replica's lag is checked, and how long it is left alone after failing to give a connection
+    @JsonProperty
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    private Duration lagCheckInterval = Duration.seconds(5);
+
+    @Valid
+    @JsonProperty("database")
+    private DataSourceFactory dataSourceFactory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getMaximumLag() {
+        return maximumLag;
+    }
+
+    public Duration getLagCheckInterval() {
+        return lagCheckInterval;
+    }
+
+    public DataSourceFactory getDataSourceFactory() {
+        return dataSourceFactory;
+    }
+
+    @AssertTrue(message = "readReplica.database must be set when readReplica.enabled is true")
+    public boolean isDatabaseSetWhenEnabled() {
+        return !enabled || dataSourceFactory != null;
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SearchConfig extends Configuration {
+
+    // how long the exact number of results for a search is remembered, so paging through the results does not
+    // count them again for every page
+    @JsonProperty
+    @NotNull
+    private Duration countCacheTtl = Duration.seconds(10);
+
+    // the most searches whose counts are remembered at once
+    @JsonProperty
+    @Min(1)
+    private long countCacheMaximumSize = 10000;
+
+    // the most results counted when a search asks for count_mode=estimate
+    @JsonProperty
+    @Min(1)
+    private int estimateCountLimit = 10000;
+
+    public Duration getCountCacheTtl() {
+        return countCacheTtl;
+    }
+
+    public long getCountCacheMaximumSize() {
+        return countCacheMaximumSize;
+    }
+
+    public int getEstimateCountLimit() {
+        return estimateCountLimit;
+    }
+}
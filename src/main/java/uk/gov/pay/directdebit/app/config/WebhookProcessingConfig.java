@@ -0,0 +1,67 @@
+package uk.gov.pay.directdebit.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class WebhookProcessingConfig extends Configuration {
+
+    // if true, we respond to a GoCardless webhook as soon as its events have been stored and update mandate and
+    // payment states on a worker thread. Otherwise, everything happens before we respond to GoCardless.
+    @JsonProperty
+    private boolean asynchronous;
+
+    // number of partitions, each with its own thread, that events are spread across by organisation and resource
+    @JsonProperty
+    @Min(1)
+    private int threads = 4;
+
+    // capacity of each partition's queue
+    @JsonProperty
+    @Min(1)
+    private int queueCapacity = 100;
+
+    // how long a webhook request waits for room in a full partition queue before leaving its events to be picked up
+    // once their claim times out
+    @JsonProperty
+    @NotNull
+    private Duration queueTimeout = Duration.milliseconds(100);
+
+    // how long stored events are left to whoever claimed them before another instance may process them instead;
+    // events whose processing failed or was cut short by a restart are retried once this has passed
+    @JsonProperty
+    @NotNull
+    private Duration claimTimeout = Duration.minutes(10);
+
+    // how often each instance looks for stored events that have not been processed and are not claimed
+    @JsonProperty
+    @NotNull
+    private Duration resumeInterval = Duration.minutes(1);
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public Duration getClaimTimeout() {
+        return claimTimeout;
+    }
+
+    public Duration getResumeInterval() {
+        return resumeInterval;
+    }
+}
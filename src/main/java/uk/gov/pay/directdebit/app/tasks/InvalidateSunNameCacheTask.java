@@ -0,0 +1,41 @@
+package uk.gov.pay.directdebit.app.tasks;
+
+import io.dropwizard.servlets.tasks.Task;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
+
+import javax.inject.Inject;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forgets cached GoCardless SUN names so that they are fetched again the next time they are needed, for example
+ * after a service's SUN name has been changed. Invalidates only the given organisations if any are passed as
+ * {@code organisation} parameters, or every organisation otherwise:
+ * {@code POST /tasks/invalidate-sun-name-cache?organisation=OR123}
+ */
+public class InvalidateSunNameCacheTask extends Task {
+
+    private final GoCardlessSunNameCache sunNameCache;
+
+    @Inject
+    public InvalidateSunNameCacheTask(GoCardlessSunNameCache sunNameCache) {
+        super("invalidate-sun-name-cache");
+        this.sunNameCache = sunNameCache;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        List<String> organisations = parameters.getOrDefault("organisation", List.of());
+        if (organisations.isEmpty()) {
+            sunNameCache.invalidateAll();
+            output.println("Invalidated SUN names for all organisations");
+            return;
+        }
+        organisations.forEach(organisation -> {
+            sunNameCache.invalidate(GoCardlessOrganisationId.valueOf(organisation));
+            output.println("Invalidated SUN name for organisation " + organisation);
+        });
+    }
+}
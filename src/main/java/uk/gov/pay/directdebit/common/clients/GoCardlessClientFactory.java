@@ -1,32 +1,90 @@
 package uk.gov.pay.directdebit.common.clients;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.GoCardlessClient;
-import com.google.common.collect.Maps;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.squareup.okhttp.ConnectionPool;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.common.exception.NoAccessTokenException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
 import uk.gov.pay.directdebit.webhook.gocardless.config.GoCardlessFactory;
 
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps a GoCardless client for each access token in use, up to a maximum number of them, dropping the least
+ * recently used and any that have gone unused for a while. A dropped client is simply built again when its
+ * access token is next used.
+ * <p>
+ * Every client the GoCardless library builds uses OkHttp's process-wide default connection pool, so all of them
+ * share connections and idle connections are closed in one place; its size can be tuned with the
+ * {@code http.maxConnections} and {@code http.keepAliveDuration} system properties. The number of connections
+ * in use at once is bounded by the shared {@link GoCardlessRequestLimiter}, while each access token has its own
+ * {@link GoCardlessRateLimiter}, since GoCardless rate limits each access token separately. The rate limiters are
+ * kept apart from the clients and for at least one refill window after their last use, so dropping and rebuilding
+ * a client does not give its access token a fresh, full bucket.
+ */
 public class GoCardlessClientFactory {
 
-    private final Map<PaymentProviderAccessToken, GoCardlessClientFacade> clients;
+    private static final String METRICS_PREFIX = "gocardless";
+
     private final DirectDebitConfig configuration;
+    private final MetricRegistry metricRegistry;
+    private final GoCardlessRequestLimiter requestLimiter;
+    private final LoadingCache<PaymentProviderAccessToken, GoCardlessClientFacade> clients;
+    private final LoadingCache<PaymentProviderAccessToken, GoCardlessRateLimiter> rateLimiters;
 
-    public GoCardlessClientFactory(DirectDebitConfig configuration) {
+    public GoCardlessClientFactory(DirectDebitConfig configuration, MetricRegistry metricRegistry) {
         this.configuration = configuration;
-        this.clients = Maps.newConcurrentMap();
+        this.metricRegistry = metricRegistry;
+        GoCardlessFactory goCardlessFactory = configuration.getGoCardless();
+        this.requestLimiter = new GoCardlessRequestLimiter(
+                goCardlessFactory.getMaximumConcurrentRequests(),
+                goCardlessFactory.getRequestQueueTimeout().toMilliseconds(),
+                metricRegistry,
+                METRICS_PREFIX);
+        this.clients = CacheBuilder.newBuilder()
+                .maximumSize(goCardlessFactory.getMaximumClients())
+                .expireAfterAccess(goCardlessFactory.getClientExpiry().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build(CacheLoader.from(this::createGoCardlessClientFacade));
+        this.rateLimiters = CacheBuilder.newBuilder()
+                .expireAfterAccess(Math.max(goCardlessFactory.getClientExpiry().toMilliseconds(),
+                        GoCardlessRateLimiter.REFILL_WINDOW_MILLIS), TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(this::createRateLimiter));
+        registerMetrics(metricRegistry);
     }
 
     public GoCardlessClientFacade getClientFor(Optional<PaymentProviderAccessToken> maybeAccessToken) {
         PaymentProviderAccessToken accessToken = maybeAccessToken
                 .orElseThrow(() -> new NoAccessTokenException("No access token"));
-        return clients.computeIfAbsent(accessToken, token -> {
-            GoCardlessClientWrapper clientWrapper = new GoCardlessClientWrapper(createGoCardlessClient(token));
-            return new GoCardlessClientFacade(clientWrapper);
-        });
+        return clients.getUnchecked(accessToken);
+    }
+
+    private GoCardlessClientFacade createGoCardlessClientFacade(PaymentProviderAccessToken accessToken) {
+        return new GoCardlessClientFacade(new GoCardlessClientWrapper(createGoCardlessClient(accessToken), requestLimiter,
+                getRateLimiterFor(accessToken)));
+    }
+
+    GoCardlessRateLimiter getRateLimiterFor(PaymentProviderAccessToken accessToken) {
+        return rateLimiters.getUnchecked(accessToken);
+    }
+
+    private GoCardlessRateLimiter createRateLimiter() {
+        GoCardlessFactory goCardlessFactory = configuration.getGoCardless();
+        return new GoCardlessRateLimiter(
+                goCardlessFactory.getRateLimitPerMinute(),
+                goCardlessFactory.getRateLimitQueueTimeout().toMilliseconds(),
+                goCardlessFactory.getMaximumRetries(),
+                goCardlessFactory.getRetryBaseDelay().toMilliseconds(),
+                metricRegistry,
+                METRICS_PREFIX);
     }
 
     private GoCardlessClient createGoCardlessClient(PaymentProviderAccessToken accessToken) {
@@ -43,4 +101,16 @@ public class GoCardlessClientFactory {
                 .withEnvironment(goCardlessFactory.getEnvironment())
                 .build();
     }
+
+    private void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register(name(METRICS_PREFIX, "clients", "size"), (Gauge<Long>) clients::size);
+        metricRegistry.register(name(METRICS_PREFIX, "clients", "hits"), (Gauge<Long>) () -> clients.stats().hitCount());
+        metricRegistry.register(name(METRICS_PREFIX, "clients", "misses"), (Gauge<Long>) () -> clients.stats().missCount());
+        metricRegistry.register(name(METRICS_PREFIX, "clients", "evictions"), (Gauge<Long>) () -> clients.stats().evictionCount());
+        metricRegistry.register(name(METRICS_PREFIX, "rate-limiters", "size"), (Gauge<Long>) rateLimiters::size);
+        metricRegistry.register(name(METRICS_PREFIX, "connections", "open"),
+                (Gauge<Integer>) () -> ConnectionPool.getDefault().getConnectionCount());
+        metricRegistry.register(name(METRICS_PREFIX, "connections", "idle"),
+                (Gauge<Integer>) () -> ConnectionPool.getDefault().getIdleConnectionCount());
+    }
 }
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.common.clients;
 
+import com.gocardless.http.ApiResponse;
 import com.gocardless.resources.BankDetailsLookup;
 import com.gocardless.resources.Creditor;
 import com.gocardless.resources.Customer;
@@ -15,28 +16,35 @@ import uk.gov.pay.directdebit.payers.model.Payer;
 import uk.gov.pay.directdebit.payers.model.SortCode;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
+import java.util.function.Supplier;
+
 //thin abstraction over the client provided in the SDK
 public class GoCardlessClientWrapper {
 
     private com.gocardless.GoCardlessClient goCardlessClient;
+    private GoCardlessRequestLimiter requestLimiter;
+    private GoCardlessRateLimiter rateLimiter;
 
-    public GoCardlessClientWrapper(com.gocardless.GoCardlessClient goCardlessClient) {
+    public GoCardlessClientWrapper(com.gocardless.GoCardlessClient goCardlessClient, GoCardlessRequestLimiter requestLimiter,
+                                   GoCardlessRateLimiter rateLimiter) {
         this.goCardlessClient = goCardlessClient;
+        this.requestLimiter = requestLimiter;
+        this.rateLimiter = rateLimiter;
     }
 
     public Customer createCustomer(MandateExternalId mandateExternalId, Payer payer) {
-        return goCardlessClient.customers()
+        return execute(() -> goCardlessClient.customers()
                 .create()
                 .withEmail(payer.getEmail())
                 .withGivenName(payer.getName())
                 .withFamilyName(payer.getName())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .executeWrapped());
     }
 
     public CustomerBankAccount createCustomerBankAccount(MandateExternalId mandateExternalId, GoCardlessCustomer customer,
                                                          String accountHolderName, SortCode sortCode, AccountNumber accountNumber) {
-        return goCardlessClient.customerBankAccounts()
+        return execute(() -> goCardlessClient.customerBankAccounts()
                 .create()
                 .withAccountHolderName(accountHolderName)
                 .withAccountNumber(accountNumber.toString())
@@ -44,36 +52,42 @@ public class GoCardlessClientWrapper {
                 .withCountryCode("GB")
                 .withLinksCustomer(customer.getCustomerId())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .executeWrapped());
     }
 
     public Mandate createMandate(MandateExternalId mandateExternalId, GoCardlessCustomer customer) {
-        return goCardlessClient.mandates()
+        return execute(() -> goCardlessClient.mandates()
                 .create()
                 .withLinksCustomerBankAccount(customer.getCustomerBankAccountId())
                 .withIdempotencyKey(mandateExternalId.toString())
-                .execute();
+                .executeWrapped());
     }
 
     public com.gocardless.resources.Payment createPayment(Payment payment, GoCardlessMandateId goCardlessMandateId) {
-        return goCardlessClient.payments()
+        return execute(() -> goCardlessClient.payments()
                 .create()
                 .withAmount(Math.toIntExact(payment.getAmount()))
                 .withCurrency(PaymentService.PaymentCreateRequest.Currency.GBP)
                 .withLinksMandate(goCardlessMandateId.toString())
                 .withIdempotencyKey(payment.getExternalId())
-                .execute();
+                .executeWrapped());
     }
 
     public BankDetailsLookup validate(BankAccountDetails bankAccountDetails) {
-        return goCardlessClient.bankDetailsLookups().create()
+        return execute(() -> goCardlessClient.bankDetailsLookups().create()
                 .withAccountNumber(bankAccountDetails.getAccountNumber().toString())
                 .withBranchCode(bankAccountDetails.getSortCode().toString())
                 .withCountryCode("GB")
-                .execute();
+                .executeWrapped());
     }
 
     public Creditor getCreditor() {
-        return goCardlessClient.creditors().all().execute().iterator().next();
+        return execute(() -> goCardlessClient.creditors().list().executeWrapped()).getItems().get(0);
+    }
+
+    // waits for the access token's rate limit before taking one of the shared in-flight slots, so that a throttled
+    // account does not hold up requests for the others
+    private <T> T execute(Supplier<ApiResponse<T>> request) {
+        return rateLimiter.execute(() -> requestLimiter.execute(request));
     }
 }
@@ -0,0 +1,16 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.gocardless.GoCardlessException;
+
+/**
+ * Thrown when a GoCardless request could not be sent because the access token's rate limit would not allow it
+ * soon enough. It is a {@link GoCardlessException} so that callers handle it as they would GoCardless being
+ * unreachable.
+ */
+public class GoCardlessRateLimitExceededException extends GoCardlessException {
+
+    public GoCardlessRateLimitExceededException(long waitMillis, long timeoutMillis) {
+        super(String.format("GoCardless rate limit would have held the request for %dms, longer than the %dms allowed",
+                waitMillis, timeoutMillis));
+    }
+}
@@ -0,0 +1,210 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.gocardless.errors.GoCardlessApiException;
+import com.gocardless.http.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps one access token's GoCardless requests within GoCardless' rate limit for that token. Requests take a token
+ * from a bucket that refills at the configured rate, waiting for one if the bucket is empty. The bucket is also
+ * drained to match the {@code RateLimit-Remaining} header of each response, and when GoCardless reports no
+ * requests remaining, nothing is sent until the time in its {@code RateLimit-Reset} header.
+ * <p>
+ * A request GoCardless rejects with 429 Too Many Requests anyway is retried after an exponential backoff with full
+ * jitter. This is only safe because every request that creates something carries an idempotency key, and the
+ * rest only read.
+ */
+public class GoCardlessRateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessRateLimiter.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+    private static final String RATE_LIMIT_RESET = "RateLimit-Reset";
+
+    /**
+     * How long an empty bucket takes to fill up again.
+     */
+    static final long REFILL_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final double capacity;
+    private final double tokensPerMilli;
+    private final long queueTimeoutMillis;
+    private final int maximumRetries;
+    private final long retryBaseDelayMillis;
+    private final Timer queueWaitTimer;
+    private final Meter throttledMeter;
+    private final Meter retriedMeter;
+    private final Meter rejectedMeter;
+    private final Clock clock;
+    private final Sleeper sleeper;
+    private final Supplier<Random> random;
+
+    private double tokens;
+    private long lastRefillMillis;
+    private long blockedUntilMillis;
+
+    public GoCardlessRateLimiter(int requestsPerMinute, long queueTimeoutMillis, int maximumRetries,
+                                 long retryBaseDelayMillis, MetricRegistry metricRegistry, String metricsPrefix) {
+        this(requestsPerMinute, queueTimeoutMillis, maximumRetries, retryBaseDelayMillis, metricRegistry, metricsPrefix,
+                Clock.systemUTC(), TimeUnit.MILLISECONDS::sleep, ThreadLocalRandom::current);
+    }
+
+    GoCardlessRateLimiter(int requestsPerMinute, long queueTimeoutMillis, int maximumRetries, long retryBaseDelayMillis,
+                          MetricRegistry metricRegistry, String metricsPrefix, Clock clock, Sleeper sleeper,
+                          Supplier<Random> random) {
+        this.capacity = requestsPerMinute;
+        this.tokensPerMilli = requestsPerMinute / (double) REFILL_WINDOW_MILLIS;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maximumRetries = maximumRetries;
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+        this.queueWaitTimer = metricRegistry.timer(name(metricsPrefix, "rate-limit", "queue-wait"));
+        this.throttledMeter = metricRegistry.meter(name(metricsPrefix, "rate-limit", "throttled"));
+        this.retriedMeter = metricRegistry.meter(name(metricsPrefix, "rate-limit", "retried"));
+        this.rejectedMeter = metricRegistry.meter(name(metricsPrefix, "rate-limit", "rejected"));
+        this.clock = clock;
+        this.sleeper = sleeper;
+        this.random = random;
+        this.tokens = capacity;
+        this.lastRefillMillis = clock.millis();
+    }
+
+    /**
+     * Sends the request once the rate limit allows, retrying it if GoCardless says it was sent too soon, and
+     * returns the resource in its response.
+     */
+    public <T> T execute(Supplier<ApiResponse<T>> request) {
+        for (int attempt = 0; ; attempt++) {
+            waitForCapacity();
+            try {
+                ApiResponse<T> response = request.get();
+                observe(response);
+                return response.getResource();
+            } catch (GoCardlessApiException e) {
+                if (e.getCode() != TOO_MANY_REQUESTS) {
+                    throw e;
+                }
+                throttledMeter.mark();
+                drain();
+                if (attempt >= maximumRetries) {
+                    throw e;
+                }
+                long delayMillis = retryDelayMillis(attempt);
+                LOGGER.info("GoCardless rate limit exceeded, retrying in {}ms (retry {} of {})",
+                        delayMillis, attempt + 1, maximumRetries);
+                retriedMeter.mark();
+                sleep(delayMillis);
+            }
+        }
+    }
+
+    private void waitForCapacity() {
+        long waitMillis = reserve();
+        queueWaitTimer.update(waitMillis, TimeUnit.MILLISECONDS);
+        if (waitMillis > 0) {
+            sleep(waitMillis);
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = refill();
+        long waitMillis = Math.max(blockedUntilMillis - now, 0);
+        if (tokens < 1) {
+            waitMillis = Math.max(waitMillis, (long) Math.ceil((1 - tokens) / tokensPerMilli));
+        }
+        if (waitMillis > queueTimeoutMillis) {
+            rejectedMeter.mark();
+            throw new GoCardlessRateLimitExceededException(waitMillis, queueTimeoutMillis);
+        }
+        tokens -= 1;
+        return waitMillis;
+    }
+
+    private synchronized void observe(ApiResponse<?> response) {
+        Integer remaining = header(response, RATE_LIMIT_REMAINING).map(GoCardlessRateLimiter::parseInteger).orElse(null);
+        if (remaining == null) {
+            return;
+        }
+        refill();
+        tokens = Math.min(tokens, remaining);
+        if (remaining <= 0) {
+            header(response, RATE_LIMIT_RESET)
+                    .map(GoCardlessRateLimiter::parseInstant)
+                    .ifPresent(reset -> blockedUntilMillis = Math.max(blockedUntilMillis, reset.toEpochMilli()));
+        }
+    }
+
+    private synchronized void drain() {
+        refill();
+        tokens = Math.min(tokens, 0);
+    }
+
+    private long refill() {
+        long now = clock.millis();
+        tokens = Math.min(capacity, tokens + (now - lastRefillMillis) * tokensPerMilli);
+        lastRefillMillis = now;
+        return now;
+    }
+
+    private long retryDelayMillis(int attempt) {
+        long ceiling = Math.min(retryBaseDelayMillis << Math.min(attempt, 20), queueTimeoutMillis);
+        return ceiling <= 0 ? 0 : random.get().nextInt((int) Math.min(ceiling, Integer.MAX_VALUE)) + 1;
+    }
+
+    private void sleep(long millis) {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoCardlessRateLimitExceededException(millis, queueTimeoutMillis);
+        }
+    }
+
+    private static Optional<String> header(ApiResponse<?> response, String name) {
+        if (response.getHeaders() == null) {
+            return Optional.empty();
+        }
+        return response.getHeaders().entries().stream()
+                .filter(entry -> name.equalsIgnoreCase(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst();
+    }
+
+    private static Integer parseInteger(String value) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,15 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.gocardless.GoCardlessException;
+
+/**
+ * Thrown when a GoCardless request could not be sent because too many others were in flight. It is a
+ * {@link GoCardlessException} so that callers handle it as they would GoCardless being unreachable.
+ */
+public class GoCardlessRequestLimitExceededException extends GoCardlessException {
+
+    public GoCardlessRequestLimitExceededException(int maximumConcurrentRequests, long timeoutMillis) {
+        super(String.format("Waited %dms for one of %d GoCardless requests in flight to finish",
+                timeoutMillis, maximumConcurrentRequests));
+    }
+}
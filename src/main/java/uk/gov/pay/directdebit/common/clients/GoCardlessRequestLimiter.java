@@ -0,0 +1,54 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Limits how many GoCardless requests are in flight at once across every gateway account's client. Each request
+ * holds an HTTP connection for as long as it runs, so this also limits how many connections to GoCardless are
+ * open at once.
+ */
+public class GoCardlessRequestLimiter {
+
+    private final Semaphore permits;
+    private final int maximumConcurrentRequests;
+    private final long timeoutMillis;
+    private final Meter rejectedMeter;
+
+    public GoCardlessRequestLimiter(int maximumConcurrentRequests, long timeoutMillis, MetricRegistry metricRegistry,
+                                    String metricsPrefix) {
+        this.permits = new Semaphore(maximumConcurrentRequests, true);
+        this.maximumConcurrentRequests = maximumConcurrentRequests;
+        this.timeoutMillis = timeoutMillis;
+        this.rejectedMeter = metricRegistry.meter(name(metricsPrefix, "requests", "rejected"));
+        metricRegistry.register(name(metricsPrefix, "requests", "in-flight"), (Gauge<Integer>) this::getRequestsInFlight);
+    }
+
+    public <T> T execute(Supplier<T> request) {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejectedMeter.mark();
+                throw new GoCardlessRequestLimitExceededException(maximumConcurrentRequests, timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoCardlessRequestLimitExceededException(maximumConcurrentRequests, timeoutMillis);
+        }
+        try {
+            return request.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getRequestsInFlight() {
+        return maximumConcurrentRequests - permits.availablePermits();
+    }
+}
@@ -0,0 +1,152 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Hands out connections to the read replica while it is reachable and no further behind the primary than the
+ * maximum lag, and connections to the primary otherwise. Searches can tolerate results that are a few seconds
+ * old, but not ones that are minutes old or an error because the replica is down.
+ * <p>
+ * The replica's lag is checked in the background once per check interval, so requests never wait on a slow
+ * replica to find out whether to use it. If the replica fails to give a connection it is not tried again until
+ * the next check says it is usable.
+ */
+public class ReadReplicaDataSource implements ManagedDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadReplicaDataSource.class);
+    private static final String METRICS_PREFIX = "read-replica";
+
+    private static final String REPLICATION_LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final ManagedDataSource replica;
+    private final DataSource primary;
+    private final double maximumLagSeconds;
+    private final Duration lagCheckInterval;
+    private final ScheduledExecutorService lagCheckExecutor;
+
+    private volatile boolean replicaUsable = false;
+    private volatile Double lagSeconds = null;
+
+    public ReadReplicaDataSource(ManagedDataSource replica, DataSource primary, Duration maximumLag, Duration lagCheckInterval,
+                                 ScheduledExecutorService lagCheckExecutor, MetricRegistry metricRegistry) {
+        this.replica = replica;
+        this.primary = primary;
+        this.maximumLagSeconds = maximumLag.toMilliseconds() / 1000.0;
+        this.lagCheckInterval = lagCheckInterval;
+        this.lagCheckExecutor = lagCheckExecutor;
+        metricRegistry.register(name(METRICS_PREFIX, "usable"), (Gauge<Integer>) () -> replicaUsable ? 1 : 0);
+        metricRegistry.register(name(METRICS_PREFIX, "lag", "seconds"), (Gauge<Double>) () -> lagSeconds);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicaUsable) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                LOGGER.warn("Could not get a connection to the read replica, using the primary database until the next check", e);
+                replicaUsable = false;
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are only available with the configured credentials");
+    }
+
+    void checkReplica() {
+        Double lag = measureLag();
+        boolean usable = lag != null && lag <= maximumLagSeconds;
+        if (lag != null && !usable) {
+            LOGGER.warn("The read replica is {} seconds behind the primary database, more than the maximum of {}",
+                    lag, maximumLagSeconds);
+        }
+        if (usable != replicaUsable) {
+            LOGGER.info(usable ? "Reading from the read replica" : "Reading from the primary database instead of the read replica");
+        }
+        lagSeconds = lag;
+        replicaUsable = usable;
+    }
+
+    private Double measureLag() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+            resultSet.next();
+            return resultSet.getDouble(1);
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("Could not check how far the read replica is behind the primary database", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        replica.start();
+        lagCheckExecutor.scheduleWithFixedDelay(this::checkReplica, 0, lagCheckInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        replica.stop();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return replica.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        replica.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        replica.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return replica.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return replica.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Cannot unwrap to " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
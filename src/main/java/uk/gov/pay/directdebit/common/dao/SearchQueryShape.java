@@ -0,0 +1,57 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What kind of search statement is wanted and which of its optional filters are used. Two searches with the same
+ * shape run exactly the same SQL and differ only in the values bound to it.
+ */
+public final class SearchQueryShape<F extends Enum<F>> {
+
+    public enum Mode {COUNT, COUNT_UP_TO, SELECT_PAGE, SELECT_AFTER, SELECT_BEFORE, EXPORT}
+
+    private final Mode mode;
+    private final Set<F> filters;
+
+    private SearchQueryShape(Mode mode, Set<F> filters) {
+        this.mode = mode;
+        this.filters = filters;
+    }
+
+    public static <F extends Enum<F>> SearchQueryShape<F> of(Mode mode, EnumSet<F> filters) {
+        return new SearchQueryShape<>(mode, Collections.unmodifiableSet(EnumSet.copyOf(filters)));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isCount() {
+        return mode == Mode.COUNT || mode == Mode.COUNT_UP_TO;
+    }
+
+    public boolean has(F filter) {
+        return filters.contains(filter);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchQueryShape<?> that = (SearchQueryShape<?>) o;
+        return mode == that.mode && filters.equals(that.filters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, filters);
+    }
+
+    @Override
+    public String toString() {
+        return mode + filters.toString();
+    }
+}
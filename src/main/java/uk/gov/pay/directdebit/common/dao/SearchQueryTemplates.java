@@ -0,0 +1,45 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Renders the SQL for each {@link SearchQueryShape} of a search once and hands out the same string every time that
+ * shape is searched for again. There are only a handful of modes and at most 2^N combinations of N filters, so the
+ * templates are never evicted. Because the text of a statement stays the same from one request to the next, the
+ * Postgres driver can keep it prepared on the server and reuse its plan.
+ */
+public class SearchQueryTemplates<F extends Enum<F>> {
+
+    private final Function<SearchQueryShape<F>, String> renderer;
+    private final Map<SearchQueryShape<F>, String> templates = new ConcurrentHashMap<>();
+    private final Meter hits;
+    private final Meter misses;
+
+    public SearchQueryTemplates(String metricsPrefix, Function<SearchQueryShape<F>, String> renderer,
+                                MetricRegistry metricRegistry) {
+        this.renderer = renderer;
+        this.hits = metricRegistry.meter(name(metricsPrefix, "templates", "hits"));
+        this.misses = metricRegistry.meter(name(metricsPrefix, "templates", "misses"));
+    }
+
+    public String get(SearchQueryShape<F> shape) {
+        String sql = templates.get(shape);
+        if (sql != null) {
+            hits.mark();
+            return sql;
+        }
+        misses.mark();
+        return templates.computeIfAbsent(shape, renderer);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+}
@@ -0,0 +1,16 @@
+package uk.gov.pay.directdebit.common.model;
+
+/**
+ * How the total number of matching rows is worked out for a search, chosen with the {@code count_mode} query
+ * parameter. {@code EXACT} counts every match, {@code ESTIMATE} stops counting at a configured limit and
+ * {@code NONE} does not count at all.
+ */
+public enum CountMode {
+    EXACT,
+    ESTIMATE,
+    NONE;
+
+    public String toQueryParamValue() {
+        return name().toLowerCase();
+    }
+}
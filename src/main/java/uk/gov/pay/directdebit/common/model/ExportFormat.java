@@ -0,0 +1,28 @@
+package uk.gov.pay.directdebit.common.model;
+
+import javax.ws.rs.core.MediaType;
+
+public enum ExportFormat {
+    NDJSON(new MediaType("application", "x-ndjson"), "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    ExportFormat(MediaType mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static ExportFormat fromString(String format) {
+        return ExportFormat.valueOf(format.toUpperCase());
+    }
+}
@@ -0,0 +1,35 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.Base64;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque token handed out in the {@code after} and {@code before} links of a search. It holds the internal id of
+ * the row at the edge of a page so the next page can be found with an index seek rather than an OFFSET.
+ */
+public final class SearchCursor {
+
+    private static final String PREFIX = "id:";
+
+    private SearchCursor() {
+    }
+
+    public static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + id).getBytes(UTF_8));
+    }
+
+    public static Optional<Long> decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            long id = Long.parseLong(decoded.substring(PREFIX.length()));
+            return id >= 0 ? Optional.of(id) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
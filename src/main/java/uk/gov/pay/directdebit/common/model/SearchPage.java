@@ -0,0 +1,94 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * One page of search results, together with the internal ids of the rows at either end of it so that cursors for
+ * the neighbouring pages can be handed out.
+ */
+public class SearchPage<T> {
+
+    private final List<T> results;
+    private final Long firstId;
+    private final Long lastId;
+    private final boolean hasPrevious;
+    private final boolean hasNext;
+
+    public SearchPage(List<T> results, Long firstId, Long lastId, boolean hasPrevious, boolean hasNext) {
+        this.results = results;
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+    }
+
+    public static <T> SearchPage<T> empty() {
+        return new SearchPage<>(List.of(), null, null, false, false);
+    }
+
+    public static <T> SearchPage<T> fromRows(List<T> rows, SearchParams searchParams, ToLongFunction<T> idOf) {
+        return fromRows(rows, searchParams, idOf, identity());
+    }
+
+    /**
+     * Builds a page from rows fetched newest first (oldest first for a {@code before} cursor) with one row more
+     * than the display size, the extra row showing whether there is a page beyond this one.
+     */
+    public static <R, T> SearchPage<T> fromRows(List<R> rows, SearchParams searchParams, ToLongFunction<R> idOf,
+                                                Function<R, T> toResult) {
+        boolean hasMore = rows.size() > searchParams.getDisplaySize();
+        List<R> page = new ArrayList<>(hasMore ? rows.subList(0, searchParams.getDisplaySize()) : rows);
+
+        boolean hasPrevious;
+        boolean hasNext;
+        if (searchParams.getBeforeId().isPresent()) {
+            Collections.reverse(page);
+            hasPrevious = hasMore;
+            hasNext = true;
+        } else if (searchParams.getAfterId().isPresent()) {
+            hasPrevious = true;
+            hasNext = hasMore;
+        } else {
+            hasPrevious = searchParams.getOffset() > 0;
+            hasNext = hasMore;
+        }
+
+        if (page.isEmpty()) {
+            return new SearchPage<>(List.of(), null, null, hasPrevious, hasNext);
+        }
+        return new SearchPage<>(
+                page.stream().map(toResult).collect(toList()),
+                idOf.applyAsLong(page.get(0)),
+                idOf.applyAsLong(page.get(page.size() - 1)),
+                hasPrevious,
+                hasNext);
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public Optional<Long> getFirstId() {
+        return Optional.ofNullable(firstId);
+    }
+
+    public Optional<Long> getLastId() {
+        return Optional.ofNullable(lastId);
+    }
+
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
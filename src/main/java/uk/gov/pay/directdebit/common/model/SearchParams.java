@@ -1,13 +1,19 @@
 package uk.gov.pay.directdebit.common.model;
 
 import uk.gov.pay.commons.validation.ValidDate;
+import uk.gov.pay.directdebit.common.exception.validation.ValidSearchCursor;
 
+import javax.validation.constraints.AssertFalse;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.QueryParam;
 import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 public abstract class SearchParams {
 
@@ -15,6 +21,9 @@ public abstract class SearchParams {
     protected static final String TO_DATE_KEY = "to_date";
     protected static final String PAGE_KEY = "page";
     protected static final String DISPLAY_SIZE_KEY = "display_size";
+    protected static final String AFTER_KEY = "after";
+    protected static final String BEFORE_KEY = "before";
+    protected static final String COUNT_MODE_KEY = "count_mode";
 
     @QueryParam(FROM_DATE_KEY)
     @ValidDate(message = "Invalid attribute value: from_date. Must be a valid date")
@@ -23,7 +32,7 @@ public abstract class SearchParams {
     @QueryParam(TO_DATE_KEY)
     @ValidDate(message = "Invalid attribute value: to_date. Must be a valid date")
     protected String toDate;
-    
+
     @QueryParam(PAGE_KEY)
     @DefaultValue("1")
     @Min(value = 1, message = "Invalid attribute value: page. Must be greater than or equal to {value}")
@@ -35,7 +44,42 @@ public abstract class SearchParams {
     @Max(value = 500, message = "Invalid attribute value: display_size. Must be less than or equal to {value}")
     protected Integer displaySize = 500;
 
-    public abstract String buildQueryParamString();
+    @QueryParam(AFTER_KEY)
+    @ValidSearchCursor(message = "Invalid attribute value: after. Must be a cursor from a previous search")
+    protected String after;
+
+    @QueryParam(BEFORE_KEY)
+    @ValidSearchCursor(message = "Invalid attribute value: before. Must be a cursor from a previous search")
+    protected String before;
+
+    @QueryParam(COUNT_MODE_KEY)
+    @DefaultValue("exact")
+    @Pattern(regexp = "exact|estimate|none", message = "Invalid attribute value: count_mode. Must be one of exact, estimate or none")
+    protected String countMode = "exact";
+
+    public abstract String buildQueryParamStringForPage(int pageNumber);
+
+    protected abstract String buildQueryParamStringWithCursor(String cursorKey, String cursor);
+
+    protected abstract void addCountKeyFilters(Map<String, String> filters);
+
+    public String buildQueryParamString() {
+        if (after != null) {
+            return buildQueryParamStringAfter(after);
+        }
+        if (before != null) {
+            return buildQueryParamStringBefore(before);
+        }
+        return buildQueryParamStringForPage(page);
+    }
+
+    public String buildQueryParamStringAfter(String cursor) {
+        return buildQueryParamStringWithCursor(AFTER_KEY, cursor);
+    }
+
+    public String buildQueryParamStringBefore(String cursor) {
+        return buildQueryParamStringWithCursor(BEFORE_KEY, cursor);
+    }
 
     public Optional<ZonedDateTime> getFromDate() {
         return Optional.ofNullable(fromDate).map(ZonedDateTime::parse);
@@ -57,6 +101,48 @@ public abstract class SearchParams {
         return page == 1 ? 0 : (page - 1) * displaySize;
     }
 
+    public Optional<Long> getAfterId() {
+        return Optional.ofNullable(after).flatMap(SearchCursor::decode);
+    }
+
+    public Optional<Long> getBeforeId() {
+        return Optional.ofNullable(before).flatMap(SearchCursor::decode);
+    }
+
+    /**
+     * Whether the page was asked for with an {@code after} or {@code before} cursor rather than a page number.
+     */
+    public boolean isCursorPagination() {
+        return after != null || before != null;
+    }
+
+    @AssertFalse(message = "Invalid attribute value: after. Cannot be used together with before")
+    public boolean isAfterAndBeforeSet() {
+        return after != null && before != null;
+    }
+
+    public CountMode getCountMode() {
+        return CountMode.valueOf(countMode.toUpperCase());
+    }
+
+    /**
+     * Identifies the set of results this search matches, whichever page of them is asked for and however the
+     * filters were written, so that searches for different pages of the same results can share a count.
+     */
+    public String buildCountKey() {
+        var filters = new TreeMap<String, String>();
+        getFromDate().ifPresent(fromDate -> filters.put(FROM_DATE_KEY, fromDate.toInstant().toString()));
+        getToDate().ifPresent(toDate -> filters.put(TO_DATE_KEY, toDate.toInstant().toString()));
+        addCountKeyFilters(filters);
+        return getClass().getSimpleName() + filters;
+    }
+
+    protected static void addCaseInsensitiveCountKeyFilter(Map<String, String> filters, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            filters.put(name, value.toLowerCase(Locale.ROOT));
+        }
+    }
+
     protected String appendQueryParam(String name, String value) {
         return "&" + formatQueryParam(name, value);
     }
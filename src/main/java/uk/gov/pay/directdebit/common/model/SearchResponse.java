@@ -19,6 +19,8 @@ public class SearchResponse<T> {
     private final String gatewayExternalId;
     @JsonProperty("total")
     private final Integer total;
+    @JsonProperty("total_capped")
+    private final Boolean totalCapped;
     @JsonProperty("count")
     private final Integer count;
     @JsonProperty("page")
@@ -29,8 +31,18 @@ public class SearchResponse<T> {
     private final LinksForSearchResult linksForSearchResult;
 
     public SearchResponse(String gatewayExternalId, Integer total, Integer page, List<T> results, LinksForSearchResult linksForSearchResult) {
+        this(gatewayExternalId, total, null, page, results, linksForSearchResult);
+    }
+
+    public SearchResponse(String gatewayExternalId, SearchTotal total, Integer page, List<T> results, LinksForSearchResult linksForSearchResult) {
+        this(gatewayExternalId, total.getCount(), total.isCapped() ? Boolean.TRUE : null, page, results, linksForSearchResult);
+    }
+
+    private SearchResponse(String gatewayExternalId, Integer total, Boolean totalCapped, Integer page, List<T> results,
+                           LinksForSearchResult linksForSearchResult) {
         this.gatewayExternalId = gatewayExternalId;
         this.total = total;
+        this.totalCapped = totalCapped;
         this.count = results.size();
         this.page = page;
         this.results = results;
@@ -43,6 +55,8 @@ public class SearchResponse<T> {
 
     public Integer getTotal() { return total; }
 
+    public Boolean getTotalCapped() { return totalCapped; }
+
     public Integer getCount() { return count; }
 
     public Integer getPage() { return page; }
@@ -63,6 +77,7 @@ public class SearchResponse<T> {
         return count.equals(that.count) &&
                 Objects.equals(gatewayExternalId, that.gatewayExternalId) &&
                 Objects.equals(total, that.total) &&
+                Objects.equals(totalCapped, that.totalCapped) &&
                 Objects.equals(page, that.page) &&
                 Objects.equals(results, that.results) &&
                 Objects.equals(linksForSearchResult, that.linksForSearchResult);
@@ -70,7 +85,7 @@ public class SearchResponse<T> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(gatewayExternalId, total, count, page, results, linksForSearchResult);
+        return Objects.hash(gatewayExternalId, total, totalCapped, count, page, results, linksForSearchResult);
     }
 
     @Override
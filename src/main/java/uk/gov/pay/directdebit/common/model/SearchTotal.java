@@ -0,0 +1,76 @@
+package uk.gov.pay.directdebit.common.model;
+
+import java.util.Objects;
+
+/**
+ * The number of results matching a search, as far as it was counted. A total is either exact, capped (there are
+ * at least this many matches but counting stopped there) or not counted at all.
+ */
+public class SearchTotal {
+
+    private static final SearchTotal NOT_COUNTED = new SearchTotal(null, false);
+
+    private final Integer count;
+    private final boolean capped;
+
+    private SearchTotal(Integer count, boolean capped) {
+        this.count = count;
+        this.capped = capped;
+    }
+
+    public static SearchTotal exact(int count) {
+        return new SearchTotal(count, false);
+    }
+
+    public static SearchTotal capped(int count) {
+        return new SearchTotal(count, true);
+    }
+
+    public static SearchTotal notCounted() {
+        return NOT_COUNTED;
+    }
+
+    /**
+     * The number of matches counted, or null if they were not counted.
+     */
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * The number of matches if every one of them was counted, otherwise null.
+     */
+    public Integer getExactCount() {
+        return capped ? null : count;
+    }
+
+    public boolean isCapped() {
+        return capped;
+    }
+
+    public boolean mayHaveMatches() {
+        return count == null || count > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SearchTotal that = (SearchTotal) o;
+        return capped == that.capped && Objects.equals(count, that.count);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, capped);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchTotal{count=" + count + ", capped=" + capped + "}";
+    }
+}
@@ -0,0 +1,70 @@
+package uk.gov.pay.directdebit.common.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import uk.gov.pay.directdebit.app.config.SearchConfig;
+import uk.gov.pay.directdebit.common.model.SearchParams;
+import uk.gov.pay.directdebit.common.model.SearchTotal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Works out the total for a search according to its {@code count_mode}. Exact counts are remembered for a short
+ * while, keyed by gateway account and the search's filters, so that paging through the results of a search only
+ * counts them once.
+ */
+public class SearchCounter {
+
+    private final Cache<String, Integer> exactCounts;
+    private final int estimateCountLimit;
+
+    public SearchCounter(SearchConfig searchConfig) {
+        this.exactCounts = CacheBuilder.newBuilder()
+                .expireAfterWrite(searchConfig.getCountCacheTtl().toNanoseconds(), TimeUnit.NANOSECONDS)
+                .maximumSize(searchConfig.getCountCacheMaximumSize())
+                .build();
+        this.estimateCountLimit = searchConfig.getEstimateCountLimit();
+    }
+
+    /**
+     * @param countAll   counts every match
+     * @param countUpTo  counts matches but stops at the limit it is given
+     */
+    public SearchTotal count(SearchParams searchParams, String gatewayAccountExternalId,
+                             IntSupplier countAll, IntUnaryOperator countUpTo) {
+        String key = gatewayAccountExternalId + ":" + searchParams.buildCountKey();
+        switch (searchParams.getCountMode()) {
+            case NONE:
+                return SearchTotal.notCounted();
+            case ESTIMATE:
+                return estimate(key, countUpTo);
+            default:
+                return SearchTotal.exact(countExactly(key, countAll));
+        }
+    }
+
+    private int countExactly(String key, IntSupplier countAll) {
+        Integer cachedCount = exactCounts.getIfPresent(key);
+        if (cachedCount != null) {
+            return cachedCount;
+        }
+        int count = countAll.getAsInt();
+        exactCounts.put(key, count);
+        return count;
+    }
+
+    private SearchTotal estimate(String key, IntUnaryOperator countUpTo) {
+        Integer cachedCount = exactCounts.getIfPresent(key);
+        if (cachedCount != null) {
+            return SearchTotal.exact(cachedCount);
+        }
+        int count = countUpTo.applyAsInt(estimateCountLimit + 1);
+        if (count > estimateCountLimit) {
+            return SearchTotal.capped(estimateCountLimit);
+        }
+        exactCounts.put(key, count);
+        return SearchTotal.exact(count);
+    }
+}
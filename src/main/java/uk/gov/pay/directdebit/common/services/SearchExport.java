@@ -0,0 +1,103 @@
+package uk.gov.pay.directdebit.common.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the results of a search to the response as they are read from the database, one row at a time, rather
+ * than collecting them first.
+ */
+public class SearchExport {
+
+    @FunctionalInterface
+    public interface Rows<T> {
+        void forEach(Consumer<T> consumer);
+    }
+
+    private SearchExport() {
+    }
+
+    /**
+     * One JSON object per line.
+     */
+    public static <T> StreamingOutput asNdjson(Rows<T> rows, Function<T, ?> toJson, ObjectMapper objectMapper) {
+        ObjectWriter objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                forEachRow(rows, row -> {
+                    objectWriter.writeValue(generator, toJson.apply(row));
+                    generator.writeRaw('\n');
+                });
+            }
+        };
+    }
+
+    /**
+     * A header line followed by one line per row. Values are quoted where needed, and values that a spreadsheet
+     * would treat as a formula are prefixed with a single quote.
+     */
+    public static <T> StreamingOutput asCsv(Rows<T> rows, List<String> header, Function<T, List<String>> toCsvRow) {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+            writeCsvLine(writer, header);
+            forEachRow(rows, row -> writeCsvLine(writer, toCsvRow.apply(row)));
+            writer.flush();
+        };
+    }
+
+    private static <T> void forEachRow(Rows<T> rows, RowWriter<T> rowWriter) throws IOException {
+        try {
+            rows.forEach(row -> {
+                try {
+                    rowWriter.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsvValue(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    static String escapeCsvValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String escaped = "=+-@\t\r".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        if (escaped.contains(",") || escaped.contains("\"") || escaped.contains("\n") || escaped.contains("\r")) {
+            return '"' + escaped.replace("\"", "\"\"") + '"';
+        }
+        return escaped;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.events.dao;
 
+import org.jdbi.v3.sqlobject.CreateSqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
@@ -8,8 +9,11 @@ import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 import uk.gov.pay.directdebit.events.dao.mapper.GoCardlessEventMapper;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventId;
 import uk.gov.pay.directdebit.events.model.GoCardlessEventIdArgumentFactory;
 import uk.gov.pay.directdebit.events.model.GoCardlessOrganisationIdArgumentFactory;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
@@ -18,6 +22,7 @@ import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateIdArgumentFactory;
 import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
 import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentIdArgumentFactory;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -49,7 +54,8 @@ public interface GoCardlessEventDao {
             " links_previous_customer_bank_account," +
             " links_refund," +
             " links_subscription," +
-            " created_at)" +
+            " created_at," +
+            " claimed_at)" +
             " VALUES (" +
             " :goCardlessEventId," +
             " :action," +
@@ -70,9 +76,78 @@ public interface GoCardlessEventDao {
             " :linksPreviousCustomerBankAccount," +
             " :linksRefund," +
             " :linksSubscription," +
-            " :createdAt)")
+            " :createdAt," +
+            " now())" +
+            " ON CONFLICT (event_id) DO NOTHING")
     @GetGeneratedKeys
-    Long insert(@BindBean() List<GoCardlessEvent> events);
+    List<GoCardlessEvent> insertEvents(@BindBean() List<GoCardlessEvent> events);
+
+    @CreateSqlObject
+    ResourceEventHeadDao resourceEventHeadDao();
+
+    /**
+     * Inserts the events, skipping any that have already been stored (GoCardless redelivers webhooks it thinks
+     * have failed), and returns only the events that were newly inserted. Inserted events are claimed by the caller,
+     * which is expected to process them.
+     */
+    @Transaction
+    default List<GoCardlessEvent> insert(List<GoCardlessEvent> events) {
+        List<GoCardlessEvent> insertedEvents = insertEvents(events);
+        resourceEventHeadDao().refreshHeadsLinkedTo(insertedEvents);
+        return insertedEvents;
+    }
+
+    @SqlQuery("SELECT id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json, " +
+            "event_id " +
+            "FROM gocardless_events " +
+            "WHERE id = :id")
+    Optional<GoCardlessEvent> findById(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json, " +
+            "event_id " +
+            "FROM gocardless_events " +
+            "WHERE id IN (<ids>)")
+    List<GoCardlessEvent> findByIds(@BindList("ids") Collection<Long> ids);
 
     @SqlQuery("SELECT id, " +
             "event_id, " +
@@ -138,4 +213,145 @@ public interface GoCardlessEventDao {
                                                                   @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId,
                                                                   @BindList("applicableActions") Set<String> applicableActions);
 
+    @SqlQuery("SELECT DISTINCT ON (links_mandate, links_organisation) " +
+            "id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json, " +
+            "event_id " +
+            "FROM gocardless_events " +
+            "JOIN unnest(:goCardlessMandateIds, :goCardlessOrganisationIds) AS k(mandate_id, organisation_id) " +
+            "ON links_mandate = k.mandate_id AND links_organisation = k.organisation_id " +
+            "WHERE action IN (<applicableActions>) " +
+            "ORDER BY links_mandate, links_organisation, created_at DESC")
+    List<GoCardlessEvent> findLatestApplicableEventsForMandates(@Bind("goCardlessMandateIds") String[] goCardlessMandateIds,
+                                                                @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds,
+                                                                @BindList("applicableActions") Set<String> applicableActions);
+
+    @SqlQuery("SELECT DISTINCT ON (links_payment, links_organisation) " +
+            "id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json, " +
+            "event_id " +
+            "FROM gocardless_events " +
+            "JOIN unnest(:goCardlessPaymentIds, :goCardlessOrganisationIds) AS k(payment_id, organisation_id) " +
+            "ON links_payment = k.payment_id AND links_organisation = k.organisation_id " +
+            "WHERE action IN (<applicableActions>) " +
+            "ORDER BY links_payment, links_organisation, created_at DESC")
+    List<GoCardlessEvent> findLatestApplicableEventsForPayments(@Bind("goCardlessPaymentIds") String[] goCardlessPaymentIds,
+                                                                @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds,
+                                                                @BindList("applicableActions") Set<String> applicableActions);
+
+    /**
+     * Claims up to {@code limit} events that have not been processed and are not claimed, or whose claim is older
+     * than the claim timeout because whoever claimed them failed or stopped before processing them. Rows another
+     * instance is claiming at the same time are skipped rather than waited for, so each event is only handed out once.
+     */
+    @SqlQuery("UPDATE gocardless_events " +
+            "SET claimed_at = now() " +
+            "WHERE id IN (" +
+            "SELECT id FROM gocardless_events " +
+            "WHERE processed_at IS NULL " +
+            "AND (claimed_at IS NULL OR claimed_at < now() - :claimTimeoutMillis * INTERVAL '1 millisecond') " +
+            "ORDER BY id " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json")
+    List<GoCardlessEvent> claimUnprocessedEvents(@Bind("claimTimeoutMillis") long claimTimeoutMillis,
+                                                 @Bind("limit") int limit);
+
+    /**
+     * Claims those of the given events that were stored earlier but have not been processed and are not claimed, or
+     * whose claim has timed out, so that redelivered events that were never processed are processed again.
+     */
+    @SqlQuery("UPDATE gocardless_events " +
+            "SET claimed_at = now() " +
+            "WHERE event_id IN (<goCardlessEventIds>) " +
+            "AND processed_at IS NULL " +
+            "AND (claimed_at IS NULL OR claimed_at < now() - :claimTimeoutMillis * INTERVAL '1 millisecond') " +
+            "RETURNING id, " +
+            "event_id, " +
+            "action, " +
+            "created_at, " +
+            "details_cause, " +
+            "details_description, " +
+            "details_origin, " +
+            "details_reason_code, " +
+            "details_scheme, " +
+            "resource_type," +
+            "links_mandate, " +
+            "links_new_customer_bank_account, " +
+            "links_new_mandate, " +
+            "links_organisation, " +
+            "links_parent_event, " +
+            "links_payment, " +
+            "links_payout, " +
+            "links_previous_customer_bank_account, " +
+            "links_refund, " +
+            "links_subscription, " +
+            "json")
+    List<GoCardlessEvent> claimUnprocessedEvents(@BindList("goCardlessEventIds") List<GoCardlessEventId> goCardlessEventIds,
+                                                 @Bind("claimTimeoutMillis") long claimTimeoutMillis);
+
+    @SqlUpdate("UPDATE gocardless_events SET claimed_at = NULL WHERE event_id IN (<goCardlessEventIds>) AND processed_at IS NULL")
+    int releaseClaims(@BindList("goCardlessEventIds") List<GoCardlessEventId> goCardlessEventIds);
+
+    @SqlUpdate("UPDATE gocardless_events SET processed_at = now() WHERE event_id IN (<goCardlessEventIds>) AND processed_at IS NULL")
+    int markAsProcessed(@BindList("goCardlessEventIds") List<GoCardlessEventId> goCardlessEventIds);
+
 }
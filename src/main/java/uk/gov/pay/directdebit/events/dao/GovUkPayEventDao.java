@@ -1,16 +1,21 @@
 package uk.gov.pay.directdebit.events.dao;
 
+import org.jdbi.v3.sqlobject.CreateSqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 import uk.gov.pay.directdebit.events.dao.mapper.GovUkPayEventMapper;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -21,7 +26,49 @@ public interface GovUkPayEventDao {
             " payment_id, event_date, resource_type, event_type) VALUES (:mandateId, :paymentId, :eventDate," +
             " :resourceType, :eventType)")
     @GetGeneratedKeys
-    Long insert(@BindBean GovUkPayEvent govUkPayEvent);
+    Long insertEvent(@BindBean GovUkPayEvent govUkPayEvent);
+
+    @SqlBatch("INSERT INTO govukpay_events(mandate_id," +
+            " payment_id, event_date, resource_type, event_type) VALUES (:mandateId, :paymentId, :eventDate," +
+            " :resourceType, :eventType)")
+    int[] insertEvents(@BindBean List<GovUkPayEvent> govUkPayEvents);
+
+    @CreateSqlObject
+    ResourceEventHeadDao resourceEventHeadDao();
+
+    @Transaction
+    default Long insert(GovUkPayEvent govUkPayEvent) {
+        Long id = insertEvent(govUkPayEvent);
+        resourceEventHeadDao().refreshHeadsFor(List.of(govUkPayEvent));
+        return id;
+    }
+
+    @Transaction
+    default int[] insert(List<GovUkPayEvent> govUkPayEvents) {
+        int[] inserted = insertEvents(govUkPayEvents);
+        resourceEventHeadDao().refreshHeadsFor(govUkPayEvents);
+        return inserted;
+    }
+
+    @SqlQuery("SELECT id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE id = :id")
+    Optional<GovUkPayEvent> findById(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE id IN (<ids>)")
+    List<GovUkPayEvent> findByIds(@BindList("ids") Collection<Long> ids);
     
     @SqlQuery("SELECT id, " +
             "mandate_id, " +
@@ -74,4 +121,52 @@ public interface GovUkPayEventDao {
             "LIMIT 1")
     Optional<GovUkPayEvent> findLatestApplicableEventForPayment(@Bind("paymentId") Long paymentId,
                                                                 @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+
+    @SqlQuery("SELECT DISTINCT ON (mandate_id) id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE mandate_id IN (<mandateIds>) " +
+            "ORDER BY mandate_id, event_date DESC")
+    List<GovUkPayEvent> findLatestEventsForMandates(@BindList("mandateIds") Collection<Long> mandateIds);
+
+    @SqlQuery("SELECT DISTINCT ON (mandate_id) id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE mandate_id IN (<mandateIds>) " +
+            "AND event_type IN (<applicableEventTypes>) " +
+            "ORDER BY mandate_id, event_date DESC")
+    List<GovUkPayEvent> findLatestApplicableEventsForMandates(@BindList("mandateIds") Collection<Long> mandateIds,
+                                                              @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
+
+    @SqlQuery("SELECT DISTINCT ON (payment_id) id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE payment_id IN (<paymentIds>) " +
+            "ORDER BY payment_id, event_date DESC")
+    List<GovUkPayEvent> findLatestEventsForPayments(@BindList("paymentIds") Collection<Long> paymentIds);
+
+    @SqlQuery("SELECT DISTINCT ON (payment_id) id, " +
+            "mandate_id, " +
+            "payment_id, " +
+            "event_date, " +
+            "resource_type, " +
+            "event_type " +
+            "FROM govukpay_events " +
+            "WHERE payment_id IN (<paymentIds>) " +
+            "AND event_type IN (<applicableEventTypes>) " +
+            "ORDER BY payment_id, event_date DESC")
+    List<GovUkPayEvent> findLatestApplicableEventsForPayments(@BindList("paymentIds") Collection<Long> paymentIds,
+                                                              @BindList("applicableEventTypes") Set<GovUkPayEventType> applicableEventTypes);
 }
@@ -0,0 +1,180 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import uk.gov.pay.directdebit.events.dao.mapper.ResourceEventHeadMapper;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventId;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventIdArgumentFactory;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
+import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
+import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
+
+/**
+ * Maintains the resource_event_heads table. The refresh statements look up the latest applicable events for each
+ * resource (which is cheap thanks to the composite indexes on the event tables) and only ever move a head forwards
+ * in time, so concurrent refreshes for the same resource cannot overwrite a later event with an earlier one.
+ */
+@RegisterArgumentFactory(GoCardlessEventIdArgumentFactory.class)
+@RegisterRowMapper(ResourceEventHeadMapper.class)
+public interface ResourceEventHeadDao {
+
+    String insertHeads = "INSERT INTO resource_event_heads(resource_type, resource_id, gocardless_event_id, " +
+            "gocardless_event_created_at, govukpay_event_id, govukpay_event_date) ";
+
+    String mandateHeads = insertHeads +
+            "SELECT 'MANDATE', m.id, gc.id, gc.created_at, gp.id, gp.event_date " +
+            "FROM mandates m " +
+            "JOIN gateway_accounts g ON g.id = m.gateway_account_id " +
+            "LEFT JOIN LATERAL (SELECT id, created_at FROM gocardless_events " +
+            "  WHERE links_mandate = m.payment_provider_id AND links_organisation = g.organisation AND action IN (<goCardlessActions>) " +
+            "  ORDER BY created_at DESC LIMIT 1) gc ON true " +
+            "LEFT JOIN LATERAL (SELECT id, event_date FROM govukpay_events " +
+            "  WHERE mandate_id = m.id AND event_type IN (<govUkPayEventTypes>) " +
+            "  ORDER BY event_date DESC LIMIT 1) gp ON true ";
+
+    String paymentHeads = insertHeads +
+            "SELECT 'PAYMENT', p.id, gc.id, gc.created_at, gp.id, gp.event_date " +
+            "FROM payments p " +
+            "JOIN mandates m ON m.id = p.mandate_id " +
+            "JOIN gateway_accounts g ON g.id = m.gateway_account_id " +
+            "LEFT JOIN LATERAL (SELECT id, created_at FROM gocardless_events " +
+            "  WHERE links_payment = p.payment_provider_id AND links_organisation = g.organisation AND action IN (<goCardlessActions>) " +
+            "  ORDER BY created_at DESC LIMIT 1) gc ON true " +
+            "LEFT JOIN LATERAL (SELECT id, event_date FROM govukpay_events " +
+            "  WHERE payment_id = p.id AND event_type IN (<govUkPayEventTypes>) " +
+            "  ORDER BY event_date DESC LIMIT 1) gp ON true ";
+
+    String moveHeadsForwards = " ON CONFLICT (resource_type, resource_id) DO UPDATE SET " +
+            "gocardless_event_id = CASE WHEN resource_event_heads.gocardless_event_created_at > EXCLUDED.gocardless_event_created_at " +
+            "  THEN resource_event_heads.gocardless_event_id " +
+            "  ELSE COALESCE(EXCLUDED.gocardless_event_id, resource_event_heads.gocardless_event_id) END, " +
+            "gocardless_event_created_at = CASE WHEN resource_event_heads.gocardless_event_created_at > EXCLUDED.gocardless_event_created_at " +
+            "  THEN resource_event_heads.gocardless_event_created_at " +
+            "  ELSE COALESCE(EXCLUDED.gocardless_event_created_at, resource_event_heads.gocardless_event_created_at) END, " +
+            "govukpay_event_id = CASE WHEN resource_event_heads.govukpay_event_date > EXCLUDED.govukpay_event_date " +
+            "  THEN resource_event_heads.govukpay_event_id " +
+            "  ELSE COALESCE(EXCLUDED.govukpay_event_id, resource_event_heads.govukpay_event_id) END, " +
+            "govukpay_event_date = CASE WHEN resource_event_heads.govukpay_event_date > EXCLUDED.govukpay_event_date " +
+            "  THEN resource_event_heads.govukpay_event_date " +
+            "  ELSE COALESCE(EXCLUDED.govukpay_event_date, resource_event_heads.govukpay_event_date) END";
+
+    String headColumns = "SELECT resource_type, resource_id, gocardless_event_id, govukpay_event_id FROM resource_event_heads ";
+
+    @SqlQuery(headColumns + "WHERE resource_type = :resourceType AND resource_id = :resourceId")
+    Optional<ResourceEventHead> findByResource(@Bind("resourceType") GovUkPayEvent.ResourceType resourceType,
+                                               @Bind("resourceId") Long resourceId);
+
+    @SqlQuery(headColumns + "WHERE resource_type = :resourceType AND resource_id IN (<resourceIds>)")
+    List<ResourceEventHead> findByResources(@Bind("resourceType") GovUkPayEvent.ResourceType resourceType,
+                                            @BindList("resourceIds") Collection<Long> resourceIds);
+
+    @SqlUpdate(mandateHeads + "WHERE m.id IN (<mandateIds>)" + moveHeadsForwards)
+    int refreshMandateHeads(@BindList("mandateIds") Collection<Long> mandateIds,
+                            @BindList("goCardlessActions") Set<String> goCardlessActions,
+                            @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlUpdate(mandateHeads + "WHERE (m.payment_provider_id, g.organisation) IN " +
+            "(SELECT links_mandate, links_organisation FROM gocardless_events WHERE event_id IN (<goCardlessEventIds>))" + moveHeadsForwards)
+    int refreshMandateHeadsLinkedTo(@BindList("goCardlessEventIds") Collection<GoCardlessEventId> goCardlessEventIds,
+                                    @BindList("goCardlessActions") Set<String> goCardlessActions,
+                                    @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlUpdate(mandateHeads + "WHERE m.id > :afterId AND m.id <= :upToId" + moveHeadsForwards)
+    int refreshMandateHeadsInRange(@Bind("afterId") long afterId,
+                                   @Bind("upToId") long upToId,
+                                   @BindList("goCardlessActions") Set<String> goCardlessActions,
+                                   @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlUpdate(paymentHeads + "WHERE p.id IN (<paymentIds>)" + moveHeadsForwards)
+    int refreshPaymentHeads(@BindList("paymentIds") Collection<Long> paymentIds,
+                            @BindList("goCardlessActions") Set<String> goCardlessActions,
+                            @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlUpdate(paymentHeads + "WHERE (p.payment_provider_id, g.organisation) IN " +
+            "(SELECT links_payment, links_organisation FROM gocardless_events WHERE event_id IN (<goCardlessEventIds>))" + moveHeadsForwards)
+    int refreshPaymentHeadsLinkedTo(@BindList("goCardlessEventIds") Collection<GoCardlessEventId> goCardlessEventIds,
+                                    @BindList("goCardlessActions") Set<String> goCardlessActions,
+                                    @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlUpdate(paymentHeads + "WHERE p.id > :afterId AND p.id <= :upToId" + moveHeadsForwards)
+    int refreshPaymentHeadsInRange(@Bind("afterId") long afterId,
+                                   @Bind("upToId") long upToId,
+                                   @BindList("goCardlessActions") Set<String> goCardlessActions,
+                                   @BindList("govUkPayEventTypes") Set<GovUkPayEventType> govUkPayEventTypes);
+
+    @SqlQuery("SELECT COALESCE(MAX(id), 0) FROM mandates")
+    long findMaxMandateId();
+
+    @SqlQuery("SELECT COALESCE(MAX(id), 0) FROM payments")
+    long findMaxPaymentId();
+
+    default void refreshHeadsLinkedTo(List<GoCardlessEvent> goCardlessEvents) {
+        if (goCardlessEvents.isEmpty()) {
+            return;
+        }
+        List<GoCardlessEventId> goCardlessEventIds = goCardlessEvents.stream()
+                .map(GoCardlessEvent::getGoCardlessEventId)
+                .collect(toList());
+        refreshMandateHeadsLinkedTo(goCardlessEventIds, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+        refreshPaymentHeadsLinkedTo(goCardlessEventIds, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+    }
+
+    default void refreshHeadsFor(List<GovUkPayEvent> govUkPayEvents) {
+        Set<Long> mandateIds = govUkPayEvents.stream()
+                .map(GovUkPayEvent::getMandateId)
+                .flatMap(Optional::stream)
+                .collect(toSet());
+        if (!mandateIds.isEmpty()) {
+            refreshMandateHeads(mandateIds, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+        }
+
+        Set<Long> paymentIds = govUkPayEvents.stream()
+                .map(GovUkPayEvent::getPaymentId)
+                .flatMap(Optional::stream)
+                .collect(toSet());
+        if (!paymentIds.isEmpty()) {
+            refreshPaymentHeads(paymentIds, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+        }
+    }
+
+    /**
+     * Refreshes the mandate's head, so that GoCardless events that arrived before its payment provider id was saved
+     * are attributed to it.
+     */
+    default void refreshMandateHead(Long mandateId) {
+        refreshMandateHeads(List.of(mandateId), GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+    }
+
+    /**
+     * Refreshes the payment's head, so that GoCardless events that arrived before its payment provider id was saved
+     * are attributed to it.
+     */
+    default void refreshPaymentHead(Long paymentId) {
+        refreshPaymentHeads(List.of(paymentId), GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+    }
+
+    default int rebuildMandateHeads(long afterId, long upToId) {
+        return refreshMandateHeadsInRange(afterId, upToId, GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
+    }
+
+    default int rebuildPaymentHeads(long afterId, long upToId) {
+        return refreshPaymentHeadsInRange(afterId, upToId, GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE, GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.pay.directdebit.events.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ResourceEventHeadMapper implements RowMapper<ResourceEventHead> {
+    @Override
+    public ResourceEventHead map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new ResourceEventHead(
+                GovUkPayEvent.ResourceType.valueOf(rs.getString("resource_type")),
+                rs.getLong("resource_id"),
+                (Long) rs.getObject("gocardless_event_id"),
+                (Long) rs.getObject("govukpay_event_id"));
+    }
+}
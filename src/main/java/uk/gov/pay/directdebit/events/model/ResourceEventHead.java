@@ -0,0 +1,59 @@
+package uk.gov.pay.directdebit.events.model;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The latest GoCardless event and latest GOV.UK Pay event that can change the state of a mandate or payment. These
+ * are kept up to date whenever events are stored so that states can be calculated without reading event history.
+ */
+public class ResourceEventHead {
+
+    private final GovUkPayEvent.ResourceType resourceType;
+    private final Long resourceId;
+    private final Long goCardlessEventId;
+    private final Long govUkPayEventId;
+
+    public ResourceEventHead(GovUkPayEvent.ResourceType resourceType, Long resourceId, Long goCardlessEventId, Long govUkPayEventId) {
+        this.resourceType = Objects.requireNonNull(resourceType);
+        this.resourceId = Objects.requireNonNull(resourceId);
+        this.goCardlessEventId = goCardlessEventId;
+        this.govUkPayEventId = govUkPayEventId;
+    }
+
+    public GovUkPayEvent.ResourceType getResourceType() {
+        return resourceType;
+    }
+
+    public Long getResourceId() {
+        return resourceId;
+    }
+
+    public Optional<Long> getGoCardlessEventId() {
+        return Optional.ofNullable(goCardlessEventId);
+    }
+
+    public Optional<Long> getGovUkPayEventId() {
+        return Optional.ofNullable(govUkPayEventId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ResourceEventHead that = (ResourceEventHead) o;
+        return resourceType == that.resourceType &&
+                Objects.equals(resourceId, that.resourceId) &&
+                Objects.equals(goCardlessEventId, that.goCardlessEventId) &&
+                Objects.equals(govUkPayEventId, that.govUkPayEventId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(resourceType, resourceId, goCardlessEventId, govUkPayEventId);
+    }
+}
@@ -1,25 +1,115 @@
 package uk.gov.pay.directdebit.events.services;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.model.GoCardlessEventId;
 
 import javax.inject.Inject;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 public class GoCardlessEventService {
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessEventService.class);
 
     private final GoCardlessEventDao goCardlessEventDao;
+    private final Duration claimTimeout;
+    private final Counter duplicateEventsCounter;
+    private final Counter reprocessedEventsCounter;
 
     @Inject
-    public GoCardlessEventService(GoCardlessEventDao goCardlessEventDao) {
+    public GoCardlessEventService(GoCardlessEventDao goCardlessEventDao, DirectDebitConfig configuration,
+                                  Environment environment) {
+        this(goCardlessEventDao, configuration.getWebhookProcessingConfig().getClaimTimeout(), environment.metrics());
+    }
+
+    public GoCardlessEventService(GoCardlessEventDao goCardlessEventDao, Duration claimTimeout,
+                                  MetricRegistry metricRegistry) {
         this.goCardlessEventDao = goCardlessEventDao;
+        this.claimTimeout = claimTimeout;
+        this.duplicateEventsCounter = metricRegistry.counter(name("gocardless-webhook-events", "duplicates"));
+        this.reprocessedEventsCounter = metricRegistry.counter(name("gocardless-webhook-events", "reprocessed"));
+    }
+
+    /**
+     * Stores the events and returns those the caller should process, in the order they were given: the ones that
+     * were newly stored, plus any that had been stored before (GoCardless redelivers webhooks it thinks have failed)
+     * but were never processed and are not being processed by anyone else.
+     */
+    public List<GoCardlessEvent> storeEvents(List<GoCardlessEvent> events) {
+        List<GoCardlessEvent> storedEvents = goCardlessEventDao.insert(events);
+        Set<GoCardlessEventId> storedEventIds = storedEvents.stream().map(GoCardlessEvent::getGoCardlessEventId).collect(toSet());
+        List<GoCardlessEventId> duplicateEventIds = events.stream()
+                .map(GoCardlessEvent::getGoCardlessEventId)
+                .filter(goCardlessEventId -> !storedEventIds.contains(goCardlessEventId))
+                .distinct()
+                .collect(toList());
+        if (duplicateEventIds.isEmpty()) {
+            return storedEvents;
+        }
+
+        List<GoCardlessEvent> unprocessedDuplicateEvents =
+                goCardlessEventDao.claimUnprocessedEvents(duplicateEventIds, claimTimeout.toMilliseconds());
+        duplicateEventsCounter.inc(duplicateEventIds.size() - unprocessedDuplicateEvents.size());
+        reprocessedEventsCounter.inc(unprocessedDuplicateEvents.size());
+        LOGGER.info("Ignored {} GoCardless events that had already been stored and will process {} that had been stored but not processed",
+                duplicateEventIds.size() - unprocessedDuplicateEvents.size(), unprocessedDuplicateEvents.size());
+
+        Map<GoCardlessEventId, Integer> positions = IntStream.range(0, events.size()).boxed()
+                .collect(toMap(position -> events.get(position).getGoCardlessEventId(), position -> position,
+                        (first, second) -> first));
+        return Stream.concat(storedEvents.stream(), unprocessedDuplicateEvents.stream())
+                .sorted(Comparator.comparing(event -> positions.get(event.getGoCardlessEventId())))
+                .collect(toList());
+    }
+
+    /**
+     * Lets the events be claimed again straight away, for example by GoCardless redelivering them, after
+     * processing them failed.
+     */
+    public void releaseClaims(List<GoCardlessEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        goCardlessEventDao.releaseClaims(events.stream()
+                .map(GoCardlessEvent::getGoCardlessEventId)
+                .collect(toList()));
+    }
+
+    /**
+     * Claims up to {@code limit} stored events that nobody is processing, oldest first, so that this instance can
+     * process them without another doing the same.
+     */
+    public List<GoCardlessEvent> claimUnprocessedEvents(int limit) {
+        List<GoCardlessEvent> claimedEvents = goCardlessEventDao.claimUnprocessedEvents(claimTimeout.toMilliseconds(), limit);
+        return claimedEvents.stream()
+                .sorted(Comparator.comparing(GoCardlessEvent::getId))
+                .collect(toList());
     }
 
-    public void storeEvents(List<GoCardlessEvent> event) {
-        goCardlessEventDao.insert(event);
+    public void markEventsAsProcessed(List<GoCardlessEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        int numberOfEventsMarked = goCardlessEventDao.markAsProcessed(events.stream()
+                .map(GoCardlessEvent::getGoCardlessEventId)
+                .collect(toList()));
+        LOGGER.info("Marked {} GoCardless events as processed", numberOfEventsMarked);
     }
 
 }
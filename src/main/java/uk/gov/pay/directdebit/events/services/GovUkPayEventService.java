@@ -13,6 +13,14 @@ import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.services.PaymentStateUpdater;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 
 public class GovUkPayEventService {
@@ -46,6 +54,45 @@ public class GovUkPayEventService {
         return mandateStateUpdater.updateStateIfNecessary(mandate);
     }
 
+    /**
+     * Stores an event of the given type for each mandate and updates their states. A mandate for which the event
+     * is not a valid transition is logged and skipped so that it does not stop the others; the mandates whose
+     * events were stored are returned.
+     */
+    public List<Mandate> storeEventsAndUpdateStatesForMandates(List<Mandate> mandates, GovUkPayEventType eventType) {
+        if (mandates.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, GovUkPayEvent> latestEvents = govUkPayEventDao
+                .findLatestEventsForMandates(mandates.stream().map(Mandate::getId).collect(toList()))
+                .stream()
+                .collect(toMap(latestEvent -> latestEvent.getMandateId().orElseThrow(), identity()));
+
+        List<Mandate> validMandates = new ArrayList<>(mandates.size());
+        List<GovUkPayEvent> events = new ArrayList<>(mandates.size());
+        for (Mandate mandate : mandates) {
+            var event = new GovUkPayEvent(mandate, eventType);
+            try {
+                validate(event, Optional.ofNullable(latestEvents.get(mandate.getId())));
+            } catch (InvalidGovUkPayEventInsertionException e) {
+                LOGGER.error("Not inserting GOV.UK Pay event for mandate {}: {}", mandate.getExternalId(), e.getMessage());
+                continue;
+            }
+            validMandates.add(mandate);
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        govUkPayEventDao.insert(events);
+        LOGGER.info("Inserted GOV.UK Pay events of type {} for {} mandates", eventType, events.size());
+
+        mandateStateUpdater.updateStatesIfNecessary(validMandates);
+        return validMandates;
+    }
+
     public Payment storeEventAndUpdateStateForPayment(Payment payment, GovUkPayEventType eventType) {
         var event = new GovUkPayEvent(payment, eventType);
         govUkPayEventDao.findLatestEventForPayment(payment.getId())
@@ -58,6 +105,57 @@ public class GovUkPayEventService {
         return paymentStateUpdater.updateStateIfNecessary(payment);
     }
 
+    /**
+     * Stores an event of the given type for each payment and updates their states. A payment for which the event
+     * is not a valid transition is logged and skipped so that it does not stop the others; the payments whose
+     * events were stored are returned.
+     */
+    public List<Payment> storeEventsAndUpdateStatesForPayments(List<Payment> payments, GovUkPayEventType eventType) {
+        if (payments.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, GovUkPayEvent> latestEvents = govUkPayEventDao
+                .findLatestEventsForPayments(payments.stream().map(Payment::getId).collect(toList()))
+                .stream()
+                .collect(toMap(latestEvent -> latestEvent.getPaymentId().orElseThrow(), identity()));
+
+        List<Payment> validPayments = new ArrayList<>(payments.size());
+        List<GovUkPayEvent> events = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            var event = new GovUkPayEvent(payment, eventType);
+            try {
+                validate(event, Optional.ofNullable(latestEvents.get(payment.getId())));
+            } catch (InvalidGovUkPayEventInsertionException e) {
+                LOGGER.error("Not inserting GOV.UK Pay event for payment {}: {}", payment.getExternalId(), e.getMessage());
+                continue;
+            }
+            validPayments.add(payment);
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        govUkPayEventDao.insert(events);
+        LOGGER.info("Inserted GOV.UK Pay events of type {} for {} payments", eventType, events.size());
+
+        paymentStateUpdater.updateStatesIfNecessary(validPayments);
+        return validPayments;
+    }
+
+    /**
+     * Throws if an event of the given type cannot be the first one stored for a payment.
+     */
+    public void validateInitialEventForPayment(Payment payment, GovUkPayEventType eventType) {
+        validateInitialEvent(new GovUkPayEvent(payment, eventType));
+    }
+
+    private void validate(GovUkPayEvent event, Optional<GovUkPayEvent> latestEvent) {
+        latestEvent.ifPresentOrElse(previousEvent -> validateEventTransition(event, previousEvent),
+                () -> validateInitialEvent(event));
+    }
+
     private void validateInitialEvent(GovUkPayEvent event) {
         if (!govUkPayEventStateGraph.isValidStartValue(event.getEventType())) {
             throw new InvalidGovUkPayEventInsertionException(event);
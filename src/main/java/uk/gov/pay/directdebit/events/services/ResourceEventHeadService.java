@@ -0,0 +1,46 @@
+package uk.gov.pay.directdebit.events.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
+
+import javax.inject.Inject;
+
+public class ResourceEventHeadService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceEventHeadService.class);
+
+    private final ResourceEventHeadDao resourceEventHeadDao;
+
+    @Inject
+    public ResourceEventHeadService(ResourceEventHeadDao resourceEventHeadDao) {
+        this.resourceEventHeadDao = resourceEventHeadDao;
+    }
+
+    /**
+     * Backfills resource_event_heads from the full event history, working through mandates and then payments in
+     * ranges of batchSize ids so that no single statement holds locks on a large part of the table.
+     */
+    public void rebuild(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+
+        long maxMandateId = resourceEventHeadDao.findMaxMandateId();
+        int mandateHeads = 0;
+        for (long afterId = 0; afterId < maxMandateId; afterId += batchSize) {
+            long upToId = Math.min(afterId + batchSize, maxMandateId);
+            mandateHeads += resourceEventHeadDao.rebuildMandateHeads(afterId, upToId);
+            LOGGER.info("Rebuilt event heads for mandates with ids up to {} of {}", upToId, maxMandateId);
+        }
+
+        long maxPaymentId = resourceEventHeadDao.findMaxPaymentId();
+        int paymentHeads = 0;
+        for (long afterId = 0; afterId < maxPaymentId; afterId += batchSize) {
+            long upToId = Math.min(afterId + batchSize, maxPaymentId);
+            paymentHeads += resourceEventHeadDao.rebuildPaymentHeads(afterId, upToId);
+            LOGGER.info("Rebuilt event heads for payments with ids up to {} of {}", upToId, maxPaymentId);
+        }
+
+        LOGGER.info("Finished rebuilding event heads for {} mandates and {} payments", mandateHeads, paymentHeads);
+    }
+}
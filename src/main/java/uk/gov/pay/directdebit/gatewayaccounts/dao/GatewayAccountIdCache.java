@@ -0,0 +1,36 @@
+package uk.gov.pay.directdebit.gatewayaccounts.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+
+import javax.inject.Inject;
+import java.util.Optional;
+
+/**
+ * Remembers the internal ids of gateway accounts by external id, so that searches can filter on the id without
+ * looking the account up or joining to gateway_accounts every time. Only the id is cached: it never changes,
+ * whereas the rest of a gateway account can be updated.
+ */
+public class GatewayAccountIdCache {
+
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private final GatewayAccountDao gatewayAccountDao;
+    private final Cache<String, Long> idsByExternalId = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+
+    @Inject
+    public GatewayAccountIdCache(GatewayAccountDao gatewayAccountDao) {
+        this.gatewayAccountDao = gatewayAccountDao;
+    }
+
+    public Optional<Long> findIdByExternalId(String externalId) {
+        Long cachedId = idsByExternalId.getIfPresent(externalId);
+        if (cachedId != null) {
+            return Optional.of(cachedId);
+        }
+        Optional<Long> id = gatewayAccountDao.findByExternalId(externalId).map(GatewayAccount::getId);
+        id.ifPresent(foundId -> idsByExternalId.put(externalId, foundId));
+        return id;
+    }
+}
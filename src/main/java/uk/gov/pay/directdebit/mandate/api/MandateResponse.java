@@ -9,6 +9,7 @@ import uk.gov.pay.directdebit.common.json.ToLowerCaseStringSerializer;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 
@@ -73,6 +74,23 @@ public class MandateResponse {
         payer = mandate.getPayer().map(Payer::from).orElse(null);
     }
 
+    public MandateResponse(MandateSearchRow mandateSearchRow, List<Map<String, Object>> dataLinks) {
+        mandateId = mandateSearchRow.getExternalId();
+        returnUrl = mandateSearchRow.getReturnUrl();
+        this.dataLinks = dataLinks;
+        state = new ExternalMandateStateWithDetails(mandateSearchRow.getState().toExternal(),
+                mandateSearchRow.getStateDetails().orElse(null));
+        serviceReference = mandateSearchRow.getServiceReference();
+        mandateReference = mandateSearchRow.getMandateBankStatementReference().orElse(null);
+        paymentProviderId = mandateSearchRow.getPaymentProviderMandateId().orElse(null);
+        createdDate = mandateSearchRow.getCreatedDate();
+        paymentProvider = mandateSearchRow.getPaymentProvider();
+        description = mandateSearchRow.getDescription().orElse(null);
+        payer = mandateSearchRow.getPayerName()
+                .map(name -> Payer.of(name, mandateSearchRow.getPayerEmail().orElse(null)))
+                .orElse(null);
+    }
+
     public Optional<URI> getLink(String rel) {
         return dataLinks.stream()
                 .filter(map -> rel.equals(map.get("rel")))
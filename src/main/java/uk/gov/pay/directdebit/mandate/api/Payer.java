@@ -20,4 +20,8 @@ public class Payer {
     public static Payer from(uk.gov.pay.directdebit.payers.model.Payer payer) {
         return new Payer(payer.getName(), payer.getEmail());
     }
+
+    public static Payer of(String name, String email) {
+        return new Payer(name, email);
+    }
 }
@@ -1,13 +1,17 @@
 package uk.gov.pay.directdebit.mandate.dao;
 
+import org.jdbi.v3.sqlobject.CreateSqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessOrganisationIdArgumentFactory;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
@@ -106,11 +110,22 @@ public interface MandateDao {
     Optional<Mandate> findByExternalIdAndGatewayAccountExternalId(@Bind("mandateExternalId") MandateExternalId mandateExternalId,
                                                                   @Bind("gatewayAccountExternalId") String gatewayAccountExternalId);
 
+    @SqlQuery(query + "WHERE m.external_id = ANY(:mandateExternalIds) AND g.external_id = :gatewayAccountExternalId")
+    List<Mandate> findByExternalIdsAndGatewayAccountExternalId(@Bind("mandateExternalIds") String[] mandateExternalIds,
+                                                               @Bind("gatewayAccountExternalId") String gatewayAccountExternalId);
+
     @SqlQuery(query + "WHERE m.payment_provider_id = :paymentProviderMandateId AND g.organisation = :goCardlessOrganisationId AND g.payment_provider = :provider")
     Optional<Mandate> findByPaymentProviderMandateIdAndOrganisation(@Bind("provider") PaymentProvider paymentProvider,
                                                                     @Bind("paymentProviderMandateId") PaymentProviderMandateId paymentProviderMandateId,
                                                                     @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
 
+    @SqlQuery(query + "JOIN unnest(:paymentProviderMandateIds, :goCardlessOrganisationIds) AS k(payment_provider_id, organisation) " +
+            "ON m.payment_provider_id = k.payment_provider_id AND g.organisation = k.organisation " +
+            "WHERE g.payment_provider = :provider")
+    List<Mandate> findByPaymentProviderMandateIdsAndOrganisations(@Bind("provider") PaymentProvider paymentProvider,
+                                                                  @Bind("paymentProviderMandateIds") String[] paymentProviderMandateIds,
+                                                                  @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds);
+
     @SqlQuery(query + "WHERE m.payment_provider_id = :paymentProviderMandateId AND g.organisation IS NULL AND g.payment_provider = :provider")
     Optional<Mandate> findByPaymentProviderMandateId(@Bind("provider") PaymentProvider paymentProvider,
                                                      @Bind("paymentProviderMandateId") PaymentProviderMandateId paymentProviderMandateId);
@@ -128,6 +143,23 @@ public interface MandateDao {
                               @Bind("stateDetails") String details,
                               @Bind("stateDetailsDescription") String detailsDescription);
 
+    @SqlBatch("UPDATE mandates SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
+            "WHERE id = :id")
+    int[] updateStateAndDetails(@Bind("id") List<Long> ids,
+                                @Bind("state") List<MandateState> mandateStates,
+                                @Bind("stateDetails") List<String> details,
+                                @Bind("stateDetailsDescription") List<String> detailsDescriptions);
+
     @SqlUpdate("UPDATE mandates m SET mandate_reference = :mandateBankStatementReference, payment_provider_id = :paymentProviderMandateId WHERE m.id = :id")
-    int updateReferenceAndPaymentProviderId(@BindBean Mandate mandate);
+    int setReferenceAndPaymentProviderId(@BindBean Mandate mandate);
+
+    @CreateSqlObject
+    ResourceEventHeadDao resourceEventHeadDao();
+
+    @Transaction
+    default int updateReferenceAndPaymentProviderId(Mandate mandate) {
+        int updated = setReferenceAndPaymentProviderId(mandate);
+        resourceEventHeadDao().refreshMandateHead(mandate.getId());
+        return updated;
+    }
 }
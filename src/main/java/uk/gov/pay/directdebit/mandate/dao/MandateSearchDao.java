@@ -1,155 +1,235 @@
 package uk.gov.pay.directdebit.mandate.dao;
 
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
-import uk.gov.pay.directdebit.mandate.dao.mapper.MandateMapper;
-import uk.gov.pay.directdebit.mandate.model.Mandate;
+import org.jdbi.v3.core.statement.TemplateEngine;
+import uk.gov.pay.directdebit.common.dao.SearchQueryShape;
+import uk.gov.pay.directdebit.common.dao.SearchQueryShape.Mode;
+import uk.gov.pay.directdebit.common.dao.SearchQueryTemplates;
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.mandate.dao.mapper.MandateSearchMapper;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
 
 import javax.inject.Inject;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 public class MandateSearchDao {
-    
+
+    private static final String METRICS_PREFIX = "search.mandates";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String NO_PREFIX = "";
+    private static final String EXPLAIN = "EXPLAIN (FORMAT JSON) ";
+    private static final String EXPLAIN_ANALYZE = "EXPLAIN (ANALYZE, FORMAT JSON) ";
+
     private final Jdbi jdbi;
+    private final SearchQueryTemplates<Filter> queryTemplates;
 
     @Inject
-    public MandateSearchDao(Jdbi jdbi) {
+    public MandateSearchDao(Jdbi jdbi, MetricRegistry metricRegistry) {
         this.jdbi = jdbi;
+        this.queryTemplates = new SearchQueryTemplates<>(METRICS_PREFIX, MandateSearchDao::renderSql, metricRegistry);
+    }
+
+    public MandateSearchDao(Jdbi jdbi) {
+        this(jdbi, new MetricRegistry());
+    }
+
+    public List<MandateSearchRow> search(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
+        return searchPage(mandateSearchParams, gatewayAccountExternalId).getResults();
     }
 
-    public List<Mandate> search(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
-        return jdbi.withHandle(handle -> {
-            var sqlQueryAndParameters = createSqlQuery(mandateSearchParams, gatewayAccountExternalId, SearchMode.SELECT);
+    /**
+     * Finds one page of mandates, newest first. Pages asked for with an {@code after} or {@code before} cursor
+     * seek straight to the mandate id in the cursor; pages asked for by number still use an OFFSET. One more row
+     * than the display size is fetched to tell whether there is a page beyond this one.
+     */
+    public SearchPage<MandateSearchRow> searchPage(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
+        List<MandateSearchRow> rows = jdbi.withHandle(handle ->
+                createPageQuery(handle, NO_PREFIX, mandateSearchParams, gatewayAccountExternalId)
+                        .map(new MandateSearchMapper())
+                        .list());
+
+        return SearchPage.fromRows(rows, mandateSearchParams, MandateSearchRow::getId);
+    }
+
+    /**
+     * Explains, on the given handle, the statement that {@link #searchPage} runs for this search and returns the
+     * plan as JSON, so that tests can check the plan of the SQL that is actually run.
+     */
+    String explainSearchPage(Handle handle, MandateSearchParams mandateSearchParams, String gatewayAccountExternalId,
+                             boolean analyze) {
+        return createPageQuery(handle, analyze ? EXPLAIN_ANALYZE : EXPLAIN, mandateSearchParams, gatewayAccountExternalId)
+                .mapTo(String.class)
+                .one();
+    }
 
-            Query query = handle.createQuery(sqlQueryAndParameters.query);
-            return bindQuery(query, sqlQueryAndParameters).map(new MandateMapper()).list();
-        });
+    private Query createPageQuery(Handle handle, String sqlPrefix, MandateSearchParams mandateSearchParams,
+                                  String gatewayAccountExternalId) {
+        Mode mode = mandateSearchParams.getAfterId().isPresent() ? Mode.SELECT_AFTER
+                : mandateSearchParams.getBeforeId().isPresent() ? Mode.SELECT_BEFORE
+                : Mode.SELECT_PAGE;
+        Query query = createQuery(handle, sqlPrefix, mandateSearchParams, gatewayAccountExternalId, mode);
+        mandateSearchParams.getAfterId().ifPresent(afterMandateId -> query.bind("afterMandateId", afterMandateId));
+        mandateSearchParams.getBeforeId().ifPresent(beforeMandateId -> query.bind("beforeMandateId", beforeMandateId));
+        if (mode == Mode.SELECT_PAGE) {
+            query.bind("offset", mandateSearchParams.getOffset());
+        }
+        return query.bind("limit", mandateSearchParams.getDisplaySize() + 1);
     }
 
     public int countTotalMatchingMandates(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId) {
-        return jdbi.withHandle(handle -> {
-            var sqlQueryAndParameters = createSqlQuery(mandateSearchParams, gatewayAccountExternalId, SearchMode.COUNT);
+        return jdbi.withHandle(handle -> createQuery(handle, NO_PREFIX, mandateSearchParams, gatewayAccountExternalId, Mode.COUNT)
+                .mapTo(Integer.class)
+                .findOnly());
+    }
 
-            Query query = handle.createQuery(sqlQueryAndParameters.query);
-            return bindQuery(query, sqlQueryAndParameters).mapTo(Integer.class).findOnly();
-        });
+    /**
+     * Counts the mandates matching the search, but stops once it has found {@code limit} of them.
+     */
+    public int countMatchingMandatesUpTo(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId, int limit) {
+        return jdbi.withHandle(handle -> createQuery(handle, NO_PREFIX, mandateSearchParams, gatewayAccountExternalId, Mode.COUNT_UP_TO)
+                .bind("countLimit", limit)
+                .mapTo(Integer.class)
+                .findOnly());
     }
 
-    private Query bindQuery(Query query, SqlStatementAndParameters sqlStatementAndParameters) {
-        if (sqlStatementAndParameters.parameters.containsKey("states")) {
-            @SuppressWarnings("unchecked")
-            List<String> states = (List<String>) sqlStatementAndParameters.parameters.get("states");
+    /**
+     * Passes every mandate matching the search to the consumer, newest first, whatever page or display size was
+     * asked for. The rows are read through a server-side cursor a batch at a time inside a transaction, so memory
+     * use does not grow with the number of mandates exported.
+     */
+    public void export(MandateSearchParams mandateSearchParams, String gatewayAccountExternalId, Consumer<MandateSearchRow> consumer) {
+        jdbi.useTransaction(handle -> createQuery(handle, NO_PREFIX, mandateSearchParams, gatewayAccountExternalId, Mode.EXPORT)
+                .setFetchSize(EXPORT_FETCH_SIZE)
+                .map(new MandateSearchMapper())
+                .useStream(rows -> rows.forEach(consumer)));
+    }
 
-            query.bindList("states", states);
-            sqlStatementAndParameters.parameters.remove("states");
+    /**
+     * Creates the statement for the shape of this search from its cached template and binds the search's filter
+     * values to it. The template has no placeholders left to render, so JDBI's template engine is skipped. The
+     * prefix is only used to explain the statement.
+     */
+    private Query createQuery(Handle handle, String sqlPrefix, MandateSearchParams params, String gatewayAccountExternalId,
+                              Mode mode) {
+        var filters = EnumSet.noneOf(Filter.class);
+        var serviceReference = params.getServiceReference().filter(s -> !s.isBlank());
+        var mandateReference = params.getMandateBankStatementReference().map(Object::toString).filter(s -> !s.isBlank());
+        var name = params.getName().filter(s -> !s.isBlank());
+        var email = params.getEmail().filter(s -> !s.isBlank());
+        var states = params.getInternalStates();
+        var fromDate = params.getFromDate();
+        var toDate = params.getToDate();
+
+        serviceReference.ifPresent(ignored -> filters.add(Filter.SERVICE_REFERENCE));
+        mandateReference.ifPresent(ignored -> filters.add(Filter.MANDATE_REFERENCE));
+        name.ifPresent(ignored -> filters.add(Filter.NAME));
+        email.ifPresent(ignored -> filters.add(Filter.EMAIL));
+        if (!states.isEmpty()) {
+            filters.add(Filter.STATE);
         }
-        sqlStatementAndParameters.parameters.forEach(query::bind);
+        fromDate.ifPresent(ignored -> filters.add(Filter.FROM_DATE));
+        toDate.ifPresent(ignored -> filters.add(Filter.TO_DATE));
+
+        String sql = queryTemplates.get(SearchQueryShape.of(mode, filters));
+        Query query = handle.createQuery(sqlPrefix.isEmpty() ? sql : sqlPrefix + sql);
+        query.setTemplateEngine(TemplateEngine.NOP);
+        query.bind("gatewayAccountExternalId", gatewayAccountExternalId);
+        serviceReference.ifPresent(value -> query.bind("serviceReference", "%" + value + "%"));
+        mandateReference.ifPresent(value -> query.bind("mandateRef", "%" + value + "%"));
+        name.ifPresent(value -> query.bind("name", "%" + value + "%"));
+        email.ifPresent(value -> query.bind("email", "%" + value + "%"));
+        if (!states.isEmpty()) {
+            query.bindArray("states", String.class, states.stream().map(Enum::name).toArray());
+        }
+        fromDate.ifPresent(value -> query.bind("createdDateFrom", value));
+        toDate.ifPresent(value -> query.bind("createdDateTo", value));
         return query;
     }
 
-    private SqlStatementAndParameters createSqlQuery(MandateSearchParams params, String gatewayAccountExternalId, SearchMode searchMode) {
+    private static String renderSql(SearchQueryShape<Filter> shape) {
         var sql = new StringBuilder(2048);
-        if (searchMode.equals(SearchMode.COUNT)) {
+        if (shape.getMode() == Mode.COUNT) {
             sql.append("SELECT COUNT(*) ");
+        } else if (shape.getMode() == Mode.COUNT_UP_TO) {
+            sql.append("SELECT COUNT(*) FROM (SELECT 1 ");
         } else {
-            sql.append("SELECT DISTINCT" +
+            sql.append("SELECT" +
                     "  m.id AS mandate_id," +
                     "  m.external_id AS mandate_external_id," +
                     "  m.mandate_reference AS mandate_mandate_reference," +
                     "  m.service_reference AS mandate_service_reference," +
-                    "  m.gateway_account_id AS mandate_gateway_account_id," +
                     "  m.return_url AS mandate_return_url," +
                     "  m.state AS mandate_state," +
                     "  m.description AS mandate_description," +
                     "  m.state_details AS mandate_state_details," +
-                    "  m.state_details_description AS mandate_state_details_description," +
                     "  m.created_date AS mandate_created_date," +
                     "  m.payment_provider_id AS mandate_payment_provider_id," +
-                    "  g.id AS gateway_account_id," +
                     "  g.external_id AS gateway_account_external_id," +
                     "  g.payment_provider AS gateway_account_payment_provider," +
-                    "  g.type AS gateway_account_type," +
-                    "  g.description AS gateway_account_description," +
-                    "  g.analytics_id AS gateway_account_analytics_id," +
-                    "  g.access_token AS gateway_account_access_token," +
-                    "  g.organisation AS gateway_account_organisation," +
-                    "  p.id AS payer_id," +
-                    "  p.mandate_id AS payer_mandate_id," +
-                    "  p.external_id AS payer_external_id," +
                     "  p.name AS payer_name," +
-                    "  p.email AS payer_email," +
-                    "  p.bank_account_number_last_two_digits AS payer_bank_account_number_last_two_digits," +
-                    "  p.bank_account_requires_authorisation AS payer_bank_account_requires_authorisation," +
-                    "  p.bank_account_number AS payer_bank_account_number," +
-                    "  p.bank_account_sort_code AS payer_bank_account_sort_code," +
-                    "  p.bank_name AS payer_bank_name," +
-                    "  p.created_date AS payer_created_date");
+                    "  p.email AS payer_email");
         }
 
-        sql.append(" FROM mandates m JOIN gateway_accounts g ON g.id = m.gateway_account_id " +
-                "  LEFT JOIN payers p ON p.mandate_id = m.id ");
+        sql.append(" FROM mandates m JOIN gateway_accounts g ON g.id = m.gateway_account_id");
+        // a mandate has at most one payer, so the join never repeats a mandate; counts only need it to filter on
+        if (shape.has(Filter.NAME) || shape.has(Filter.EMAIL)) {
+            sql.append(" JOIN payers p ON p.mandate_id = m.id");
+        } else if (!shape.isCount()) {
+            sql.append(" LEFT JOIN payers p ON p.mandate_id = m.id");
+        }
 
-        Map<String, Object> sqlParams = new HashMap<>();
-        
         sql.append(" WHERE g.external_id = :gatewayAccountExternalId");
-        sqlParams.put("gatewayAccountExternalId", gatewayAccountExternalId);
-        
-        params.getServiceReference().filter(s -> !s.isBlank()).ifPresent(serviceReference -> {
-            sql.append(" AND m.service_reference ILIKE :serviceReference");
-            sqlParams.put("serviceReference", "%" + serviceReference + "%");
-        });
 
-        params.getMandateBankStatementReference().filter(s -> !s.toString().isBlank()).ifPresent(bankStatementRef -> {
+        if (shape.has(Filter.SERVICE_REFERENCE)) {
+            sql.append(" AND m.service_reference ILIKE :serviceReference");
+        }
+        if (shape.has(Filter.MANDATE_REFERENCE)) {
             sql.append(" AND m.mandate_reference ILIKE :mandateRef");
-            sqlParams.put("mandateRef", "%" + bankStatementRef.toString() + "%");
-        });
-
-        params.getName().filter(s -> !s.isBlank()).ifPresent(name -> {
+        }
+        if (shape.has(Filter.NAME)) {
             sql.append(" AND p.name ILIKE :name");
-            sqlParams.put("name", "%" + name + "%");
-        });
-
-        params.getEmail().filter(s -> !s.isBlank()).ifPresent(email -> {
+        }
+        if (shape.has(Filter.EMAIL)) {
             sql.append(" AND p.email ILIKE :email");
-            sqlParams.put("email", "%" + email + "%");
-        });
-
-        if (!params.getInternalStates().isEmpty()) {
-            sql.append(" AND m.state IN (<states>)");
-            sqlParams.put("states", params.getInternalStates());
         }
-
-        params.getFromDate().ifPresent(fromDate -> {
+        if (shape.has(Filter.STATE)) {
+            sql.append(" AND m.state = ANY(:states)");
+        }
+        if (shape.has(Filter.FROM_DATE)) {
             sql.append(" AND m.created_date >= :createdDateFrom");
-            sqlParams.put("createdDateFrom", fromDate);
-        });
-
-        params.getToDate().ifPresent(toDate -> {
+        }
+        if (shape.has(Filter.TO_DATE)) {
             sql.append(" AND m.created_date < :createdDateTo");
-            sqlParams.put("createdDateTo", toDate);
-        });
-
-        if (searchMode.equals(SearchMode.SELECT)) {
-            sql.append(" ORDER BY m.id DESC OFFSET :offset LIMIT :limit");
-            sqlParams.put("limit", params.getDisplaySize());
-            sqlParams.put("offset", params.getOffset());
         }
 
-        return new SqlStatementAndParameters(sql.toString(), sqlParams);
-    }
-    
-    private static class SqlStatementAndParameters {
-        private final String query;
-        private final Map<String, Object> parameters;
-
-        SqlStatementAndParameters(String query, Map<String, Object> parameters) {
-            this.query = query;
-            this.parameters = parameters;
+        switch (shape.getMode()) {
+            case SELECT_AFTER:
+                sql.append(" AND m.id < :afterMandateId ORDER BY m.id DESC LIMIT :limit");
+                break;
+            case SELECT_BEFORE:
+                sql.append(" AND m.id > :beforeMandateId ORDER BY m.id ASC LIMIT :limit");
+                break;
+            case SELECT_PAGE:
+                sql.append(" ORDER BY m.id DESC OFFSET :offset LIMIT :limit");
+                break;
+            case EXPORT:
+                sql.append(" ORDER BY m.id DESC");
+                break;
+            case COUNT_UP_TO:
+                sql.append(" LIMIT :countLimit) matching");
+                break;
+            default:
+                break;
         }
+
+        return sql.toString();
     }
-    
-    private enum SearchMode {COUNT, SELECT}
+
+    private enum Filter {SERVICE_REFERENCE, MANDATE_REFERENCE, NAME, EMAIL, STATE, FROM_DATE, TO_DATE}
 }
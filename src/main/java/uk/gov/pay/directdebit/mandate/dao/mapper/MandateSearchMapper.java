@@ -0,0 +1,82 @@
+package uk.gov.pay.directdebit.mandate.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow.MandateSearchRowBuilder;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+import static uk.gov.pay.directdebit.mandate.model.MandateSearchRow.MandateSearchRowBuilder.aMandateSearchRow;
+
+/**
+ * Maps a mandate search result row, which holds only the columns that a mandate search or export responds with.
+ */
+public class MandateSearchMapper implements RowMapper<MandateSearchRow> {
+
+    private static final String ID_COLUMN = "mandate_id";
+    private static final String EXTERNAL_ID_COLUMN = "mandate_external_id";
+    private static final String STATE_COLUMN = "mandate_state";
+    private static final String STATE_DETAILS_COLUMN = "mandate_state_details";
+    private static final String DESCRIPTION_COLUMN = "mandate_description";
+    private static final String PAYMENT_PROVIDER_ID = "mandate_payment_provider_id";
+    private static final String MANDATE_MANDATE_REFERENCE_COLUMN = "mandate_mandate_reference";
+    private static final String MANDATE_SERVICE_REFERENCE_COLUMN = "mandate_service_reference";
+    private static final String RETURN_URL_COLUMN = "mandate_return_url";
+    private static final String CREATED_DATE_COLUMN = "mandate_created_date";
+    private static final String GATEWAY_ACCOUNT_EXTERNAL_ID_COLUMN = "gateway_account_external_id";
+    private static final String GATEWAY_ACCOUNT_PAYMENT_PROVIDER_COLUMN = "gateway_account_payment_provider";
+    private static final String PAYER_NAME_COLUMN = "payer_name";
+    private static final String PAYER_EMAIL_COLUMN = "payer_email";
+
+    @Override
+    public MandateSearchRow map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
+        PaymentProvider paymentProvider = PaymentProvider.fromString(resultSet.getString(GATEWAY_ACCOUNT_PAYMENT_PROVIDER_COLUMN));
+
+        MandateSearchRowBuilder mandateSearchRowBuilder = aMandateSearchRow()
+                .withId(resultSet.getLong(ID_COLUMN))
+                .withExternalId(MandateExternalId.valueOf(resultSet.getString(EXTERNAL_ID_COLUMN)))
+                .withServiceReference(resultSet.getString(MANDATE_SERVICE_REFERENCE_COLUMN))
+                .withState(MandateState.valueOf(resultSet.getString(STATE_COLUMN)))
+                .withStateDetails(resultSet.getString(STATE_DETAILS_COLUMN))
+                .withDescription(resultSet.getString(DESCRIPTION_COLUMN))
+                .withReturnUrl(resultSet.getString(RETURN_URL_COLUMN))
+                .withCreatedDate(ZonedDateTime.ofInstant(resultSet.getTimestamp(CREATED_DATE_COLUMN).toInstant(), ZoneOffset.UTC))
+                .withGatewayAccountExternalId(resultSet.getString(GATEWAY_ACCOUNT_EXTERNAL_ID_COLUMN))
+                .withPaymentProvider(paymentProvider)
+                .withPayerName(resultSet.getString(PAYER_NAME_COLUMN))
+                .withPayerEmail(resultSet.getString(PAYER_EMAIL_COLUMN));
+
+        Optional.ofNullable(resultSet.getString(PAYMENT_PROVIDER_ID))
+                .map(paymentProviderId -> resolvePaymentProviderMandateId(paymentProvider, paymentProviderId))
+                .ifPresent(mandateSearchRowBuilder::withPaymentProviderMandateId);
+
+        Optional.ofNullable(resultSet.getString(MANDATE_MANDATE_REFERENCE_COLUMN))
+                .map(MandateBankStatementReference::valueOf)
+                .ifPresent(mandateSearchRowBuilder::withMandateBankStatementReference);
+
+        return mandateSearchRowBuilder.build();
+    }
+
+    private PaymentProviderMandateId resolvePaymentProviderMandateId(PaymentProvider paymentProvider, String paymentProviderMandateId) {
+        switch (paymentProvider) {
+            case SANDBOX:
+                return SandboxMandateId.valueOf(paymentProviderMandateId);
+            case GOCARDLESS:
+                return GoCardlessMandateId.valueOf(paymentProviderMandateId);
+            default:
+                throw new IllegalArgumentException("Unrecognised payment provider " + paymentProvider + " for mandate " + paymentProviderMandateId);
+        }
+    }
+}
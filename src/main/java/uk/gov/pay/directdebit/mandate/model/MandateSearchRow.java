@@ -0,0 +1,236 @@
+package uk.gov.pay.directdebit.mandate.model;
+
+import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A mandate as found by a mandate search or export, holding only what their responses show. It has none of the
+ * payer's bank details or the gateway account's credentials, so unlike {@link Mandate} it can be read from the
+ * search tables without fetching them.
+ */
+public class MandateSearchRow {
+    private final Long id;
+    private final MandateExternalId externalId;
+    private final MandateState state;
+    private final String stateDetails;
+    private final String description;
+    private final String returnUrl;
+    private final MandateBankStatementReference mandateBankStatementReference;
+    private final String serviceReference;
+    private final ZonedDateTime createdDate;
+    private final PaymentProviderMandateId paymentProviderMandateId;
+    private final String gatewayAccountExternalId;
+    private final PaymentProvider paymentProvider;
+    private final String payerName;
+    private final String payerEmail;
+
+    private MandateSearchRow(MandateSearchRowBuilder builder) {
+        this.id = Objects.requireNonNull(builder.id);
+        this.externalId = Objects.requireNonNull(builder.externalId);
+        this.state = Objects.requireNonNull(builder.state);
+        this.stateDetails = builder.stateDetails;
+        this.description = builder.description;
+        this.returnUrl = Objects.requireNonNull(builder.returnUrl);
+        this.mandateBankStatementReference = builder.mandateBankStatementReference;
+        this.serviceReference = Objects.requireNonNull(builder.serviceReference);
+        this.createdDate = Objects.requireNonNull(builder.createdDate);
+        this.paymentProviderMandateId = builder.paymentProviderMandateId;
+        this.gatewayAccountExternalId = Objects.requireNonNull(builder.gatewayAccountExternalId);
+        this.paymentProvider = Objects.requireNonNull(builder.paymentProvider);
+        this.payerName = builder.payerName;
+        this.payerEmail = builder.payerEmail;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MandateExternalId getExternalId() {
+        return externalId;
+    }
+
+    public MandateState getState() {
+        return state;
+    }
+
+    public Optional<String> getStateDetails() {
+        return Optional.ofNullable(stateDetails);
+    }
+
+    public Optional<String> getDescription() {
+        return Optional.ofNullable(description);
+    }
+
+    public String getReturnUrl() {
+        return returnUrl;
+    }
+
+    public Optional<MandateBankStatementReference> getMandateBankStatementReference() {
+        return Optional.ofNullable(mandateBankStatementReference);
+    }
+
+    public String getServiceReference() {
+        return serviceReference;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public Optional<PaymentProviderMandateId> getPaymentProviderMandateId() {
+        return Optional.ofNullable(paymentProviderMandateId);
+    }
+
+    public String getGatewayAccountExternalId() {
+        return gatewayAccountExternalId;
+    }
+
+    public PaymentProvider getPaymentProvider() {
+        return paymentProvider;
+    }
+
+    /**
+     * The payer's name, or empty if the mandate has no payer yet.
+     */
+    public Optional<String> getPayerName() {
+        return Optional.ofNullable(payerName);
+    }
+
+    public Optional<String> getPayerEmail() {
+        return Optional.ofNullable(payerEmail);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MandateSearchRow that = (MandateSearchRow) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(externalId, that.externalId) &&
+                state == that.state &&
+                Objects.equals(stateDetails, that.stateDetails) &&
+                Objects.equals(description, that.description) &&
+                Objects.equals(returnUrl, that.returnUrl) &&
+                Objects.equals(mandateBankStatementReference, that.mandateBankStatementReference) &&
+                Objects.equals(serviceReference, that.serviceReference) &&
+                Objects.equals(createdDate, that.createdDate) &&
+                Objects.equals(paymentProviderMandateId, that.paymentProviderMandateId) &&
+                Objects.equals(gatewayAccountExternalId, that.gatewayAccountExternalId) &&
+                paymentProvider == that.paymentProvider &&
+                Objects.equals(payerName, that.payerName) &&
+                Objects.equals(payerEmail, that.payerEmail);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, externalId, state, stateDetails, description, returnUrl, mandateBankStatementReference,
+                serviceReference, createdDate, paymentProviderMandateId, gatewayAccountExternalId, paymentProvider,
+                payerName, payerEmail);
+    }
+
+    public static final class MandateSearchRowBuilder {
+        private Long id;
+        private MandateExternalId externalId;
+        private MandateState state;
+        private String stateDetails;
+        private String description;
+        private String returnUrl;
+        private MandateBankStatementReference mandateBankStatementReference;
+        private String serviceReference;
+        private ZonedDateTime createdDate;
+        private PaymentProviderMandateId paymentProviderMandateId;
+        private String gatewayAccountExternalId;
+        private PaymentProvider paymentProvider;
+        private String payerName;
+        private String payerEmail;
+
+        private MandateSearchRowBuilder() {
+        }
+
+        public static MandateSearchRowBuilder aMandateSearchRow() {
+            return new MandateSearchRowBuilder();
+        }
+
+        public MandateSearchRowBuilder withId(Long id) {
+            this.id = id;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withExternalId(MandateExternalId externalId) {
+            this.externalId = externalId;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withState(MandateState state) {
+            this.state = state;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withStateDetails(String stateDetails) {
+            this.stateDetails = stateDetails;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withDescription(String description) {
+            this.description = description;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withReturnUrl(String returnUrl) {
+            this.returnUrl = returnUrl;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withMandateBankStatementReference(MandateBankStatementReference mandateBankStatementReference) {
+            this.mandateBankStatementReference = mandateBankStatementReference;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withServiceReference(String serviceReference) {
+            this.serviceReference = serviceReference;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withCreatedDate(ZonedDateTime createdDate) {
+            this.createdDate = createdDate;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withPaymentProviderMandateId(PaymentProviderMandateId paymentProviderMandateId) {
+            this.paymentProviderMandateId = paymentProviderMandateId;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withGatewayAccountExternalId(String gatewayAccountExternalId) {
+            this.gatewayAccountExternalId = gatewayAccountExternalId;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withPaymentProvider(PaymentProvider paymentProvider) {
+            this.paymentProvider = paymentProvider;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withPayerName(String payerName) {
+            this.payerName = payerName;
+            return this;
+        }
+
+        public MandateSearchRowBuilder withPayerEmail(String payerEmail) {
+            this.payerEmail = payerEmail;
+            return this;
+        }
+
+        public MandateSearchRow build() {
+            return new MandateSearchRow(this);
+        }
+    }
+}
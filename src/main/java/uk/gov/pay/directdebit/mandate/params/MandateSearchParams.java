@@ -1,6 +1,7 @@
 package uk.gov.pay.directdebit.mandate.params;
 
 import uk.gov.pay.directdebit.common.exception.validation.ValidExternalMandateState;
+import uk.gov.pay.directdebit.common.model.CountMode;
 import uk.gov.pay.directdebit.common.model.SearchParams;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
@@ -9,6 +10,7 @@ import javax.ws.rs.QueryParam;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -51,6 +53,9 @@ public class MandateSearchParams extends SearchParams {
         this.toDate = builder.toDate;
         this.page = builder.page;
         this.displaySize = builder.displaySize;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.countMode = builder.countMode.toQueryParamValue();
     }
 
     public Optional<String> getServiceReference() {
@@ -96,12 +101,41 @@ public class MandateSearchParams extends SearchParams {
     }
 
     @Override
-    public String buildQueryParamString() {
+    public String buildQueryParamStringForPage(int pageNumber) {
         var query = new StringBuilder();
 
-        query.append(formatQueryParam(PAGE_KEY, page.toString()));
+        query.append(formatQueryParam(PAGE_KEY, Integer.toString(pageNumber)));
         query.append(appendQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        appendFilterQueryParams(query);
 
+        return query.toString();
+    }
+
+    @Override
+    protected String buildQueryParamStringWithCursor(String cursorKey, String cursor) {
+        var query = new StringBuilder();
+
+        query.append(formatQueryParam(cursorKey, cursor));
+        query.append(appendQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        appendFilterQueryParams(query);
+
+        return query.toString();
+    }
+
+    @Override
+    protected void addCountKeyFilters(Map<String, String> filters) {
+        addCaseInsensitiveCountKeyFilter(filters, REFERENCE_KEY, serviceReference);
+        if (externalMandateState != null) {
+            filters.put(STATE_KEY, externalMandateState);
+        }
+        if (mandateBankStatementReference != null) {
+            addCaseInsensitiveCountKeyFilter(filters, BANK_STATEMENT_REFERENCE_KEY, mandateBankStatementReference.toString());
+        }
+        addCaseInsensitiveCountKeyFilter(filters, NAME_KEY, name);
+        addCaseInsensitiveCountKeyFilter(filters, EMAIL_KEY, email);
+    }
+
+    private void appendFilterQueryParams(StringBuilder query) {
         if (serviceReference != null) {
             query.append(appendQueryParam(REFERENCE_KEY, serviceReference));
         }
@@ -130,7 +164,9 @@ public class MandateSearchParams extends SearchParams {
             query.append(appendQueryParam(TO_DATE_KEY, toDate));
         }
 
-        return query.toString();
+        if (getCountMode() != CountMode.EXACT) {
+            query.append(appendQueryParam(COUNT_MODE_KEY, countMode));
+        }
     }
 
     public static final class MandateSearchParamsBuilder {
@@ -143,6 +179,9 @@ public class MandateSearchParams extends SearchParams {
         private String toDate;
         private Integer page = 1;
         private Integer displaySize = 500;
+        private String after;
+        private String before;
+        private CountMode countMode = CountMode.EXACT;
 
         public static MandateSearchParamsBuilder aMandateSearchParams() {
             return new MandateSearchParamsBuilder();
@@ -193,6 +232,21 @@ public class MandateSearchParams extends SearchParams {
             return this;
         }
 
+        public MandateSearchParamsBuilder withAfter(String after) {
+            this.after = after;
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withBefore(String before) {
+            this.before = before;
+            return this;
+        }
+
+        public MandateSearchParamsBuilder withCountMode(CountMode countMode) {
+            this.countMode = countMode;
+            return this;
+        }
+
         public MandateSearchParams build() {
             return new MandateSearchParams(this);
         }
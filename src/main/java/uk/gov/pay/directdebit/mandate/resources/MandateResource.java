@@ -1,15 +1,19 @@
 package uk.gov.pay.directdebit.mandate.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.ExportFormat;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
+import uk.gov.pay.directdebit.common.services.SearchExport;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
 import uk.gov.pay.directdebit.mandate.api.ConfirmMandateRequest;
 import uk.gov.pay.directdebit.mandate.api.CreateMandateRequest;
 import uk.gov.pay.directdebit.mandate.api.DirectDebitInfoFrontendResponse;
 import uk.gov.pay.directdebit.mandate.api.MandateResponse;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
@@ -20,37 +24,49 @@ import uk.gov.pay.directdebit.payments.model.LinksForSearchResult;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.created;
+import static uk.gov.pay.commons.model.ApiResponseDateTimeFormatter.ISO_INSTANT_MILLISECOND_PRECISION;
 
 @Path("/")
 public class MandateResource {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(MandateResource.class);
+    private static final List<String> CSV_HEADER = List.of("mandate_id", "service_reference", "mandate_reference",
+            "state", "state_details", "description", "provider_id", "payment_provider", "payer_name", "payer_email",
+            "created_date");
     
     private final MandateService mandateService;
     private final MandateQueryService mandateQueryService;
     private final MandateSearchService mandateSearchService;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public MandateResource(MandateService mandateService, MandateQueryService mandateQueryService, MandateSearchService mandateSearchService) {
+    public MandateResource(MandateService mandateService, MandateQueryService mandateQueryService,
+                           MandateSearchService mandateSearchService, ObjectMapper objectMapper) {
         this.mandateService = mandateService;
         this.mandateQueryService = mandateQueryService;
         this.mandateSearchService = mandateSearchService;
+        this.objectMapper = objectMapper;
     }
     
     @GET
@@ -68,18 +84,55 @@ public class MandateResource {
                 .map(mandate -> mandateService.populateGetMandateResponse(mandate, uriInfo))
                 .collect(Collectors.toList());
 
-        LinksForSearchResult linksForSearchResult =
-                new LinksForSearchResult(mandateSearchParams, uriInfo, results.getTotalMatchingMandates(), gatewayAccount.getExternalId());
+        LinksForSearchResult linksForSearchResult = new LinksForSearchResult(mandateSearchParams, uriInfo,
+                results.getTotal().getExactCount(), gatewayAccount.getExternalId(), results.getSearchPage());
 
         return new SearchResponse<>(
                 gatewayAccount.getExternalId(),
-                results.getTotalMatchingMandates(),
-                mandateSearchParams.getPage(),
+                results.getTotal(),
+                mandateSearchParams.isCursorPagination() ? null : mandateSearchParams.getPage(),
                 mandateResponses,
                 linksForSearchResult
         );
     }
     
+    @GET
+    @Path("/v1/api/accounts/{accountId}/mandates/export")
+    @Timed
+    public Response exportMandates(@PathParam("accountId") GatewayAccount gatewayAccount,
+                                   @Valid @BeanParam MandateSearchParams mandateSearchParams,
+                                   @QueryParam("format") @DefaultValue("ndjson")
+                                   @Pattern(regexp = "ndjson|csv", message = "Invalid attribute value: format. Must be one of ndjson or csv") String format,
+                                   @Context UriInfo uriInfo) {
+
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        SearchExport.Rows<MandateSearchRow> mandates = consumer ->
+                mandateSearchService.export(mandateSearchParams, gatewayAccount.getExternalId(), consumer);
+
+        StreamingOutput output = exportFormat == ExportFormat.CSV
+                ? SearchExport.asCsv(mandates, CSV_HEADER, MandateResource::toCsvRow)
+                : SearchExport.asNdjson(mandates, mandate -> mandateService.populateMandateExportResponse(mandate, uriInfo), objectMapper);
+
+        return Response.ok(output, exportFormat.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"mandates." + exportFormat.getFileExtension() + "\"")
+                .build();
+    }
+
+    private static List<String> toCsvRow(MandateSearchRow mandate) {
+        return Arrays.asList(
+                mandate.getExternalId().toString(),
+                mandate.getServiceReference(),
+                mandate.getMandateBankStatementReference().map(Object::toString).orElse(null),
+                mandate.getState().toExternal().getState(),
+                mandate.getStateDetails().orElse(null),
+                mandate.getDescription().orElse(null),
+                mandate.getPaymentProviderMandateId().map(Object::toString).orElse(null),
+                mandate.getPaymentProvider().toString().toLowerCase(),
+                mandate.getPayerName().orElse(null),
+                mandate.getPayerEmail().orElse(null),
+                ISO_INSTANT_MILLISECOND_PRECISION.format(mandate.getCreatedDate()));
+    }
+
     @POST
     @Path("/v1/api/accounts/{accountId}/mandates")
     @Consumes(APPLICATION_JSON)
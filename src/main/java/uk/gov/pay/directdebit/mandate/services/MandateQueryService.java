@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
@@ -12,9 +13,13 @@ import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 
 import javax.inject.Inject;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 
 public class MandateQueryService {
@@ -37,6 +42,20 @@ public class MandateQueryService {
                 .orElseThrow(() -> new MandateNotFoundException(mandateExternalId, gatewayAccountExternalId));
     }
 
+    public Map<MandateExternalId, Mandate> findByExternalIdsAndGatewayAccountExternalId(
+            Collection<MandateExternalId> mandateExternalIds, String gatewayAccountExternalId) {
+        if (mandateExternalIds.isEmpty()) {
+            return Map.of();
+        }
+        String[] externalIds = mandateExternalIds.stream()
+                .map(MandateExternalId::toString)
+                .distinct()
+                .toArray(String[]::new);
+        return mandateDao.findByExternalIdsAndGatewayAccountExternalId(externalIds, gatewayAccountExternalId)
+                .stream()
+                .collect(toMap(Mandate::getExternalId, identity()));
+    }
+
     public Mandate findByGoCardlessMandateIdAndOrganisationId(
             GoCardlessMandateId goCardlessMandateId,
             GoCardlessOrganisationId organisationId) {
@@ -44,6 +63,27 @@ public class MandateQueryService {
                 .orElseThrow(() -> new MandateNotFoundException(goCardlessMandateId, organisationId));
     }
     
+    public Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, Mandate> findByGoCardlessMandateIdsAndOrganisationIds(
+            Collection<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds) {
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+        String[] goCardlessMandateIds = goCardlessMandateIdsAndOrganisationIds.stream()
+                .map(goCardlessMandateIdAndOrganisationId -> goCardlessMandateIdAndOrganisationId.getLeft().toString())
+                .toArray(String[]::new);
+        String[] organisationIds = goCardlessMandateIdsAndOrganisationIds.stream()
+                .map(goCardlessMandateIdAndOrganisationId -> goCardlessMandateIdAndOrganisationId.getRight().toString())
+                .toArray(String[]::new);
+        return mandateDao.findByPaymentProviderMandateIdsAndOrganisations(GOCARDLESS, goCardlessMandateIds, organisationIds)
+                .stream()
+                .collect(toMap(MandateQueryService::toGoCardlessMandateIdAndOrganisationId, identity(), (first, second) -> first));
+    }
+
+    private static Pair<GoCardlessMandateId, GoCardlessOrganisationId> toGoCardlessMandateIdAndOrganisationId(Mandate mandate) {
+        return Pair.of(GoCardlessMandateId.valueOf(mandate.getPaymentProviderMandateId().orElseThrow().toString()),
+                mandate.getGatewayAccount().getOrganisation().orElseThrow());
+    }
+
     public Mandate findBySandboxMandateId(SandboxMandateId sandboxMandateId) {
         return mandateDao.findByPaymentProviderMandateId(PaymentProvider.SANDBOX, sandboxMandateId)
                 .orElseThrow(() -> new MandateNotFoundException(sandboxMandateId.toString()));
@@ -1,44 +1,67 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.common.model.SearchTotal;
+import uk.gov.pay.directdebit.common.services.SearchCounter;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
-import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
 
 import javax.inject.Inject;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class MandateSearchService {
 
     private MandateSearchDao mandateSearchDao;
+    private SearchCounter searchCounter;
 
     @Inject
-    public MandateSearchService(MandateSearchDao mandateSearchDao) {
+    public MandateSearchService(MandateSearchDao mandateSearchDao, SearchCounter searchCounter) {
         this.mandateSearchDao = mandateSearchDao;
+        this.searchCounter = searchCounter;
     }
 
     public MandateSearchResults search(MandateSearchParams params, String gatewayAccountExternalId) {
-        int totalMatchingMandates = mandateSearchDao.countTotalMatchingMandates(params, gatewayAccountExternalId);
-        List<Mandate> mandatesForRequestedPage =
-                totalMatchingMandates > 0 ? mandateSearchDao.search(params, gatewayAccountExternalId) : Collections.emptyList();
+        SearchTotal totalMatchingMandates = searchCounter.count(params, gatewayAccountExternalId,
+                () -> mandateSearchDao.countTotalMatchingMandates(params, gatewayAccountExternalId),
+                limit -> mandateSearchDao.countMatchingMandatesUpTo(params, gatewayAccountExternalId, limit));
+        SearchPage<MandateSearchRow> mandatesForRequestedPage = totalMatchingMandates.mayHaveMatches()
+                ? mandateSearchDao.searchPage(params, gatewayAccountExternalId)
+                : SearchPage.empty();
 
         return new MandateSearchResults(totalMatchingMandates, mandatesForRequestedPage);
     }
 
+    public void export(MandateSearchParams params, String gatewayAccountExternalId, Consumer<MandateSearchRow> consumer) {
+        mandateSearchDao.export(params, gatewayAccountExternalId, consumer);
+    }
+
     public static class MandateSearchResults {
-        private final int totalMatchingMandates;
-        private final List<Mandate> mandatesForRequestedPage;
+        private final SearchTotal totalMatchingMandates;
+        private final SearchPage<MandateSearchRow> mandatesForRequestedPage;
 
-        MandateSearchResults(int totalMatchingMandates, List<Mandate> mandatesForRequestedPage) {
+        MandateSearchResults(SearchTotal totalMatchingMandates, SearchPage<MandateSearchRow> mandatesForRequestedPage) {
             this.totalMatchingMandates = totalMatchingMandates;
             this.mandatesForRequestedPage = mandatesForRequestedPage;
         }
 
-        public int getTotalMatchingMandates() {
+        /**
+         * The number of mandates matching the search, or null if the caller asked not to count them.
+         */
+        public Integer getTotalMatchingMandates() {
+            return totalMatchingMandates.getCount();
+        }
+
+        public SearchTotal getTotal() {
             return totalMatchingMandates;
         }
 
-        public List<Mandate> getMandatesForRequestedPage() {
+        public List<MandateSearchRow> getMandatesForRequestedPage() {
+            return mandatesForRequestedPage.getResults();
+        }
+
+        public SearchPage<MandateSearchRow> getSearchPage() {
             return mandatesForRequestedPage;
         }
     }
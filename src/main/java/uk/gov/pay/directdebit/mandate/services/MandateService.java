@@ -19,6 +19,7 @@ import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankReference;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
@@ -42,6 +43,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.POST;
@@ -126,7 +128,8 @@ public class MandateService {
 
     public MandateResponse createMandate(CreateMandateRequest createMandateRequest, String accountExternalId, UriInfo uriInfo) {
         Mandate mandate = createMandate(createMandateRequest, accountExternalId);
-        List<Map<String, Object>> dataLinks = createLinks(mandate, accountExternalId, uriInfo);
+        List<Map<String, Object>> dataLinks = createLinks(mandate.getExternalId(), mandate.getState(), accountExternalId,
+                uriInfo, () -> tokenService.generateNewTokenFor(mandate));
         return new MandateResponse(mandate, dataLinks);
     }
 
@@ -151,13 +154,25 @@ public class MandateService {
 
     public MandateResponse populateGetMandateResponse(String accountExternalId, MandateExternalId mandateExternalId, UriInfo uriInfo) {
         Mandate mandate = findByExternalId(mandateExternalId);
-        List<Map<String, Object>> dataLinks = createLinks(mandate, accountExternalId, uriInfo);
+        List<Map<String, Object>> dataLinks = createLinks(mandate.getExternalId(), mandate.getState(), accountExternalId,
+                uriInfo, () -> tokenService.generateNewTokenFor(mandate));
         return new MandateResponse(mandate, dataLinks);
     }
 
-    public MandateResponse populateGetMandateResponse(Mandate mandate, UriInfo uriInfo) {
-        var dataLinks = createLinks(mandate, mandate.getGatewayAccount().getExternalId(), uriInfo);
-        return new MandateResponse(mandate, dataLinks);
+    public MandateResponse populateGetMandateResponse(MandateSearchRow mandateSearchRow, UriInfo uriInfo) {
+        var dataLinks = createLinks(mandateSearchRow.getExternalId(), mandateSearchRow.getState(),
+                mandateSearchRow.getGatewayAccountExternalId(), uriInfo,
+                () -> tokenService.generateNewTokenFor(mandateSearchRow.getId(), mandateSearchRow.getExternalId()));
+        return new MandateResponse(mandateSearchRow, dataLinks);
+    }
+
+    /**
+     * Builds the response for a mandate in an export. Unlike {@link #populateGetMandateResponse} it only has a self
+     * link, since the next_url links each need a new token, which an export must not create.
+     */
+    public MandateResponse populateMandateExportResponse(MandateSearchRow mandateSearchRow, UriInfo uriInfo) {
+        return new MandateResponse(mandateSearchRow, List.of(createSelfLink(mandateSearchRow.getExternalId(),
+                mandateSearchRow.getGatewayAccountExternalId(), uriInfo)));
     }
 
     public Mandate findByExternalId(MandateExternalId externalId) {
@@ -212,16 +227,14 @@ public class MandateService {
         govUkPayEventService.storeEventAndUpdateStateForMandate(updatedMandate, MANDATE_SUBMITTED_TO_PROVIDER);
     }
 
-    private List<Map<String, Object>> createLinks(Mandate mandate, String accountExternalId, UriInfo uriInfo) {
+    private List<Map<String, Object>> createLinks(MandateExternalId mandateExternalId, MandateState state,
+                                                  String accountExternalId, UriInfo uriInfo, Supplier<Token> generateToken) {
         List<Map<String, Object>> dataLinks = new ArrayList<>();
 
-        dataLinks.add(createLink("self", GET, selfUriFor(uriInfo,
-                "/v1/api/accounts/{accountId}/mandates/{mandateExternalId}",
-                accountExternalId,
-                mandate.getExternalId().toString())));
+        dataLinks.add(createSelfLink(mandateExternalId, accountExternalId, uriInfo));
 
-        if (mandate.getState().toExternal() == EXTERNAL_CREATED) {
-            Token token = tokenService.generateNewTokenFor(mandate);
+        if (state.toExternal() == EXTERNAL_CREATED) {
+            Token token = generateToken.get();
             dataLinks.add(createLink("next_url",
                     GET,
                     nextUrl(linksConfig.getFrontendUrl(), "secure", token.getToken())));
@@ -233,4 +246,11 @@ public class MandateService {
         }
         return dataLinks;
     }
+
+    private Map<String, Object> createSelfLink(MandateExternalId mandateExternalId, String accountExternalId, UriInfo uriInfo) {
+        return createLink("self", GET, selfUriFor(uriInfo,
+                "/v1/api/accounts/{accountId}/mandates/{mandateExternalId}",
+                accountExternalId,
+                mandateExternalId.toString()));
+    }
 }
@@ -4,8 +4,21 @@ import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public interface MandateStateCalculator {
     Optional<DirectDebitStateWithDetails<MandateState>> calculate(Mandate mandate);
+
+    /**
+     * Calculates the states for many mandates at once. The returned map only contains mandates for which there are
+     * events that determine the state. Implementations should override this to avoid querying once per mandate.
+     */
+    default Map<Mandate, DirectDebitStateWithDetails<MandateState>> calculateAll(Collection<Mandate> mandates) {
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        mandates.forEach(mandate -> calculate(mandate).ifPresent(state -> states.put(mandate, state)));
+        return states;
+    }
 }
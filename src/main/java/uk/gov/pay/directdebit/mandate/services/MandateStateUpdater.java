@@ -2,14 +2,22 @@ package uk.gov.pay.directdebit.mandate.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.InvalidPaymentProviderException;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessMandateStateCalculator;
 import uk.gov.pay.directdebit.mandate.services.sandbox.SandboxMandateStateCalculator;
 
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 
 public class MandateStateUpdater {
@@ -40,6 +48,24 @@ public class MandateStateUpdater {
                 });
     }
 
+    public void updateStatesIfNecessary(Collection<Mandate> mandates) {
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> mandateStates = new HashMap<>();
+        mandates.stream()
+                .collect(groupingBy(this::getStateCalculator))
+                .forEach((stateCalculator, mandatesForCalculator) -> mandateStates.putAll(stateCalculator.calculateAll(mandatesForCalculator)));
+
+        mandateUpdateService.updateStates(mandateStates);
+
+        List<String> mandatesNotUpdated = mandates.stream()
+                .filter(mandate -> !mandateStates.containsKey(mandate))
+                .map(mandate -> mandate.getExternalId().toString())
+                .collect(toList());
+        if (!mandatesNotUpdated.isEmpty()) {
+            LOGGER.info(format("Asked to update the status for mandates %s but there appear to be " +
+                    "no events stored that require them to be updated", mandatesNotUpdated));
+        }
+    }
+
     private MandateStateCalculator getStateCalculator(Mandate mandate) {
         switch (mandate.getGatewayAccount().getPaymentProvider()){
             case SANDBOX:
@@ -8,8 +8,12 @@ import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 
 public class MandateUpdateService {
 
@@ -40,5 +44,23 @@ public class MandateUpdateService {
                 .withStateDetailsDescription(description)
                 .build();
     }
-    
+
+    public void updateStates(Map<Mandate, DirectDebitStateWithDetails<MandateState>> mandateStates) {
+        if (mandateStates.isEmpty()) {
+            return;
+        }
+
+        List<Mandate> mandates = new ArrayList<>(mandateStates.keySet());
+        List<DirectDebitStateWithDetails<MandateState>> statesAndDetails = mandates.stream().map(mandateStates::get).collect(toList());
+
+        mandateDao.updateStateAndDetails(
+                mandates.stream().map(Mandate::getId).collect(toList()),
+                statesAndDetails.stream().map(DirectDebitStateWithDetails::getState).collect(toList()),
+                statesAndDetails.stream().map(stateAndDetails -> stateAndDetails.getDetails().orElse(null)).collect(toList()),
+                statesAndDetails.stream().map(stateAndDetails -> stateAndDetails.getDetailsDescription().orElse(null)).collect(toList()));
+
+        mandateStates.forEach((mandate, stateAndDetails) ->
+                LOGGER.info(format("Updated status of mandate %s to %s", mandate.getExternalId(), stateAndDetails.getState())));
+    }
+
 }
@@ -1,11 +1,14 @@
 package uk.gov.pay.directdebit.mandate.services.gocardless;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.Event;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.GatewayAccountMissingOrganisationIdException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
@@ -14,11 +17,20 @@ import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.services.MandateStateCalculator;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.MANDATE;
 import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
 import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.mapGovUkPayEventToMandateState;
 import static uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessEventToMandateStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE;
@@ -28,25 +40,153 @@ public class GoCardlessMandateStateCalculator implements MandateStateCalculator
 
     private final GoCardlessEventDao goCardlessEventDao;
     private final GovUkPayEventDao govUkPayEventDao;
+    private final ResourceEventHeadDao resourceEventHeadDao;
 
     @Inject
-    GoCardlessMandateStateCalculator(GoCardlessEventDao goCardlessEventDao, GovUkPayEventDao govUkPayEventDao) {
+    GoCardlessMandateStateCalculator(GoCardlessEventDao goCardlessEventDao, GovUkPayEventDao govUkPayEventDao,
+                                     ResourceEventHeadDao resourceEventHeadDao) {
         this.goCardlessEventDao = goCardlessEventDao;
         this.govUkPayEventDao = govUkPayEventDao;
+        this.resourceEventHeadDao = resourceEventHeadDao;
     }
 
     public Optional<DirectDebitStateWithDetails<MandateState>> calculate(Mandate mandate) {
+        return resourceEventHeadDao.findByResource(MANDATE, mandate.getId())
+                .map(this::calculateFromHead)
+                .orElseGet(() -> calculateFromHistory(mandate));
+    }
+
+    private Optional<DirectDebitStateWithDetails<MandateState>> calculateFromHead(ResourceEventHead resourceEventHead) {
+        return calculateFromLatestEvents(
+                resourceEventHead.getGoCardlessEventId().flatMap(goCardlessEventDao::findById),
+                resourceEventHead.getGovUkPayEventId().flatMap(govUkPayEventDao::findById));
+    }
+
+    private Optional<DirectDebitStateWithDetails<MandateState>> calculateFromHistory(Mandate mandate) {
         Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getLatestApplicableGoCardlessEvent(mandate);
 
         Optional<GovUkPayEvent> latestApplicableGovUkPayEvent
                 = govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE);
 
+        return calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent);
+    }
+
+    @Override
+    public Map<Mandate, DirectDebitStateWithDetails<MandateState>> calculateAll(Collection<Mandate> mandates) {
+        if (mandates.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, ResourceEventHead> resourceEventHeads = resourceEventHeadDao
+                .findByResources(MANDATE, mandates.stream().map(Mandate::getId).collect(toList()))
+                .stream()
+                .collect(toMap(ResourceEventHead::getResourceId, identity()));
+
+        Map<Long, GoCardlessEvent> goCardlessEventsById = findGoCardlessEventsById(resourceEventHeads.values());
+        Map<Long, GovUkPayEvent> govUkPayEventsById = findGovUkPayEventsById(resourceEventHeads.values());
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        List<Mandate> mandatesWithoutHeads = new ArrayList<>();
+        for (Mandate mandate : mandates) {
+            ResourceEventHead resourceEventHead = resourceEventHeads.get(mandate.getId());
+            if (resourceEventHead == null) {
+                mandatesWithoutHeads.add(mandate);
+            } else {
+                calculateFromLatestEvents(
+                        resourceEventHead.getGoCardlessEventId().map(goCardlessEventsById::get),
+                        resourceEventHead.getGovUkPayEventId().map(govUkPayEventsById::get))
+                        .ifPresent(state -> states.put(mandate, state));
+            }
+        }
+        states.putAll(calculateAllFromHistory(mandatesWithoutHeads));
+        return states;
+    }
+
+    private Map<Long, GoCardlessEvent> findGoCardlessEventsById(Collection<ResourceEventHead> resourceEventHeads) {
+        List<Long> goCardlessEventIds = resourceEventHeads.stream()
+                .map(ResourceEventHead::getGoCardlessEventId)
+                .flatMap(Optional::stream)
+                .collect(toList());
+        if (goCardlessEventIds.isEmpty()) {
+            return Map.of();
+        }
+        return goCardlessEventDao.findByIds(goCardlessEventIds).stream().collect(toMap(GoCardlessEvent::getId, identity()));
+    }
+
+    private Map<Long, GovUkPayEvent> findGovUkPayEventsById(Collection<ResourceEventHead> resourceEventHeads) {
+        List<Long> govUkPayEventIds = resourceEventHeads.stream()
+                .map(ResourceEventHead::getGovUkPayEventId)
+                .flatMap(Optional::stream)
+                .collect(toList());
+        if (govUkPayEventIds.isEmpty()) {
+            return Map.of();
+        }
+        return govUkPayEventDao.findByIds(govUkPayEventIds).stream().collect(toMap(GovUkPayEvent::getId, identity()));
+    }
+
+    private Map<Mandate, DirectDebitStateWithDetails<MandateState>> calculateAllFromHistory(Collection<Mandate> mandates) {
+        if (mandates.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, GoCardlessEvent> latestApplicableGoCardlessEvents
+                = getLatestApplicableGoCardlessEvents(mandates);
+
+        Map<Long, GovUkPayEvent> latestApplicableGovUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForMandates(
+                mandates.stream().map(Mandate::getId).collect(toList()), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE)
+                .stream()
+                .collect(toMap(govUkPayEvent -> govUkPayEvent.getMandateId().orElseThrow(), identity()));
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        for (Mandate mandate : mandates) {
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = toGoCardlessMandateIdAndOrganisationId(mandate)
+                    .map(latestApplicableGoCardlessEvents::get);
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent = Optional.ofNullable(latestApplicableGovUkPayEvents.get(mandate.getId()));
+            calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                    .ifPresent(state -> states.put(mandate, state));
+        }
+        return states;
+    }
+
+    private Optional<DirectDebitStateWithDetails<MandateState>> calculateFromLatestEvents(
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent,
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent) {
         return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
                 .flatMap(Optional::stream)
                 .max(Comparator.comparing(Event::getTimestamp))
                 .flatMap(this::mapEventToState);
     }
 
+    private Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, GoCardlessEvent> getLatestApplicableGoCardlessEvents(
+            Collection<Mandate> mandates) {
+        List<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds = mandates.stream()
+                .map(this::toGoCardlessMandateIdAndOrganisationId)
+                .flatMap(Optional::stream)
+                .distinct()
+                .collect(toList());
+
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return goCardlessEventDao.findLatestApplicableEventsForMandates(
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessMandateIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new),
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE)
+                .stream()
+                .collect(toMap(event -> Pair.of(event.getLinksMandate().orElseThrow(), event.getLinksOrganisation()), identity()));
+    }
+
+    private Optional<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> toGoCardlessMandateIdAndOrganisationId(Mandate mandate) {
+        return mandate.getPaymentProviderMandateId()
+                .map(paymentProviderMandateId -> {
+                    GoCardlessOrganisationId goCardlessOrganisationId = mandate.getGatewayAccount().getOrganisation()
+                            .orElseThrow(() -> new GatewayAccountMissingOrganisationIdException(mandate.getGatewayAccount()));
+
+                    return Pair.of((GoCardlessMandateId) paymentProviderMandateId, goCardlessOrganisationId);
+                });
+    }
+
     private Optional<GoCardlessEvent> getLatestApplicableGoCardlessEvent(Mandate mandate) {
         return mandate.getPaymentProviderMandateId()
                 .flatMap(paymentProviderMandateId -> {
@@ -1,13 +1,18 @@
 package uk.gov.pay.directdebit.mandate.services.gocardless;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.gocardless.GoCardlessException;
 import com.gocardless.errors.ValidationFailedException;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFacade;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFactory;
 import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
 import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.mandate.exception.PayerNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
@@ -30,32 +35,68 @@ import uk.gov.pay.directdebit.payments.model.PaymentProviderPaymentIdAndChargeDa
 import javax.inject.Inject;
 import java.util.Optional;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 public class GoCardlessService implements DirectDebitPaymentProviderCommandService<GoCardlessMandateId> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessService.class);
+    private static final String METRICS_PREFIX = "gocardless.confirm-mandate";
 
     private final GoCardlessClientFactory goCardlessClientFactory;
     private final GoCardlessCustomerDao goCardlessCustomerDao;
+    private final GoCardlessSunNameCache sunNameCache;
+    private final Timer createCustomerTimer;
+    private final Timer createCustomerBankAccountTimer;
+    private final Timer createMandateTimer;
+    private final Counter resumedConfirmationsCounter;
 
     @Inject
     public GoCardlessService(
             GoCardlessClientFactory goCardlessClientFactory,
-            GoCardlessCustomerDao goCardlessCustomerDao) {
+            GoCardlessCustomerDao goCardlessCustomerDao,
+            GoCardlessSunNameCache sunNameCache,
+            Environment environment) {
+        this(goCardlessClientFactory, goCardlessCustomerDao, sunNameCache, environment.metrics());
+    }
+
+    public GoCardlessService(
+            GoCardlessClientFactory goCardlessClientFactory,
+            GoCardlessCustomerDao goCardlessCustomerDao,
+            GoCardlessSunNameCache sunNameCache,
+            MetricRegistry metricRegistry) {
         this.goCardlessClientFactory = goCardlessClientFactory;
         this.goCardlessCustomerDao = goCardlessCustomerDao;
+        this.sunNameCache = sunNameCache;
+        this.createCustomerTimer = metricRegistry.timer(name(METRICS_PREFIX, "customer"));
+        this.createCustomerBankAccountTimer = metricRegistry.timer(name(METRICS_PREFIX, "bank-account"));
+        this.createMandateTimer = metricRegistry.timer(name(METRICS_PREFIX, "mandate"));
+        this.resumedConfirmationsCounter = metricRegistry.counter(name(METRICS_PREFIX, "resumed"));
     }
 
+    /**
+     * Creates the customer, then their bank account, then the mandate in GoCardless, storing the id of each
+     * customer and bank account as soon as GoCardless has created it. If an earlier attempt to confirm the mandate
+     * got part of the way through, the steps it completed are not repeated; a step that was interrupted before its
+     * result was stored is safe to repeat because each request carries the mandate's idempotency key.
+     */
     @Override
     public PaymentProviderMandateIdAndBankReference confirmMandate(Mandate mandate, BankAccountDetails bankAccountDetails) {
         LOGGER.info("Confirming direct debit details, on demand mandate with id: {}", mandate.getExternalId());
-        GoCardlessCustomer goCardlessCustomer = createCustomer(mandate);
-        GoCardlessCustomer goCardlessCustomerWithBankAccount = createCustomerBankAccount(
-                mandate,
-                goCardlessCustomer,
-                bankAccountDetails
-        );
-        persist(goCardlessCustomer);
-        return createMandate(mandate, goCardlessCustomerWithBankAccount);
+        Payer payer = mandate.getPayer().orElseThrow(() -> new PayerNotFoundException(mandate.getExternalId()));
+        Optional<GoCardlessCustomer> existingCustomer = goCardlessCustomerDao.findByPayerId(payer.getId());
+        existingCustomer.ifPresent(customer -> {
+            resumedConfirmationsCounter.inc();
+            LOGGER.info("Resuming confirmation of mandate with id: {}, GoCardless customer already created{}",
+                    mandate.getExternalId(),
+                    customer.getCustomerBankAccountId() == null ? "" : " with a bank account");
+        });
+
+        GoCardlessCustomer goCardlessCustomer = existingCustomer.orElseGet(() -> persist(createCustomer(mandate)));
+        if (goCardlessCustomer.getCustomerBankAccountId() == null) {
+            goCardlessCustomer = createCustomerBankAccount(mandate, goCardlessCustomer, bankAccountDetails);
+            goCardlessCustomerDao.updateBankAccountId(goCardlessCustomer.getId(), goCardlessCustomer.getCustomerBankAccountId());
+        }
+        return createMandate(mandate, goCardlessCustomer);
     }
 
     @Override
@@ -96,22 +137,33 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
 
     @Override
     public Optional<SunName> getSunName(Mandate mandate) {
-        LOGGER.info("Attempting to call GoCardless to retrieve service user name from creditor for mandate with id: {}", mandate.getExternalId());
         try {
-            return goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken()).getSunName();
+            Optional<GoCardlessOrganisationId> organisation = mandate.getGatewayAccount().getOrganisation();
+            if (organisation.isPresent()) {
+                return sunNameCache.get(organisation.get(), () -> fetchSunName(mandate));
+            }
+            return fetchSunName(mandate);
         } catch (Exception exc) {
             LOGGER.error("Exception while retrieving service user name from GoCardless, message: {}", exc.getMessage());
             return Optional.empty();
         }
     }
 
+    private Optional<SunName> fetchSunName(Mandate mandate) {
+        LOGGER.info("Attempting to call GoCardless to retrieve service user name from creditor for mandate with id: {}", mandate.getExternalId());
+        return goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken()).getSunName();
+    }
+
     private GoCardlessCustomer createCustomer(Mandate mandate) {
         MandateExternalId mandateExternalId = mandate.getExternalId();
         Payer payer = mandate.getPayer().orElseThrow(() -> new PayerNotFoundException(mandateExternalId));
         try {
             LOGGER.info("Attempting to call GoCardless to create a customer, mandate id: {}", mandateExternalId);
             GoCardlessClientFacade goCardlessClientFacade = goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken());
-            GoCardlessCustomer customer = goCardlessClientFacade.createCustomer(mandateExternalId, payer);
+            GoCardlessCustomer customer;
+            try (Timer.Context ignored = createCustomerTimer.time()) {
+                customer = goCardlessClientFacade.createCustomer(mandateExternalId, payer);
+            }
             LOGGER.info("Created customer in GoCardless, mandate id: {}", mandateExternalId);
 
             return customer;
@@ -128,13 +180,16 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
         try {
             LOGGER.info("Attempting to call GoCardless to create a customer bank account, mandate id: {}", mandateExternalId);
             GoCardlessClientFacade goCardlessClientFacade = goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken());
-            GoCardlessCustomer customerWithBankAccount = goCardlessClientFacade.createCustomerBankAccount(
-                    mandateExternalId,
-                    goCardlessCustomer,
-                    payer.getName(),
-                    bankAccountDetails.getSortCode(),
-                    bankAccountDetails.getAccountNumber()
-            );
+            GoCardlessCustomer customerWithBankAccount;
+            try (Timer.Context ignored = createCustomerBankAccountTimer.time()) {
+                customerWithBankAccount = goCardlessClientFacade.createCustomerBankAccount(
+                        mandateExternalId,
+                        goCardlessCustomer,
+                        payer.getName(),
+                        bankAccountDetails.getSortCode(),
+                        bankAccountDetails.getAccountNumber()
+                );
+            }
 
             LOGGER.info("Created customer bank account in GoCardless, mandate id: {}", mandateExternalId);
 
@@ -151,7 +206,10 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
             LOGGER.info("Attempting to call GoCardless to create a mandate, pay mandate id: {}", mandate.getExternalId());
 
             GoCardlessClientFacade goCardlessClientFacade = goCardlessClientFactory.getClientFor(mandate.getGatewayAccount().getAccessToken());
-            PaymentProviderMandateIdAndBankReference mandateIdAndBankReference = goCardlessClientFacade.createMandate(mandate, goCardlessCustomer);
+            PaymentProviderMandateIdAndBankReference mandateIdAndBankReference;
+            try (Timer.Context ignored = createMandateTimer.time()) {
+                mandateIdAndBankReference = goCardlessClientFacade.createMandate(mandate, goCardlessCustomer);
+            }
 
             LOGGER.info("Created mandate in GoCardless, pay mandate id: {}, GoCardless mandate id: {}",
                     mandate.getExternalId(),
@@ -165,8 +223,8 @@ public class GoCardlessService implements DirectDebitPaymentProviderCommandServi
         }
     }
 
-    private void persist(GoCardlessCustomer customer) {
-        goCardlessCustomerDao.insert(customer);
+    private GoCardlessCustomer persist(GoCardlessCustomer customer) {
+        return customer.setId(goCardlessCustomerDao.insert(customer));
     }
 
     private void logException(Exception exc, String resource, String id) {
@@ -0,0 +1,98 @@
+package uk.gov.pay.directdebit.mandate.services.gocardless;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the service user number (SUN) name of each GoCardless organisation, which we otherwise have to fetch
+ * from GoCardless for every email we send. Concurrent requests for an organisation that is not cached yet share one
+ * fetch. Once a SUN name is older than the refresh interval it is fetched again in the background, one fetch per
+ * organisation at a time, while callers carry on getting the old one; if that fails, the next call tries again.
+ */
+public class GoCardlessSunNameCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessSunNameCache.class);
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private final Cache<GoCardlessOrganisationId, FetchedSunName> sunNames = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+    private final java.time.Duration refreshInterval;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    public GoCardlessSunNameCache(Duration refreshInterval, Executor refreshExecutor) {
+        this(refreshInterval, refreshExecutor, Clock.systemUTC());
+    }
+
+    GoCardlessSunNameCache(Duration refreshInterval, Executor refreshExecutor, Clock clock) {
+        this.refreshInterval = java.time.Duration.ofMillis(refreshInterval.toMilliseconds());
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the organisation's SUN name, fetching it if it is not cached and starting a background refresh if it
+     * is due one. Exceptions from the fetch are only thrown if there is no earlier SUN name to fall back on.
+     */
+    public Optional<SunName> get(GoCardlessOrganisationId organisationId, Supplier<Optional<SunName>> fetchSunName) {
+        FetchedSunName cached;
+        try {
+            cached = sunNames.get(organisationId, () -> new FetchedSunName(fetchSunName.get(), clock.instant()));
+        } catch (UncheckedExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (!clock.instant().isBefore(cached.fetchedAt.plus(refreshInterval)) && cached.refreshing.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> refresh(organisationId, cached, fetchSunName));
+        }
+        return cached.sunName;
+    }
+
+    private void refresh(GoCardlessOrganisationId organisationId, FetchedSunName stale,
+                         Supplier<Optional<SunName>> fetchSunName) {
+        try {
+            // only replaces the stale SUN name, so one invalidated while this was fetching stays invalidated
+            sunNames.asMap().replace(organisationId, stale, new FetchedSunName(fetchSunName.get(), clock.instant()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh SUN name for GoCardless organisation {}, using the one fetched at {}: {}",
+                    organisationId, stale.fetchedAt, e.getMessage());
+            stale.refreshing.set(false);
+        }
+    }
+
+    public void invalidate(GoCardlessOrganisationId organisationId) {
+        sunNames.invalidate(organisationId);
+    }
+
+    public void invalidateAll() {
+        sunNames.invalidateAll();
+    }
+
+    private static class FetchedSunName {
+        private final Optional<SunName> sunName;
+        private final Instant fetchedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private FetchedSunName(Optional<SunName> sunName, Instant fetchedAt) {
+            this.sunName = sunName;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -2,14 +2,21 @@ package uk.gov.pay.directdebit.mandate.services.sandbox;
 
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper;
 import uk.gov.pay.directdebit.mandate.services.MandateStateCalculator;
 
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static uk.gov.pay.directdebit.mandate.services.GovUkPayEventToMandateStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE;
 
 public class SandboxMandateStateCalculator implements MandateStateCalculator {
@@ -24,4 +31,24 @@ public class SandboxMandateStateCalculator implements MandateStateCalculator {
         return govUkPayEventDao.findLatestApplicableEventForMandate(mandate.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE)
                 .flatMap(GovUkPayEventToMandateStateMapper::mapGovUkPayEventToMandateState);
     }
+
+    @Override
+    public Map<Mandate, DirectDebitStateWithDetails<MandateState>> calculateAll(Collection<Mandate> mandates) {
+        if (mandates.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, GovUkPayEvent> latestApplicableGovUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForMandates(
+                mandates.stream().map(Mandate::getId).collect(toList()), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE)
+                .stream()
+                .collect(toMap(govUkPayEvent -> govUkPayEvent.getMandateId().orElseThrow(), identity()));
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> states = new HashMap<>();
+        for (Mandate mandate : mandates) {
+            Optional.ofNullable(latestApplicableGovUkPayEvents.get(mandate.getId()))
+                    .flatMap(GovUkPayEventToMandateStateMapper::mapGovUkPayEventToMandateState)
+                    .ifPresent(state -> states.put(mandate, state));
+        }
+        return states;
+    }
 }
@@ -4,16 +4,22 @@ import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 import uk.gov.pay.directdebit.payers.dao.mapper.GoCardlessCustomerMapper;
 import uk.gov.pay.directdebit.payers.model.GoCardlessCustomer;
 
+import java.util.Optional;
+
 @RegisterRowMapper(GoCardlessCustomerMapper.class)
 public interface GoCardlessCustomerDao {
     @SqlUpdate("INSERT INTO gocardless_customers(payer_id, customer_id, customer_bank_account_id) VALUES (:payerId, :customerId, :customerBankAccountId)")
     @GetGeneratedKeys
     Long insert(@BindBean GoCardlessCustomer goCardlessCustomer);
 
+    @SqlQuery("SELECT g.id, g.payer_id, g.customer_id, g.customer_bank_account_id FROM gocardless_customers g WHERE g.payer_id = :payerId ORDER BY g.id DESC LIMIT 1")
+    Optional<GoCardlessCustomer> findByPayerId(@Bind("payerId") Long payerId);
+
     @SqlUpdate("UPDATE gocardless_customers g SET customer_bank_account_id = :customerBankAccountId WHERE g.id = :id")
     int updateBankAccountId(@Bind("id") Long id, @Bind("customerBankAccountId") String accountId);
 }
@@ -0,0 +1,24 @@
+package uk.gov.pay.directdebit.payments.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+public class BulkCollectPaymentRequest {
+
+    private final List<Map<String, String>> payments;
+
+    @JsonCreator
+    public BulkCollectPaymentRequest(@JsonProperty("payments") List<Map<String, String>> payments) {
+        this.payments = payments == null ? List.of() : payments;
+    }
+
+    /**
+     * Each payment has the same fields as a request to collect a single payment.
+     */
+    public List<Map<String, String>> getPayments() {
+        return payments;
+    }
+}
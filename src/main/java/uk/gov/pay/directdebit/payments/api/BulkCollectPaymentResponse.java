@@ -0,0 +1,105 @@
+package uk.gov.pay.directdebit.payments.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.pay.commons.model.ErrorIdentifier;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.common.exception.NotFoundException;
+import uk.gov.pay.directdebit.common.model.ErrorResponse;
+import uk.gov.pay.directdebit.mandate.exception.MandateStateInvalidException;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.List;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+
+/**
+ * The outcome of each payment in a bulk collect request, in the same order as the request. Each result has the
+ * status code and body that collecting the payment on its own would have responded with, except for a payment
+ * that had not been submitted to the payment provider when the request timed out, which can be collected again.
+ */
+public class BulkCollectPaymentResponse {
+
+    private static final String GENERIC_ERROR_MESSAGE = "Payment could not be collected";
+    private static final String NOT_SUBMITTED_MESSAGE = "Payment was not submitted to the payment provider before the " +
+            "request timed out and can be collected again";
+
+    @JsonProperty("results")
+    private final List<Result> results;
+
+    public BulkCollectPaymentResponse(List<Result> results) {
+        this.results = results;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public static class Result {
+
+        @JsonProperty("status")
+        private final int status;
+
+        @JsonProperty("payment")
+        private final PaymentResponse payment;
+
+        @JsonProperty("error")
+        private final ErrorResponse error;
+
+        private Result(int status, PaymentResponse payment, ErrorResponse error) {
+            this.status = status;
+            this.payment = payment;
+            this.error = error;
+        }
+
+        public static Result collected(Payment payment) {
+            return new Result(SC_CREATED, PaymentResponse.from(payment), null);
+        }
+
+        public static Result notSubmitted() {
+            return new Result(SC_SERVICE_UNAVAILABLE, null, new ErrorResponse(ErrorIdentifier.GENERIC, NOT_SUBMITTED_MESSAGE));
+        }
+
+        /**
+         * The result for a payment that failed with the given exception. Exceptions that have their own error
+         * response when collecting a single payment keep their message; any other exception gets a generic message,
+         * so that internal details are not returned, and should be logged by the caller.
+         */
+        public static Result failed(RuntimeException exception) {
+            if (exception instanceof BadRequestException) {
+                return new Result(SC_BAD_REQUEST, null, new ErrorResponse(ErrorIdentifier.GENERIC, exception.getMessage()));
+            }
+            if (exception instanceof NotFoundException) {
+                return new Result(SC_NOT_FOUND, null,
+                        new ErrorResponse(((NotFoundException) exception).getErrorIdentifier(), exception.getMessage()));
+            }
+            if (exception instanceof MandateStateInvalidException) {
+                return new Result(SC_INTERNAL_SERVER_ERROR, null,
+                        new ErrorResponse(ErrorIdentifier.MANDATE_STATE_INVALID, exception.getMessage()));
+            }
+            if (exception instanceof InternalServerErrorException) {
+                return new Result(SC_INTERNAL_SERVER_ERROR, null, new ErrorResponse(ErrorIdentifier.GENERIC, exception.getMessage()));
+            }
+            return new Result(SC_INTERNAL_SERVER_ERROR, null, new ErrorResponse(ErrorIdentifier.GENERIC, GENERIC_ERROR_MESSAGE));
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public PaymentResponse getPayment() {
+            return payment;
+        }
+
+        public ErrorResponse getError() {
+            return error;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package uk.gov.pay.directdebit.payments.dao;
 
+import org.jdbi.v3.sqlobject.CreateSqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterArgumentFactory;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessOrganisationIdArgumentFactory;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
@@ -20,10 +27,14 @@ import uk.gov.pay.directdebit.payments.model.PaymentProviderPaymentIdArgumentFac
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
+import static uk.gov.pay.directdebit.payments.model.Payment.PaymentBuilder.fromPayment;
+
 @RegisterRowMapper(PaymentMapper.class)
 @RegisterArgumentFactory(MandateExternalIdArgumentFactory.class)
 @RegisterArgumentFactory(PaymentProviderPaymentIdArgumentFactory.class)
@@ -93,13 +104,48 @@ public interface PaymentDao {
     int updateState(@Bind("id") Long id, @Bind("state") PaymentState paymentState);
 
     @SqlUpdate("UPDATE payments SET payment_provider_id = :providerId, charge_date = :chargeDate WHERE id = :id")
-    int updateProviderIdAndChargeDate(@BindBean Payment payment);
+    int setProviderIdAndChargeDate(@BindBean Payment payment);
+
+    @CreateSqlObject
+    ResourceEventHeadDao resourceEventHeadDao();
 
-    @SqlUpdate("INSERT INTO payments(mandate_id, external_id, amount, state, description, reference, created_date, payment_provider_id, charge_date)" +
-            "VALUES (:mandate.id, :externalId, :amount, :state, :description, :reference, :createdDate, :providerId, :chargeDate)")
+    @Transaction
+    default int updateProviderIdAndChargeDate(Payment payment) {
+        int updated = setProviderIdAndChargeDate(payment);
+        resourceEventHeadDao().refreshPaymentHead(payment.getId());
+        return updated;
+    }
+
+    @SqlUpdate("INSERT INTO payments(mandate_id, gateway_account_id, external_id, amount, state, description, reference, created_date, payment_provider_id, charge_date)" +
+            "VALUES (:mandate.id, :mandate.gatewayAccount.id, :externalId, :amount, :state, :description, :reference, :createdDate, :providerId, :chargeDate)")
     @GetGeneratedKeys
     Long insert(@BindBean Payment payment);
 
+    @SqlBatch("INSERT INTO payments(mandate_id, gateway_account_id, external_id, amount, state, description, reference, created_date, payment_provider_id, charge_date)" +
+            "VALUES (:mandate.id, :mandate.gatewayAccount.id, :externalId, :amount, :state, :description, :reference, :createdDate, :providerId, :chargeDate)")
+    @GetGeneratedKeys
+    List<Long> insert(@BindBean List<Payment> payments);
+
+    @CreateSqlObject
+    GovUkPayEventDao govUkPayEventDao();
+
+    /**
+     * Inserts the payments and an event of the given type for each of them in one transaction, returning the
+     * payments with their ids in the same order.
+     */
+    @Transaction
+    default List<Payment> insertWithEvents(List<Payment> payments, GovUkPayEventType eventType) {
+        List<Long> ids = insert(payments);
+        List<Payment> insertedPayments = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            insertedPayments.add(fromPayment(payments.get(i)).withId(ids.get(i)).build());
+        }
+        govUkPayEventDao().insert(insertedPayments.stream()
+                .map(payment -> new GovUkPayEvent(payment, eventType))
+                .collect(toList()));
+        return insertedPayments;
+    }
+
     @SqlQuery(joinQuery + " WHERE p.state IN (<states>) AND p.created_date < :maxDateTime")
     List<Payment> findAllPaymentsBySetOfStatesAndCreationTime(@BindList("states") Set<PaymentState> states, @Bind("maxDateTime") ZonedDateTime maxDateTime);
     
@@ -108,6 +154,13 @@ public interface PaymentDao {
                                                                @Bind("providerId") PaymentProviderPaymentId providerId,
                                                                @Bind("goCardlessOrganisationId") GoCardlessOrganisationId goCardlessOrganisationId);
 
+    @SqlQuery(joinQuery + " JOIN unnest(:providerIds, :goCardlessOrganisationIds) AS k(payment_provider_id, organisation)" +
+            " ON p.payment_provider_id = k.payment_provider_id AND g.organisation = k.organisation" +
+            " WHERE g.payment_provider = :provider")
+    List<Payment> findPaymentsByProviderIdsAndOrganisationIds(@Bind("provider") PaymentProvider paymentProvider,
+                                                              @Bind("providerIds") String[] providerIds,
+                                                              @Bind("goCardlessOrganisationIds") String[] goCardlessOrganisationIds);
+
     @SqlQuery(joinQuery + " WHERE p.payment_provider_id = :providerId AND g.organisation IS NULL AND g.payment_provider = :provider")
     Optional<Payment> findPaymentByProviderId(@Bind("provider") PaymentProvider paymentProvider,
                                                                @Bind("providerId") PaymentProviderPaymentId providerId);
@@ -136,4 +189,11 @@ public interface PaymentDao {
                               @Bind("state") PaymentState paymentState,
                               @Bind("stateDetails") String details,
                               @Bind("stateDetailsDescription") String detailsDescription);
+
+    @SqlBatch("UPDATE payments SET state = :state, state_details = :stateDetails, state_details_description = :stateDetailsDescription " +
+            "WHERE id = :id")
+    int[] updateStateAndDetails(@Bind("id") List<Long> ids,
+                                @Bind("state") List<PaymentState> paymentStates,
+                                @Bind("stateDetails") List<String> details,
+                                @Bind("stateDetailsDescription") List<String> detailsDescriptions);
 }
@@ -1,60 +1,194 @@
 package uk.gov.pay.directdebit.payments.dao;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.core.statement.TemplateEngine;
+import uk.gov.pay.directdebit.common.dao.SearchQueryShape;
+import uk.gov.pay.directdebit.common.dao.SearchQueryShape.Mode;
+import uk.gov.pay.directdebit.common.dao.SearchQueryTemplates;
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountDao;
+import uk.gov.pay.directdebit.gatewayaccounts.dao.GatewayAccountIdCache;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.dao.mapper.PaymentResponseMapper;
 import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
 
 import javax.inject.Inject;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public class PaymentViewDao {
+
+    private static final String METRICS_PREFIX = "search.payments";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String NO_PREFIX = "";
+    private static final String EXPLAIN = "EXPLAIN (FORMAT JSON) ";
+    private static final String EXPLAIN_ANALYZE = "EXPLAIN (ANALYZE, FORMAT JSON) ";
+
     private final Jdbi jdbi;
+    private final GatewayAccountIdCache gatewayAccountIdCache;
+    private final SearchQueryTemplates<Filter> queryTemplates;
 
     @Inject
-    public PaymentViewDao(Jdbi jdbi) {
+    public PaymentViewDao(Jdbi jdbi, GatewayAccountIdCache gatewayAccountIdCache, MetricRegistry metricRegistry) {
         this.jdbi = jdbi;
+        this.gatewayAccountIdCache = gatewayAccountIdCache;
+        this.queryTemplates = new SearchQueryTemplates<>(METRICS_PREFIX, PaymentViewDao::renderSql, metricRegistry);
+    }
+
+    public PaymentViewDao(Jdbi jdbi) {
+        this(jdbi, new GatewayAccountIdCache(jdbi.onDemand(GatewayAccountDao.class)), new MetricRegistry());
     }
 
     public List<PaymentResponse> searchPaymentView(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
-        return jdbi.withHandle(handle -> {
-            var sqlStatementAndParameters = createSqlQuery(searchParams, gatewayAccountExternalId, SearchMode.SELECT);
+        return searchPaymentViewPage(searchParams, gatewayAccountExternalId).getResults();
+    }
+
+    /**
+     * Finds one page of payments, newest first. Pages asked for with an {@code after} or {@code before} cursor
+     * seek straight to the payment id in the cursor; pages asked for by number still use an OFFSET. One more row
+     * than the display size is fetched to tell whether there is a page beyond this one.
+     */
+    public SearchPage<PaymentResponse> searchPaymentViewPage(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
+        Optional<Long> gatewayAccountId = gatewayAccountIdCache.findIdByExternalId(gatewayAccountExternalId);
+        if (gatewayAccountId.isEmpty()) {
+            return SearchPage.empty();
+        }
+
+        PaymentResponseMapper paymentResponseMapper = new PaymentResponseMapper();
+        List<Pair<Long, PaymentResponse>> rows = jdbi.withHandle(handle ->
+                createPageQuery(handle, NO_PREFIX, searchParams, gatewayAccountId.get())
+                        .map((rs, ctx) -> Pair.of(rs.getLong("payment_id"), paymentResponseMapper.map(rs, ctx)))
+                        .list());
 
-            Query query = handle.createQuery(sqlStatementAndParameters.query);
-            return bindQuery(query, sqlStatementAndParameters).map(new PaymentResponseMapper()).list();
-        });
+        return SearchPage.fromRows(rows, searchParams, Pair::getLeft, Pair::getRight);
+    }
+
+    /**
+     * Explains, on the given handle, the statement that {@link #searchPaymentViewPage} runs for this search and
+     * returns the plan as JSON, so that tests can check the plan of the SQL that is actually run.
+     */
+    String explainSearchPaymentViewPage(Handle handle, PaymentViewSearchParams searchParams, String gatewayAccountExternalId,
+                                        boolean analyze) {
+        Long gatewayAccountId = gatewayAccountIdCache.findIdByExternalId(gatewayAccountExternalId).orElseThrow();
+        return createPageQuery(handle, analyze ? EXPLAIN_ANALYZE : EXPLAIN, searchParams, gatewayAccountId)
+                .mapTo(String.class)
+                .one();
+    }
+
+    private Query createPageQuery(Handle handle, String sqlPrefix, PaymentViewSearchParams searchParams, Long gatewayAccountId) {
+        Mode mode = searchParams.getAfterId().isPresent() ? Mode.SELECT_AFTER
+                : searchParams.getBeforeId().isPresent() ? Mode.SELECT_BEFORE
+                : Mode.SELECT_PAGE;
+        Query query = createQuery(handle, sqlPrefix, searchParams, gatewayAccountId, mode);
+        searchParams.getAfterId().ifPresent(afterPaymentId -> query.bind("afterPaymentId", afterPaymentId));
+        searchParams.getBeforeId().ifPresent(beforePaymentId -> query.bind("beforePaymentId", beforePaymentId));
+        if (mode == Mode.SELECT_PAGE) {
+            query.bind("offset", searchParams.getOffset());
+        }
+        return query.bind("limit", searchParams.getDisplaySize() + 1);
     }
 
     public Integer getPaymentViewCount(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
-        return jdbi.withHandle(handle -> {
-            var sqlStatementAndParameters = createSqlQuery(searchParams, gatewayAccountExternalId, SearchMode.COUNT);
+        Optional<Long> gatewayAccountId = gatewayAccountIdCache.findIdByExternalId(gatewayAccountExternalId);
+        if (gatewayAccountId.isEmpty()) {
+            return 0;
+        }
 
-            Query query = handle.createQuery(sqlStatementAndParameters.query);
-            return bindQuery(query, sqlStatementAndParameters).mapTo(Integer.class).findOnly();
-        });
+        return jdbi.withHandle(handle -> createQuery(handle, NO_PREFIX, searchParams, gatewayAccountId.get(), Mode.COUNT)
+                .mapTo(Integer.class)
+                .findOnly());
     }
 
-    private Query bindQuery(Query query, SqlStatementAndParameters sqlStatementAndParameters) {
-        if (sqlStatementAndParameters.parameters.containsKey("states")) {
-            @SuppressWarnings("unchecked")
-            List<String> states = (List<String>) sqlStatementAndParameters.parameters.get("states");
+    /**
+     * Counts the payments matching the search, but stops once it has found {@code limit} of them.
+     */
+    public int countPaymentViewUpTo(PaymentViewSearchParams searchParams, String gatewayAccountExternalId, int limit) {
+        Optional<Long> gatewayAccountId = gatewayAccountIdCache.findIdByExternalId(gatewayAccountExternalId);
+        if (gatewayAccountId.isEmpty()) {
+            return 0;
+        }
 
-            query.bindList("states", states);
-            sqlStatementAndParameters.parameters.remove("states");
+        return jdbi.withHandle(handle -> createQuery(handle, NO_PREFIX, searchParams, gatewayAccountId.get(), Mode.COUNT_UP_TO)
+                .bind("countLimit", limit)
+                .mapTo(Integer.class)
+                .findOnly());
+    }
+
+    /**
+     * Passes every payment matching the search to the consumer, newest first, whatever page or display size was
+     * asked for. The rows are read through a server-side cursor a batch at a time inside a transaction, so memory
+     * use does not grow with the number of payments exported.
+     */
+    public void exportPaymentView(PaymentViewSearchParams searchParams, String gatewayAccountExternalId,
+                                  Consumer<PaymentResponse> consumer) {
+        Optional<Long> gatewayAccountId = gatewayAccountIdCache.findIdByExternalId(gatewayAccountExternalId);
+        if (gatewayAccountId.isEmpty()) {
+            return;
         }
-        sqlStatementAndParameters.parameters.forEach(query::bind);
+
+        jdbi.useTransaction(handle -> createQuery(handle, NO_PREFIX, searchParams, gatewayAccountId.get(), Mode.EXPORT)
+                .setFetchSize(EXPORT_FETCH_SIZE)
+                .map(new PaymentResponseMapper())
+                .useStream(rows -> rows.forEach(consumer)));
+    }
+
+    /**
+     * Creates the statement for the shape of this search from its cached template and binds the search's filter
+     * values to it. The template has no placeholders left to render, so JDBI's template engine is skipped. The
+     * prefix is only used to explain the statement.
+     */
+    private Query createQuery(Handle handle, String sqlPrefix, PaymentViewSearchParams params, Long gatewayAccountId, Mode mode) {
+        var filters = EnumSet.noneOf(Filter.class);
+        var mandateExternalId = params.getMandateId().filter(s -> !s.isBlank());
+        var reference = params.getReference().filter(s -> !s.isBlank());
+        var amount = params.getAmount();
+        var states = params.getInternalStates();
+        var fromDate = params.getFromDate();
+        var toDate = params.getToDate();
+
+        mandateExternalId.ifPresent(ignored -> filters.add(Filter.MANDATE));
+        reference.ifPresent(ignored -> filters.add(Filter.REFERENCE));
+        amount.ifPresent(ignored -> filters.add(Filter.AMOUNT));
+        if (!states.isEmpty()) {
+            filters.add(Filter.STATE);
+        }
+        fromDate.ifPresent(ignored -> filters.add(Filter.FROM_DATE));
+        toDate.ifPresent(ignored -> filters.add(Filter.TO_DATE));
+
+        String sql = queryTemplates.get(SearchQueryShape.of(mode, filters));
+        Query query = handle.createQuery(sqlPrefix.isEmpty() ? sql : sqlPrefix + sql);
+        query.setTemplateEngine(TemplateEngine.NOP);
+        query.bind("gatewayAccountId", gatewayAccountId);
+        mandateExternalId.ifPresent(mandateId -> query.bind("mandateExternalId", mandateId));
+        reference.ifPresent(value -> query.bind("reference", "%" + value + "%"));
+        amount.ifPresent(value -> query.bind("amount", value));
+        if (!states.isEmpty()) {
+            query.bindArray("states", String.class, states.stream().map(Enum::name).toArray());
+        }
+        fromDate.ifPresent(value -> query.bind("createdDateFrom", value));
+        toDate.ifPresent(value -> query.bind("createdDateTo", value));
         return query;
     }
 
-    private SqlStatementAndParameters createSqlQuery(PaymentViewSearchParams params, String gatewayAccountExternalId, SearchMode searchMode) {
+    /**
+     * Payments carry their gateway account's id, so a search only has to scan payments. Mandates and gateway
+     * accounts are joined on their primary keys to fill in the selected page; counts only join mandates when
+     * filtering by mandate.
+     */
+    private static String renderSql(SearchQueryShape<Filter> shape) {
         var sql = new StringBuilder();
-        if (searchMode.equals(SearchMode.COUNT)) {
+        if (shape.getMode() == Mode.COUNT) {
             sql.append("SELECT COUNT(*) ");
+        } else if (shape.getMode() == Mode.COUNT_UP_TO) {
+            sql.append("SELECT COUNT(*) FROM (SELECT 1 ");
         } else {
-            sql.append("SELECT DISTINCT " +
+            sql.append("SELECT " +
                     " p.id AS payment_id, " +
                     " p.external_id AS payment_external_id, " +
                     " p.amount AS amount, " +
@@ -69,64 +203,58 @@ public class PaymentViewDao {
                     " ga.payment_provider as payment_provider, " +
                     " m.external_id as mandate_external_id ");
         }
-        
-        sql.append(" FROM payments p " +
-                " INNER JOIN mandates m ON p.mandate_id = m.id " +
-                " INNER JOIN gateway_accounts ga ON ga.id = m.gateway_account_id ");
-        
-        Map<String, Object> sqlParams = new HashMap<>();
-        
-        sql.append(" WHERE ga.external_id = :gatewayAccountExternalId");
-        sqlParams.put("gatewayAccountExternalId", gatewayAccountExternalId);
-        
-        params.getMandateId().filter(s -> !s.isBlank()).ifPresent(mandateId -> {
+
+        sql.append(" FROM payments p ");
+        if (!shape.isCount()) {
+            sql.append(" INNER JOIN mandates m ON p.mandate_id = m.id " +
+                    " INNER JOIN gateway_accounts ga ON ga.id = p.gateway_account_id ");
+        } else if (shape.has(Filter.MANDATE)) {
+            sql.append(" INNER JOIN mandates m ON p.mandate_id = m.id ");
+        }
+
+        sql.append(" WHERE p.gateway_account_id = :gatewayAccountId");
+
+        if (shape.has(Filter.MANDATE)) {
             sql.append(" AND m.external_id = :mandateExternalId");
-            sqlParams.put("mandateExternalId", mandateId);
-        });
-        
-        params.getReference().filter(s -> !s.isBlank()).ifPresent(reference -> {
+        }
+        if (shape.has(Filter.REFERENCE)) {
             sql.append(" AND p.reference ILIKE :reference");
-            sqlParams.put("reference", "%" + reference + "%");
-        });
-        
-        params.getAmount().ifPresent(amount -> {
+        }
+        if (shape.has(Filter.AMOUNT)) {
             sql.append(" AND p.amount = :amount");
-            sqlParams.put("amount", amount);
-        });
-        
-        if (!params.getInternalStates().isEmpty()) {
-            sql.append(" AND p.state IN (<states>)");
-            sqlParams.put("states", params.getInternalStates());
         }
-
-        params.getFromDate().ifPresent(fromDate -> {
+        if (shape.has(Filter.STATE)) {
+            sql.append(" AND p.state = ANY(:states)");
+        }
+        if (shape.has(Filter.FROM_DATE)) {
             sql.append(" AND p.created_date >= :createdDateFrom");
-            sqlParams.put("createdDateFrom", fromDate);
-        });
-
-        params.getToDate().ifPresent(toDate -> {
+        }
+        if (shape.has(Filter.TO_DATE)) {
             sql.append(" AND p.created_date < :createdDateTo");
-            sqlParams.put("createdDateTo", toDate);
-        });
-        
-        if (searchMode.equals(SearchMode.SELECT)) {
-            sql.append(" ORDER BY p.id DESC OFFSET :offset LIMIT :limit");
-            sqlParams.put("limit", params.getDisplaySize());
-            sqlParams.put("offset", params.getOffset());
-        }
-        
-        return new SqlStatementAndParameters(sql.toString(), sqlParams);
-    }
-    
-    private static class SqlStatementAndParameters {
-        private final String query;
-        private final Map<String, Object> parameters;
+        }
 
-        SqlStatementAndParameters(String query, Map<String, Object> parameters) {
-            this.query = query;
-            this.parameters = parameters;
+        switch (shape.getMode()) {
+            case SELECT_AFTER:
+                sql.append(" AND p.id < :afterPaymentId ORDER BY p.id DESC LIMIT :limit");
+                break;
+            case SELECT_BEFORE:
+                sql.append(" AND p.id > :beforePaymentId ORDER BY p.id ASC LIMIT :limit");
+                break;
+            case SELECT_PAGE:
+                sql.append(" ORDER BY p.id DESC OFFSET :offset LIMIT :limit");
+                break;
+            case EXPORT:
+                sql.append(" ORDER BY p.id DESC");
+                break;
+            case COUNT_UP_TO:
+                sql.append(" LIMIT :countLimit) matching");
+                break;
+            default:
+                break;
         }
+
+        return sql.toString();
     }
 
-    private enum SearchMode {COUNT, SELECT}
+    private enum Filter {MANDATE, REFERENCE, AMOUNT, STATE, FROM_DATE, TO_DATE}
 }
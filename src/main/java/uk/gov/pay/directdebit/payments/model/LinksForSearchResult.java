@@ -2,6 +2,8 @@ package uk.gov.pay.directdebit.payments.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchParams;
 import uk.gov.pay.directdebit.payments.links.PaginationLink;
 
@@ -16,11 +18,11 @@ public class LinksForSearchResult {
     private final SearchParams searchParams;
     private final UriInfo uriInfo;
     private final Integer totalCount;
-    private final String queryForSelfLink;
     private final Integer pageNumberForSelfLink;
     private final Integer lastPageNumber;
     private final Integer previousPageNumber;
     private final String gatewayAccountExternalId;
+    private final SearchPage<?> searchPage;
 
     @JsonProperty("self")
     private PaginationLink selfLink;
@@ -32,16 +34,31 @@ public class LinksForSearchResult {
     private PaginationLink prevLink;
     @JsonProperty("next_page")
     private PaginationLink nextLink;
+    @JsonProperty("prev_cursor")
+    private PaginationLink prevCursorLink;
+    @JsonProperty("next_cursor")
+    private PaginationLink nextCursorLink;
 
     public LinksForSearchResult(SearchParams searchParams, UriInfo uriInfo, Integer totalCount, String gatewayAccountExternalId) {
+        this(searchParams, uriInfo, totalCount, gatewayAccountExternalId, null);
+    }
+
+    /**
+     * Links for a search that can also be paged through with cursors. Page-numbered searches get the usual links
+     * plus {@code prev_cursor} and {@code next_cursor}; searches made with a cursor get cursor links for their
+     * previous and next pages. There is no last page link when the total count is not known or when paging with
+     * cursors, since its position cannot be worked out without counting.
+     */
+    public LinksForSearchResult(SearchParams searchParams, UriInfo uriInfo, Integer totalCount,
+                                String gatewayAccountExternalId, SearchPage<?> searchPage) {
         this.uriInfo = uriInfo;
         this.totalCount = totalCount;
         this.searchParams = searchParams;
-        this.queryForSelfLink = searchParams.buildQueryParamString();
         this.pageNumberForSelfLink = searchParams.getPage();
-        this.lastPageNumber = calculateLastPageNumber();
+        this.lastPageNumber = totalCount == null ? null : calculateLastPageNumber();
         this.previousPageNumber = calculatePreviousPageNumber();
         this.gatewayAccountExternalId = gatewayAccountExternalId;
+        this.searchPage = searchPage;
         buildLinks();
     }
 
@@ -55,17 +72,48 @@ public class LinksForSearchResult {
 
     public PaginationLink getNextLink() { return nextLink; }
 
+    public PaginationLink getPrevCursorLink() { return prevCursorLink; }
+
+    public PaginationLink getNextCursorLink() { return nextCursorLink; }
+
     private void buildLinks() {
-        selfLink = createLinkWithQueryOf(queryForSelfLink);
-        firstLink = createLinkWithQueryOf(queryWithPageNumberOf(1));
-        lastLink = createLinkWithQueryOf(queryWithPageNumberOf(lastPageNumber));
+        selfLink = createLinkWithQueryOf(searchParams.buildQueryParamString());
+        firstLink = createLinkWithQueryOf(searchParams.buildQueryParamStringForPage(1));
+
+        if (searchPage != null) {
+            buildCursorLinks();
+        }
+
+        if (searchParams.isCursorPagination()) {
+            prevLink = prevCursorLink;
+            nextLink = nextCursorLink;
+            return;
+        }
+
+        if (lastPageNumber != null) {
+            lastLink = createLinkWithQueryOf(searchParams.buildQueryParamStringForPage(lastPageNumber));
+        }
 
         if (notOnFirstPage()) {
-            prevLink = createLinkWithQueryOf(queryWithPageNumberOf(previousPageNumber));
+            prevLink = createLinkWithQueryOf(searchParams.buildQueryParamStringForPage(previousPageNumber));
         }
 
         if (notOnLastPage()) {
-            nextLink = createLinkWithQueryOf(queryWithPageNumberOf(pageNumberForSelfLink + 1));
+            nextLink = createLinkWithQueryOf(searchParams.buildQueryParamStringForPage(pageNumberForSelfLink + 1));
+        }
+    }
+
+    private void buildCursorLinks() {
+        if (searchPage.hasPrevious()) {
+            prevCursorLink = searchPage.getFirstId()
+                    .map(id -> createLinkWithQueryOf(searchParams.buildQueryParamStringBefore(SearchCursor.encode(id))))
+                    .orElse(null);
+        }
+
+        if (searchPage.hasNext()) {
+            nextCursorLink = searchPage.getLastId()
+                    .map(id -> createLinkWithQueryOf(searchParams.buildQueryParamStringAfter(SearchCursor.encode(id))))
+                    .orElse(null);
         }
     }
 
@@ -74,6 +122,9 @@ public class LinksForSearchResult {
     }
 
     private boolean notOnLastPage() {
+        if (lastPageNumber == null) {
+            return searchPage != null && searchPage.hasNext();
+        }
         return pageNumberForSelfLink < lastPageNumber;
     }
 
@@ -82,11 +133,7 @@ public class LinksForSearchResult {
     }
 
     private int calculatePreviousPageNumber() {
-        return pageNumberForSelfLink > lastPageNumber ? lastPageNumber : pageNumberForSelfLink - 1;
-    }
-
-    private String queryWithPageNumberOf(Integer newPageNumber) {
-        return queryForSelfLink.replace("page=" + pageNumberForSelfLink, "page=" + newPageNumber);
+        return lastPageNumber != null && pageNumberForSelfLink > lastPageNumber ? lastPageNumber : pageNumberForSelfLink - 1;
     }
 
     private PaginationLink createLinkWithQueryOf(String query) {
@@ -1,6 +1,7 @@
 package uk.gov.pay.directdebit.payments.params;
 
 import uk.gov.pay.directdebit.common.exception.validation.ValidExternalPaymentState;
+import uk.gov.pay.directdebit.common.model.CountMode;
 import uk.gov.pay.directdebit.common.model.SearchParams;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
@@ -8,6 +9,7 @@ import javax.ws.rs.QueryParam;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -47,6 +49,9 @@ public class PaymentViewSearchParams extends SearchParams {
         this.amount = builder.amount;
         this.mandateId = builder.mandateId;
         this.state = builder.state;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.countMode = builder.countMode.toQueryParamValue();
     }
 
     public Optional<String> getReference() {
@@ -71,7 +76,37 @@ public class PaymentViewSearchParams extends SearchParams {
                 .collect(Collectors.toUnmodifiableList());
     }
 
-    public String buildQueryParamString() {
+    @Override
+    public String buildQueryParamStringForPage(int pageNumber) {
+        var paramsList = buildFilterQueryParams();
+        paramsList.add(formatQueryParam(PAGE_KEY, Integer.toString(pageNumber)));
+        paramsList.add(formatQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        return String.join("&", paramsList);
+    }
+
+    @Override
+    protected String buildQueryParamStringWithCursor(String cursorKey, String cursor) {
+        var paramsList = buildFilterQueryParams();
+        paramsList.add(formatQueryParam(cursorKey, cursor));
+        paramsList.add(formatQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        return String.join("&", paramsList);
+    }
+
+    @Override
+    protected void addCountKeyFilters(Map<String, String> filters) {
+        if (isNotBlank(mandateId)) {
+            filters.put(MANDATE_ID_KEY, mandateId);
+        }
+        addCaseInsensitiveCountKeyFilter(filters, REFERENCE_KEY, reference);
+        if (amount != null) {
+            filters.put(AMOUNT_KEY, amount.toString());
+        }
+        if (isNotBlank(state)) {
+            filters.put(STATE_KEY, state);
+        }
+    }
+
+    private List<String> buildFilterQueryParams() {
         var paramsList = new ArrayList<String>();
         
         if (isNotBlank(mandateId)) {
@@ -98,10 +133,11 @@ public class PaymentViewSearchParams extends SearchParams {
             paramsList.add(formatQueryParam(TO_DATE_KEY, toDate));
         }
 
-        paramsList.add(formatQueryParam(PAGE_KEY, page.toString()));
-        paramsList.add(formatQueryParam(DISPLAY_SIZE_KEY, displaySize.toString()));
+        if (getCountMode() != CountMode.EXACT) {
+            paramsList.add(formatQueryParam(COUNT_MODE_KEY, countMode));
+        }
 
-        return String.join("&", paramsList);
+        return paramsList;
     }
 
     public static final class PaymentViewSearchParamsBuilder {
@@ -113,6 +149,9 @@ public class PaymentViewSearchParams extends SearchParams {
         private Long amount;
         private String mandateId;
         private String state;
+        private String after;
+        private String before;
+        private CountMode countMode = CountMode.EXACT;
 
         public static PaymentViewSearchParamsBuilder aPaymentViewSearchParams() {
             return new PaymentViewSearchParamsBuilder();
@@ -158,6 +197,21 @@ public class PaymentViewSearchParams extends SearchParams {
             return this;
         }
 
+        public PaymentViewSearchParamsBuilder withAfter(String after) {
+            this.after = after;
+            return this;
+        }
+
+        public PaymentViewSearchParamsBuilder withBefore(String before) {
+            this.before = before;
+            return this;
+        }
+
+        public PaymentViewSearchParamsBuilder withCountMode(CountMode countMode) {
+            this.countMode = countMode;
+            return this;
+        }
+
         public PaymentViewSearchParams build() {
             return new PaymentViewSearchParams(this);
         }
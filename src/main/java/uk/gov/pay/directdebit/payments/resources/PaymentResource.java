@@ -3,11 +3,15 @@ package uk.gov.pay.directdebit.payments.resources;
 import com.codahale.metrics.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentRequest;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentResponse;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequestValidator;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.services.BulkCollectService;
 import uk.gov.pay.directdebit.payments.services.CollectService;
 import uk.gov.pay.directdebit.payments.services.PaymentQueryService;
 
@@ -32,12 +36,15 @@ public class PaymentResource {
 
     private final PaymentQueryService paymentQueryService;
     private final CollectService collectService;
+    private final BulkCollectService bulkCollectService;
     private final CollectPaymentRequestValidator collectPaymentRequestValidator = new CollectPaymentRequestValidator();
 
     @Inject
-    public PaymentResource(PaymentQueryService paymentQueryService, CollectService collectService) {
+    public PaymentResource(PaymentQueryService paymentQueryService, CollectService collectService,
+                           BulkCollectService bulkCollectService) {
         this.paymentQueryService = paymentQueryService;
         this.collectService = collectService;
+        this.bulkCollectService = bulkCollectService;
     }
 
     @GET
@@ -60,4 +67,18 @@ public class PaymentResource {
         PaymentResponse response = PaymentResponse.from(paymentToCollect);
         return Response.status(SC_CREATED).entity(response).build();
     }
+
+    @POST
+    @Path("/v1/api/accounts/{accountId}/charges/collect/bulk")
+    @Produces(APPLICATION_JSON)
+    @Timed
+    public Response collectPaymentsFromMandates(@PathParam("accountId") GatewayAccount gatewayAccount,
+                                                BulkCollectPaymentRequest bulkCollectPaymentRequest) {
+        LOGGER.info("Received bulk collect payments from mandates request");
+        if (bulkCollectPaymentRequest == null) {
+            throw new BadRequestException("No payments to collect");
+        }
+        BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, bulkCollectPaymentRequest.getPayments());
+        return Response.ok(response).build();
+    }
 }
@@ -1,7 +1,10 @@
 package uk.gov.pay.directdebit.payments.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.gov.pay.directdebit.common.model.ExportFormat;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
+import uk.gov.pay.directdebit.common.services.SearchExport;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
@@ -9,25 +12,38 @@ import uk.gov.pay.directdebit.payments.services.PaymentSearchService;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.BeanParam;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.commons.model.ApiResponseDateTimeFormatter.ISO_INSTANT_MILLISECOND_PRECISION;
 
 @Path("/")
 public class PaymentSearchResource {
 
+    private static final List<String> CSV_HEADER = List.of("payment_id", "amount", "reference", "description",
+            "state", "state_details", "mandate_id", "provider_id", "payment_provider", "created_date");
+
     private final PaymentSearchService paymentSearchService;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public PaymentSearchResource(PaymentSearchService paymentSearchService) {
+    public PaymentSearchResource(PaymentSearchService paymentSearchService, ObjectMapper objectMapper) {
         this.paymentSearchService = paymentSearchService;
+        this.objectMapper = objectMapper;
     }
 
     @GET
@@ -44,4 +60,40 @@ public class PaymentSearchResource {
         
         return Response.ok().entity(searchResponse).build();
     }
+
+    @GET
+    @Path("/v1/api/accounts/{accountId}/payments/export")
+    @Timed
+    public Response exportPayments(
+            @PathParam("accountId") GatewayAccount gatewayAccount,
+            @Valid @BeanParam PaymentViewSearchParams paymentViewSearchParams,
+            @QueryParam("format") @DefaultValue("ndjson")
+            @Pattern(regexp = "ndjson|csv", message = "Invalid attribute value: format. Must be one of ndjson or csv") String format) {
+
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        SearchExport.Rows<PaymentResponse> payments = consumer ->
+                paymentSearchService.exportPayments(paymentViewSearchParams, gatewayAccount.getExternalId(), consumer);
+
+        StreamingOutput output = exportFormat == ExportFormat.CSV
+                ? SearchExport.asCsv(payments, CSV_HEADER, PaymentSearchResource::toCsvRow)
+                : SearchExport.asNdjson(payments, payment -> payment, objectMapper);
+
+        return Response.ok(output, exportFormat.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"payments." + exportFormat.getFileExtension() + "\"")
+                .build();
+    }
+
+    private static List<String> toCsvRow(PaymentResponse payment) {
+        return Arrays.asList(
+                payment.getPaymentExternalId(),
+                String.valueOf(payment.getAmount()),
+                payment.getReference(),
+                payment.getDescription(),
+                payment.getState().getPaymentState().getStatus(),
+                payment.getState().getDetails(),
+                Objects.toString(payment.getMandateId(), null),
+                Objects.toString(payment.getProviderId(), null),
+                payment.getPaymentProvider().toString().toLowerCase(),
+                ISO_INSTANT_MILLISECOND_PRECISION.format(payment.getCreatedDate()));
+    }
 }
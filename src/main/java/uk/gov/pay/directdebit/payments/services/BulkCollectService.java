@@ -0,0 +1,207 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.common.exception.InternalServerErrorException;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentResponse;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentResponse.Result;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
+import uk.gov.pay.directdebit.payments.api.CollectPaymentRequestValidator;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Collects many payments from one gateway account's mandates at once. Every mandate is looked up with one query
+ * and every payment that can be collected is stored with one batch insert. The payments are then submitted to the
+ * payment provider in parallel on a pool of threads shared by all bulk collect requests, so that however many
+ * payments are collected at once, only a fixed number of provider requests are in flight for them.
+ * <p>
+ * A payment that cannot be collected does not stop the others; each gets its own result. Submissions that have not
+ * started when the request times out are abandoned: the payment is marked as not submitted and its result says it
+ * can be collected again. Submissions already with the payment provider by then are waited for, so no payment is
+ * left being submitted once the request has been responded to.
+ */
+public class BulkCollectService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkCollectService.class);
+
+    private final MandateQueryService mandateQueryService;
+    private final PaymentService paymentService;
+    private final ExecutorService submissionExecutorService;
+    private final int maximumPayments;
+    private final Duration timeout;
+    private final CollectPaymentRequestValidator collectPaymentRequestValidator = new CollectPaymentRequestValidator();
+
+    public BulkCollectService(MandateQueryService mandateQueryService,
+                              PaymentService paymentService,
+                              ExecutorService submissionExecutorService,
+                              int maximumPayments,
+                              Duration timeout) {
+        this.mandateQueryService = mandateQueryService;
+        this.paymentService = paymentService;
+        this.submissionExecutorService = submissionExecutorService;
+        this.maximumPayments = maximumPayments;
+        this.timeout = timeout;
+    }
+
+    public BulkCollectPaymentResponse collect(GatewayAccount gatewayAccount, List<Map<String, String>> collectPaymentRequestMaps) {
+        if (collectPaymentRequestMaps.isEmpty()) {
+            throw new BadRequestException("No payments to collect");
+        }
+        if (collectPaymentRequestMaps.size() > maximumPayments) {
+            throw new BadRequestException(format("Cannot collect more than %d payments at once", maximumPayments));
+        }
+
+        Result[] results = new Result[collectPaymentRequestMaps.size()];
+        Map<Integer, CollectPaymentRequest> collectPaymentRequests = parse(collectPaymentRequestMaps, results);
+
+        Map<MandateExternalId, Mandate> mandates = mandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                collectPaymentRequests.values().stream().map(CollectPaymentRequest::getMandateExternalId).collect(toSet()),
+                gatewayAccount.getExternalId());
+
+        List<Integer> indexes = new ArrayList<>();
+        List<Payment> newPayments = new ArrayList<>();
+        List<PaymentProviderMandateId> paymentProviderMandateIds = new ArrayList<>();
+        collectPaymentRequests.forEach((index, collectPaymentRequest) -> {
+            try {
+                Mandate mandate = Optional.ofNullable(mandates.get(collectPaymentRequest.getMandateExternalId()))
+                        .orElseThrow(() -> new MandateNotFoundException(collectPaymentRequest.getMandateExternalId(),
+                                gatewayAccount.getExternalId()));
+                paymentProviderMandateIds.add(CollectService.getPaymentProviderMandateIdToCollectFrom(mandate));
+                newPayments.add(paymentService.newPayment(collectPaymentRequest.getAmount(),
+                        collectPaymentRequest.getDescription(), collectPaymentRequest.getReference(), mandate));
+                indexes.add(index);
+            } catch (RuntimeException e) {
+                LOGGER.info("Not collecting payment {} of bulk collect request: {}", index, e.getMessage());
+                results[index] = Result.failed(e);
+            }
+        });
+
+        List<Payment> createdPayments = paymentService.createPayments(newPayments);
+
+        Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+        List<Submission> submissions = new ArrayList<>(createdPayments.size());
+        for (int i = 0; i < createdPayments.size(); i++) {
+            Submission submission = new Submission(createdPayments.get(i));
+            PaymentProviderMandateId paymentProviderMandateId = paymentProviderMandateIds.get(i);
+            submission.result = CompletableFuture.supplyAsync(
+                    () -> submission.claim() ? submit(submission.payment, paymentProviderMandateId, loggingContext) : null,
+                    submissionExecutorService);
+            submissions.add(submission);
+        }
+
+        awaitOrAbandon(submissions);
+        for (int i = 0; i < submissions.size(); i++) {
+            results[indexes.get(i)] = resultOf(submissions.get(i));
+        }
+
+        LOGGER.info("Collected {} of {} payments in bulk collect request", createdPayments.size(), results.length);
+        return new BulkCollectPaymentResponse(Arrays.asList(results));
+    }
+
+    private Map<Integer, CollectPaymentRequest> parse(List<Map<String, String>> collectPaymentRequestMaps, Result[] results) {
+        Map<Integer, CollectPaymentRequest> collectPaymentRequests = new LinkedHashMap<>();
+        for (int index = 0; index < collectPaymentRequestMaps.size(); index++) {
+            try {
+                collectPaymentRequestValidator.validate(collectPaymentRequestMaps.get(index));
+                collectPaymentRequests.put(index, CollectPaymentRequest.of(collectPaymentRequestMaps.get(index)));
+            } catch (RuntimeException e) {
+                results[index] = Result.failed(e);
+            }
+        }
+        return collectPaymentRequests;
+    }
+
+    private void awaitOrAbandon(List<Submission> submissions) {
+        try {
+            CompletableFuture.allOf(submissions.stream().map(submission -> submission.result).toArray(CompletableFuture[]::new))
+                    .get(timeout.toNanoseconds(), TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            LOGGER.warn("Bulk collect request timed out after {}, not submitting payments that have not been submitted yet", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // each submission's own failure is reported in its result
+            return;
+        }
+        submissions.forEach(submission -> submission.abandoned = submission.claim());
+    }
+
+    private Result resultOf(Submission submission) {
+        Payment payment = submission.payment;
+        if (submission.abandoned) {
+            try {
+                paymentService.abandonSubmissionToProvider(payment);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to mark payment {} as not submitted to provider", payment.getExternalId(), e);
+            }
+            return Result.notSubmitted();
+        }
+        try {
+            // already with the provider, so this wait is bounded by the provider client's own timeout
+            return submission.result.join();
+        } catch (CompletionException | CancellationException e) {
+            LOGGER.error("Failed to submit payment {} to provider", payment.getExternalId(), e.getCause());
+            return Result.failed(new InternalServerErrorException("Payment could not be submitted"));
+        }
+    }
+
+    private Result submit(Payment payment, PaymentProviderMandateId paymentProviderMandateId, Map<String, String> loggingContext) {
+        if (loggingContext != null) {
+            MDC.setContextMap(loggingContext);
+        }
+        try {
+            return Result.collected(paymentService.submitPaymentToProvider(payment, paymentProviderMandateId));
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to submit payment {} to provider", payment.getExternalId(), e);
+            return Result.failed(e);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private static class Submission {
+        private final Payment payment;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private CompletableFuture<Result> result;
+        private boolean abandoned;
+
+        private Submission(Payment payment) {
+            this.payment = payment;
+        }
+
+        /**
+         * Returns true for whichever of the submitting thread and the timed out request gets to the payment first.
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package uk.gov.pay.directdebit.payments.services;
 
 import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
 import uk.gov.pay.directdebit.mandate.exception.MandateStateInvalidException;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
 import uk.gov.pay.directdebit.payments.api.CollectPaymentRequest;
 import uk.gov.pay.directdebit.payments.exception.MandateNotSubmittedToProviderException;
@@ -39,12 +41,7 @@ public class CollectService {
         var mandate = mandateQueryService.findByExternalIdAndGatewayAccountExternalId(collectPaymentRequest.getMandateExternalId(),
                 gatewayAccount.getExternalId());
 
-        if (!MANDATE_STATES_ALLOWING_PAYMENT_COLLECTION.contains(mandate.getState())) {
-            throw new MandateStateInvalidException(format("Mandate state invalid for Mandate with id: %s", mandate.getExternalId()));
-        }
-
-        var paymentProviderMandateId = mandate.getPaymentProviderMandateId()
-                .orElseThrow(() -> new MandateNotSubmittedToProviderException(mandate.getExternalId()));
+        var paymentProviderMandateId = getPaymentProviderMandateIdToCollectFrom(mandate);
 
         var payment = paymentService.createPayment(collectPaymentRequest.getAmount(), collectPaymentRequest.getDescription(),
                 collectPaymentRequest.getReference(), mandate);
@@ -52,4 +49,13 @@ public class CollectService {
         return paymentService.submitPaymentToProvider(payment, paymentProviderMandateId);
     }
 
+    static PaymentProviderMandateId getPaymentProviderMandateIdToCollectFrom(Mandate mandate) {
+        if (!MANDATE_STATES_ALLOWING_PAYMENT_COLLECTION.contains(mandate.getState())) {
+            throw new MandateStateInvalidException(format("Mandate state invalid for Mandate with id: %s", mandate.getExternalId()));
+        }
+
+        return mandate.getPaymentProviderMandateId()
+                .orElseThrow(() -> new MandateNotSubmittedToProviderException(mandate.getExternalId()));
+    }
+
 }
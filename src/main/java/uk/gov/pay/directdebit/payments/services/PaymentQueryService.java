@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
@@ -13,9 +14,13 @@ import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.model.SandboxPaymentId;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
 
@@ -36,6 +41,27 @@ public class PaymentQueryService {
         return paymentDao.findPaymentByProviderIdAndOrganisationId(GOCARDLESS, goCardlessPaymentId, goCardlessOrganisationId);
     }
 
+    public Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, Payment> findByGoCardlessPaymentIdsAndOrganisationIds(
+            Collection<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds) {
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+        String[] goCardlessPaymentIds = goCardlessPaymentIdsAndOrganisationIds.stream()
+                .map(goCardlessPaymentIdAndOrganisationId -> goCardlessPaymentIdAndOrganisationId.getLeft().toString())
+                .toArray(String[]::new);
+        String[] organisationIds = goCardlessPaymentIdsAndOrganisationIds.stream()
+                .map(goCardlessPaymentIdAndOrganisationId -> goCardlessPaymentIdAndOrganisationId.getRight().toString())
+                .toArray(String[]::new);
+        return paymentDao.findPaymentsByProviderIdsAndOrganisationIds(GOCARDLESS, goCardlessPaymentIds, organisationIds)
+                .stream()
+                .collect(toMap(PaymentQueryService::toGoCardlessPaymentIdAndOrganisationId, identity(), (first, second) -> first));
+    }
+
+    private static Pair<GoCardlessPaymentId, GoCardlessOrganisationId> toGoCardlessPaymentIdAndOrganisationId(Payment payment) {
+        return Pair.of(GoCardlessPaymentId.valueOf(payment.getProviderId().orElseThrow().toString()),
+                payment.getMandate().getGatewayAccount().getOrganisation().orElseThrow());
+    }
+
     public Optional<Payment> findBySandboxPaymentId(SandboxPaymentId sandboxPaymentId) {
         return paymentDao.findPaymentByProviderId(SANDBOX, sandboxPaymentId);
     }
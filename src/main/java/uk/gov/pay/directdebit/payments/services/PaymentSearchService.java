@@ -1,6 +1,9 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
+import uk.gov.pay.directdebit.common.model.SearchTotal;
+import uk.gov.pay.directdebit.common.services.SearchCounter;
 import uk.gov.pay.directdebit.payments.api.PaymentResponse;
 import uk.gov.pay.directdebit.payments.dao.PaymentViewDao;
 import uk.gov.pay.directdebit.payments.model.LinksForSearchResult;
@@ -8,37 +11,45 @@ import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.UriInfo;
-import java.util.Collections;
-import java.util.List;
+import java.util.function.Consumer;
 
 public class PaymentSearchService {
 
     private final PaymentViewDao paymentViewDao;
+    private final SearchCounter searchCounter;
     private UriInfo uriInfo;
 
     @Inject
-    PaymentSearchService(PaymentViewDao paymentViewDao) {
+    PaymentSearchService(PaymentViewDao paymentViewDao, SearchCounter searchCounter) {
         this.paymentViewDao = paymentViewDao;
+        this.searchCounter = searchCounter;
     }
 
     public SearchResponse<PaymentResponse> getPaymentSearchResponse(PaymentViewSearchParams searchParams, String gatewayAccountExternalId) {
-        int totalMatchingPayments = paymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId);
+        SearchTotal totalMatchingPayments = searchCounter.count(searchParams, gatewayAccountExternalId,
+                () -> paymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId),
+                limit -> paymentViewDao.countPaymentViewUpTo(searchParams, gatewayAccountExternalId, limit));
 
-        List<PaymentResponse> paymentsForRequestedPage = 
-                totalMatchingPayments > 0 
-                        ? paymentViewDao.searchPaymentView(searchParams, gatewayAccountExternalId) 
-                        : Collections.emptyList();
+        SearchPage<PaymentResponse> paymentsForRequestedPage = 
+                totalMatchingPayments.mayHaveMatches()
+                        ? paymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId) 
+                        : SearchPage.empty();
 
-        LinksForSearchResult linksForSearchResult = new LinksForSearchResult(
-                searchParams, uriInfo, totalMatchingPayments, gatewayAccountExternalId);
+        LinksForSearchResult linksForSearchResult = new LinksForSearchResult(searchParams, uriInfo,
+                totalMatchingPayments.getExactCount(), gatewayAccountExternalId, paymentsForRequestedPage);
         
         return new SearchResponse<>(gatewayAccountExternalId,
                 totalMatchingPayments,
-                searchParams.getPage(),
-                paymentsForRequestedPage,
+                searchParams.isCursorPagination() ? null : searchParams.getPage(),
+                paymentsForRequestedPage.getResults(),
                 linksForSearchResult);
     }
 
+    public void exportPayments(PaymentViewSearchParams searchParams, String gatewayAccountExternalId,
+                               Consumer<PaymentResponse> consumer) {
+        paymentViewDao.exportPaymentView(searchParams, gatewayAccountExternalId, consumer);
+    }
+
     public PaymentSearchService withUriInfo(UriInfo uriInfo) {
         this.uriInfo = uriInfo;
         return this;
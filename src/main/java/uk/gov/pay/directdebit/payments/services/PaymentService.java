@@ -18,6 +18,7 @@ import uk.gov.pay.logging.LoggingKeys;
 import javax.inject.Inject;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_CREATED;
@@ -47,7 +48,30 @@ public class PaymentService {
 
     Payment createPayment(long amount, String description, String reference, Mandate mandate) {
         LOGGER.info("Creating payment for mandate {}", kv(LoggingKeys.MANDATE_EXTERNAL_ID, mandate.getExternalId()));
-        Payment payment = aPayment()
+        Payment payment = newPayment(amount, description, reference, mandate);
+        Long id = paymentDao.insert(payment);
+
+        Payment insertedPayment = fromPayment(payment).withId(id).build();
+        LOGGER.info("Created payment with external id {}", insertedPayment.getExternalId());
+        return govUkPayEventService.storeEventAndUpdateStateForPayment(insertedPayment, PAYMENT_CREATED);
+    }
+
+    /**
+     * Stores payments built by {@link #newPayment} and their creation events in one transaction, returning them with
+     * their ids in the same order. If the creation event cannot be stored, this throws and none of them are stored.
+     */
+    List<Payment> createPayments(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return List.of();
+        }
+        payments.forEach(payment -> govUkPayEventService.validateInitialEventForPayment(payment, PAYMENT_CREATED));
+        List<Payment> insertedPayments = paymentDao.insertWithEvents(payments, PAYMENT_CREATED);
+        LOGGER.info("Created {} payments", insertedPayments.size());
+        return insertedPayments;
+    }
+
+    Payment newPayment(long amount, String description, String reference, Mandate mandate) {
+        return aPayment()
                 .withExternalId(RandomIdGenerator.newId())
                 .withAmount(amount)
                 .withState(PaymentState.CREATED)
@@ -56,11 +80,6 @@ public class PaymentService {
                 .withMandate(mandate)
                 .withCreatedDate(ZonedDateTime.now(ZoneOffset.UTC))
                 .build();
-        Long id = paymentDao.insert(payment);
-
-        Payment insertedPayment = fromPayment(payment).withId(id).build();
-        LOGGER.info("Created payment with external id {}", insertedPayment.getExternalId());
-        return govUkPayEventService.storeEventAndUpdateStateForPayment(insertedPayment, PAYMENT_CREATED);
     }
 
     Payment submitPaymentToProvider(Payment payment, PaymentProviderMandateId paymentProviderMandateId) {
@@ -84,4 +103,13 @@ public class PaymentService {
         userNotificationService.sendPaymentConfirmedEmailFor(submittedPayment);
         return govUkPayEventService.storeEventAndUpdateStateForPayment(submittedPayment, PAYMENT_SUBMITTED);
     }
+
+    /**
+     * Records that a created payment is not going to be submitted to the payment provider after all, so that it
+     * does not stay created.
+     */
+    Payment abandonSubmissionToProvider(Payment payment) {
+        LOGGER.info("Not submitting payment {} to provider", payment.getExternalId());
+        return govUkPayEventService.storeEventAndUpdateStateForPayment(payment, PAYMENT_ERROR_SUBMITTING_TO_PROVIDER);
+    }
 }
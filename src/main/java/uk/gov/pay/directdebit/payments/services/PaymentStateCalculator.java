@@ -4,8 +4,21 @@ import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public interface PaymentStateCalculator {
     Optional<DirectDebitStateWithDetails<PaymentState>> calculate(Payment payment);
+
+    /**
+     * Calculates the states for many payments at once. The returned map only contains payments for which there are
+     * events that determine the state. Implementations should override this to avoid querying once per payment.
+     */
+    default Map<Payment, DirectDebitStateWithDetails<PaymentState>> calculateAll(Collection<Payment> payments) {
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> states = new HashMap<>();
+        payments.forEach(payment -> calculate(payment).ifPresent(state -> states.put(payment, state)));
+        return states;
+    }
 }
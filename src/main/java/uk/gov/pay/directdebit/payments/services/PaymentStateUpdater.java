@@ -2,14 +2,22 @@ package uk.gov.pay.directdebit.payments.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.InvalidPaymentProviderException;
 import uk.gov.pay.directdebit.payments.model.Payment;
+import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessPaymentStateCalculator;
 import uk.gov.pay.directdebit.payments.services.sandbox.SandboxPaymentStateCalculator;
 
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 
 public class PaymentStateUpdater {
 
@@ -39,6 +47,24 @@ public class PaymentStateUpdater {
                 });
     }
     
+    public void updateStatesIfNecessary(Collection<Payment> payments) {
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> paymentStates = new HashMap<>();
+        payments.stream()
+                .collect(groupingBy(this::getStateCalculator))
+                .forEach((stateCalculator, paymentsForCalculator) -> paymentStates.putAll(stateCalculator.calculateAll(paymentsForCalculator)));
+
+        paymentUpdateService.updateStates(paymentStates);
+
+        List<String> paymentsNotUpdated = payments.stream()
+                .filter(payment -> !paymentStates.containsKey(payment))
+                .map(Payment::getExternalId)
+                .collect(toList());
+        if (!paymentsNotUpdated.isEmpty()) {
+            LOGGER.info(format("Asked to update the status for payments %s but there appear to be " +
+                    "no events stored that require them to be updated", paymentsNotUpdated));
+        }
+    }
+
     private PaymentStateCalculator getStateCalculator(Payment payment) {
         switch (payment.getMandate().getGatewayAccount().getPaymentProvider()) {
             case SANDBOX:
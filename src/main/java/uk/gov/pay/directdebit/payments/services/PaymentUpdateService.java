@@ -8,8 +8,12 @@ import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 
 public class PaymentUpdateService {
 
@@ -40,4 +44,22 @@ public class PaymentUpdateService {
                 .build();
     }
 
+    public void updateStates(Map<Payment, DirectDebitStateWithDetails<PaymentState>> paymentStates) {
+        if (paymentStates.isEmpty()) {
+            return;
+        }
+
+        List<Payment> payments = new ArrayList<>(paymentStates.keySet());
+        List<DirectDebitStateWithDetails<PaymentState>> statesAndDetails = payments.stream().map(paymentStates::get).collect(toList());
+
+        paymentDao.updateStateAndDetails(
+                payments.stream().map(Payment::getId).collect(toList()),
+                statesAndDetails.stream().map(DirectDebitStateWithDetails::getState).collect(toList()),
+                statesAndDetails.stream().map(stateAndDetails -> stateAndDetails.getDetails().orElse(null)).collect(toList()),
+                statesAndDetails.stream().map(stateAndDetails -> stateAndDetails.getDetailsDescription().orElse(null)).collect(toList()));
+
+        paymentStates.forEach((payment, stateAndDetails) ->
+                LOGGER.info(format("Updated status of payment %s to %s", payment.getExternalId(), stateAndDetails.getState())));
+    }
+
 }
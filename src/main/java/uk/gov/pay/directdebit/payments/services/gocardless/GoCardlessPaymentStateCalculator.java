@@ -1,11 +1,14 @@
 package uk.gov.pay.directdebit.payments.services.gocardless;
 
+import org.apache.commons.lang3.tuple.Pair;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.Event;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.GatewayAccountMissingOrganisationIdException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
@@ -14,11 +17,20 @@ import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.services.PaymentStateCalculator;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.PAYMENT;
 import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE;
 import static uk.gov.pay.directdebit.payments.services.GovUkPayEventToPaymentStateMapper.mapGovUkPayEventToPaymentState;
 import static uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessEventToPaymentStateMapper.GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE;
@@ -28,26 +40,154 @@ public class GoCardlessPaymentStateCalculator implements PaymentStateCalculator
 
     private final GoCardlessEventDao goCardlessEventDao;
     private final GovUkPayEventDao govUkPayEventDao;
+    private final ResourceEventHeadDao resourceEventHeadDao;
 
     @Inject
     GoCardlessPaymentStateCalculator(GoCardlessEventDao goCardlessEventDao,
-                                     GovUkPayEventDao govUkPayEventDao) {
+                                     GovUkPayEventDao govUkPayEventDao,
+                                     ResourceEventHeadDao resourceEventHeadDao) {
         this.goCardlessEventDao = goCardlessEventDao;
         this.govUkPayEventDao = govUkPayEventDao;
+        this.resourceEventHeadDao = resourceEventHeadDao;
     }
 
     public Optional<DirectDebitStateWithDetails<PaymentState>> calculate(Payment payment) {
+        return resourceEventHeadDao.findByResource(PAYMENT, payment.getId())
+                .map(this::calculateFromHead)
+                .orElseGet(() -> calculateFromHistory(payment));
+    }
+
+    private Optional<DirectDebitStateWithDetails<PaymentState>> calculateFromHead(ResourceEventHead resourceEventHead) {
+        return calculateFromLatestEvents(
+                resourceEventHead.getGoCardlessEventId().flatMap(goCardlessEventDao::findById),
+                resourceEventHead.getGovUkPayEventId().flatMap(govUkPayEventDao::findById));
+    }
+
+    private Optional<DirectDebitStateWithDetails<PaymentState>> calculateFromHistory(Payment payment) {
         Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = getLatestApplicableGoCardlessEvent(payment);
 
         Optional<GovUkPayEvent> latestApplicableGovUkPayEvent
                 = govUkPayEventDao.findLatestApplicableEventForPayment(payment.getId(), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE);
 
+        return calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent);
+    }
+
+    @Override
+    public Map<Payment, DirectDebitStateWithDetails<PaymentState>> calculateAll(Collection<Payment> payments) {
+        if (payments.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, ResourceEventHead> resourceEventHeads = resourceEventHeadDao
+                .findByResources(PAYMENT, payments.stream().map(Payment::getId).collect(toList()))
+                .stream()
+                .collect(toMap(ResourceEventHead::getResourceId, identity()));
+
+        Map<Long, GoCardlessEvent> goCardlessEventsById = findGoCardlessEventsById(resourceEventHeads.values());
+        Map<Long, GovUkPayEvent> govUkPayEventsById = findGovUkPayEventsById(resourceEventHeads.values());
+
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> states = new HashMap<>();
+        List<Payment> paymentsWithoutHeads = new ArrayList<>();
+        for (Payment payment : payments) {
+            ResourceEventHead resourceEventHead = resourceEventHeads.get(payment.getId());
+            if (resourceEventHead == null) {
+                paymentsWithoutHeads.add(payment);
+            } else {
+                calculateFromLatestEvents(
+                        resourceEventHead.getGoCardlessEventId().map(goCardlessEventsById::get),
+                        resourceEventHead.getGovUkPayEventId().map(govUkPayEventsById::get))
+                        .ifPresent(state -> states.put(payment, state));
+            }
+        }
+        states.putAll(calculateAllFromHistory(paymentsWithoutHeads));
+        return states;
+    }
+
+    private Map<Long, GoCardlessEvent> findGoCardlessEventsById(Collection<ResourceEventHead> resourceEventHeads) {
+        List<Long> goCardlessEventIds = resourceEventHeads.stream()
+                .map(ResourceEventHead::getGoCardlessEventId)
+                .flatMap(Optional::stream)
+                .collect(toList());
+        if (goCardlessEventIds.isEmpty()) {
+            return Map.of();
+        }
+        return goCardlessEventDao.findByIds(goCardlessEventIds).stream().collect(toMap(GoCardlessEvent::getId, identity()));
+    }
+
+    private Map<Long, GovUkPayEvent> findGovUkPayEventsById(Collection<ResourceEventHead> resourceEventHeads) {
+        List<Long> govUkPayEventIds = resourceEventHeads.stream()
+                .map(ResourceEventHead::getGovUkPayEventId)
+                .flatMap(Optional::stream)
+                .collect(toList());
+        if (govUkPayEventIds.isEmpty()) {
+            return Map.of();
+        }
+        return govUkPayEventDao.findByIds(govUkPayEventIds).stream().collect(toMap(GovUkPayEvent::getId, identity()));
+    }
+
+    private Map<Payment, DirectDebitStateWithDetails<PaymentState>> calculateAllFromHistory(Collection<Payment> payments) {
+        if (payments.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, GoCardlessEvent> latestApplicableGoCardlessEvents
+                = getLatestApplicableGoCardlessEvents(payments);
+
+        Map<Long, GovUkPayEvent> latestApplicableGovUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForPayments(
+                payments.stream().map(Payment::getId).collect(toList()), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE)
+                .stream()
+                .collect(toMap(govUkPayEvent -> govUkPayEvent.getPaymentId().orElseThrow(), identity()));
+
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> states = new HashMap<>();
+        for (Payment payment : payments) {
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent = toGoCardlessPaymentIdAndOrganisationId(payment)
+                    .map(latestApplicableGoCardlessEvents::get);
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent = Optional.ofNullable(latestApplicableGovUkPayEvents.get(payment.getId()));
+            calculateFromLatestEvents(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
+                    .ifPresent(state -> states.put(payment, state));
+        }
+        return states;
+    }
+
+    private Optional<DirectDebitStateWithDetails<PaymentState>> calculateFromLatestEvents(
+            Optional<GoCardlessEvent> latestApplicableGoCardlessEvent,
+            Optional<GovUkPayEvent> latestApplicableGovUkPayEvent) {
         return Stream.of(latestApplicableGoCardlessEvent, latestApplicableGovUkPayEvent)
                 .flatMap(Optional::stream)
                 .max(Comparator.comparing(Event::getTimestamp))
                 .flatMap(this::mapEventToState);
     }
 
+    private Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, GoCardlessEvent> getLatestApplicableGoCardlessEvents(
+            Collection<Payment> payments) {
+        List<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds = payments.stream()
+                .map(this::toGoCardlessPaymentIdAndOrganisationId)
+                .flatMap(Optional::stream)
+                .distinct()
+                .collect(toList());
+
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return goCardlessEventDao.findLatestApplicableEventsForPayments(
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getLeft().toString()).toArray(String[]::new),
+                goCardlessPaymentIdsAndOrganisationIds.stream().map(pair -> pair.getRight().toString()).toArray(String[]::new),
+                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE)
+                .stream()
+                .collect(toMap(event -> Pair.of(event.getLinksPayment().orElseThrow(), event.getLinksOrganisation()), identity()));
+    }
+
+    private Optional<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> toGoCardlessPaymentIdAndOrganisationId(Payment payment) {
+        return payment.getProviderId()
+                .map(providerId -> {
+                    GoCardlessOrganisationId goCardlessOrganisationId = payment.getMandate().getGatewayAccount().getOrganisation()
+                            .orElseThrow(() -> new GatewayAccountMissingOrganisationIdException(payment.getMandate().getGatewayAccount()));
+
+                    return Pair.of((GoCardlessPaymentId) providerId, goCardlessOrganisationId);
+                });
+    }
+
     private Optional<GoCardlessEvent> getLatestApplicableGoCardlessEvent(Payment payment) {
         return payment.getProviderId()
                 .flatMap(providerId -> {
@@ -35,11 +35,10 @@ public class ExpireService {
     public int expireMandates() {
         LOGGER.info("Starting expire mandates process.");
         List<Mandate> mandatesToExpire = getMandatesForExpiration();
-        for (Mandate mandate : mandatesToExpire) {
-            govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
-            LOGGER.info("Expired mandate " + mandate.getId());
-        }
-        return mandatesToExpire.size();
+        List<Mandate> expiredMandates = govUkPayEventService.storeEventsAndUpdateStatesForMandates(mandatesToExpire,
+                GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
+        expiredMandates.forEach(mandate -> LOGGER.info("Expired mandate " + mandate.getId()));
+        return expiredMandates.size();
     }
 
     private List<Mandate> getMandatesForExpiration() {
@@ -4,6 +4,7 @@ import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.payments.model.Token;
 import uk.gov.pay.directdebit.tokens.dao.TokenDao;
 
@@ -18,8 +19,12 @@ public class TokenService {
     }
 
     public Token generateNewTokenFor(Mandate mandate) {
-        Token token = Token.generateNewTokenFor(mandate.getId());
-        LOGGER.info("Generating new one-time token for mandate {}", mandate.getExternalId());
+        return generateNewTokenFor(mandate.getId(), mandate.getExternalId());
+    }
+
+    public Token generateNewTokenFor(Long mandateId, MandateExternalId mandateExternalId) {
+        Token token = Token.generateNewTokenFor(mandateId);
+        LOGGER.info("Generating new one-time token for mandate {}", mandateExternalId);
         Long id = tokenDao.insert(token);
         token.setId(id);
         return token;
@@ -1,6 +1,7 @@
 package uk.gov.pay.directdebit.webhook.gocardless.api;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,13 +15,20 @@ import uk.gov.pay.directdebit.events.model.GoCardlessResourceType;
 import uk.gov.pay.directdebit.webhook.gocardless.exception.WebhookParserException;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
 import static uk.gov.pay.directdebit.events.model.GoCardlessEvent.GoCardlessEventBuilder.aGoCardlessEvent;
 
+/**
+ * Reads the events out of a GoCardless webhook body token by token, without building a tree of the whole body.
+ * The JSON stored for each event is the slice of the body it was read from rather than a re-serialised copy.
+ */
 public class GoCardlessWebhookParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessWebhookParser.class);
 
@@ -32,94 +40,198 @@ public class GoCardlessWebhookParser {
     }
 
     public List<GoCardlessEvent> parse(String webhookPayload) {
-        try {
-            List<GoCardlessEvent> events = new ArrayList<>();
-            JsonNode webhookJson = objectMapper.readTree(webhookPayload);
-            JsonNode eventsPayload = webhookJson.get("events");
-            for (JsonNode eventNode : eventsPayload) {
-                JsonNode detailsNode = eventNode.get("details");
-                JsonNode linksNode = eventNode.get("links");
-                GoCardlessEventBuilder goCardlessEventBuilder = aGoCardlessEvent()
-                        .withGoCardlessEventId(GoCardlessEventId.valueOf(eventNode.get("id").asText()))
-                        .withAction(eventNode.get("action").asText())
-                        .withJson(eventNode.toString())
-                        .withCreatedAt(ZonedDateTime.parse(eventNode.get("created_at").asText()))
-                        .withLinksOrganisation(GoCardlessOrganisationId.valueOf(linksNode.get("organisation").asText()));
-
-                if (detailsNode.has("cause")) {
-                    goCardlessEventBuilder.withDetailsCause(detailsNode.get("cause").asText());
-                }
-                if (detailsNode.has("description")) {
-                    goCardlessEventBuilder.withDetailsDescription(detailsNode.get("description").asText());
-                }
-                if (detailsNode.has("origin")) {
-                    goCardlessEventBuilder.withDetailsOrigin(detailsNode.get("origin").asText());
-                }
-                if (detailsNode.has("reason_code")) {
-                    goCardlessEventBuilder.withDetailsReasonCode(detailsNode.get("reason_code").asText());
-                }
-                if (detailsNode.has("scheme")) {
-                    goCardlessEventBuilder.withDetailsScheme(detailsNode.get("scheme").asText());
+        return parse(webhookPayload.getBytes(UTF_8));
+    }
 
+    public List<GoCardlessEvent> parse(byte[] webhookPayload) {
+        try (JsonParser jsonParser = objectMapper.getFactory().createParser(webhookPayload)) {
+            expectToken(jsonParser.nextToken(), JsonToken.START_OBJECT);
+            List<GoCardlessEvent> events = null;
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                jsonParser.nextToken();
+                if ("events".equals(fieldName)) {
+                    events = parseEvents(jsonParser, webhookPayload);
+                } else {
+                    jsonParser.skipChildren();
                 }
-                if (linksNode.has("mandate")) {
-                    goCardlessEventBuilder.withLinksMandate(GoCardlessMandateId.valueOf(linksNode.get("mandate").asText()));
-                }
-                if (linksNode.has("new_customer_bank_account")) {
-                    goCardlessEventBuilder
-                            .withLinksNewCustomerBankAccount(linksNode.get("new_customer_bank_account").asText());
-                }
-                if (linksNode.has("new_mandate")) {
-                    goCardlessEventBuilder.withLinksNewMandate(GoCardlessMandateId.valueOf(linksNode.get("new_mandate").asText()));
-                }
-                if (linksNode.has("parent_event")) {
-                    goCardlessEventBuilder.withLinksParentEvent(linksNode.get("parent_event").asText());
-                }
-                if (linksNode.has("payment")) {
-                    goCardlessEventBuilder.withLinksPayment(GoCardlessPaymentId.valueOf(linksNode.get("payment").asText()));
-                }
-                if (linksNode.has("payout")) {
-                    goCardlessEventBuilder.withLinksPayout(linksNode.get("payout").asText());
-                }
-                if (linksNode.has("previous_customer_bank_account")) {
-                    goCardlessEventBuilder
-                            .withLinksPreviousCustomerBankAccount(
-                                    linksNode.get("previous_customer_bank_account").asText());
-                }
-                if (linksNode.has("refund")) {
-                    goCardlessEventBuilder.withLinksRefund(linksNode.get("refund").asText());
-                }
-                if (linksNode.has("subscription")) {
-                    goCardlessEventBuilder.withLinksSubscription(linksNode.get("subscription").asText());
-                }
-                
-                GoCardlessResourceType handledGoCardlessResourceType =
-                        GoCardlessResourceType.fromString(eventNode.get("resource_type").asText());
-                goCardlessEventBuilder.withResourceType(handledGoCardlessResourceType);
-                extractResourceIdFrom(eventNode, handledGoCardlessResourceType)
-                        .ifPresent(goCardlessEventBuilder::withResourceId);
-                GoCardlessEvent event = goCardlessEventBuilder.build();
-                events.add(event);
-                
-                LOGGER.info("Successfully parsed gocardless webhook, event resource type: {}, action: {}, resource id {}",
-                        event.getResourceType(),
-                        event.getAction(),
-                        event.getResourceId());
             }
-            return events;
+            return requireNonNull(events, "events");
         } catch (Exception exc) {
-            throw new WebhookParserException("Failed to parse webhooks, body: " + webhookPayload);
+            throw new WebhookParserException("Failed to parse webhooks, body: " + new String(webhookPayload, UTF_8));
+        }
+    }
+
+    private List<GoCardlessEvent> parseEvents(JsonParser jsonParser, byte[] webhookPayload) throws IOException {
+        expectToken(jsonParser.currentToken(), JsonToken.START_ARRAY);
+        List<GoCardlessEvent> events = new ArrayList<>();
+        while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+            GoCardlessEvent event = parseEvent(jsonParser, webhookPayload);
+            events.add(event);
+
+            LOGGER.info("Successfully parsed gocardless webhook, event resource type: {}, action: {}, resource id {}",
+                    event.getResourceType(),
+                    event.getAction(),
+                    event.getResourceId());
+        }
+        expectToken(jsonParser.currentToken(), JsonToken.END_ARRAY);
+        return events;
+    }
+
+    private GoCardlessEvent parseEvent(JsonParser jsonParser, byte[] webhookPayload) throws IOException {
+        int eventStartOffset = (int) jsonParser.getTokenLocation().getByteOffset();
+        GoCardlessEventBuilder goCardlessEventBuilder = aGoCardlessEvent();
+        String eventId = null;
+        String action = null;
+        String createdAt = null;
+        String resourceType = null;
+        String organisation = null;
+        String mandate = null;
+        String payment = null;
+        String payout = null;
+
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    eventId = textValue(jsonParser);
+                    break;
+                case "action":
+                    action = textValue(jsonParser);
+                    break;
+                case "created_at":
+                    createdAt = textValue(jsonParser);
+                    break;
+                case "resource_type":
+                    resourceType = textValue(jsonParser);
+                    break;
+                case "details":
+                    parseDetails(jsonParser, goCardlessEventBuilder);
+                    break;
+                case "links":
+                    expectToken(jsonParser.currentToken(), JsonToken.START_OBJECT);
+                    while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                        String linkName = jsonParser.getCurrentName();
+                        jsonParser.nextToken();
+                        String link = textValue(jsonParser);
+                        if (link == null) {
+                            continue;
+                        }
+                        switch (linkName) {
+                            case "organisation":
+                                organisation = link;
+                                break;
+                            case "mandate":
+                                mandate = link;
+                                goCardlessEventBuilder.withLinksMandate(GoCardlessMandateId.valueOf(link));
+                                break;
+                            case "payment":
+                                payment = link;
+                                goCardlessEventBuilder.withLinksPayment(GoCardlessPaymentId.valueOf(link));
+                                break;
+                            case "payout":
+                                payout = link;
+                                goCardlessEventBuilder.withLinksPayout(link);
+                                break;
+                            case "new_customer_bank_account":
+                                goCardlessEventBuilder.withLinksNewCustomerBankAccount(link);
+                                break;
+                            case "new_mandate":
+                                goCardlessEventBuilder.withLinksNewMandate(GoCardlessMandateId.valueOf(link));
+                                break;
+                            case "parent_event":
+                                goCardlessEventBuilder.withLinksParentEvent(link);
+                                break;
+                            case "previous_customer_bank_account":
+                                goCardlessEventBuilder.withLinksPreviousCustomerBankAccount(link);
+                                break;
+                            case "refund":
+                                goCardlessEventBuilder.withLinksRefund(link);
+                                break;
+                            case "subscription":
+                                goCardlessEventBuilder.withLinksSubscription(link);
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    break;
+                default:
+                    jsonParser.skipChildren();
+                    break;
+            }
+        }
+        expectToken(jsonParser.currentToken(), JsonToken.END_OBJECT);
+        int eventEndOffset = (int) jsonParser.getCurrentLocation().getByteOffset();
+
+        GoCardlessResourceType handledGoCardlessResourceType = GoCardlessResourceType.fromString(resourceType);
+        goCardlessEventBuilder
+                .withGoCardlessEventId(GoCardlessEventId.valueOf(requireNonNull(eventId, "id")))
+                .withAction(requireNonNull(action, "action"))
+                .withJson(new String(webhookPayload, eventStartOffset, eventEndOffset - eventStartOffset, UTF_8))
+                .withCreatedAt(ZonedDateTime.parse(requireNonNull(createdAt, "created_at")))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf(requireNonNull(organisation, "links.organisation")))
+                .withResourceType(handledGoCardlessResourceType);
+        extractResourceIdFrom(handledGoCardlessResourceType, mandate, payment, payout)
+                .ifPresent(goCardlessEventBuilder::withResourceId);
+        return goCardlessEventBuilder.build();
+    }
+
+    private void parseDetails(JsonParser jsonParser, GoCardlessEventBuilder goCardlessEventBuilder) throws IOException {
+        expectToken(jsonParser.currentToken(), JsonToken.START_OBJECT);
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            jsonParser.nextToken();
+            String detail = textValue(jsonParser);
+            if (detail == null) {
+                continue;
+            }
+            switch (fieldName) {
+                case "cause":
+                    goCardlessEventBuilder.withDetailsCause(detail);
+                    break;
+                case "description":
+                    goCardlessEventBuilder.withDetailsDescription(detail);
+                    break;
+                case "origin":
+                    goCardlessEventBuilder.withDetailsOrigin(detail);
+                    break;
+                case "reason_code":
+                    goCardlessEventBuilder.withDetailsReasonCode(detail);
+                    break;
+                case "scheme":
+                    goCardlessEventBuilder.withDetailsScheme(detail);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static String textValue(JsonParser jsonParser) throws IOException {
+        if (jsonParser.currentToken().isStructStart()) {
+            jsonParser.skipChildren();
+            return null;
+        }
+        return jsonParser.getValueAsString();
+    }
+
+    private static void expectToken(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalStateException("Expected " + expected + " but found " + actual);
         }
     }
 
-    private Optional<String> extractResourceIdFrom(JsonNode jsonNode, GoCardlessResourceType goCardlessResourceType) {
+    private Optional<String> extractResourceIdFrom(GoCardlessResourceType goCardlessResourceType,
+                                                   String mandate, String payment, String payout) {
         switch (goCardlessResourceType) {
             case PAYMENTS:
-                return Optional.of(jsonNode.get("links").get("payment").asText());
+                return Optional.of(requireNonNull(payment, "links.payment"));
             case MANDATES:
-                return Optional.of(jsonNode.get("links").get("mandate").asText());
+                return Optional.of(requireNonNull(mandate, "links.mandate"));
             case PAYOUTS:
-                return Optional.of(jsonNode.get("links").get("payout").asText());
+                return Optional.of(requireNonNull(payout, "links.payout"));
             default:
                 return Optional.empty();
         }
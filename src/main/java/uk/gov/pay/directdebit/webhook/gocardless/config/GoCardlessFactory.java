@@ -3,7 +3,9 @@ package uk.gov.pay.directdebit.webhook.gocardless.config;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.gocardless.GoCardlessClient;
 import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class GoCardlessFactory extends Configuration {
@@ -19,6 +21,51 @@ public class GoCardlessFactory extends Configuration {
     @NotNull
     private GoCardlessClient.Environment environment;
 
+    // how many gateway accounts' GoCardless clients are kept; beyond this the least recently used one is dropped
+    @JsonProperty
+    @Min(1)
+    private int maximumClients = 1000;
+
+    // a gateway account's GoCardless client is dropped once it has gone unused for this long
+    @JsonProperty
+    @NotNull
+    private Duration clientExpiry = Duration.hours(1);
+
+    // the most GoCardless requests in flight at once across all gateway accounts; each one holds a connection
+    @JsonProperty
+    @Min(1)
+    private int maximumConcurrentRequests = 50;
+
+    // how long a GoCardless request waits for another to finish when the maximum is in flight, before failing
+    @JsonProperty
+    @NotNull
+    private Duration requestQueueTimeout = Duration.seconds(5);
+
+    // how long an organisation's SUN name is used before it is fetched from GoCardless again, in the background
+    @JsonProperty
+    @NotNull
+    private Duration sunNameRefreshInterval = Duration.hours(1);
+
+    // how many GoCardless requests each gateway account's access token may send a minute; GoCardless allows 1000
+    @JsonProperty
+    @Min(1)
+    private int rateLimitPerMinute = 1000;
+
+    // how long a GoCardless request waits for its access token's rate limit to allow it, before failing
+    @JsonProperty
+    @NotNull
+    private Duration rateLimitQueueTimeout = Duration.seconds(10);
+
+    // how many times a GoCardless request rejected for exceeding the rate limit is retried
+    @JsonProperty
+    @Min(0)
+    private int maximumRetries = 3;
+
+    // the backoff before the first retry of a rate limited GoCardless request; it doubles with each retry and is jittered
+    @JsonProperty
+    @NotNull
+    private Duration retryBaseDelay = Duration.milliseconds(500);
+
     public Boolean isCallingStubs() {
         return clientUrl != null;
     }
@@ -35,4 +82,40 @@ public class GoCardlessFactory extends Configuration {
         return environment;
     }
 
+    public int getMaximumClients() {
+        return maximumClients;
+    }
+
+    public Duration getClientExpiry() {
+        return clientExpiry;
+    }
+
+    public int getMaximumConcurrentRequests() {
+        return maximumConcurrentRequests;
+    }
+
+    public Duration getRequestQueueTimeout() {
+        return requestQueueTimeout;
+    }
+
+    public Duration getSunNameRefreshInterval() {
+        return sunNameRefreshInterval;
+    }
+
+    public int getRateLimitPerMinute() {
+        return rateLimitPerMinute;
+    }
+
+    public Duration getRateLimitQueueTimeout() {
+        return rateLimitQueueTimeout;
+    }
+
+    public int getMaximumRetries() {
+        return maximumRetries;
+    }
+
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
 }
@@ -0,0 +1,148 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.app.config.WebhookProcessingConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs the work that follows storing the events from a GoCardless webhook (updating mandate and payment states,
+ * sending emails and so on).
+ * <p>
+ * When webhook processing is synchronous, the work is run on the calling thread. Otherwise events are split into a
+ * fixed number of partitions by a key (such as the organisation and resource they belong to), and each partition is
+ * worked through by its own single thread with a bounded queue. Events with the same key therefore always land on the
+ * same thread and are processed strictly in the order they were received, while events for different keys are
+ * processed in parallel. When a partition's queue is full, the caller waits a short while for room and then gives
+ * up rather than holding up the webhook request. The events it gave up on are already stored and claimed, so they
+ * are picked up by {@link UnprocessedGoCardlessEventsResumer} once their claim times out; until then, later events
+ * for the same resource may overtake them, which is harmless for states as those are worked out from the latest
+ * applicable event.
+ */
+public class GoCardlessEventExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoCardlessEventExecutor.class);
+    private static final String METRICS_PREFIX = "gocardless-webhook-events";
+
+    private final List<ExecutorService> partitions;
+    private final Timer processingTimer;
+    private final List<Timer> partitionProcessingTimers = new ArrayList<>();
+    private final Meter failuresMeter;
+
+    private GoCardlessEventExecutor(List<ExecutorService> partitions, MetricRegistry metricRegistry) {
+        this.partitions = partitions;
+        this.processingTimer = metricRegistry.timer(name(METRICS_PREFIX, "processing"));
+        this.failuresMeter = metricRegistry.meter(name(METRICS_PREFIX, "failures"));
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            partitionProcessingTimers.add(metricRegistry.timer(name(METRICS_PREFIX, "partitions", String.valueOf(partition), "processing")));
+        }
+    }
+
+    public static GoCardlessEventExecutor synchronous(MetricRegistry metricRegistry) {
+        return new GoCardlessEventExecutor(List.of(), metricRegistry);
+    }
+
+    public static GoCardlessEventExecutor from(WebhookProcessingConfig webhookProcessingConfig, Environment environment) {
+        MetricRegistry metricRegistry = environment.metrics();
+        if (!webhookProcessingConfig.isAsynchronous()) {
+            return synchronous(metricRegistry);
+        }
+
+        Meter queueFullMeter = metricRegistry.meter(name(METRICS_PREFIX, "queue", "full"));
+        Meter queueDroppedMeter = metricRegistry.meter(name(METRICS_PREFIX, "queue", "dropped"));
+        long queueTimeoutMillis = webhookProcessingConfig.getQueueTimeout().toMilliseconds();
+        List<ExecutorService> partitions = new ArrayList<>();
+        List<BlockingQueue<Runnable>> queues = new ArrayList<>();
+        for (int partition = 0; partition < webhookProcessingConfig.getThreads(); partition++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(webhookProcessingConfig.getQueueCapacity());
+            partitions.add(environment.lifecycle()
+                    .executorService(format("gocardless-webhook-events-partition-%d-%%d", partition))
+                    .minThreads(1)
+                    .maxThreads(1)
+                    .workQueue(queue)
+                    .rejectedExecutionHandler(waitBrieflyForRoomInQueue(queueTimeoutMillis, queueFullMeter, queueDroppedMeter))
+                    .build());
+            queues.add(queue);
+            metricRegistry.register(name(METRICS_PREFIX, "partitions", String.valueOf(partition), "queue", "size"),
+                    (Gauge<Integer>) queue::size);
+        }
+        metricRegistry.register(name(METRICS_PREFIX, "queue", "size"),
+                (Gauge<Integer>) () -> queues.stream().mapToInt(BlockingQueue::size).sum());
+
+        return new GoCardlessEventExecutor(partitions, metricRegistry);
+    }
+
+    private static RejectedExecutionHandler waitBrieflyForRoomInQueue(long timeoutMillis, Meter queueFullMeter,
+                                                                      Meter queueDroppedMeter) {
+        return (runnable, threadPoolExecutor) -> {
+            if (threadPoolExecutor.isShutdown()) {
+                throw new RejectedExecutionException("GoCardless webhook event processing has been shut down");
+            }
+            queueFullMeter.mark();
+            try {
+                if (threadPoolExecutor.getQueue().offer(runnable, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queueDroppedMeter.mark();
+            LOGGER.warn("GoCardless webhook event queue is full, leaving events to be processed once their claim times out");
+        };
+    }
+
+    public boolean isAsynchronous() {
+        return !partitions.isEmpty();
+    }
+
+    /**
+     * Splits the items into partitions by key and runs the task once for each partition's items, which keep
+     * their original order. When synchronous, runs the task once for all the items.
+     */
+    public <T> void executeInPartitions(List<T> items, Function<T, ?> partitionKey, Consumer<List<T>> task) {
+        if (!isAsynchronous()) {
+            try (Timer.Context ignored = processingTimer.time()) {
+                task.accept(items);
+            }
+            return;
+        }
+
+        Map<Integer, List<T>> itemsByPartition = items.stream()
+                .collect(groupingBy(item -> partitionFor(partitionKey.apply(item)), LinkedHashMap::new, toList()));
+        itemsByPartition.forEach((partition, partitionItems) -> partitions.get(partition).execute(() -> {
+            try (Timer.Context ignored = processingTimer.time();
+                 Timer.Context ignoredPartition = partitionProcessingTimers.get(partition).time()) {
+                task.accept(partitionItems);
+            } catch (RuntimeException e) {
+                failuresMeter.mark();
+                LOGGER.error("Failed to process GoCardless webhook events, they will be retried once their claim times out", e);
+            }
+        }));
+    }
+
+    private int partitionFor(Object key) {
+        return Math.floorMod(key.hashCode(), partitions.size());
+    }
+}
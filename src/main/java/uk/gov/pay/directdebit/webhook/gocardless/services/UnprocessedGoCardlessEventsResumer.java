@@ -0,0 +1,77 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every so often, picks up GoCardless events that were stored but never fully processed (for example because
+ * processing them failed, or the instance that stored them stopped while they were still queued) and processes
+ * them. Events are claimed before they are processed, and freshly stored events are claimed by the instance that
+ * stored them, so only events that nobody has claimed for the claim timeout are picked up and no two instances
+ * process the same event at once.
+ */
+public class UnprocessedGoCardlessEventsResumer implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnprocessedGoCardlessEventsResumer.class);
+    private static final int PAGE_SIZE = 100;
+
+    private final GoCardlessEventService goCardlessEventService;
+    private final WebhookGoCardlessService webhookGoCardlessService;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Duration resumeInterval;
+
+    public UnprocessedGoCardlessEventsResumer(GoCardlessEventService goCardlessEventService,
+                                              WebhookGoCardlessService webhookGoCardlessService,
+                                              ScheduledExecutorService scheduledExecutorService,
+                                              Duration resumeInterval) {
+        this.goCardlessEventService = goCardlessEventService;
+        this.webhookGoCardlessService = webhookGoCardlessService;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.resumeInterval = resumeInterval;
+    }
+
+    @Override
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::resumeUnprocessedEvents,
+                resumeInterval.toMilliseconds(), resumeInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    void resumeUnprocessedEvents() {
+        int numberOfEventsResumed = 0;
+        List<GoCardlessEvent> events;
+        do {
+            try {
+                events = goCardlessEventService.claimUnprocessedEvents(PAGE_SIZE);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to look for unprocessed GoCardless events, will look again in {}", resumeInterval, e);
+                return;
+            }
+            if (events.isEmpty()) {
+                break;
+            }
+            try {
+                webhookGoCardlessService.dispatchStoredEvents(events);
+                numberOfEventsResumed += events.size();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to process {} unprocessed GoCardless events, they will be retried once their claim times out",
+                        events.size(), e);
+            }
+        } while (events.size() == PAGE_SIZE);
+
+        if (numberOfEventsResumed > 0) {
+            LOGGER.info("Processed {} GoCardless events that had been stored but not processed", numberOfEventsResumed);
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
-import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
@@ -20,11 +19,15 @@ import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.UnhandledGoCa
 
 import javax.inject.Inject;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.MANDATES;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.PAYMENTS;
 
@@ -39,6 +42,7 @@ public class WebhookGoCardlessService {
     private final PaymentQueryService paymentQueryService;
     private final SendEmailsForGoCardlessEventsHandler sendEmailsForGoCardlessEventsHandler;
     private final UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger;
+    private final GoCardlessEventExecutor goCardlessEventExecutor;
 
     @Inject
     WebhookGoCardlessService(GoCardlessEventService goCardlessService,
@@ -47,7 +51,8 @@ public class WebhookGoCardlessService {
                              MandateQueryService mandateQueryService,
                              PaymentQueryService paymentQueryService,
                              SendEmailsForGoCardlessEventsHandler sendEmailsForGoCardlessEventsHandler,
-                             UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger) {
+                             UnhandledGoCardlessEventsLogger unhandledGoCardlessEventsLogger,
+                             GoCardlessEventExecutor goCardlessEventExecutor) {
         this.goCardlessService = goCardlessService;
         this.sendEmailsForGoCardlessEventsHandler = sendEmailsForGoCardlessEventsHandler;
         this.mandateStateUpdater = mandateStateUpdater;
@@ -55,13 +60,51 @@ public class WebhookGoCardlessService {
         this.mandateQueryService = mandateQueryService;
         this.paymentQueryService = paymentQueryService;
         this.unhandledGoCardlessEventsLogger = unhandledGoCardlessEventsLogger;
+        this.goCardlessEventExecutor = goCardlessEventExecutor;
     }
 
+    /**
+     * Stores the events and processes those that have not been processed before. If processing fails on the calling
+     * thread, the events' claims are released before the exception is rethrown, so that GoCardless redelivering
+     * the webhook has them processed again.
+     */
     public void processEvents(List<GoCardlessEvent> events) {
-        goCardlessService.storeEvents(events);
+        List<GoCardlessEvent> eventsToProcess = goCardlessService.storeEvents(events);
+        if (eventsToProcess.isEmpty()) {
+            return;
+        }
+        try {
+            dispatchStoredEvents(eventsToProcess);
+        } catch (RuntimeException e) {
+            goCardlessService.releaseClaims(eventsToProcess);
+            throw e;
+        }
+    }
+
+    /**
+     * Hands stored events to the executor, partitioned by the organisation and resource they belong to, so that
+     * events for the same mandate or payment are handled in order and events for different ones in parallel.
+     */
+    public void dispatchStoredEvents(List<GoCardlessEvent> events) {
+        goCardlessEventExecutor.executeInPartitions(events, WebhookGoCardlessService::toPartitionKey, this::handleStoredEvents);
+    }
+
+    private static Pair<GoCardlessOrganisationId, Object> toPartitionKey(GoCardlessEvent goCardlessEvent) {
+        switch (goCardlessEvent.getResourceType()) {
+            case MANDATES:
+                return Pair.of(goCardlessEvent.getLinksOrganisation(), goCardlessEvent.getLinksMandate());
+            case PAYMENTS:
+                return Pair.of(goCardlessEvent.getLinksOrganisation(), goCardlessEvent.getLinksPayment());
+            default:
+                return Pair.of(goCardlessEvent.getLinksOrganisation(), goCardlessEvent.getResourceType());
+        }
+    }
+
+    public void handleStoredEvents(List<GoCardlessEvent> events) {
         updateStatesForEvents(events);
         sendEmailsForGoCardlessEventsHandler.sendEmails(events);
         unhandledGoCardlessEventsLogger.logUnhandledEvents(events);
+        goCardlessService.markEventsAsProcessed(events);
     }
 
     private void updateStatesForEvents(List<GoCardlessEvent> events) {
@@ -71,13 +114,24 @@ public class WebhookGoCardlessService {
     }
 
     private void updateStateForMandateEvents(List<GoCardlessEvent> eventsThatAffectMandates) {
-        eventsThatAffectMandates.stream()
+        List<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> goCardlessMandateIdsAndOrganisationIds = eventsThatAffectMandates.stream()
                 .map(this::toGoCardlessMandateIdAndOrganisationId)
                 .flatMap(Optional::stream)
                 .distinct()
-                .map(this::getMandate)
-                .flatMap(Optional::stream)
-                .forEach(mandateStateUpdater::updateStateIfNecessary);
+                .collect(toList());
+
+        if (goCardlessMandateIdsAndOrganisationIds.isEmpty()) {
+            return;
+        }
+
+        Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, Mandate> mandates =
+                mandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(goCardlessMandateIdsAndOrganisationIds);
+        logLookUpResult("mandates", goCardlessMandateIdsAndOrganisationIds, mandates.keySet());
+
+        mandateStateUpdater.updateStatesIfNecessary(goCardlessMandateIdsAndOrganisationIds.stream()
+                .map(mandates::get)
+                .filter(Objects::nonNull)
+                .collect(toList()));
     }
 
     private Optional<Pair<GoCardlessMandateId, GoCardlessOrganisationId>> toGoCardlessMandateIdAndOrganisationId(GoCardlessEvent goCardlessEvent) {
@@ -90,32 +144,25 @@ public class WebhookGoCardlessService {
         return Optional.ofNullable(goCardlessMandateIdAndOrganisationId);
     }
 
-    private Optional<Mandate> getMandate(Pair<GoCardlessMandateId, GoCardlessOrganisationId> goCardlessMandateIdAndOrganisationId) {
-        GoCardlessMandateId goCardlessMandateId = goCardlessMandateIdAndOrganisationId.getLeft();
-        GoCardlessOrganisationId goCardlessOrganisationId = goCardlessMandateIdAndOrganisationId.getRight();
-        try {
-            Mandate mandate = mandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                    goCardlessMandateId,
-                    goCardlessOrganisationId);
-
-            return Optional.of(mandate);
-        } catch (MandateNotFoundException e) {
-            LOGGER.error(format("Could not update status of GoCardless mandate %s for organisation %s because the mandate was not found",
-                    goCardlessMandateId,
-                    goCardlessOrganisationId));
-        }
-
-        return Optional.empty();
-    }
-
     private void updateStateForPaymentEvents(List<GoCardlessEvent> eventsThatAffectPayments) {
-        eventsThatAffectPayments.stream()
+        List<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> goCardlessPaymentIdsAndOrganisationIds = eventsThatAffectPayments.stream()
                 .map(this::toGoCardlessPaymentIdAndOrganisationId)
                 .flatMap(Optional::stream)
                 .distinct()
-                .map(this::getPayment)
-                .flatMap(Optional::stream)
-                .forEach(paymentStateUpdater::updateStateIfNecessary);
+                .collect(toList());
+
+        if (goCardlessPaymentIdsAndOrganisationIds.isEmpty()) {
+            return;
+        }
+
+        Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, Payment> payments =
+                paymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(goCardlessPaymentIdsAndOrganisationIds);
+        logLookUpResult("payments", goCardlessPaymentIdsAndOrganisationIds, payments.keySet());
+
+        paymentStateUpdater.updateStatesIfNecessary(goCardlessPaymentIdsAndOrganisationIds.stream()
+                .map(payments::get)
+                .filter(Objects::nonNull)
+                .collect(toList()));
     }
 
     private Optional<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>> toGoCardlessPaymentIdAndOrganisationId(GoCardlessEvent goCardlessEvent) {
@@ -128,15 +175,17 @@ public class WebhookGoCardlessService {
         return Optional.ofNullable(goCardlessPaymentIdAndOrganisationId);
     }
 
-    private Optional<Payment> getPayment(Pair<GoCardlessPaymentId, GoCardlessOrganisationId> goCardlessPaymentIdAndOrganisationId) {
-        GoCardlessPaymentId goCardlessPaymentId = goCardlessPaymentIdAndOrganisationId.getLeft();
-        GoCardlessOrganisationId goCardlessOrganisationId = goCardlessPaymentIdAndOrganisationId.getRight();
-        return paymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId, goCardlessOrganisationId)
-                .or(() -> {
-                    LOGGER.error(format("Could not update status of GoCardless payment %s for organisation %s because the payment was not found",
-                            goCardlessPaymentId,
-                            goCardlessOrganisationId));
-                    return Optional.empty();
-                });
+    private static <T> void logLookUpResult(String resourceName, List<T> requestedKeys, Set<T> foundKeys) {
+        List<T> notFoundKeys = requestedKeys.stream()
+                .filter(key -> !foundKeys.contains(key))
+                .collect(toList());
+
+        if (notFoundKeys.isEmpty()) {
+            LOGGER.info(format("Looked up %d GoCardless %s affected by webhook events, all found", requestedKeys.size(), resourceName));
+        } else {
+            LOGGER.error(format("Looked up %d GoCardless %s affected by webhook events, found %d, " +
+                            "could not update status of %d because they were not found (GoCardless id, organisation): %s",
+                    requestedKeys.size(), resourceName, requestedKeys.size() - notFoundKeys.size(), notFoundKeys.size(), notFoundKeys));
+        }
     }
 }
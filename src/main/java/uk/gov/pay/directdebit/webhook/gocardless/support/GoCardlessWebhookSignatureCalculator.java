@@ -10,6 +10,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Calculates a webhook signature in the format GoCardless use (lower-case hexadecimal HMAC SHA-256 digest of the UTF-8 bytes of the supplied body)
+ * <p>
+ * Each thread keeps its own {@link Mac} initialised with the secret key, as creating and initialising one is
+ * relatively expensive and a {@link Mac} is not thread-safe.
  *
  * @see <a href="https://developer.gocardless.com/api-reference/#webhooks-signing-webhooks">Signing webhooks</a>
  * @see <a href="https://developer.gocardless.com/getting-started/partners/staying-up-to-date-with-webhooks/#building-your-first-webhook-handler">Building your first webhook handler</a>
@@ -18,15 +21,19 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class GoCardlessWebhookSignatureCalculator {
 
     private final SecretKeySpec hmacSha256SecretKeySpec;
+    private final ThreadLocal<Mac> hmacSha256;
 
     public GoCardlessWebhookSignatureCalculator(String secretKey) {
         this.hmacSha256SecretKeySpec = new SecretKeySpec(secretKey.getBytes(UTF_8), "HmacSHA256");
+        this.hmacSha256 = ThreadLocal.withInitial(this::createHmacSha256WithSecretKey);
     }
 
     public String calculate(String body) {
-        Mac hmacSha256 = createHmacSha256WithSecretKey();
-        byte[] sha256Signature = hmacSha256.doFinal(body.getBytes(UTF_8));
-        return base16().lowerCase().encode(sha256Signature);
+        return base16().lowerCase().encode(calculateDigest(body.getBytes(UTF_8)));
+    }
+
+    public byte[] calculateDigest(byte[] body) {
+        return hmacSha256.get().doFinal(body);
     }
 
     private Mac createHmacSha256WithSecretKey() {
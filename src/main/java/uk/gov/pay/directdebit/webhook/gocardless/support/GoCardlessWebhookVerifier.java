@@ -1,11 +1,13 @@
 package uk.gov.pay.directdebit.webhook.gocardless.support;
 
-import org.apache.commons.lang3.StringUtils;
 import uk.gov.pay.directdebit.webhook.gocardless.exception.InvalidWebhookException;
 
 import javax.inject.Inject;
+import java.security.MessageDigest;
 
+import static com.google.common.io.BaseEncoding.base16;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class GoCardlessWebhookVerifier {
 
@@ -17,15 +19,30 @@ public class GoCardlessWebhookVerifier {
     }
 
     public void verify(String body, String signature) {
+        verify(body.getBytes(UTF_8), signature);
+    }
+
+    public void verify(byte[] body, String signature) {
         verifySignature(body, signature);
     }
 
-    private void verifySignature(String body, String expectedSignature) {
-        String computedSignature = goCardlessWebhookSignatureCalculator.calculate(body);
+    private void verifySignature(byte[] body, String expectedSignature) {
+        byte[] computedDigest = goCardlessWebhookSignatureCalculator.calculateDigest(body);
 
-        if (!StringUtils.equals(expectedSignature, computedSignature)) {
+        if (!MessageDigest.isEqual(decodeSignature(expectedSignature), computedDigest)) {
             throw new InvalidWebhookException(format("Invalid GoCardless webhook signature, received %s but computed %s",
-                    expectedSignature, computedSignature));
+                    expectedSignature, base16().lowerCase().encode(computedDigest)));
+        }
+    }
+
+    private static byte[] decodeSignature(String signature) {
+        if (signature == null) {
+            return new byte[0];
+        }
+        try {
+            return base16().lowerCase().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
         }
     }
 
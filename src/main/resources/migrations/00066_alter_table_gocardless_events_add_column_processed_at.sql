@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:alter_table_gocardless_events_add_column_processed_at
+ALTER TABLE gocardless_events ADD COLUMN processed_at TIMESTAMP WITH TIME ZONE;
+--rollback ALTER TABLE gocardless_events DROP COLUMN processed_at;
+
+--changeset uk.gov.pay:update_gocardless_events_set_processed_at runInTransaction:false splitStatements:false
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 10000;
+    max_event_id BIGINT;
+    after_id BIGINT := 0;
+BEGIN
+    SELECT COALESCE(MAX(id), 0) INTO max_event_id FROM gocardless_events;
+    WHILE after_id < max_event_id LOOP
+        UPDATE gocardless_events SET processed_at = now()
+            WHERE id > after_id AND id <= after_id + batch_size AND processed_at IS NULL;
+        after_id := after_id + batch_size;
+        COMMIT;
+    END LOOP;
+END $$;
+
+--changeset uk.gov.pay:add_gocardless_events_unprocessed_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS gocardless_events_unprocessed_idx ON gocardless_events(id) WHERE processed_at IS NULL;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS gocardless_events_unprocessed_idx;
@@ -0,0 +1,33 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_gocardless_events_links_mandate_organisation_created_at_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS gocardless_events_links_mandate_organisation_created_at_idx
+    ON gocardless_events(links_mandate, links_organisation, created_at DESC) INCLUDE (action)
+    WHERE links_mandate IS NOT NULL;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS gocardless_events_links_mandate_organisation_created_at_idx;
+
+--changeset uk.gov.pay:add_gocardless_events_links_payment_organisation_created_at_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS gocardless_events_links_payment_organisation_created_at_idx
+    ON gocardless_events(links_payment, links_organisation, created_at DESC) INCLUDE (action)
+    WHERE links_payment IS NOT NULL;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS gocardless_events_links_payment_organisation_created_at_idx;
+
+--changeset uk.gov.pay:drop_gocardless_events_links_mandate_idx runInTransaction:false
+DROP INDEX CONCURRENTLY IF EXISTS links_mandate_idx;
+--rollback CREATE INDEX CONCURRENTLY links_mandate_idx ON gocardless_events(links_mandate);
+
+--changeset uk.gov.pay:drop_gocardless_events_links_payment_idx runInTransaction:false
+DROP INDEX CONCURRENTLY IF EXISTS links_payment_idx;
+--rollback CREATE INDEX CONCURRENTLY links_payment_idx ON gocardless_events(links_payment);
+
+--changeset uk.gov.pay:add_govukpay_events_mandate_id_event_date_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS govukpay_events_mandate_id_event_date_idx
+    ON govukpay_events(mandate_id, event_date DESC) INCLUDE (event_type)
+    WHERE mandate_id IS NOT NULL;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS govukpay_events_mandate_id_event_date_idx;
+
+--changeset uk.gov.pay:add_govukpay_events_payment_id_event_date_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS govukpay_events_payment_id_event_date_idx
+    ON govukpay_events(payment_id, event_date DESC) INCLUDE (event_type)
+    WHERE payment_id IS NOT NULL;
+--rollback DROP INDEX CONCURRENTLY IF EXISTS govukpay_events_payment_id_event_date_idx;
@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table_resource_event_heads
+CREATE TABLE resource_event_heads (
+    resource_type VARCHAR(32) NOT NULL,
+    resource_id BIGINT NOT NULL,
+    gocardless_event_id BIGINT,
+    gocardless_event_created_at TIMESTAMP WITH TIME ZONE,
+    govukpay_event_id BIGINT,
+    govukpay_event_date TIMESTAMP WITH TIME ZONE,
+    PRIMARY KEY (resource_type, resource_id)
+);
+--rollback drop table resource_event_heads;
+
+--changeset uk.gov.pay:add_resource_event_heads_gocardless_events_fk
+ALTER TABLE resource_event_heads ADD CONSTRAINT resource_event_heads_gocardless_events_fk FOREIGN KEY (gocardless_event_id) REFERENCES gocardless_events (id);
+--rollback ALTER TABLE resource_event_heads DROP CONSTRAINT resource_event_heads_gocardless_events_fk;
+
+--changeset uk.gov.pay:add_resource_event_heads_govukpay_events_fk
+ALTER TABLE resource_event_heads ADD CONSTRAINT resource_event_heads_govukpay_events_fk FOREIGN KEY (govukpay_event_id) REFERENCES govukpay_events (id);
+--rollback ALTER TABLE resource_event_heads DROP CONSTRAINT resource_event_heads_govukpay_events_fk;
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:delete_duplicate_gocardless_events
+UPDATE resource_event_heads h SET gocardless_event_id = d.kept_id
+    FROM (SELECT id, MIN(id) OVER (PARTITION BY event_id) AS kept_id FROM gocardless_events) d
+    WHERE h.gocardless_event_id = d.id AND d.id <> d.kept_id;
+DELETE FROM gocardless_events e USING gocardless_events kept WHERE e.event_id = kept.event_id AND e.id > kept.id;
+
+--changeset uk.gov.pay:add_gocardless_events_event_id_key runInTransaction:false
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS gocardless_events_event_id_key ON gocardless_events(event_id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS gocardless_events_event_id_key;
@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_extension_pg_trgm
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+--rollback DROP EXTENSION IF EXISTS pg_trgm;
+
+--changeset uk.gov.pay:create_extension_btree_gin
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+--rollback DROP EXTENSION IF EXISTS btree_gin;
+
+--changeset uk.gov.pay:add_mandates_gateway_account_id_service_reference_trgm_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS mandates_gateway_account_id_service_reference_trgm_idx
+    ON mandates USING GIN (gateway_account_id, service_reference gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS mandates_gateway_account_id_service_reference_trgm_idx;
+
+--changeset uk.gov.pay:add_mandates_gateway_account_id_mandate_reference_trgm_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS mandates_gateway_account_id_mandate_reference_trgm_idx
+    ON mandates USING GIN (gateway_account_id, mandate_reference gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS mandates_gateway_account_id_mandate_reference_trgm_idx;
+
+--changeset uk.gov.pay:add_payers_name_trgm_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payers_name_trgm_idx ON payers USING GIN (name gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payers_name_trgm_idx;
+
+--changeset uk.gov.pay:add_payers_email_trgm_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payers_email_trgm_idx ON payers USING GIN (email gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payers_email_trgm_idx;
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_mandates_gateway_account_id_id_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS mandates_gateway_account_id_id_idx ON mandates(gateway_account_id, id DESC);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS mandates_gateway_account_id_id_idx;
+
+--changeset uk.gov.pay:add_mandates_gateway_account_id_state_created_date_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS mandates_gateway_account_id_state_created_date_idx
+    ON mandates(gateway_account_id, state, created_date);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS mandates_gateway_account_id_state_created_date_idx;
+
+--changeset uk.gov.pay:add_payments_mandate_id_id_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payments_mandate_id_id_idx ON payments(mandate_id, id DESC);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payments_mandate_id_id_idx;
+
+--changeset uk.gov.pay:add_payments_mandate_id_state_created_date_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payments_mandate_id_state_created_date_idx
+    ON payments(mandate_id, state, created_date);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payments_mandate_id_state_created_date_idx;
+
+--changeset uk.gov.pay:add_payers_mandate_id_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payers_mandate_id_idx ON payers(mandate_id);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payers_mandate_id_idx;
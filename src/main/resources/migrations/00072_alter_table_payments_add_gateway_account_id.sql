@@ -0,0 +1,32 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:alter_table_payments_add_gateway_account_id
+ALTER TABLE payments ADD COLUMN gateway_account_id BIGINT;
+ALTER TABLE payments ADD CONSTRAINT payments_gateway_accounts_fk FOREIGN KEY (gateway_account_id) REFERENCES gateway_accounts (id) NOT VALID;
+--rollback ALTER TABLE payments DROP COLUMN gateway_account_id;
+
+--changeset uk.gov.pay:backfill_payments_gateway_account_id runInTransaction:false splitStatements:false
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 10000;
+    max_payment_id BIGINT;
+    after_id BIGINT := 0;
+BEGIN
+    SELECT COALESCE(MAX(id), 0) INTO max_payment_id FROM payments;
+    WHILE after_id < max_payment_id LOOP
+        UPDATE payments p SET gateway_account_id = m.gateway_account_id
+            FROM mandates m
+            WHERE m.id = p.mandate_id AND p.id > after_id AND p.id <= after_id + batch_size AND p.gateway_account_id IS NULL;
+        after_id := after_id + batch_size;
+        COMMIT;
+    END LOOP;
+END $$;
+
+--changeset uk.gov.pay:add_payments_gateway_account_id_id_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payments_gateway_account_id_id_idx ON payments(gateway_account_id, id DESC);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payments_gateway_account_id_id_idx;
+
+--changeset uk.gov.pay:add_payments_gateway_account_id_reference_trgm_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS payments_gateway_account_id_reference_trgm_idx
+    ON payments USING GIN (gateway_account_id, reference gin_trgm_ops);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS payments_gateway_account_id_reference_trgm_idx;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_gocardless_customers_payer_id_idx runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS gocardless_customers_payer_id_idx ON gocardless_customers(payer_id, id DESC);
+--rollback DROP INDEX CONCURRENTLY IF EXISTS gocardless_customers_payer_id_idx;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:alter_table_gocardless_events_add_column_claimed_at
+ALTER TABLE gocardless_events ADD COLUMN claimed_at TIMESTAMP WITH TIME ZONE;
+--rollback ALTER TABLE gocardless_events DROP COLUMN claimed_at;
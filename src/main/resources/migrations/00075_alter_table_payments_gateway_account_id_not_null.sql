@@ -0,0 +1,41 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_payments_set_gateway_account_id_trigger splitStatements:false
+CREATE OR REPLACE FUNCTION payments_set_gateway_account_id() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.gateway_account_id IS NULL THEN
+        SELECT gateway_account_id INTO NEW.gateway_account_id FROM mandates WHERE id = NEW.mandate_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER payments_set_gateway_account_id
+    BEFORE INSERT ON payments
+    FOR EACH ROW EXECUTE PROCEDURE payments_set_gateway_account_id();
+--rollback DROP TRIGGER payments_set_gateway_account_id ON payments; DROP FUNCTION payments_set_gateway_account_id();
+
+--changeset uk.gov.pay:backfill_remaining_payments_gateway_account_id runInTransaction:false splitStatements:false
+DO $$
+DECLARE
+    batch_size CONSTANT INT := 10000;
+    updated_rows INT;
+BEGIN
+    LOOP
+        UPDATE payments p SET gateway_account_id = m.gateway_account_id
+            FROM mandates m
+            WHERE m.id = p.mandate_id
+              AND p.id IN (SELECT id FROM payments WHERE gateway_account_id IS NULL LIMIT batch_size);
+        GET DIAGNOSTICS updated_rows = ROW_COUNT;
+        COMMIT;
+        EXIT WHEN updated_rows = 0;
+    END LOOP;
+END $$;
+
+--changeset uk.gov.pay:add_payments_gateway_account_id_not_null_check
+ALTER TABLE payments ADD CONSTRAINT payments_gateway_account_id_not_null CHECK (gateway_account_id IS NOT NULL) NOT VALID;
+--rollback ALTER TABLE payments DROP CONSTRAINT payments_gateway_account_id_not_null;
+
+--changeset uk.gov.pay:validate_payments_gateway_account_id_constraints
+ALTER TABLE payments VALIDATE CONSTRAINT payments_gateway_account_id_not_null;
+ALTER TABLE payments VALIDATE CONSTRAINT payments_gateway_accounts_fk;
@@ -0,0 +1,42 @@
+package uk.gov.pay.directdebit.app.tasks;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InvalidateSunNameCacheTaskTest {
+
+    @Mock
+    private GoCardlessSunNameCache mockSunNameCache;
+
+    private final PrintWriter output = new PrintWriter(new StringWriter());
+
+    @Test
+    public void shouldInvalidateEveryOrganisationWhenNoneAreGiven() {
+        new InvalidateSunNameCacheTask(mockSunNameCache).execute(Map.of(), output);
+
+        verify(mockSunNameCache).invalidateAll();
+        verifyNoMoreInteractions(mockSunNameCache);
+    }
+
+    @Test
+    public void shouldInvalidateOnlyTheGivenOrganisations() {
+        new InvalidateSunNameCacheTask(mockSunNameCache).execute(Map.of("organisation", List.of("OR123", "OR456")), output);
+
+        verify(mockSunNameCache).invalidate(GoCardlessOrganisationId.valueOf("OR123"));
+        verify(mockSunNameCache).invalidate(GoCardlessOrganisationId.valueOf("OR456"));
+        verifyNoMoreInteractions(mockSunNameCache);
+    }
+}
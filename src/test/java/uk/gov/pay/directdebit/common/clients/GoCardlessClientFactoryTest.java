@@ -1,6 +1,9 @@
 package uk.gov.pay.directdebit.common.clients;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.GoCardlessClient;
+import io.dropwizard.util.Duration;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,6 +16,7 @@ import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProviderAccessToken;
 import java.util.Optional;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -22,11 +26,20 @@ public class GoCardlessClientFactoryTest {
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private DirectDebitConfig mockedDirectDebitConfig;
     private GoCardlessClientFactory goCardlessClientFactory;
+    private MetricRegistry metricRegistry = new MetricRegistry();
 
     @Before
     public void setUp() {
         when(mockedDirectDebitConfig.getGoCardless().getEnvironment()).thenReturn(GoCardlessClient.Environment.SANDBOX);
-        goCardlessClientFactory = new GoCardlessClientFactory(mockedDirectDebitConfig);
+        when(mockedDirectDebitConfig.getGoCardless().getMaximumClients()).thenReturn(2);
+        when(mockedDirectDebitConfig.getGoCardless().getClientExpiry()).thenReturn(Duration.hours(1));
+        when(mockedDirectDebitConfig.getGoCardless().getMaximumConcurrentRequests()).thenReturn(10);
+        when(mockedDirectDebitConfig.getGoCardless().getRequestQueueTimeout()).thenReturn(Duration.seconds(5));
+        when(mockedDirectDebitConfig.getGoCardless().getRateLimitPerMinute()).thenReturn(1000);
+        when(mockedDirectDebitConfig.getGoCardless().getRateLimitQueueTimeout()).thenReturn(Duration.seconds(10));
+        when(mockedDirectDebitConfig.getGoCardless().getMaximumRetries()).thenReturn(3);
+        when(mockedDirectDebitConfig.getGoCardless().getRetryBaseDelay()).thenReturn(Duration.milliseconds(500));
+        goCardlessClientFactory = new GoCardlessClientFactory(mockedDirectDebitConfig, metricRegistry);
     }
 
     @Test
@@ -36,5 +49,40 @@ public class GoCardlessClientFactoryTest {
         GoCardlessClientFacade secondClient = goCardlessClientFactory
                 .getClientFor(Optional.of(PaymentProviderAccessToken.of("accessToken")));
         assertThat(firstClient, is(secondClient));
+        assertThat(gauge("gocardless.clients.hits"), is(1L));
+        assertThat(gauge("gocardless.clients.misses"), is(1L));
+    }
+
+    @Test
+    public void shouldDropLeastRecentlyUsedClientBeyondMaximum() {
+        GoCardlessClientFacade firstClient = goCardlessClientFactory
+                .getClientFor(Optional.of(PaymentProviderAccessToken.of("first")));
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("second")));
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("third")));
+
+        assertThat(gauge("gocardless.clients.size"), is(2L));
+        assertThat(gauge("gocardless.clients.evictions"), is(1L));
+        assertThat(goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("first"))),
+                is(not(firstClient)));
+    }
+
+    @Test
+    public void shouldKeepRateLimiterOfAccessTokenWhoseClientWasDropped() {
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("first")));
+        GoCardlessRateLimiter firstRateLimiter = goCardlessClientFactory.getRateLimiterFor(PaymentProviderAccessToken.of("first"));
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("second")));
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("third")));
+
+        goCardlessClientFactory.getClientFor(Optional.of(PaymentProviderAccessToken.of("first")));
+
+        assertThat(gauge("gocardless.clients.evictions"), is(2L));
+        assertThat(gauge("gocardless.rate-limiters.size"), is(3L));
+        assertThat(goCardlessClientFactory.getRateLimiterFor(PaymentProviderAccessToken.of("first")), is(firstRateLimiter));
+        assertThat(goCardlessClientFactory.getRateLimiterFor(PaymentProviderAccessToken.of("second")),
+                is(not(firstRateLimiter)));
+    }
+
+    private Object gauge(String name) {
+        return ((Gauge<?>) metricRegistry.getGauges().get(name)).getValue();
     }
 }
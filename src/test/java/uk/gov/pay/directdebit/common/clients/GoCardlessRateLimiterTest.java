@@ -0,0 +1,192 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.MetricRegistry;
+import com.gocardless.errors.GoCardlessApiException;
+import com.gocardless.errors.InvalidApiUsageException;
+import com.gocardless.errors.ValidationFailedException;
+import com.gocardless.http.ApiResponse;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GoCardlessRateLimiterTest {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MutableClock clock = new MutableClock(NOW);
+    private final List<Long> sleeps = new ArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Test
+    public void shouldSendRequestsStraightAwayWhileBucketHasTokens() {
+        var limiter = limiter(60, 1000, 3);
+
+        for (int i = 0; i < 60; i++) {
+            assertThat(limiter.execute(() -> response("ok", Map.of())), is("ok"));
+        }
+
+        assertThat(sleeps.isEmpty(), is(true));
+        assertThat(metricRegistry.timer("gocardless.rate-limit.queue-wait").getCount(), is(60L));
+    }
+
+    @Test
+    public void shouldWaitForBucketToRefillOnceEmpty() {
+        var limiter = limiter(60, 1000, 3);
+        for (int i = 0; i < 60; i++) {
+            limiter.execute(() -> response("ok", Map.of()));
+        }
+
+        limiter.execute(() -> response("ok", Map.of()));
+
+        assertThat(sleeps, is(List.of(1000L)));
+    }
+
+    @Test
+    public void shouldWaitUntilRateLimitResetsWhenGoCardlessReportsNoneRemaining() {
+        var limiter = limiter(60, 5000, 3);
+        limiter.execute(() -> response("ok", Map.of(
+                "RateLimit-Remaining", List.of("0"),
+                "RateLimit-Reset", List.of("Mon, 01 Jun 2020 12:00:03 GMT"))));
+
+        limiter.execute(() -> response("ok", Map.of()));
+
+        assertThat(sleeps, is(List.of(3000L)));
+    }
+
+    @Test
+    public void shouldRejectRequestThatWouldWaitLongerThanQueueTimeout() {
+        var limiter = limiter(60, 2000, 3);
+        limiter.execute(() -> response("ok", Map.of(
+                "RateLimit-Remaining", List.of("0"),
+                "RateLimit-Reset", List.of("Mon, 01 Jun 2020 12:01:00 GMT"))));
+
+        try {
+            limiter.execute(() -> response("ok", Map.of()));
+            fail("Expected the rate limit to be exceeded");
+        } catch (GoCardlessRateLimitExceededException expected) {
+        }
+
+        assertThat(sleeps.isEmpty(), is(true));
+        assertThat(metricRegistry.meter("gocardless.rate-limit.rejected").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRetryRequestRejectedForExceedingRateLimitAfterJitteredBackoff() {
+        var limiter = limiter(1000, 10000, 3);
+        InvalidApiUsageException tooManyRequests = exception(InvalidApiUsageException.class, 429);
+
+        String result = limiter.execute(() -> {
+            if (requests.incrementAndGet() < 3) {
+                throw tooManyRequests;
+            }
+            return response("ok", Map.of());
+        });
+
+        assertThat(result, is("ok"));
+        assertThat(requests.get(), is(3));
+        assertThat(metricRegistry.meter("gocardless.rate-limit.throttled").getCount(), is(2L));
+        assertThat(metricRegistry.meter("gocardless.rate-limit.retried").getCount(), is(2L));
+        long totalSleep = sleeps.stream().mapToLong(Long::longValue).sum();
+        assertThat(totalSleep, is(greaterThan(0L)));
+        assertThat(totalSleep, is(lessThanOrEqualTo(100L + 200L + 2 * 60L)));
+    }
+
+    @Test
+    public void shouldGiveUpAfterMaximumRetries() {
+        var limiter = limiter(1000, 10000, 2);
+        InvalidApiUsageException tooManyRequests = exception(InvalidApiUsageException.class, 429);
+
+        try {
+            limiter.execute(() -> {
+                requests.incrementAndGet();
+                throw tooManyRequests;
+            });
+            fail("Expected the request to be rejected");
+        } catch (InvalidApiUsageException e) {
+            assertThat(e, is(tooManyRequests));
+        }
+
+        assertThat(requests.get(), is(3));
+        assertThat(metricRegistry.meter("gocardless.rate-limit.retried").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotRetryOtherGoCardlessErrors() {
+        var limiter = limiter(1000, 10000, 3);
+        ValidationFailedException validationFailed = exception(ValidationFailedException.class, 422);
+
+        try {
+            limiter.execute(() -> {
+                requests.incrementAndGet();
+                throw validationFailed;
+            });
+            fail("Expected the request to fail");
+        } catch (ValidationFailedException e) {
+            assertThat(e, is(validationFailed));
+        }
+
+        assertThat(requests.get(), is(1));
+        assertThat(sleeps.isEmpty(), is(true));
+    }
+
+    private GoCardlessRateLimiter limiter(int requestsPerMinute, long queueTimeoutMillis, int maximumRetries) {
+        return new GoCardlessRateLimiter(requestsPerMinute, queueTimeoutMillis, maximumRetries, 100, metricRegistry,
+                "gocardless", clock, this::sleep, () -> new Random(42));
+    }
+
+    private void sleep(long millis) {
+        sleeps.add(millis);
+        clock.instant = clock.instant.plusMillis(millis);
+    }
+
+    private static <T> ApiResponse<T> response(T resource, Map<String, List<String>> headers) {
+        return new ApiResponse<>(resource, 200, headers);
+    }
+
+    private static <E extends GoCardlessApiException> E exception(Class<E> type, int code) {
+        E exception = mock(type);
+        when(exception.getCode()).thenReturn(code);
+        return exception;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package uk.gov.pay.directdebit.common.clients;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GoCardlessRequestLimiterTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldReturnResultOfRequestAndReleaseItsPermit() {
+        var limiter = new GoCardlessRequestLimiter(1, 10, metricRegistry, "gocardless");
+
+        assertThat(limiter.execute(() -> "first"), is("first"));
+        assertThat(limiter.execute(() -> "second"), is("second"));
+        assertThat(limiter.getRequestsInFlight(), is(0));
+    }
+
+    @Test
+    public void shouldReleasePermitWhenRequestFails() {
+        var limiter = new GoCardlessRequestLimiter(1, 10, metricRegistry, "gocardless");
+
+        try {
+            limiter.execute(() -> {
+                throw new IllegalStateException("GoCardless is down");
+            });
+        } catch (IllegalStateException expected) {
+        }
+
+        assertThat(limiter.getRequestsInFlight(), is(0));
+    }
+
+    @Test(expected = GoCardlessRequestLimitExceededException.class)
+    public void shouldFailRequestWhenMaximumAreInFlightForLongerThanTimeout() throws Exception {
+        var limiter = new GoCardlessRequestLimiter(1, 10, metricRegistry, "gocardless");
+        var requestStarted = new CountDownLatch(1);
+        var releaseRequest = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> inFlight = executor.submit(() -> limiter.execute(() -> {
+                requestStarted.countDown();
+                try {
+                    releaseRequest.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }));
+            requestStarted.await();
+
+            try {
+                limiter.execute(() -> "blocked");
+            } finally {
+                assertThat(metricRegistry.meter("gocardless.requests.rejected").getCount(), is(1L));
+                releaseRequest.countDown();
+                inFlight.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Postgres query plan as returned by {@code EXPLAIN (FORMAT JSON)}, with the questions the query plan tests ask
+ * of it.
+ */
+public class QueryPlan {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JsonNode explained;
+    private final List<JsonNode> nodes = new ArrayList<>();
+
+    private QueryPlan(JsonNode explained) {
+        this.explained = explained;
+        addNodes(explained.get("Plan"));
+    }
+
+    public static QueryPlan parse(String json) {
+        try {
+            return new QueryPlan(OBJECT_MAPPER.readTree(json).get(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean usesIndex(String indexName) {
+        return nodes.stream().anyMatch(node -> node.has("Index Name") && node.get("Index Name").asText().equals(indexName));
+    }
+
+    public boolean usesIndexStartingWith(String indexNamePrefix) {
+        return nodes.stream().anyMatch(node -> node.has("Index Name") && node.get("Index Name").asText().startsWith(indexNamePrefix));
+    }
+
+    public boolean scansWholeTable(String relationName) {
+        return nodes.stream().anyMatch(node -> node.get("Node Type").asText().equals("Seq Scan")
+                && node.get("Relation Name").asText().equals(relationName));
+    }
+
+    /**
+     * How long the statement took to run, in milliseconds; only known if it was explained with {@code ANALYZE}.
+     */
+    public double getExecutionTime() {
+        return explained.get("Execution Time").asDouble();
+    }
+
+    @Override
+    public String toString() {
+        return explained.toPrettyString();
+    }
+
+    private void addNodes(JsonNode node) {
+        nodes.add(node);
+        if (node.has("Plans")) {
+            node.get("Plans").forEach(this::addNodes);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadReplicaDataSourceTest {
+
+    @Mock
+    private ManagedDataSource replica;
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private Connection replicaConnection;
+
+    @Mock
+    private Connection lagCheckConnection;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private ScheduledExecutorService lagCheckExecutor;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private ReadReplicaDataSource readReplicaDataSource;
+
+    @Before
+    public void setUp() {
+        readReplicaDataSource = new ReadReplicaDataSource(replica, primary, Duration.seconds(30), Duration.seconds(5),
+                lagCheckExecutor, metricRegistry);
+    }
+
+    @Test
+    public void shouldScheduleLagCheckWhenStarted() throws Exception {
+        readReplicaDataSource.start();
+
+        verify(replica).start();
+        verify(lagCheckExecutor).scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldUsePrimaryUntilReplicaHasBeenChecked() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(readReplicaDataSource.getConnection(), is(primaryConnection));
+        verifyZeroInteractions(replica);
+    }
+
+    @Test
+    public void shouldUseReplicaWhenItIsWithinTheMaximumLag() throws SQLException {
+        givenReplicaLagOf(2.5);
+        when(replica.getConnection()).thenReturn(lagCheckConnection, replicaConnection);
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(readReplicaDataSource.getConnection(), is(replicaConnection));
+    }
+
+    @Test
+    public void shouldUsePrimaryWhenReplicaIsFurtherBehindThanTheMaximumLag() throws SQLException {
+        givenReplicaLagOf(31.0);
+        when(replica.getConnection()).thenReturn(lagCheckConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(readReplicaDataSource.getConnection(), is(primaryConnection));
+    }
+
+    @Test
+    public void shouldUsePrimaryWhenLagCannotBeChecked() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(readReplicaDataSource.getConnection(), is(primaryConnection));
+    }
+
+    @Test
+    public void shouldUsePrimaryUntilNextCheckWhenReplicaFailsToGiveAConnection() throws SQLException {
+        givenReplicaLagOf(0.0);
+        when(replica.getConnection())
+                .thenReturn(lagCheckConnection)
+                .thenThrow(new SQLException("too many connections"))
+                .thenReturn(lagCheckConnection, replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(readReplicaDataSource.getConnection(), is(primaryConnection));
+        assertThat(readReplicaDataSource.getConnection(), is(primaryConnection));
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(readReplicaDataSource.getConnection(), is(replicaConnection));
+    }
+
+    @Test
+    public void shouldReportWhetherReplicaIsUsableAndItsLagAsMetrics() throws SQLException {
+        givenReplicaLagOf(2.5, 45.0);
+        when(replica.getConnection()).thenReturn(lagCheckConnection);
+
+        assertThat(metricRegistry.getGauges().get("read-replica.usable").getValue(), is(0));
+        assertThat(metricRegistry.getGauges().get("read-replica.lag.seconds").getValue(), is(nullValue()));
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(metricRegistry.getGauges().get("read-replica.usable").getValue(), is(1));
+        assertThat(metricRegistry.getGauges().get("read-replica.lag.seconds").getValue(), is(2.5));
+
+        readReplicaDataSource.checkReplica();
+
+        assertThat(metricRegistry.getGauges().get("read-replica.usable").getValue(), is(0));
+        assertThat(metricRegistry.getGauges().get("read-replica.lag.seconds").getValue(), is(45.0));
+    }
+
+    private void givenReplicaLagOf(double lagSeconds, Double... laterLagSeconds) throws SQLException {
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(lagCheckConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagSeconds, laterLagSeconds);
+    }
+}
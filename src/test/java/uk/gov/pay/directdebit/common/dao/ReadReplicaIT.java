@@ -0,0 +1,116 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.Gauge;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.HttpStatus;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
+import uk.gov.pay.directdebit.junit.PostgresReadReplicaTestDocker;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import static io.dropwizard.testing.ConfigOverride.config;
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static java.lang.String.format;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+/**
+ * Runs the application with a second Postgres container as its read replica. The replica is not fed from the primary,
+ * so a mandate inserted into only one of them shows which one a search read from.
+ */
+public class ReadReplicaIT {
+
+    static {
+        PostgresReadReplicaTestDocker.getOrCreate();
+    }
+
+    @Rule
+    public DropwizardAppWithPostgresRule app = new DropwizardAppWithPostgresRule(
+            config("readReplica.enabled", "true"),
+            config("readReplica.lagCheckInterval", "100ms"),
+            config("readReplica.database.driverClass", "org.postgresql.Driver"),
+            config("readReplica.database.url", PostgresReadReplicaTestDocker.getDbUri()),
+            config("readReplica.database.user", PostgresReadReplicaTestDocker.getDbUsername()),
+            config("readReplica.database.password", PostgresReadReplicaTestDocker.getDbPassword()),
+            config("readReplica.database.checkConnectionOnBorrow", "true"));
+
+    private TestContext testContext;
+    private Jdbi replicaJdbi;
+    private GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+
+    @Before
+    public void setUp() throws InterruptedException {
+        testContext = app.getTestContext();
+        replicaJdbi = Jdbi.create(PostgresReadReplicaTestDocker.getDbUri(), PostgresReadReplicaTestDocker.getDbUsername(),
+                PostgresReadReplicaTestDocker.getDbPassword());
+        gatewayAccountFixture.insert(testContext.getJdbi());
+        gatewayAccountFixture.insert(replicaJdbi);
+        aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withServiceReference("onPrimary")
+                .insert(testContext.getJdbi());
+        aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withServiceReference("onReplica")
+                .insert(replicaJdbi);
+        waitForReplicaToBeChecked();
+    }
+
+    @After
+    public void tearDown() {
+        PostgresReadReplicaTestDocker.reconnect();
+        testContext.getDatabaseTestHelper().truncateAllData();
+        replicaJdbi.useHandle(handle -> {
+            handle.execute("DELETE FROM mandates");
+            handle.execute("DELETE FROM gateway_accounts");
+        });
+    }
+
+    @Test
+    public void shouldSearchMandatesOnTheReadReplica() {
+        givenSetup()
+                .get(format("/v1/api/accounts/%s/mandates", gatewayAccountFixture.getExternalId()))
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body("results", hasSize(1))
+                .body("results[0].service_reference", is("onReplica"));
+    }
+
+    @Test
+    public void shouldSearchMandatesOnThePrimaryWithoutFailingHealthCheckWhenReplicaIsDown() {
+        PostgresReadReplicaTestDocker.disconnect();
+
+        givenSetup()
+                .get(format("/v1/api/accounts/%s/mandates", gatewayAccountFixture.getExternalId()))
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body("results", hasSize(1))
+                .body("results[0].service_reference", is("onPrimary"));
+
+        givenSetup()
+                .get("/healthcheck")
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body("'postgresql-search'.healthy", is(true))
+                .body("postgresql.healthy", is(true));
+    }
+
+    private void waitForReplicaToBeChecked() throws InterruptedException {
+        Gauge<?> replicaUsable = app.getMetricRegistry().getGauges().get("read-replica.usable");
+        for (int attempt = 0; attempt < 50 && replicaUsable.getValue().equals(0); attempt++) {
+            Thread.sleep(100);
+        }
+    }
+
+    private RequestSpecification givenSetup() {
+        return given().port(testContext.getPort()).contentType(JSON);
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.pay.directdebit.common.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.directdebit.common.dao.SearchQueryShape.Mode;
+
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SearchQueryTemplatesTest {
+
+    private enum Filter {NAME, STATE}
+
+    private final AtomicInteger renders = new AtomicInteger();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private SearchQueryTemplates<Filter> searchQueryTemplates;
+
+    @Before
+    public void setUp() {
+        searchQueryTemplates = new SearchQueryTemplates<>("search.test", shape -> {
+            renders.incrementAndGet();
+            return new String("SELECT " + shape);
+        }, metricRegistry);
+    }
+
+    @Test
+    public void shouldRenderEachShapeOnceAndReuseIt() {
+        String first = searchQueryTemplates.get(SearchQueryShape.of(Mode.SELECT_PAGE, EnumSet.of(Filter.NAME)));
+        String second = searchQueryTemplates.get(SearchQueryShape.of(Mode.SELECT_PAGE, EnumSet.of(Filter.NAME)));
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(renders.get(), is(1));
+        assertThat(metricRegistry.meter("search.test.templates.misses").getCount(), is(1L));
+        assertThat(metricRegistry.meter("search.test.templates.hits").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRenderDifferentShapesSeparately() {
+        String byName = searchQueryTemplates.get(SearchQueryShape.of(Mode.SELECT_PAGE, EnumSet.of(Filter.NAME)));
+        String byNameAndState = searchQueryTemplates.get(SearchQueryShape.of(Mode.SELECT_PAGE, EnumSet.of(Filter.NAME, Filter.STATE)));
+        String countByName = searchQueryTemplates.get(SearchQueryShape.of(Mode.COUNT, EnumSet.of(Filter.NAME)));
+
+        assertThat(byName, is(not(byNameAndState)));
+        assertThat(byName, is(not(countByName)));
+        assertThat(searchQueryTemplates.size(), is(3));
+        assertThat(metricRegistry.meter("search.test.templates.misses").getCount(), is(3L));
+        assertThat(metricRegistry.meter("search.test.templates.hits").getCount(), is(0L));
+    }
+}
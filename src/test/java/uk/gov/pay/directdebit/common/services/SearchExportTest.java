@@ -0,0 +1,62 @@
+package uk.gov.pay.directdebit.common.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SearchExportTest {
+
+    private static final SearchExport.Rows<String> ROWS = consumer -> List.of("first", "second").forEach(consumer);
+
+    @Test
+    public void shouldWriteOneJsonObjectPerLine() throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        SearchExport.asNdjson(ROWS, row -> Map.of("value", row), new ObjectMapper()).write(output);
+
+        assertThat(output.toString(UTF_8), is("{\"value\":\"first\"}\n{\"value\":\"second\"}\n"));
+    }
+
+    @Test
+    public void shouldWriteHeaderAndOneCsvLinePerRow() throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        SearchExport.asCsv(ROWS, List.of("value", "length"), row -> List.of(row, String.valueOf(row.length()))).write(output);
+
+        assertThat(output.toString(UTF_8), is("value,length\r\nfirst,5\r\nsecond,6\r\n"));
+    }
+
+    @Test
+    public void shouldWriteNothingButTheHeaderWhenThereAreNoRows() throws IOException {
+        var output = new ByteArrayOutputStream();
+        SearchExport.Rows<String> noRows = consumer -> {};
+
+        SearchExport.asCsv(noRows, List.of("value"), List::of).write(output);
+
+        assertThat(output.toString(UTF_8), is("value\r\n"));
+    }
+
+    @Test
+    public void shouldQuoteCsvValuesContainingSeparatorsQuotesOrNewLines() {
+        assertThat(SearchExport.escapeCsvValue("a,b"), is("\"a,b\""));
+        assertThat(SearchExport.escapeCsvValue("say \"hi\""), is("\"say \"\"hi\"\"\""));
+        assertThat(SearchExport.escapeCsvValue("two\nlines"), is("\"two\nlines\""));
+        assertThat(SearchExport.escapeCsvValue(null), is(""));
+    }
+
+    @Test
+    public void shouldStopSpreadsheetsTreatingCsvValuesAsFormulas() {
+        assertThat(SearchExport.escapeCsvValue("=SUM(A1:A2)"), is("'=SUM(A1:A2)"));
+        assertThat(SearchExport.escapeCsvValue("+44"), is("'+44"));
+        assertThat(SearchExport.escapeCsvValue("@cmd"), is("'@cmd"));
+        assertThat(SearchExport.escapeCsvValue("plain"), is("plain"));
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.events.dao;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -23,6 +24,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.time.ZoneOffset.UTC;
+import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
@@ -41,11 +43,16 @@ public class GoCardlessEventDaoIT {
         goCardlessEventDao = testContext.getJdbi().onDemand(GoCardlessEventDao.class);
     }
 
+    @After
+    public void tearDown() {
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
     @Test
     public void shouldInsertAnEvent() {
         GoCardlessEventFixture goCardlessEventFixture = aGoCardlessEventFixture();
 
-        Long id = goCardlessEventDao.insert(List.of(goCardlessEventFixture.toEntity()));
+        Long id = goCardlessEventDao.insert(List.of(goCardlessEventFixture.toEntity())).get(0).getId();
 
         Map<String, Object> goCardlessEvent = testContext.getDatabaseTestHelper().getGoCardlessEventById(id);
 
@@ -168,4 +175,147 @@ public class GoCardlessEventDaoIT {
         assertThat(event, is(Optional.empty()));
     }
 
+    @Test
+    public void shouldFindLatestApplicableEventForEachOfManyMandates() {
+        GoCardlessEventFixture latestEventForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("MD1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 12, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for MD1"));
+
+        GoCardlessEventFixture earlierEventForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("MD1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 11, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Earlier event for MD1"));
+
+        GoCardlessEventFixture laterEventWrongActionForFirstMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("MD1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Different action")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Later event with the wrong action for MD1"));
+
+        GoCardlessEventFixture latestEventForSecondMandate = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("MD2"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR2"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 10, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for MD2"));
+
+        GoCardlessEventFixture eventForSecondMandateInWrongOrganisation = aGoCardlessEventFixture().withLinksMandate(GoCardlessMandateId.valueOf("MD2"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 13, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Later event for MD2 in the wrong organisation"));
+
+        goCardlessEventDao.insert(List.of(latestEventForFirstMandate.toEntity(), earlierEventForFirstMandate.toEntity(),
+                laterEventWrongActionForFirstMandate.toEntity(), latestEventForSecondMandate.toEntity(),
+                eventForSecondMandateInWrongOrganisation.toEntity()));
+
+        List<GoCardlessEvent> events = goCardlessEventDao.findLatestApplicableEventsForMandates(
+                new String[]{"MD1", "MD2", "MD3"},
+                new String[]{"OR1", "OR2", "OR1"},
+                Set.of("Action we want"));
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for MD1")));
+        assertThat(events.get(1).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for MD2")));
+    }
+
+    @Test
+    public void shouldFindLatestApplicableEventForEachOfManyPayments() {
+        GoCardlessEventFixture latestEventForFirstPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("PM1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 12, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for PM1"));
+
+        GoCardlessEventFixture earlierEventForFirstPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("PM1"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 11, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Earlier event for PM1"));
+
+        GoCardlessEventFixture latestEventForSecondPayment = aGoCardlessEventFixture().withLinksPayment(GoCardlessPaymentId.valueOf("PM2"))
+                .withLinksOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .withAction("Action we want")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 5, 10, 0, 0, 0, UTC))
+                .withGoCardlessEventId(GoCardlessEventId.valueOf("Latest applicable event for PM2"));
+
+        goCardlessEventDao.insert(List.of(latestEventForFirstPayment.toEntity(), earlierEventForFirstPayment.toEntity(),
+                latestEventForSecondPayment.toEntity()));
+
+        List<GoCardlessEvent> events = goCardlessEventDao.findLatestApplicableEventsForPayments(
+                new String[]{"PM1", "PM2"},
+                new String[]{"OR1", "OR1"},
+                Set.of("Action we want"));
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for PM1")));
+        assertThat(events.get(1).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("Latest applicable event for PM2")));
+    }
+
+    @Test
+    public void shouldClaimUnprocessedEventsWhoseClaimHasTimedOut() {
+        aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1")).insert(testContext.getJdbi());
+        aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2")).insert(testContext.getJdbi());
+        aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV3")).insert(testContext.getJdbi());
+        goCardlessEventDao.markAsProcessed(List.of(GoCardlessEventId.valueOf("EV2")));
+
+        List<GoCardlessEvent> claimedEvents = goCardlessEventDao.claimUnprocessedEvents(60000L, 10);
+
+        assertThat(claimedEvents.stream().map(GoCardlessEvent::getGoCardlessEventId).collect(toSet()),
+                is(Set.of(GoCardlessEventId.valueOf("EV1"), GoCardlessEventId.valueOf("EV3"))));
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(60000L, 10).size(), is(0));
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(0L, 10).size(), is(2));
+    }
+
+    @Test
+    public void shouldClaimNoMoreThanTheLimit() {
+        aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1")).insert(testContext.getJdbi());
+        aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2")).insert(testContext.getJdbi());
+
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(60000L, 1).size(), is(1));
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(60000L, 1).size(), is(1));
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(60000L, 1).size(), is(0));
+    }
+
+    @Test
+    public void shouldClaimInsertedEventsForTheInserter() {
+        goCardlessEventDao.insert(List.of(aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1")).toEntity()));
+
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(60000L, 10).size(), is(0));
+    }
+
+    @Test
+    public void shouldOnlyInsertAndReturnEventsThatHaveNotAlreadyBeenStored() {
+        GoCardlessEventFixture redeliveredEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1"));
+        GoCardlessEventFixture newEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2"));
+        goCardlessEventDao.insert(List.of(redeliveredEvent.toEntity()));
+
+        List<GoCardlessEvent> insertedEvents = goCardlessEventDao.insert(List.of(redeliveredEvent.toEntity(), newEvent.toEntity()));
+
+        assertThat(insertedEvents.size(), is(1));
+        assertThat(insertedEvents.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("EV2")));
+        assertThat(testContext.getDatabaseTestHelper().getAllGoCardlessEvents().stream()
+                .filter(event -> Set.of("EV1", "EV2").contains(event.get("event_id")))
+                .count(), is(2L));
+    }
+
+    @Test
+    public void shouldClaimRedeliveredEventsOnlyIfTheyHaveNotBeenProcessedAndTheirClaimHasBeenReleased() {
+        GoCardlessEventFixture failedEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV1"));
+        GoCardlessEventFixture processedEvent = aGoCardlessEventFixture().withGoCardlessEventId(GoCardlessEventId.valueOf("EV2"));
+        goCardlessEventDao.insert(List.of(failedEvent.toEntity(), processedEvent.toEntity()));
+        goCardlessEventDao.markAsProcessed(List.of(GoCardlessEventId.valueOf("EV2")));
+        List<GoCardlessEventId> redeliveredEventIds = List.of(GoCardlessEventId.valueOf("EV1"), GoCardlessEventId.valueOf("EV2"));
+
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(redeliveredEventIds, 60000L).size(), is(0));
+
+        goCardlessEventDao.releaseClaims(redeliveredEventIds);
+        List<GoCardlessEvent> claimedEvents = goCardlessEventDao.claimUnprocessedEvents(redeliveredEventIds, 60000L);
+
+        assertThat(claimedEvents.size(), is(1));
+        assertThat(claimedEvents.get(0).getGoCardlessEventId(), is(GoCardlessEventId.valueOf("EV1")));
+        assertThat(goCardlessEventDao.claimUnprocessedEvents(redeliveredEventIds, 60000L).size(), is(0));
+    }
 }
@@ -15,6 +15,7 @@ import uk.gov.pay.directdebit.payments.model.Payment;
 
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -228,4 +229,101 @@ public class GovUkPayEventDaoIT {
 
         assertThat(govUkPayEvent, is(Optional.empty()));
     }
+
+    @Test
+    public void shouldInsertManyEventsInOneBatch() {
+        var otherMandate = insertOtherMandate();
+        var event = aGovUkPayEventFixture().withMandateId(mandate.getId()).withEventType(MANDATE_USER_SETUP_EXPIRED).toEntity();
+        var otherEvent = aGovUkPayEventFixture().withMandateId(otherMandate.getId()).withEventType(MANDATE_USER_SETUP_EXPIRED).toEntity();
+
+        int[] inserted = govUkPayEventDao.insert(List.of(event, otherEvent));
+
+        assertThat(inserted.length, is(2));
+        assertThat(govUkPayEventDao.findLatestEventForMandate(mandate.getId()).get().getEventType(), is(MANDATE_USER_SETUP_EXPIRED));
+        assertThat(govUkPayEventDao.findLatestEventForMandate(otherMandate.getId()).get().getEventType(), is(MANDATE_USER_SETUP_EXPIRED));
+    }
+
+    @Test
+    public void shouldFindLatestEventForEachOfManyMandates() {
+        var otherMandate = insertOtherMandate();
+        aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T12:30:40Z"))
+                .withEventType(MANDATE_CREATED)
+                .insert(testContext.getJdbi());
+        var latestEvent = aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T13:30:40Z"))
+                .withEventType(MANDATE_SUBMITTED_TO_PROVIDER)
+                .insert(testContext.getJdbi())
+                .toEntity();
+        var otherLatestEvent = aGovUkPayEventFixture()
+                .withMandateId(otherMandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T11:30:40Z"))
+                .withEventType(MANDATE_CREATED)
+                .insert(testContext.getJdbi())
+                .toEntity();
+
+        List<GovUkPayEvent> govUkPayEvents = govUkPayEventDao.findLatestEventsForMandates(List.of(mandate.getId(), otherMandate.getId()));
+
+        assertThat(govUkPayEvents.size(), is(2));
+        assertThat(govUkPayEvents.contains(latestEvent), is(true));
+        assertThat(govUkPayEvents.contains(otherLatestEvent), is(true));
+    }
+
+    @Test
+    public void shouldFindLatestApplicableEventForEachOfManyMandates() {
+        var otherMandate = insertOtherMandate();
+        aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
+                .withEventType(MANDATE_USER_SETUP_EXPIRED)
+                .insert(testContext.getJdbi());
+        var latestApplicableEvent = aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T13:30:40Z"))
+                .withEventType(MANDATE_CREATED)
+                .insert(testContext.getJdbi())
+                .toEntity();
+        aGovUkPayEventFixture()
+                .withMandateId(otherMandate.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T14:30:40Z"))
+                .withEventType(MANDATE_USER_SETUP_EXPIRED)
+                .insert(testContext.getJdbi());
+
+        var applicableEvents = Set.of(MANDATE_CREATED, MANDATE_USER_SETUP_CANCELLED);
+        List<GovUkPayEvent> govUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForMandates(
+                List.of(mandate.getId(), otherMandate.getId()), applicableEvents);
+
+        assertThat(govUkPayEvents, is(List.of(latestApplicableEvent)));
+    }
+
+    @Test
+    public void shouldFindLatestApplicableEventForEachOfManyPayments() {
+        aGovUkPayEventFixture()
+                .withPaymentId(payment.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T12:30:40Z"))
+                .withEventType(PAYMENT_SUBMITTED)
+                .insert(testContext.getJdbi());
+        var latestApplicableEvent = aGovUkPayEventFixture()
+                .withPaymentId(payment.getId())
+                .withEventDate(ZonedDateTime.parse("2019-01-01T13:30:40Z"))
+                .withEventType(PAYMENT_SUBMITTED)
+                .insert(testContext.getJdbi())
+                .toEntity();
+
+        List<GovUkPayEvent> govUkPayEvents = govUkPayEventDao.findLatestApplicableEventsForPayments(
+                List.of(payment.getId()), Set.of(PAYMENT_SUBMITTED));
+
+        assertThat(govUkPayEvents, is(List.of(latestApplicableEvent)));
+    }
+
+    private Mandate insertOtherMandate() {
+        var gatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture();
+        gatewayAccountFixture.insert(testContext.getJdbi());
+        return aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi())
+                .toEntity();
+    }
 }
@@ -0,0 +1,129 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.dao.QueryPlan;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Guards the query plans of the latest applicable event lookups. The SQL is read from the {@link SqlQuery}
+ * annotations on the DAO methods, so the plans are of the statements the DAOs actually run.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class LatestApplicableEventQueryPlansIT {
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    @Test
+    public void latestApplicableGoCardlessEventForMandateUsesCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GoCardlessEventDao.class, "findLatestApplicableEventForMandate",
+                GoCardlessMandateId.class, GoCardlessOrganisationId.class, Set.class), query -> query
+                .bind("goCardlessMandateId", "MD123")
+                .bind("goCardlessOrganisationId", "OR123")
+                .bindList("applicableActions", List.of("active", "failed")));
+
+        assertThat(plan.usesIndex("gocardless_events_links_mandate_organisation_created_at_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGoCardlessEventForPaymentUsesCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GoCardlessEventDao.class, "findLatestApplicableEventForPayment",
+                GoCardlessPaymentId.class, GoCardlessOrganisationId.class, Set.class), query -> query
+                .bind("goCardlessPaymentId", "PM123")
+                .bind("goCardlessOrganisationId", "OR123")
+                .bindList("applicableActions", List.of("paid_out", "failed")));
+
+        assertThat(plan.usesIndex("gocardless_events_links_payment_organisation_created_at_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGoCardlessEventsForManyMandatesUseCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GoCardlessEventDao.class, "findLatestApplicableEventsForMandates",
+                String[].class, String[].class, Set.class), query -> query
+                .bind("goCardlessMandateIds", new String[]{"MD123", "MD456"})
+                .bind("goCardlessOrganisationIds", new String[]{"OR123", "OR123"})
+                .bindList("applicableActions", List.of("active", "failed")));
+
+        assertThat(plan.usesIndex("gocardless_events_links_mandate_organisation_created_at_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGoCardlessEventsForManyPaymentsUseCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GoCardlessEventDao.class, "findLatestApplicableEventsForPayments",
+                String[].class, String[].class, Set.class), query -> query
+                .bind("goCardlessPaymentIds", new String[]{"PM123", "PM456"})
+                .bind("goCardlessOrganisationIds", new String[]{"OR123", "OR123"})
+                .bindList("applicableActions", List.of("paid_out", "failed")));
+
+        assertThat(plan.usesIndex("gocardless_events_links_payment_organisation_created_at_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGovUkPayEventForMandateUsesCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GovUkPayEventDao.class, "findLatestApplicableEventForMandate",
+                Long.class, Set.class), query -> query
+                .bind("mandateId", 1L)
+                .bindList("applicableEventTypes", List.of("MANDATE_CREATED", "MANDATE_USER_SETUP_EXPIRED")));
+
+        assertThat(plan.usesIndex("govukpay_events_mandate_id_event_date_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGovUkPayEventForPaymentUsesCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GovUkPayEventDao.class, "findLatestApplicableEventForPayment",
+                Long.class, Set.class), query -> query
+                .bind("paymentId", 1L)
+                .bindList("applicableEventTypes", List.of("PAYMENT_SUBMITTED")));
+
+        assertThat(plan.usesIndex("govukpay_events_payment_id_event_date_idx")).as(plan.toString()).isTrue();
+    }
+
+    @Test
+    public void latestApplicableGovUkPayEventsForManyMandatesUseCompositeIndex() throws Exception {
+        QueryPlan plan = explain(sqlOf(GovUkPayEventDao.class, "findLatestApplicableEventsForMandates",
+                Collection.class, Set.class), query -> query
+                .bindList("mandateIds", List.of(1L, 2L))
+                .bindList("applicableEventTypes", List.of("MANDATE_CREATED", "MANDATE_USER_SETUP_EXPIRED")));
+
+        assertThat(plan.usesIndex("govukpay_events_mandate_id_event_date_idx")).as(plan.toString()).isTrue();
+    }
+
+    private static String sqlOf(Class<?> dao, String methodName, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return dao.getMethod(methodName, parameterTypes).getAnnotation(SqlQuery.class).value();
+    }
+
+    /**
+     * The test tables are nearly empty, so sequential scans are disabled for the session to make Postgres show the
+     * plan it would use once the tables hold a realistic number of events.
+     */
+    private QueryPlan explain(String sql, Consumer<Query> binder) {
+        return QueryPlan.parse(testContext.getJdbi().withHandle(handle -> {
+            handle.execute("SET enable_seqscan = off");
+            try {
+                Query query = handle.createQuery("EXPLAIN (FORMAT JSON) " + sql);
+                binder.accept(query);
+                return query.mapTo(String.class).one();
+            } finally {
+                handle.execute("RESET enable_seqscan");
+            }
+        }));
+    }
+}
@@ -0,0 +1,179 @@
+package uk.gov.pay.directdebit.events.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.dao.MandateDao;
+import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
+import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.payments.dao.PaymentDao;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static java.time.ZoneOffset.UTC;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.MANDATE;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.PAYMENT;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
+import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.fromMandate;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GovUkPayEventFixture.aGovUkPayEventFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+import static uk.gov.pay.directdebit.payments.model.Payment.PaymentBuilder.fromPayment;
+
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class ResourceEventHeadDaoIT {
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private ResourceEventHeadDao resourceEventHeadDao;
+    private GoCardlessEventDao goCardlessEventDao;
+    private GovUkPayEventDao govUkPayEventDao;
+
+    private GoCardlessMandateId goCardlessMandateId = GoCardlessMandateId.valueOf("MD123");
+    private GoCardlessOrganisationId goCardlessOrganisationId = GoCardlessOrganisationId.valueOf("OR123");
+    private GatewayAccountFixture gatewayAccountFixture;
+    private MandateFixture mandateFixture;
+    private Mandate mandate;
+    private MandateDao mandateDao;
+    private PaymentDao paymentDao;
+
+    @Before
+    public void setUp() {
+        resourceEventHeadDao = testContext.getJdbi().onDemand(ResourceEventHeadDao.class);
+        goCardlessEventDao = testContext.getJdbi().onDemand(GoCardlessEventDao.class);
+        govUkPayEventDao = testContext.getJdbi().onDemand(GovUkPayEventDao.class);
+        mandateDao = testContext.getJdbi().onDemand(MandateDao.class);
+        paymentDao = testContext.getJdbi().onDemand(PaymentDao.class);
+
+        gatewayAccountFixture = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId)
+                .insert(testContext.getJdbi());
+
+        mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withPaymentProviderId(goCardlessMandateId)
+                .insert(testContext.getJdbi());
+        mandate = mandateFixture.toEntity();
+    }
+
+    @Test
+    public void shouldMoveHeadWhenEventsAreInserted() {
+        Long govUkPayEventId = govUkPayEventDao.insert(aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventType(MANDATE_CREATED)
+                .toEntity());
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandate.getId()),
+                is(Optional.of(new ResourceEventHead(MANDATE, mandate.getId(), null, govUkPayEventId))));
+
+        Long goCardlessEventId = goCardlessEventDao.insert(List.of(aGoCardlessEventFixture()
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("active")
+                .toEntity())).get(0).getId();
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandate.getId()),
+                is(Optional.of(new ResourceEventHead(MANDATE, mandate.getId(), goCardlessEventId, govUkPayEventId))));
+    }
+
+    @Test
+    public void shouldNotMoveHeadBackwardsWhenAnEarlierEventArrivesLate() {
+        Long laterGoCardlessEventId = goCardlessEventDao.insert(List.of(aGoCardlessEventFixture()
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("active")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity())).get(0).getId();
+
+        goCardlessEventDao.insert(List.of(aGoCardlessEventFixture()
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("submitted")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity()));
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandate.getId()).flatMap(ResourceEventHead::getGoCardlessEventId),
+                is(Optional.of(laterGoCardlessEventId)));
+    }
+
+    @Test
+    public void shouldAttributeEventsThatArrivedBeforeTheMandateWasLinkedWhenItIsLinked() {
+        GoCardlessMandateId laterLinkedMandateId = GoCardlessMandateId.valueOf("MD456");
+        var mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        Long goCardlessEventId = goCardlessEventDao.insert(List.of(aGoCardlessEventFixture()
+                .withLinksMandate(laterLinkedMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("active")
+                .toEntity())).get(0).getId();
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandateFixture.getId()), is(Optional.empty()));
+
+        mandateDao.updateReferenceAndPaymentProviderId(fromMandate(mandateFixture.toEntity())
+                .withPaymentProviderId(laterLinkedMandateId)
+                .build());
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandateFixture.getId()),
+                is(Optional.of(new ResourceEventHead(MANDATE, mandateFixture.getId(), goCardlessEventId, null))));
+    }
+
+    @Test
+    public void shouldAttributeEventsThatArrivedBeforeThePaymentWasLinkedWhenItIsLinked() {
+        GoCardlessPaymentId laterLinkedPaymentId = GoCardlessPaymentId.valueOf("PM456");
+        var paymentFixture = aPaymentFixture()
+                .withMandateFixture(mandateFixture)
+                .withPaymentProviderId(null)
+                .insert(testContext.getJdbi());
+        Long goCardlessEventId = goCardlessEventDao.insert(List.of(aGoCardlessEventFixture()
+                .withLinksPayment(laterLinkedPaymentId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("confirmed")
+                .toEntity())).get(0).getId();
+
+        assertThat(resourceEventHeadDao.findByResource(PAYMENT, paymentFixture.getId()), is(Optional.empty()));
+
+        paymentDao.updateProviderIdAndChargeDate(fromPayment(paymentFixture.toEntity())
+                .withProviderId(laterLinkedPaymentId)
+                .build());
+
+        assertThat(resourceEventHeadDao.findByResource(PAYMENT, paymentFixture.getId()),
+                is(Optional.of(new ResourceEventHead(PAYMENT, paymentFixture.getId(), goCardlessEventId, null))));
+    }
+
+    @Test
+    public void shouldRebuildHeadsFromEventHistory() {
+        Long goCardlessEventId = aGoCardlessEventFixture()
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withAction("active")
+                .insert(testContext.getJdbi())
+                .getId();
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandate.getId()), is(Optional.empty()));
+
+        resourceEventHeadDao.rebuildMandateHeads(0, resourceEventHeadDao.findMaxMandateId());
+
+        assertThat(resourceEventHeadDao.findByResource(MANDATE, mandate.getId()),
+                is(Optional.of(new ResourceEventHead(MANDATE, mandate.getId(), goCardlessEventId, null))));
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.pay.directdebit.gatewayaccounts.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GatewayAccountIdCacheTest {
+
+    @Mock
+    private GatewayAccountDao gatewayAccountDao;
+
+    private GatewayAccountIdCache gatewayAccountIdCache;
+
+    @Before
+    public void setUp() {
+        gatewayAccountIdCache = new GatewayAccountIdCache(gatewayAccountDao);
+    }
+
+    @Test
+    public void shouldLookUpAGatewayAccountIdOnlyOnce() {
+        GatewayAccount gatewayAccount = aGatewayAccountFixture().withExternalId("an-external-id").toEntity();
+        when(gatewayAccountDao.findByExternalId("an-external-id")).thenReturn(Optional.of(gatewayAccount));
+
+        assertThat(gatewayAccountIdCache.findIdByExternalId("an-external-id"), is(Optional.of(gatewayAccount.getId())));
+        assertThat(gatewayAccountIdCache.findIdByExternalId("an-external-id"), is(Optional.of(gatewayAccount.getId())));
+
+        verify(gatewayAccountDao, times(1)).findByExternalId("an-external-id");
+    }
+
+    @Test
+    public void shouldNotRememberMissingGatewayAccounts() {
+        when(gatewayAccountDao.findByExternalId("missing")).thenReturn(Optional.empty());
+
+        assertThat(gatewayAccountIdCache.findIdByExternalId("missing"), is(Optional.empty()));
+        assertThat(gatewayAccountIdCache.findIdByExternalId("missing"), is(Optional.empty()));
+
+        verify(gatewayAccountDao, times(2)).findByExternalId("missing");
+    }
+}
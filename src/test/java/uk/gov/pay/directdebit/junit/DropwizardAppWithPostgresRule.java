@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.junit;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.ConfigOverride;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import org.junit.rules.RuleChain;
@@ -10,6 +11,8 @@ import uk.gov.pay.directdebit.DirectDebitConnectorApp;
 import uk.gov.pay.directdebit.app.config.DirectDebitConfig;
 import uk.gov.pay.directdebit.util.DatabaseTestHelper;
 
+import java.util.stream.Stream;
+
 import static io.dropwizard.testing.ConfigOverride.config;
 import static io.dropwizard.testing.ResourceHelpers.resourceFilePath;
 import static uk.gov.pay.directdebit.junit.PostgresTestDocker.getDbPassword;
@@ -26,10 +29,13 @@ public class DropwizardAppWithPostgresRule implements TestRule {
     private TestContext testContext;
     private DatabaseTestHelper databaseTestHelper;
 
-    public DropwizardAppWithPostgresRule() {
+    public DropwizardAppWithPostgresRule(ConfigOverride... additionalConfigOverrides) {
         configFilePath = resourceFilePath("config/test-it-config.yaml");
         getOrCreate();
-        ConfigOverride[] configOverride = {config("database.url", getDbUri()), config("database.user", getDbUsername()), config("database.password", getDbPassword())};
+        ConfigOverride[] configOverride = Stream.concat(
+                Stream.of(config("database.url", getDbUri()), config("database.user", getDbUsername()), config("database.password", getDbPassword())),
+                Stream.of(additionalConfigOverrides))
+                .toArray(ConfigOverride[]::new);
         app = new DropwizardAppRule<>(
                 DirectDebitConnectorApp.class,
                 configFilePath,
@@ -54,6 +60,10 @@ public class DropwizardAppWithPostgresRule implements TestRule {
         return app.getLocalPort();
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return app.getEnvironment().metrics();
+    }
+
     public TestContext getTestContext() {
         return testContext;
     }
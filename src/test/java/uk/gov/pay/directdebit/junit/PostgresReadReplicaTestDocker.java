@@ -0,0 +1,85 @@
+package uk.gov.pay.directdebit.junit;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import uk.gov.pay.commons.testing.db.PostgresContainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static java.sql.DriverManager.getConnection;
+
+/**
+ * A second Postgres container standing in for a read replica. It is a separate database with the same schema as the
+ * one from {@link PostgresTestDocker}, not a streaming replica, so rows only appear in it when a test inserts them
+ * there.
+ */
+public final class PostgresReadReplicaTestDocker {
+
+    private static final String DB_NAME = "directdebit_connector_replica_tests";
+    private static PostgresContainer container;
+
+    private PostgresReadReplicaTestDocker() {
+    }
+
+    public static void getOrCreate() {
+        try {
+            if (container == null) {
+                container = new PostgresContainer();
+                createDatabase();
+                migrateDatabase();
+            }
+        } catch (Exception e) {
+            throw new PostgresTestDockerException(e);
+        }
+    }
+
+    /**
+     * Stops the replica accepting connections and closes the ones it has, as if it had gone down.
+     */
+    public static void disconnect() {
+        executeAsRoot("ALTER DATABASE " + DB_NAME + " ALLOW_CONNECTIONS false");
+        executeAsRoot("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE datname = '" + DB_NAME + "'");
+    }
+
+    public static void reconnect() {
+        executeAsRoot("ALTER DATABASE " + DB_NAME + " ALLOW_CONNECTIONS true");
+    }
+
+    private static void createDatabase() {
+        final String dbUser = getDbUsername();
+        executeAsRoot("CREATE DATABASE " + DB_NAME + " WITH owner=" + dbUser + " TEMPLATE postgres");
+        executeAsRoot("GRANT ALL PRIVILEGES ON DATABASE " + DB_NAME + " TO " + dbUser);
+    }
+
+    private static void migrateDatabase() throws Exception {
+        try (Connection connection = getConnection(getDbUri(), getDbUsername(), getDbPassword())) {
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(),
+                    DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection)))
+                    .update(new Contexts());
+        }
+    }
+
+    private static void executeAsRoot(String sql) {
+        try (Connection connection = getConnection(container.getConnectionUrl(), getDbUsername(), getDbPassword())) {
+            connection.createStatement().execute(sql);
+        } catch (SQLException e) {
+            throw new PostgresTestDockerException(e);
+        }
+    }
+
+    public static String getDbUri() {
+        return container.getConnectionUrl() + DB_NAME;
+    }
+
+    public static String getDbPassword() {
+        return container.getPassword();
+    }
+
+    public static String getDbUsername() {
+        return container.getUsername();
+    }
+}
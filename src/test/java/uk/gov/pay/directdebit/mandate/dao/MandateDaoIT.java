@@ -23,6 +23,7 @@ import uk.gov.pay.directdebit.tokens.fixtures.TokenFixture;
 
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -186,6 +187,30 @@ public class MandateDaoIT {
         assertThat(mandateDao.findByExternalIdAndGatewayAccountExternalId(mandateFixture.getExternalId(), "xxxx"), is(Optional.empty()));
     }
 
+    @Test
+    public void shouldFindMandatesByExternalIdsAndGatewayAccountId_ignoringOtherGatewayAccounts() {
+        MandateFixture firstMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        MandateFixture secondMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .insert(testContext.getJdbi());
+        MandateFixture otherGatewayAccountMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(GatewayAccountFixture.aGatewayAccountFixture().insert(testContext.getJdbi()))
+                .insert(testContext.getJdbi());
+
+        List<Mandate> mandates = mandateDao.findByExternalIdsAndGatewayAccountExternalId(new String[]{
+                firstMandateFixture.getExternalId().toString(),
+                secondMandateFixture.getExternalId().toString(),
+                otherGatewayAccountMandateFixture.getExternalId().toString(),
+                "not-a-mandate"
+        }, gatewayAccountFixture.getExternalId());
+
+        assertThat(mandates.size(), is(2));
+        assertThat(Set.of(mandates.get(0).getId(), mandates.get(1).getId()),
+                is(Set.of(firstMandateFixture.getId(), secondMandateFixture.getId())));
+    }
+
     @Test
     public void shouldFindAMandateByPaymentProviderIdAndOrganisationId() {
         MandateExternalId mandateExternalId = MandateExternalId.valueOf("expectedExternalId");
@@ -211,6 +236,41 @@ public class MandateDaoIT {
         assertThat(mandate.getState(), is(CREATED));
     }
 
+    @Test
+    public void shouldFindMandatesForManyPaymentProviderIdAndOrganisationIdPairsAtOnce() {
+        GoCardlessOrganisationId organisation1 = GoCardlessOrganisationId.valueOf("OR1");
+        GoCardlessOrganisationId organisation2 = GoCardlessOrganisationId.valueOf("OR2");
+
+        GatewayAccountFixture gatewayAccount1 = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(organisation1)
+                .insert(testContext.getJdbi());
+        GatewayAccountFixture gatewayAccount2 = GatewayAccountFixture.aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(organisation2)
+                .insert(testContext.getJdbi());
+
+        MandateFixture mandate1 = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccount1)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("MD1"))
+                .insert(testContext.getJdbi());
+        MandateFixture mandate2 = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccount1)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("MD2"))
+                .insert(testContext.getJdbi());
+        MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccount2)
+                .withPaymentProviderId(GoCardlessMandateId.valueOf("MD2"))
+                .insert(testContext.getJdbi());
+
+        List<Mandate> mandates = mandateDao.findByPaymentProviderMandateIdsAndOrganisations(GOCARDLESS,
+                new String[]{"MD1", "MD2", "MD3", "MD1"},
+                new String[]{"OR1", "OR1", "OR1", "OR2"});
+
+        assertThat(mandates.size(), is(2));
+        assertThat(Set.of(mandates.get(0).getId(), mandates.get(1).getId()), is(Set.of(mandate1.getId(), mandate2.getId())));
+    }
+
     @Test
     public void shouldNotFindAMandateByPaymentProviderIdIfOrganisationIdDoesNotMatch() {
         MandateExternalId mandateExternalId = MandateExternalId.valueOf("expectedExternalId");
@@ -497,6 +557,38 @@ public class MandateDaoIT {
         assertThat(mandate.getStateDetailsDescription(), is(Optional.empty()));
     }
 
+    @Test
+    public void shouldUpdateStatesAndDetailsOfManyMandatesInOneBatch() {
+        MandateFixture firstMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withExternalId(MandateExternalId.valueOf("First mandate"))
+                .insert(testContext.getJdbi());
+
+        MandateFixture secondMandateFixture = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withExternalId(MandateExternalId.valueOf("Second mandate"))
+                .withStateDetails("state details before update")
+                .insert(testContext.getJdbi());
+
+        int[] numOfUpdatedMandates = mandateDao.updateStateAndDetails(
+                List.of(firstMandateFixture.getId(), secondMandateFixture.getId()),
+                List.of(ACTIVE, MandateState.FAILED),
+                Arrays.asList("state details", null),
+                Arrays.asList("state details description", null));
+
+        assertThat(numOfUpdatedMandates, is(new int[]{1, 1}));
+
+        Mandate firstMandate = mandateDao.findByExternalId(MandateExternalId.valueOf("First mandate")).get();
+        assertThat(firstMandate.getState(), is(ACTIVE));
+        assertThat(firstMandate.getStateDetails(), is(Optional.of("state details")));
+        assertThat(firstMandate.getStateDetailsDescription(), is(Optional.of("state details description")));
+
+        Mandate secondMandate = mandateDao.findByExternalId(MandateExternalId.valueOf("Second mandate")).get();
+        assertThat(secondMandate.getState(), is(MandateState.FAILED));
+        assertThat(secondMandate.getStateDetails(), is(Optional.empty()));
+        assertThat(secondMandate.getStateDetailsDescription(), is(Optional.empty()));
+    }
+
     @Test
     public void shouldUpdateReferenceAndPaymentProviderId() {
         var bankStatementReference = MandateBankStatementReference.valueOf("newReference");
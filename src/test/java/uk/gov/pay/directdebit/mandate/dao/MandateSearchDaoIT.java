@@ -5,13 +5,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
 import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
 import uk.gov.pay.directdebit.junit.DropwizardTestContext;
 import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
-import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
 import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
@@ -70,7 +72,7 @@ public class MandateSearchDaoIT {
         var searchParams = aMandateSearchParams().withServiceReference(searchString).build();
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate1.getExternalId());
     }
     
     @Test
@@ -80,7 +82,7 @@ public class MandateSearchDaoIT {
                 .withMandateBankStatementReference(MandateBankStatementReference.valueOf(searchString)).build();
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate2.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate2.getExternalId());
     }
     
     @Test
@@ -89,7 +91,7 @@ public class MandateSearchDaoIT {
         var searchParams = aMandateSearchParams().withEmail(searchString).build();
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate1.getExternalId());
     }
 
     @Test
@@ -98,7 +100,7 @@ public class MandateSearchDaoIT {
         var searchParams = aMandateSearchParams().withName(searchString).build();
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate1.getExternalId());
     }
     
     @Test
@@ -106,13 +108,13 @@ public class MandateSearchDaoIT {
         var searchParams = aMandateSearchParams()
                 .withFromDate(String.valueOf(now().minusHours(1)))
                 .build();
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate1.getExternalId());
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
 
         searchParams = aMandateSearchParams()
                 .withFromDate(String.valueOf(now().minusHours(7))).build();
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactlyInAnyOrder(mandate1.toEntity(), mandate2.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactlyInAnyOrder(mandate1.getExternalId(), mandate2.getExternalId());
         total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(2);
     }
@@ -121,13 +123,13 @@ public class MandateSearchDaoIT {
     public void searchByToDate() {
         var searchParams = aMandateSearchParams()
                 .withToDate(String.valueOf(now().minusHours(1))).build();
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate2.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate2.getExternalId());
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
 
         searchParams = aMandateSearchParams()
                 .withToDate(String.valueOf(now())).build();
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactlyInAnyOrder(mandate1.toEntity(), mandate2.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactlyInAnyOrder(mandate1.getExternalId(), mandate2.getExternalId());
         total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(2);
     }
@@ -140,7 +142,7 @@ public class MandateSearchDaoIT {
                 .build();
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate2.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate2.getExternalId());
     }
     
     @Test
@@ -153,7 +155,7 @@ public class MandateSearchDaoIT {
                 .withPage(3)
                 .withDisplaySize(2)
                 .build();
-        List<Mandate> results = mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId());
+        List<MandateSearchRow> results = mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(results).hasSize(2);
         assertThat(results.get(0).getId()).isEqualTo(102L);
         assertThat(results.get(1).getId()).isEqualTo(101L);
@@ -161,6 +163,53 @@ public class MandateSearchDaoIT {
         assertThat(total).isEqualTo(6);
     }
     
+    @Test
+    public void searchAfterCursor() {
+        LongStream.rangeClosed(101, 105).forEach(n -> {
+            aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withId(n).withServiceReference("cursor")
+                    .insert(testContext.getJdbi());
+        });
+        var searchParams = aMandateSearchParams()
+                .withServiceReference("cursor")
+                .withAfter(SearchCursor.encode(104L))
+                .withDisplaySize(2)
+                .build();
+        SearchPage<MandateSearchRow> page = mandateSearchDao.searchPage(searchParams, gatewayAccountFixture.getExternalId());
+        assertThat(page.getResults()).extracting(MandateSearchRow::getId).containsExactly(103L, 102L);
+        assertThat(page.hasPrevious()).isTrue();
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    public void searchBeforeCursor() {
+        LongStream.rangeClosed(101, 105).forEach(n -> {
+            aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withId(n).withServiceReference("cursor")
+                    .insert(testContext.getJdbi());
+        });
+        var searchParams = aMandateSearchParams()
+                .withServiceReference("cursor")
+                .withBefore(SearchCursor.encode(103L))
+                .withDisplaySize(2)
+                .build();
+        SearchPage<MandateSearchRow> page = mandateSearchDao.searchPage(searchParams, gatewayAccountFixture.getExternalId());
+        assertThat(page.getResults()).extracting(MandateSearchRow::getId).containsExactly(105L, 104L);
+        assertThat(page.getFirstId().get()).isEqualTo(105L);
+        assertThat(page.getLastId().get()).isEqualTo(104L);
+        assertThat(page.hasPrevious()).isFalse();
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    public void countMatchingMandatesUpToStopsAtTheLimit() {
+        LongStream.rangeClosed(101, 105).forEach(n -> {
+            aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withId(n).withServiceReference("capped")
+                    .insert(testContext.getJdbi());
+        });
+        var searchParams = aMandateSearchParams().withServiceReference("capped").build();
+        assertThat(mandateSearchDao.countMatchingMandatesUpTo(searchParams, gatewayAccountFixture.getExternalId(), 3)).isEqualTo(3);
+        assertThat(mandateSearchDao.countMatchingMandatesUpTo(searchParams, gatewayAccountFixture.getExternalId(), 10)).isEqualTo(5);
+    }
+
     @Test
     public void searchByDisplaySize() {
         var searchParams = aMandateSearchParams()
@@ -180,7 +229,7 @@ public class MandateSearchDaoIT {
                 .withName("bloggs")
                 .withFromDate(String.valueOf(now().minusHours(1)))
                 .build();
-        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).containsExactly(mandate1.toEntity());
+        assertThat(mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId())).extracting(MandateSearchRow::getExternalId).containsExactly(mandate1.getExternalId());
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(1);
     }
@@ -199,9 +248,37 @@ public class MandateSearchDaoIT {
 
         var results = mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(results).hasSize(2);
-        assertThat(results).containsExactlyInAnyOrder(mandate1.toEntity(), mandate2.toEntity());
+        assertThat(results).extracting(MandateSearchRow::getExternalId).containsExactlyInAnyOrder(mandate1.getExternalId(), mandate2.getExternalId());
 
         var total = mandateSearchDao.countTotalMatchingMandates(searchParams, gatewayAccountFixture.getExternalId());
         assertThat(total).isEqualTo(2);
     }
+
+    @Test
+    public void searchResultsHoldWhatTheSearchResponseNeeds() {
+        var searchParams = aMandateSearchParams().withServiceReference("REF1234").build();
+
+        MandateSearchRow mandate = mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId()).get(0);
+
+        assertThat(mandate.getId()).isEqualTo(mandate1.getId());
+        assertThat(mandate.getExternalId()).isEqualTo(mandate1.getExternalId());
+        assertThat(mandate.getServiceReference()).isEqualTo("REF1234");
+        assertThat(mandate.getState()).isEqualTo(MandateState.SUBMITTED_TO_BANK);
+        assertThat(mandate.getReturnUrl()).isEqualTo(mandate1.getReturnUrl());
+        assertThat(mandate.getGatewayAccountExternalId()).isEqualTo(GATEWAY_ACCOUNT_ID);
+        assertThat(mandate.getPaymentProvider()).isEqualTo(gatewayAccountFixture.getPaymentProvider());
+        assertThat(mandate.getPayerName().get()).isEqualTo("Joe Bloggs");
+        assertThat(mandate.getPayerEmail().get()).isEqualTo("joe.bloggs@example.com");
+    }
+
+    @Test
+    public void searchResultsWithoutPayerHaveNoPayer() {
+        var searchParams = aMandateSearchParams()
+                .withMandateBankStatementReference(MandateBankStatementReference.valueOf("STATEMENT123")).build();
+
+        MandateSearchRow mandate = mandateSearchDao.search(searchParams, gatewayAccountFixture.getExternalId()).get(0);
+
+        assertThat(mandate.getPayerName().isPresent()).isFalse();
+        assertThat(mandate.getPayerEmail().isPresent()).isFalse();
+    }
 }
@@ -0,0 +1,103 @@
+package uk.gov.pay.directdebit.mandate.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.dao.QueryPlan;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static uk.gov.pay.directdebit.mandate.params.MandateSearchParams.MandateSearchParamsBuilder.aMandateSearchParams;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+/**
+ * Guards the query plans of account-scoped mandate searches: each should reach the searching account's mandates
+ * through the composite indexes rather than scanning every account's mandates. The plans are of the SQL that
+ * {@link MandateSearchDao} runs.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class MandateSearchPlanIT {
+
+    private static final int NUMBER_OF_GATEWAY_ACCOUNTS = 50;
+    private static final int MANDATES_PER_GATEWAY_ACCOUNT = 2000;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private List<GatewayAccountFixture> gatewayAccountFixtures;
+    private MandateSearchDao mandateSearchDao;
+
+    @Before
+    public void setUp() {
+        mandateSearchDao = new MandateSearchDao(testContext.getJdbi());
+        gatewayAccountFixtures = IntStream.range(0, NUMBER_OF_GATEWAY_ACCOUNTS)
+                .mapToObj(i -> aGatewayAccountFixture().withExternalId("plan-account-" + i).insert(testContext.getJdbi()))
+                .collect(Collectors.toList());
+
+        testContext.getJdbi().useHandle(handle -> {
+            handle.execute("INSERT INTO mandates(gateway_account_id, external_id, mandate_reference, service_reference, " +
+                    "return_url, state, created_date) " +
+                    "SELECT g.id, 'plan' || g.id || '-' || n, 'MR' || n, 'SR' || n, 'https://example.com/return', " +
+                    "(ARRAY['CREATED', 'AWAITING_DIRECT_DEBIT_DETAILS', 'SUBMITTED_TO_PROVIDER', 'ACTIVE', 'CANCELLED', 'FAILED'])[n % 6 + 1], " +
+                    "now() - (n || ' hours')::interval " +
+                    "FROM gateway_accounts g CROSS JOIN generate_series(1, " + MANDATES_PER_GATEWAY_ACCOUNT + ") AS n " +
+                    "WHERE g.external_id LIKE 'plan-account-%'");
+            handle.execute("INSERT INTO payers(mandate_id, external_id, name, email, bank_account_number_last_two_digits, " +
+                    "bank_account_requires_authorisation, bank_account_number, bank_account_sort_code, created_date) " +
+                    "SELECT id, external_id, 'Payer', 'payer@example.com', '12', false, '12345612', '123456', created_date " +
+                    "FROM mandates WHERE external_id LIKE 'plan%'");
+            handle.execute("ANALYZE gateway_accounts");
+            handle.execute("ANALYZE mandates");
+            handle.execute("ANALYZE payers");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void mandateSearchFindsAccountsMandatesThroughGatewayAccountIndex() {
+        QueryPlan plan = explain(aMandateSearchParams().withDisplaySize(20).build());
+
+        assertThat(plan.usesIndexStartingWith("mandates_gateway_account_id_")).as(plan.toString()).isTrue();
+        assertThat(plan.scansWholeTable("mandates")).as(plan.toString()).isFalse();
+    }
+
+    @Test
+    public void mandateSearchByStateAndDateRangeUsesStateAndCreatedDateIndex() {
+        QueryPlan plan = explain(aMandateSearchParams()
+                .withExternalMandateState("active")
+                .withFromDate(daysAgo(10).toString())
+                .withToDate(daysAgo(5).toString())
+                .withDisplaySize(20)
+                .build());
+
+        assertThat(plan.usesIndex("mandates_gateway_account_id_state_created_date_idx")).as(plan.toString()).isTrue();
+        assertThat(plan.scansWholeTable("mandates")).as(plan.toString()).isFalse();
+    }
+
+    private QueryPlan explain(MandateSearchParams searchParams) {
+        return QueryPlan.parse(testContext.getJdbi().withHandle(handle ->
+                mandateSearchDao.explainSearchPage(handle, searchParams, gatewayAccountFixtures.get(0).getExternalId(), false)));
+    }
+
+    private static ZonedDateTime daysAgo(int days) {
+        return ZonedDateTime.now(ZoneOffset.UTC).minusDays(days);
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.pay.directdebit.mandate.dao;
+
+import org.jdbi.v3.core.Handle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.dao.QueryPlan;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.params.MandateSearchParams;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static uk.gov.pay.directdebit.mandate.params.MandateSearchParams.MandateSearchParamsBuilder.aMandateSearchParams;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+
+/**
+ * Checks that the {@code ILIKE '%…%'} filters used by mandate search are answered from the trigram indexes on a
+ * realistically large account, and logs how long each filter takes with and without them. Loading the mandates
+ * takes a while, so this only runs with the {@code performance-tests} profile.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class MandateSearchTrigramIndexPerformanceIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MandateSearchTrigramIndexPerformanceIT.class);
+
+    private static final int NUMBER_OF_ROWS = 1_000_000;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+    private MandateSearchDao mandateSearchDao;
+
+    @Before
+    public void setUp() {
+        mandateSearchDao = new MandateSearchDao(testContext.getJdbi());
+        gatewayAccountFixture.insert(testContext.getJdbi());
+        testContext.getJdbi().useHandle(handle -> {
+            handle.createUpdate("INSERT INTO mandates(gateway_account_id, external_id, mandate_reference, service_reference, " +
+                    "return_url, state, created_date) " +
+                    "SELECT :gatewayAccountId, 'trgm' || n, upper(substr(md5('mandate' || n), 1, 18)), 'SR-' || md5(n::text), " +
+                    "'https://example.com/return', 'ACTIVE', now() - (n || ' seconds')::interval " +
+                    "FROM generate_series(1, :numberOfRows) AS n")
+                    .bind("gatewayAccountId", gatewayAccountFixture.getId())
+                    .bind("numberOfRows", NUMBER_OF_ROWS)
+                    .execute();
+            handle.execute("INSERT INTO payers(mandate_id, external_id, name, email, bank_account_number_last_two_digits, " +
+                    "bank_account_requires_authorisation, bank_account_number, bank_account_sort_code, created_date) " +
+                    "SELECT id, external_id, 'Payer ' || md5(external_id), md5(external_id) || '@example.com', '12', false, " +
+                    "'12345612', '123456', created_date FROM mandates WHERE external_id LIKE 'trgm%'");
+            handle.execute("ANALYZE mandates");
+            handle.execute("ANALYZE payers");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void searchFiltersAreAnsweredFromTrigramIndexes() {
+        testContext.getJdbi().useHandle(handle -> {
+            assertUsesIndex(handle, aMandateSearchParams()
+                            .withServiceReference(md5Substring(handle, "500000", 12)).withDisplaySize(20).build(),
+                    "mandates_gateway_account_id_service_reference_trgm_idx");
+            assertUsesIndex(handle, aMandateSearchParams()
+                            .withMandateBankStatementReference(MandateBankStatementReference.valueOf(md5Substring(handle, "mandate500000", 10)))
+                            .withDisplaySize(20).build(),
+                    "mandates_gateway_account_id_mandate_reference_trgm_idx");
+            assertUsesIndex(handle, aMandateSearchParams()
+                            .withName(md5Substring(handle, "trgm500000", 12)).withDisplaySize(20).build(),
+                    "payers_name_trgm_idx");
+            assertUsesIndex(handle, aMandateSearchParams()
+                            .withEmail(md5Substring(handle, "trgm500000", 12)).withDisplaySize(20).build(),
+                    "payers_email_trgm_idx");
+        });
+    }
+
+    private void assertUsesIndex(Handle handle, MandateSearchParams searchParams, String indexName) {
+        QueryPlan indexedPlan = explainAnalyze(handle, searchParams);
+
+        handle.execute("SET enable_bitmapscan = off");
+        handle.execute("SET enable_indexscan = off");
+        QueryPlan sequentialPlan = explainAnalyze(handle, searchParams);
+        handle.execute("RESET enable_bitmapscan");
+        handle.execute("RESET enable_indexscan");
+
+        LOGGER.info("Search filtered with {} over {} rows took {} ms using the index and {} ms without it", indexName,
+                NUMBER_OF_ROWS, indexedPlan.getExecutionTime(), sequentialPlan.getExecutionTime());
+
+        assertThat(indexedPlan.usesIndex(indexName)).as(indexedPlan.toString()).isTrue();
+        assertThat(sequentialPlan.usesIndex(indexName)).as(sequentialPlan.toString()).isFalse();
+    }
+
+    private QueryPlan explainAnalyze(Handle handle, MandateSearchParams searchParams) {
+        return QueryPlan.parse(mandateSearchDao.explainSearchPage(handle, searchParams, gatewayAccountFixture.getExternalId(), true));
+    }
+
+    private static String md5Substring(Handle handle, String value, int length) {
+        return handle.createQuery("SELECT substr(md5(:value), 5, :length)")
+                .bind("value", value)
+                .bind("length", length)
+                .mapTo(String.class)
+                .findOnly();
+    }
+}
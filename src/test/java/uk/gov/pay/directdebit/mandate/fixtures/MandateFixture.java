@@ -7,6 +7,7 @@ import uk.gov.pay.directdebit.common.fixtures.DbFixture;
 import uk.gov.pay.directdebit.common.util.RandomIdGenerator;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
@@ -18,6 +19,7 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
 import static uk.gov.pay.directdebit.mandate.model.Mandate.MandateBuilder.aMandate;
+import static uk.gov.pay.directdebit.mandate.model.MandateSearchRow.MandateSearchRowBuilder.aMandateSearchRow;
 
 public class MandateFixture implements DbFixture<MandateFixture, Mandate> {
 
@@ -57,6 +59,10 @@ public class MandateFixture implements DbFixture<MandateFixture, Mandate> {
         return this;
     }
 
+    public GatewayAccountFixture getGatewayAccountFixture() {
+        return gatewayAccountFixture;
+    }
+
     public Long getId() {
         return id;
     }
@@ -200,4 +206,22 @@ public class MandateFixture implements DbFixture<MandateFixture, Mandate> {
                 .withPaymentProviderId(paymentProviderId)
                 .build();
     }
+
+    public MandateSearchRow toSearchRow() {
+        return aMandateSearchRow()
+                .withId(id)
+                .withExternalId(mandateExternalId)
+                .withMandateBankStatementReference(mandateReference)
+                .withServiceReference(serviceReference)
+                .withState(state)
+                .withStateDetails(stateDetails)
+                .withReturnUrl(returnUrl)
+                .withCreatedDate(createdDate)
+                .withPaymentProviderMandateId(paymentProviderId)
+                .withGatewayAccountExternalId(gatewayAccountFixture.getExternalId())
+                .withPaymentProvider(gatewayAccountFixture.getPaymentProvider())
+                .withPayerName(payerFixture != null ? payerFixture.getName() : null)
+                .withPayerEmail(payerFixture != null ? payerFixture.getEmail() : null)
+                .build();
+    }
 }
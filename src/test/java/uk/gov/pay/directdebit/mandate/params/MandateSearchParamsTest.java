@@ -2,9 +2,12 @@ package uk.gov.pay.directdebit.mandate.params;
 
 
 import org.junit.Test;
+import uk.gov.pay.directdebit.common.model.CountMode;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 
 import java.time.LocalDate;
+import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -61,4 +64,20 @@ public class MandateSearchParamsTest {
         assertThat(mandateSearchParams.buildQueryParamString(), is(expectedQuery));
     }
 
+    @Test
+    public void shouldCreateQueryWithCursorInsteadOfPage() {
+        var mandateSearchParams = aMandateSearchParams()
+                .withAfter(SearchCursor.encode(42L))
+                .withDisplaySize(20)
+                .withName("tester")
+                .withCountMode(CountMode.NONE)
+                .build();
+
+        String expectedQuery = "after=" + SearchCursor.encode(42L) + "&display_size=20&name=tester&count_mode=none";
+
+        assertThat(mandateSearchParams.buildQueryParamString(), is(expectedQuery));
+        assertThat(mandateSearchParams.buildQueryParamStringForPage(1), is("page=1&display_size=20&name=tester&count_mode=none"));
+        assertThat(mandateSearchParams.getAfterId(), is(Optional.of(42L)));
+        assertThat(mandateSearchParams.isCursorPagination(), is(true));
+    }
 }
@@ -25,8 +25,11 @@ import java.util.Map;
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.core.Is.is;
 import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
 
@@ -158,6 +161,29 @@ public class MandateResourceSearchIT {
                 .statusCode(HttpStatus.SC_OK);
     }
 
+    @Test
+    public void shouldExportCreatedMandatesWithoutNextUrlsOrNewTokens() {
+        MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .withState(MandateState.CREATED)
+                .withServiceReference("createdMandate")
+                .insert(testContext.getJdbi());
+
+        String body = givenSetup()
+                .get(format("/v1/api/accounts/%s/mandates/export", gatewayAccountFixture.getExternalId()))
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        assertThat(body, containsString("\"service_reference\":\"createdMandate\""));
+        assertThat(body, containsString("\"rel\":\"self\""));
+        assertThat(body, not(containsString("next_url")));
+        int numberOfTokens = testContext.getJdbi().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM tokens").mapTo(Integer.class).one());
+        assertThat(numberOfTokens, is(0));
+    }
+
     private RequestSpecification givenSetup() {
         return given().port(testContext.getPort()).contentType(JSON);
     }
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.mandate.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,7 +12,10 @@ import uk.gov.pay.directdebit.mandate.exception.MandateNotFoundException;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.core.Is.is;
@@ -21,6 +25,8 @@ import static org.mockito.Mockito.ignoreStubs;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MandateQueryServiceTest {
@@ -79,4 +85,19 @@ public class MandateQueryServiceTest {
 
         mandateQueryService.findByGoCardlessMandateIdAndOrganisationId(GOCARDLESS_MANDATE_ID, GOCARDLESS_ORGANISATION_ID);
     }
+
+    @Test
+    public void findByGoCardlessMandateIdsAndOrganisationIdsLooksThemAllUpInOneQuery() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture().withOrganisation(GOCARDLESS_ORGANISATION_ID);
+        Mandate mandate = aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture).withPaymentProviderId(GOCARDLESS_MANDATE_ID).toEntity();
+        given(mockMandateDao.findByPaymentProviderMandateIdsAndOrganisations(GOCARDLESS,
+                new String[]{"MD123", "MD456"}, new String[]{"OR123", "OR123"}))
+                .willReturn(List.of(mandate));
+
+        Map<Pair<GoCardlessMandateId, GoCardlessOrganisationId>, Mandate> result = mandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(
+                Pair.of(GOCARDLESS_MANDATE_ID, GOCARDLESS_ORGANISATION_ID),
+                Pair.of(GoCardlessMandateId.valueOf("MD456"), GOCARDLESS_ORGANISATION_ID)));
+
+        assertThat(result, is(Map.of(Pair.of(GOCARDLESS_MANDATE_ID, GOCARDLESS_ORGANISATION_ID), mandate)));
+    }
 }
@@ -5,13 +5,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.app.config.SearchConfig;
+import uk.gov.pay.directdebit.common.model.CountMode;
+import uk.gov.pay.directdebit.common.model.SearchPage;
+import uk.gov.pay.directdebit.common.services.SearchCounter;
 import uk.gov.pay.directdebit.mandate.dao.MandateSearchDao;
 
 import java.util.List;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 import static uk.gov.pay.directdebit.mandate.params.MandateSearchParams.MandateSearchParamsBuilder.aMandateSearchParams;
 
@@ -26,7 +35,7 @@ public class MandateSearchServiceTest {
 
     @Before
     public void setUp() {
-        mandateSearchService = new MandateSearchService(mockMandateSearchDao);
+        mandateSearchService = new MandateSearchService(mockMandateSearchDao, new SearchCounter(new SearchConfig()));
     }
 
     @Test
@@ -36,13 +45,14 @@ public class MandateSearchServiceTest {
                 .build();
 
         var expectedMandatesForRequestedPage = List.of(
-                aMandateFixture().withServiceReference("expectedReference").toEntity()
+                aMandateFixture().withServiceReference("expectedReference").toSearchRow()
         );
 
         String gatewayAccountExternalId = "expectedGatewayId";
 
         given(mockMandateSearchDao.countTotalMatchingMandates(params, gatewayAccountExternalId)).willReturn(2);
-        given(mockMandateSearchDao.search(params, gatewayAccountExternalId)).willReturn(expectedMandatesForRequestedPage);
+        given(mockMandateSearchDao.searchPage(params, gatewayAccountExternalId))
+                .willReturn(new SearchPage<>(expectedMandatesForRequestedPage, 2L, 2L, false, true));
 
         var searchResults = mandateSearchService.search(params, gatewayAccountExternalId);
 
@@ -67,4 +77,73 @@ public class MandateSearchServiceTest {
         assertThat(searchResults.getMandatesForRequestedPage().size(), is(0));
     }
 
+    @Test
+    public void shouldNotCountMandatesWhenCountModeIsNone() {
+        var params = aMandateSearchParams()
+                .withName("aName")
+                .withCountMode(CountMode.NONE)
+                .build();
+
+        var expectedMandatesForRequestedPage = List.of(
+                aMandateFixture().withServiceReference("expectedReference").toSearchRow()
+        );
+
+        String gatewayAccountExternalId = "expectedGatewayId";
+
+        given(mockMandateSearchDao.searchPage(params, gatewayAccountExternalId))
+                .willReturn(new SearchPage<>(expectedMandatesForRequestedPage, 2L, 2L, false, true));
+
+        var searchResults = mandateSearchService.search(params, gatewayAccountExternalId);
+
+        verify(mockMandateSearchDao, never()).countTotalMatchingMandates(any(), any());
+        assertThat(searchResults.getTotalMatchingMandates(), is(nullValue()));
+        assertThat(searchResults.getMandatesForRequestedPage().size(), is(1));
+        assertThat(searchResults.getSearchPage().hasNext(), is(true));
+    }
+
+    @Test
+    public void shouldCountMandatesOnceWhenPagingThroughTheSameSearch() {
+        var firstPageParams = aMandateSearchParams()
+                .withName("aName")
+                .withDisplaySize(1)
+                .build();
+        var secondPageParams = aMandateSearchParams()
+                .withName("ANAME")
+                .withDisplaySize(1)
+                .withPage(2)
+                .build();
+
+        String gatewayAccountExternalId = "expectedGatewayId";
+
+        given(mockMandateSearchDao.countTotalMatchingMandates(firstPageParams, gatewayAccountExternalId)).willReturn(2);
+        given(mockMandateSearchDao.searchPage(any(), any())).willReturn(SearchPage.empty());
+
+        mandateSearchService.search(firstPageParams, gatewayAccountExternalId);
+        var searchResults = mandateSearchService.search(secondPageParams, gatewayAccountExternalId);
+
+        verify(mockMandateSearchDao, times(1)).countTotalMatchingMandates(any(), any());
+        assertThat(searchResults.getTotalMatchingMandates(), is(2));
+    }
+
+    @Test
+    public void shouldCapTotalWhenCountModeIsEstimateAndThereAreMoreMandatesThanTheLimit() {
+        var params = aMandateSearchParams()
+                .withName("aName")
+                .withCountMode(CountMode.ESTIMATE)
+                .build();
+
+        String gatewayAccountExternalId = "expectedGatewayId";
+        int estimateCountLimit = new SearchConfig().getEstimateCountLimit();
+
+        given(mockMandateSearchDao.countMatchingMandatesUpTo(params, gatewayAccountExternalId, estimateCountLimit + 1))
+                .willReturn(estimateCountLimit + 1);
+        given(mockMandateSearchDao.searchPage(params, gatewayAccountExternalId)).willReturn(SearchPage.empty());
+
+        var searchResults = mandateSearchService.search(params, gatewayAccountExternalId);
+
+        verify(mockMandateSearchDao, never()).countTotalMatchingMandates(any(), any());
+        assertThat(searchResults.getTotalMatchingMandates(), is(estimateCountLimit));
+        assertThat(searchResults.getTotal().isCapped(), is(true));
+        assertThat(searchResults.getTotal().getExactCount(), is(nullValue()));
+    }
 }
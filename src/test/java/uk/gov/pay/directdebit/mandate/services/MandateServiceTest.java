@@ -21,6 +21,7 @@ import uk.gov.pay.directdebit.mandate.api.MandateResponse;
 import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateSearchRow;
 import uk.gov.pay.directdebit.mandate.model.MandateBankStatementReference;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.notifications.services.UserNotificationService;
@@ -47,6 +48,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_CREATED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_TOKEN_EXCHANGED;
@@ -138,6 +140,18 @@ public class MandateServiceTest {
 
     }
 
+    @Test
+    public void exportResponseShouldOnlyHaveSelfLinkAndNotGenerateTokensForCreatedMandate() {
+        MandateSearchRow mandate = aMandateFixture().withState(CREATED).toSearchRow();
+
+        MandateResponse mandateResponse = service.populateMandateExportResponse(mandate, mockUriInfo);
+
+        assertThat(mandateResponse.getLink("self").isPresent(), is(true));
+        assertThat(mandateResponse.getLink("next_url").isEmpty(), is(true));
+        assertThat(mandateResponse.getLink("next_url_post").isEmpty(), is(true));
+        verifyNoInteractions(mockTokenService);
+    }
+
     @Test
     public void findMandateForToken_shouldUpdateTransactionStateAndRegisterEventWhenExchangingTokens() {
         String token = "token";
@@ -12,6 +12,9 @@ import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessMandateState
 import uk.gov.pay.directdebit.mandate.services.sandbox.SandboxMandateStateCalculator;
 import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -78,4 +81,26 @@ public class MandateStateUpdaterTest {
         verify(mockMandateUpdateService, never()).updateState(any(), any());
     }
 
+    @Test
+    public void updatesMandatesWithStatesReturnedByCalculatorForEachPaymentProvider() {
+        Mandate goCardlessMandate = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS)).toEntity();
+        Mandate sandboxMandate = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(SANDBOX)).toEntity();
+        Mandate mandateWithoutNewState = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture().withPaymentProvider(GOCARDLESS)).toEntity();
+
+        var goCardlessMandateState = new DirectDebitStateWithDetails<>(MandateState.ACTIVE);
+        var sandboxMandateState = new DirectDebitStateWithDetails<>(MandateState.SUBMITTED_TO_PROVIDER);
+
+        given(mockGoCardlessMandateStateCalculator.calculateAll(List.of(goCardlessMandate, mandateWithoutNewState)))
+                .willReturn(Map.of(goCardlessMandate, goCardlessMandateState));
+        given(mockSandboxStateCalculator.calculateAll(List.of(sandboxMandate)))
+                .willReturn(Map.of(sandboxMandate, sandboxMandateState));
+
+        mockMandateStateUpdater.updateStatesIfNecessary(List.of(goCardlessMandate, sandboxMandate, mandateWithoutNewState));
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> expectedMandateStates = new HashMap<>();
+        expectedMandateStates.put(goCardlessMandate, goCardlessMandateState);
+        expectedMandateStates.put(sandboxMandate, sandboxMandateState);
+        verify(mockMandateUpdateService).updateStates(expectedMandateStates);
+    }
+
 }
@@ -10,10 +10,14 @@ import uk.gov.pay.directdebit.mandate.dao.MandateDao;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.model.MandateState;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
 
@@ -59,4 +63,27 @@ public class MandateUpdateServiceTest {
         assertThat(updatedMandate.getStateDetails(), is(Optional.of(details)));
         assertThat(updatedMandate.getStateDetailsDescription(), is(Optional.of(description)));
     }
+
+    @Test
+    public void callsToUpdateStatesOfAllMandatesInOneBatch() {
+        Mandate otherMandate = aMandateFixture().toEntity();
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> mandateStates = new LinkedHashMap<>();
+        mandateStates.put(mandate, new DirectDebitStateWithDetails<>(MandateState.ACTIVE, "a-details", "a-description"));
+        mandateStates.put(otherMandate, new DirectDebitStateWithDetails<>(MandateState.FAILED, "other-details", "other-description"));
+
+        mandateUpdateService.updateStates(mandateStates);
+
+        verify(mockMandateDao).updateStateAndDetails(
+                List.of(mandate.getId(), otherMandate.getId()),
+                List.of(MandateState.ACTIVE, MandateState.FAILED),
+                List.of("a-details", "other-details"),
+                List.of("a-description", "other-description"));
+    }
+
+    @Test
+    public void doesNothingWhenThereAreNoStatesToUpdate() {
+        mandateUpdateService.updateStates(Map.of());
+
+        verifyNoInteractions(mockMandateDao);
+    }
 }
@@ -14,9 +14,11 @@ import org.mockito.junit.MockitoRule;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.GatewayAccountMissingOrganisationIdException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.mandate.model.GoCardlessMandateId;
@@ -25,12 +27,18 @@ import uk.gov.pay.directdebit.mandate.model.MandateState;
 import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.MANDATE;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.MANDATE_USER_SETUP_CANCELLED;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
@@ -52,6 +60,9 @@ public class GoCardlessMandateStateCalculatorTest {
     @Mock
     private GovUkPayEventDao mockGovUkPayEventDao;
 
+    @Mock
+    private ResourceEventHeadDao mockResourceEventHeadDao;
+
     @InjectMocks
     private GoCardlessMandateStateCalculator goCardlessMandateStateCalculator;
 
@@ -204,4 +215,112 @@ public class GoCardlessMandateStateCalculatorTest {
 
         goCardlessMandateStateCalculator.calculate(mandate);
     }
+
+    @Test
+    public void calculatesStatesForManyMandatesFromLatestEventsLookedUpInBulk() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId);
+        GoCardlessMandateId otherGoCardlessMandateId = GoCardlessMandateId.valueOf("another-mandate-id");
+        Mandate otherMandate = aMandateFixture()
+                .withPaymentProviderId(otherGoCardlessMandateId)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .toEntity();
+        Mandate mandateWithNoEvents = aMandateFixture()
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .toEntity();
+
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withAction("active")
+                .withLinksMandate(goCardlessMandateId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGoCardlessEventDao.findLatestApplicableEventsForMandates(
+                new String[]{goCardlessMandateId.toString(), otherGoCardlessMandateId.toString()},
+                new String[]{goCardlessOrganisationId.toString(), goCardlessOrganisationId.toString()},
+                GOCARDLESS_ACTIONS_THAT_CHANGE_MANDATE_STATE))
+                .willReturn(List.of(goCardlessEvent));
+
+        GovUkPayEvent earlierGovUkPayEvent = aGovUkPayEventFixture()
+                .withMandateId(mandate.getId())
+                .withEventType(MANDATE_USER_SETUP_CANCELLED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        GovUkPayEvent otherGovUkPayEvent = aGovUkPayEventFixture()
+                .withMandateId(otherMandate.getId())
+                .withEventType(MANDATE_USER_SETUP_CANCELLED)
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForMandates(
+                List.of(mandate.getId(), otherMandate.getId(), mandateWithNoEvents.getId()),
+                GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE))
+                .willReturn(List.of(earlierGovUkPayEvent, otherGovUkPayEvent));
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> result
+                = goCardlessMandateStateCalculator.calculateAll(List.of(mandate, otherMandate, mandateWithNoEvents));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(mandate).getState(), is(MandateState.ACTIVE));
+        assertThat(result.get(otherMandate).getState(), is(MandateState.USER_SETUP_CANCELLED));
+    }
+
+    @Test
+    public void resolvesStateFromEventHeadWithoutLookingThroughEventHistory() {
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withId(10L)
+                .withAction("active")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withId(20L)
+                .withEventType(MANDATE_USER_SETUP_CANCELLED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockResourceEventHeadDao.findByResource(MANDATE, mandate.getId()))
+                .willReturn(Optional.of(new ResourceEventHead(MANDATE, mandate.getId(), 10L, 20L)));
+        given(mockGoCardlessEventDao.findById(10L)).willReturn(Optional.of(goCardlessEvent));
+        given(mockGovUkPayEventDao.findById(20L)).willReturn(Optional.of(govUkPayEvent));
+
+        Optional<DirectDebitStateWithDetails<MandateState>> result = goCardlessMandateStateCalculator.calculate(mandate);
+
+        assertThat(result.get().getState(), is(MandateState.USER_SETUP_CANCELLED));
+        verify(mockGoCardlessEventDao, never()).findLatestApplicableEventForMandate(any(), any(), any());
+        verify(mockGovUkPayEventDao, never()).findLatestApplicableEventForMandate(any(), any());
+    }
+
+    @Test
+    public void calculatesStatesForManyMandatesFromEventHeadsFallingBackToEventHistory() {
+        GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId);
+        Mandate mandateWithHead = aMandateFixture()
+                .withId(1L)
+                .withPaymentProviderId(goCardlessMandateId)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .toEntity();
+        Mandate mandateWithoutHead = aMandateFixture()
+                .withId(2L)
+                .withGatewayAccountFixture(gatewayAccountFixture)
+                .toEntity();
+
+        given(mockResourceEventHeadDao.findByResources(MANDATE, List.of(1L, 2L)))
+                .willReturn(List.of(new ResourceEventHead(MANDATE, 1L, 10L, null)));
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withId(10L).withAction("active").toEntity();
+        given(mockGoCardlessEventDao.findByIds(List.of(10L))).willReturn(List.of(goCardlessEvent));
+
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withMandateId(2L)
+                .withEventType(MANDATE_USER_SETUP_CANCELLED)
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForMandates(List.of(2L), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_MANDATE_STATE))
+                .willReturn(List.of(govUkPayEvent));
+
+        Map<Mandate, DirectDebitStateWithDetails<MandateState>> result
+                = goCardlessMandateStateCalculator.calculateAll(List.of(mandateWithHead, mandateWithoutHead));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(mandateWithHead).getState(), is(MandateState.ACTIVE));
+        assertThat(result.get(mandateWithoutHead).getState(), is(MandateState.USER_SETUP_CANCELLED));
+        verify(mockGovUkPayEventDao, never()).findByIds(any());
+    }
 }
@@ -0,0 +1,199 @@
+package uk.gov.pay.directdebit.mandate.services.gocardless;
+
+import io.dropwizard.util.Duration;
+import org.junit.Test;
+import uk.gov.pay.directdebit.common.model.subtype.SunName;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GoCardlessSunNameCacheTest {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+    private static final GoCardlessOrganisationId ORGANISATION = GoCardlessOrganisationId.valueOf("OR123");
+    private static final Optional<SunName> SUN_NAME = Optional.of(SunName.of("Test SUN Name"));
+    private static final Optional<SunName> NEW_SUN_NAME = Optional.of(SunName.of("New SUN Name"));
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final QueuedExecutor refreshExecutor = new QueuedExecutor();
+    private final GoCardlessSunNameCache cache = new GoCardlessSunNameCache(Duration.hours(1), refreshExecutor, clock);
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Test
+    public void shouldFetchSunNameOnlyOnceWithinRefreshInterval() {
+        assertThat(cache.get(ORGANISATION, countingFetch(SUN_NAME)), is(SUN_NAME));
+        clock.instant = NOW.plusSeconds(3599);
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(SUN_NAME));
+
+        assertThat(fetches.get(), is(1));
+    }
+
+    @Test
+    public void shouldKeepReturningOldSunNameWhileRefreshingInBackground() {
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+        clock.instant = NOW.plusSeconds(3600);
+
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(SUN_NAME));
+        assertThat(fetches.get(), is(1));
+
+        refreshExecutor.runQueued();
+
+        assertThat(fetches.get(), is(2));
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(NEW_SUN_NAME));
+    }
+
+    @Test
+    public void shouldStartOnlyOneRefreshAtATime() {
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+        clock.instant = NOW.plusSeconds(3600);
+
+        cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME));
+        cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME));
+        refreshExecutor.runQueued();
+
+        assertThat(fetches.get(), is(2));
+    }
+
+    @Test
+    public void shouldKeepUsingOldSunNameAndTryAgainWhenRefreshFails() {
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+        clock.instant = NOW.plusSeconds(7200);
+
+        assertThat(cache.get(ORGANISATION, failingFetch()), is(SUN_NAME));
+        refreshExecutor.runQueued();
+
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(SUN_NAME));
+        refreshExecutor.runQueued();
+
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(NEW_SUN_NAME));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldThrowWhenFirstFetchFails() {
+        cache.get(ORGANISATION, failingFetch());
+    }
+
+    @Test
+    public void shouldFetchSunNameAgainOnceInvalidated() {
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+        cache.invalidate(ORGANISATION);
+
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(NEW_SUN_NAME));
+        assertThat(fetches.get(), is(2));
+    }
+
+    @Test
+    public void shouldNotRestoreSunNameInvalidatedWhileRefreshing() {
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+        clock.instant = NOW.plusSeconds(3600);
+        cache.get(ORGANISATION, countingFetch(SUN_NAME));
+
+        cache.invalidate(ORGANISATION);
+        refreshExecutor.runQueued();
+
+        assertThat(cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)), is(NEW_SUN_NAME));
+    }
+
+    @Test
+    public void shouldShareOneFetchBetweenConcurrentRequestsForUncachedOrganisation() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<SunName>> first = executorService.submit(() -> cache.get(ORGANISATION, () -> {
+                fetches.incrementAndGet();
+                fetchStarted.countDown();
+                awaitUninterruptibly(releaseFetch);
+                return SUN_NAME;
+            }));
+            fetchStarted.await();
+            Future<Optional<SunName>> second = executorService.submit(() -> cache.get(ORGANISATION, countingFetch(NEW_SUN_NAME)));
+            Thread.sleep(100);
+            releaseFetch.countDown();
+
+            assertThat(first.get(), is(SUN_NAME));
+            assertThat(second.get(), is(SUN_NAME));
+            assertThat(fetches.get(), is(1));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCacheOrganisationsWithoutSunName() {
+        cache.get(ORGANISATION, countingFetch(Optional.empty()));
+
+        assertThat(cache.get(ORGANISATION, countingFetch(SUN_NAME)), is(Optional.empty()));
+        assertThat(fetches.get(), is(1));
+    }
+
+    private Supplier<Optional<SunName>> countingFetch(Optional<SunName> sunName) {
+        return () -> {
+            fetches.incrementAndGet();
+            return sunName;
+        };
+    }
+
+    private static Supplier<Optional<SunName>> failingFetch() {
+        return () -> {
+            throw new IllegalStateException("GoCardless is unavailable");
+        };
+    }
+
+    private static class QueuedExecutor implements Executor {
+
+        private final Queue<Runnable> queued = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        private void runQueued() {
+            while (!queued.isEmpty()) {
+                queued.remove().run();
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
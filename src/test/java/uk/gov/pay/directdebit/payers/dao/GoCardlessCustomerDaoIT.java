@@ -1,6 +1,7 @@
 package uk.gov.pay.directdebit.payers.dao;
 
 import java.util.Map;
+import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +13,7 @@ import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
 import uk.gov.pay.directdebit.payers.fixtures.GoCardlessCustomerFixture;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
+import uk.gov.pay.directdebit.payers.model.GoCardlessCustomer;
 import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
 import uk.gov.pay.directdebit.payments.fixtures.PaymentFixture;
 
@@ -73,4 +75,23 @@ public class GoCardlessCustomerDaoIT {
         assertThat(goCardlessCustomerAfterUpdate.get("customer_id"), is(CUSTOMER_ID));
         assertThat(goCardlessCustomerAfterUpdate.get("customer_bank_account_id"), is("newBankAccountId"));
     }
+
+    @Test
+    public void shouldFindAGoCardlessCustomerByPayerId() {
+        goCardlessCustomerFixture.insert(testContext.getJdbi());
+
+        GoCardlessCustomer foundGoCardlessCustomer = goCardlessCustomerDao.findByPayerId(payerFixture.getId()).get();
+
+        assertThat(foundGoCardlessCustomer.getId(), is(goCardlessCustomerFixture.getId()));
+        assertThat(foundGoCardlessCustomer.getPayerId(), is(payerFixture.getId()));
+        assertThat(foundGoCardlessCustomer.getCustomerId(), is(CUSTOMER_ID));
+        assertThat(foundGoCardlessCustomer.getCustomerBankAccountId(), is(CUSTOMER_BANK_ACCOUNT_ID));
+    }
+
+    @Test
+    public void shouldNotFindAGoCardlessCustomerForAPayerWithoutOne() {
+        Optional<GoCardlessCustomer> foundGoCardlessCustomer = goCardlessCustomerDao.findByPayerId(payerFixture.getId());
+
+        assertThat(foundGoCardlessCustomer.isPresent(), is(false));
+    }
 }
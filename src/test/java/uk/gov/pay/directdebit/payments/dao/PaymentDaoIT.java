@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
@@ -22,6 +23,7 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +33,7 @@ import static java.time.Month.JULY;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_CREATED;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.SANDBOX;
 import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
@@ -76,6 +79,7 @@ public class PaymentDaoIT {
         Map<String, Object> foundPayment = testContext.getDatabaseTestHelper().getPaymentById(id);
         assertThat(foundPayment.get("id"), is(id));
         assertThat(foundPayment.get("mandate_id"), is(testMandate.getId()));
+        assertThat(foundPayment.get("gateway_account_id"), is(testGatewayAccount.getId()));
         assertThat((Long) foundPayment.get("amount"), isNumber(AMOUNT));
         assertThat(PaymentState.valueOf((String) foundPayment.get("state")), is(STATE));
         assertThat(foundPayment.get("payment_provider_id"), is("expectedPaymentProviderId"));
@@ -97,6 +101,23 @@ public class PaymentDaoIT {
         assertThat(foundPayment.get("payment_provider_id"), is(nullValue()));
     }
 
+    @Test
+    public void shouldInsertPaymentsWithAnEventForEach() {
+        PaymentFixture otherPayment = generateNewPaymentFixture(testMandate, STATE, AMOUNT);
+
+        List<Payment> insertedPayments = paymentDao.insertWithEvents(List.of(testPayment.toEntity(), otherPayment.toEntity()),
+                PAYMENT_CREATED);
+
+        assertThat(insertedPayments.size(), is(2));
+        assertThat(insertedPayments.get(1).getExternalId(), is(otherPayment.getExternalId()));
+        GovUkPayEventDao govUkPayEventDao = testContext.getJdbi().onDemand(GovUkPayEventDao.class);
+        for (Payment insertedPayment : insertedPayments) {
+            assertThat(testContext.getDatabaseTestHelper().getPaymentById(insertedPayment.getId()).get("external_id"),
+                    is(insertedPayment.getExternalId()));
+            assertThat(govUkPayEventDao.findLatestEventForPayment(insertedPayment.getId()).get().getEventType(), is(PAYMENT_CREATED));
+        }
+    }
+
     @Test
     public void shouldGetAPaymentById() {
         SandboxPaymentId providerId = SandboxPaymentId.valueOf("expectedPaymentProviderId");
@@ -167,6 +188,42 @@ public class PaymentDaoIT {
         assertThat(payment.getCreatedDate(), is(testPayment.getCreatedDate()));
     }
 
+    @Test
+    public void shouldGetPaymentsForManyProviderIdAndOrganisationIdPairsAtOnce() {
+        testGatewayAccount = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(GoCardlessOrganisationId.valueOf("OR1"))
+                .insert(testContext.getJdbi());
+        GatewayAccountFixture otherGatewayAccount = aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(GoCardlessOrganisationId.valueOf("OR2"))
+                .insert(testContext.getJdbi());
+
+        testMandate = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi());
+        MandateFixture otherMandate = MandateFixture.aMandateFixture()
+                .withGatewayAccountFixture(otherGatewayAccount)
+                .insert(testContext.getJdbi());
+
+        PaymentFixture payment1 = generateNewPaymentFixture(testMandate, STATE, AMOUNT)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("PM1"))
+                .insert(testContext.getJdbi());
+        PaymentFixture payment2 = generateNewPaymentFixture(testMandate, STATE, AMOUNT)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("PM2"))
+                .insert(testContext.getJdbi());
+        generateNewPaymentFixture(otherMandate, STATE, AMOUNT)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("PM3"))
+                .insert(testContext.getJdbi());
+
+        List<Payment> payments = paymentDao.findPaymentsByProviderIdsAndOrganisationIds(GOCARDLESS,
+                new String[]{"PM1", "PM2", "PM3", "PM4"},
+                new String[]{"OR1", "OR1", "OR1", "OR1"});
+
+        assertThat(payments.size(), is(2));
+        assertThat(Set.of(payments.get(0).getId(), payments.get(1).getId()), is(Set.of(payment1.getId(), payment2.getId())));
+    }
+
     @Test
     public void shouldReturnEmptyWhenProviderIdMatchesButPaymentProviderServiceIdDoesNotMatch() {
         var goCardlessOrganisationId = GoCardlessOrganisationId.valueOf("orgId");
@@ -363,6 +420,29 @@ public class PaymentDaoIT {
         assertThat((Timestamp) transactionAfterUpdate.get("created_date"), isDate(testPayment.getCreatedDate()));
     }
 
+    @Test
+    public void shouldUpdateStatesAndDetailsOfManyPaymentsInOneBatch() {
+        testPayment.insert(testContext.getJdbi());
+        PaymentFixture otherPayment = generateNewPaymentFixture(testMandate, STATE, AMOUNT).insert(testContext.getJdbi());
+
+        int[] numOfUpdatedPayments = paymentDao.updateStateAndDetails(
+                List.of(testPayment.getId(), otherPayment.getId()),
+                List.of(PaymentState.PAID_OUT, PaymentState.FAILED),
+                Arrays.asList(null, "failure details"),
+                Arrays.asList(null, "failure description"));
+
+        assertThat(numOfUpdatedPayments, is(new int[]{1, 1}));
+
+        Map<String, Object> paymentAfterUpdate = testContext.getDatabaseTestHelper().getPaymentById(testPayment.getId());
+        assertThat(paymentAfterUpdate.get("state"), is(PaymentState.PAID_OUT.toString()));
+        assertThat(paymentAfterUpdate.get("state_details"), is(nullValue()));
+
+        Map<String, Object> otherPaymentAfterUpdate = testContext.getDatabaseTestHelper().getPaymentById(otherPayment.getId());
+        assertThat(otherPaymentAfterUpdate.get("state"), is(PaymentState.FAILED.toString()));
+        assertThat(otherPaymentAfterUpdate.get("state_details"), is("failure details"));
+        assertThat(otherPaymentAfterUpdate.get("state_details_description"), is("failure description"));
+    }
+
     @Test
     public void shouldUpdateProviderIdAndChargeDateAndReturnNumberOfAffectedRows() {
         LocalDate chargeDate = LocalDate.of(1969, JULY, 16);
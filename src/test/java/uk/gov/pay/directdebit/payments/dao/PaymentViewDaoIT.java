@@ -4,6 +4,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.junit.DropwizardConfig;
 import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
 import uk.gov.pay.directdebit.junit.DropwizardTestContext;
@@ -18,6 +20,7 @@ import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.Matchers.hasSize;
@@ -262,4 +265,64 @@ public class PaymentViewDaoIT {
         assertThat(payments.size(), is(1));
         assertThat(payments.get(0).getReference(), is(mandate1Payment2.getReference()));
     }
+
+    @Test
+    public void searchAfterCursor_shouldReturnOlderPaymentsAndCursorsForNeighbouringPages() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(1)
+                .withAfter(SearchCursor.encode(3L))
+                .build();
+
+        SearchPage<PaymentResponse> page = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(page.getResults(), hasSize(1));
+        assertThat(page.getResults().get(0).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(page.getFirstId(), is(Optional.of(2L)));
+        assertThat(page.getLastId(), is(Optional.of(2L)));
+        assertThat(page.hasPrevious(), is(true));
+        assertThat(page.hasNext(), is(true));
+    }
+
+    @Test
+    public void searchAfterCursor_shouldReportNoNextPage_whenOnTheOldestPayments() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withAfter(SearchCursor.encode(2L))
+                .build();
+
+        SearchPage<PaymentResponse> page = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(page.getResults(), hasSize(1));
+        assertThat(page.getResults().get(0).getReference(), is(mandate1Payment1.getReference()));
+        assertThat(page.hasNext(), is(false));
+    }
+
+    @Test
+    public void searchBeforeCursor_shouldReturnNewerPaymentsNewestFirst() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(2)
+                .withBefore(SearchCursor.encode(1L))
+                .build();
+
+        SearchPage<PaymentResponse> page = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(page.getResults(), hasSize(2));
+        assertThat(page.getResults().get(0).getReference(), is(mandate2Payment1.getReference()));
+        assertThat(page.getResults().get(1).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(page.getFirstId(), is(Optional.of(3L)));
+        assertThat(page.getLastId(), is(Optional.of(2L)));
+        assertThat(page.hasPrevious(), is(false));
+        assertThat(page.hasNext(), is(true));
+    }
+
+    @Test
+    public void searchByPage_shouldReportWhetherThereAreNeighbouringPages() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(1)
+                .withPage(2)
+                .build();
+
+        SearchPage<PaymentResponse> page = paymentViewDao.searchPaymentViewPage(searchParams, GATEWAY_ACCOUNT_ID);
+        assertThat(page.getResults(), hasSize(1));
+        assertThat(page.getResults().get(0).getReference(), is(mandate1Payment2.getReference()));
+        assertThat(page.hasPrevious(), is(true));
+        assertThat(page.hasNext(), is(true));
+    }
 }
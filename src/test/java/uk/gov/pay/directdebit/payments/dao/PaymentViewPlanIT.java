@@ -0,0 +1,82 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.dao.QueryPlan;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams.PaymentViewSearchParamsBuilder.aPaymentViewSearchParams;
+
+/**
+ * Guards the query plan of account-scoped payment searches: they should reach the searching account's payments
+ * through the composite index rather than scanning every account's payments or mandates. The plans are of the SQL
+ * that {@link PaymentViewDao} runs.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class PaymentViewPlanIT {
+
+    private static final int NUMBER_OF_GATEWAY_ACCOUNTS = 50;
+    private static final int MANDATES_PER_GATEWAY_ACCOUNT = 2000;
+    private static final int PAYMENTS_PER_MANDATE = 2;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private List<GatewayAccountFixture> gatewayAccountFixtures;
+    private PaymentViewDao paymentViewDao;
+
+    @Before
+    public void setUp() {
+        paymentViewDao = new PaymentViewDao(testContext.getJdbi());
+        gatewayAccountFixtures = IntStream.range(0, NUMBER_OF_GATEWAY_ACCOUNTS)
+                .mapToObj(i -> aGatewayAccountFixture().withExternalId("plan-account-" + i).insert(testContext.getJdbi()))
+                .collect(Collectors.toList());
+
+        testContext.getJdbi().useHandle(handle -> {
+            handle.execute("INSERT INTO mandates(gateway_account_id, external_id, mandate_reference, service_reference, " +
+                    "return_url, state, created_date) " +
+                    "SELECT g.id, 'plan' || g.id || '-' || n, 'MR' || n, 'SR' || n, 'https://example.com/return', 'ACTIVE', " +
+                    "now() - (n || ' hours')::interval " +
+                    "FROM gateway_accounts g CROSS JOIN generate_series(1, " + MANDATES_PER_GATEWAY_ACCOUNT + ") AS n " +
+                    "WHERE g.external_id LIKE 'plan-account-%'");
+            handle.execute("INSERT INTO payments(mandate_id, gateway_account_id, external_id, amount, state, reference, description, created_date) " +
+                    "SELECT m.id, m.gateway_account_id, m.external_id || '-' || n, 100, " +
+                    "(ARRAY['CREATED', 'SUBMITTED_TO_PROVIDER', 'PAID_OUT', 'FAILED'])[(m.id + n) % 4 + 1], 'REF', 'Payment', " +
+                    "m.created_date + (n || ' minutes')::interval " +
+                    "FROM mandates m CROSS JOIN generate_series(1, " + PAYMENTS_PER_MANDATE + ") AS n WHERE m.external_id LIKE 'plan%'");
+            handle.execute("ANALYZE gateway_accounts");
+            handle.execute("ANALYZE mandates");
+            handle.execute("ANALYZE payments");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void paymentSearchFindsAccountsPaymentsThroughGatewayAccountIndex() {
+        QueryPlan plan = QueryPlan.parse(testContext.getJdbi().withHandle(handle ->
+                paymentViewDao.explainSearchPaymentViewPage(handle, aPaymentViewSearchParams().withDisplaySize(20).build(),
+                        gatewayAccountFixtures.get(0).getExternalId(), false)));
+
+        assertThat(plan.usesIndex("payments_gateway_account_id_id_idx")).as(plan.toString()).isTrue();
+        assertThat(plan.scansWholeTable("payments")).as(plan.toString()).isFalse();
+        assertThat(plan.scansWholeTable("mandates")).as(plan.toString()).isFalse();
+    }
+}
@@ -0,0 +1,109 @@
+package uk.gov.pay.directdebit.payments.dao;
+
+import org.jdbi.v3.core.Handle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.directdebit.DirectDebitConnectorApp;
+import uk.gov.pay.directdebit.common.dao.QueryPlan;
+import uk.gov.pay.directdebit.junit.DropwizardConfig;
+import uk.gov.pay.directdebit.junit.DropwizardJUnitRunner;
+import uk.gov.pay.directdebit.junit.DropwizardTestContext;
+import uk.gov.pay.directdebit.junit.TestContext;
+import uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture;
+import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams.PaymentViewSearchParamsBuilder.aPaymentViewSearchParams;
+
+/**
+ * Checks that the {@code ILIKE '%…%'} reference filter used by payment search is answered from the trigram index on
+ * a realistically large account, and logs how long it takes with and without it. Loading the payments takes a while,
+ * so this only runs with the {@code performance-tests} profile.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(app = DirectDebitConnectorApp.class, config = "config/test-it-config.yaml")
+public class PaymentViewTrigramIndexPerformanceIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentViewTrigramIndexPerformanceIT.class);
+
+    private static final int NUMBER_OF_ROWS = 1_000_000;
+    private static final int NUMBER_OF_MANDATES = 1000;
+
+    @DropwizardTestContext
+    private TestContext testContext;
+
+    private GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture();
+    private PaymentViewDao paymentViewDao;
+
+    @Before
+    public void setUp() {
+        paymentViewDao = new PaymentViewDao(testContext.getJdbi());
+        gatewayAccountFixture.insert(testContext.getJdbi());
+        testContext.getJdbi().useHandle(handle -> {
+            handle.createUpdate("INSERT INTO mandates(gateway_account_id, external_id, mandate_reference, service_reference, " +
+                    "return_url, state, created_date) " +
+                    "SELECT :gatewayAccountId, 'trgm' || n, 'MR' || n, 'SR' || n, 'https://example.com/return', 'ACTIVE', " +
+                    "now() - (n || ' hours')::interval " +
+                    "FROM generate_series(1, :numberOfMandates) AS n")
+                    .bind("gatewayAccountId", gatewayAccountFixture.getId())
+                    .bind("numberOfMandates", NUMBER_OF_MANDATES)
+                    .execute();
+            handle.createUpdate("INSERT INTO payments(mandate_id, gateway_account_id, external_id, amount, state, reference, description, created_date) " +
+                    "SELECT m.id, m.gateway_account_id, 'trgm' || n, 100 + n % 1000, 'SUBMITTED_TO_PROVIDER', 'PR-' || md5('payment' || n), " +
+                    "'Payment ' || n, now() - (n || ' seconds')::interval " +
+                    "FROM generate_series(1, :numberOfRows) AS n JOIN mandates m ON m.external_id = 'trgm' || (n % :numberOfMandates + 1)")
+                    .bind("numberOfRows", NUMBER_OF_ROWS)
+                    .bind("numberOfMandates", NUMBER_OF_MANDATES)
+                    .execute();
+            handle.execute("ANALYZE mandates");
+            handle.execute("ANALYZE payments");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        testContext.getDatabaseTestHelper().truncateAllData();
+    }
+
+    @Test
+    public void referenceFilterIsAnsweredFromTrigramIndex() {
+        testContext.getJdbi().useHandle(handle -> {
+            PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                    .withReference(md5Substring(handle, "payment500000", 12))
+                    .withDisplaySize(20)
+                    .build();
+            String indexName = "payments_gateway_account_id_reference_trgm_idx";
+
+            QueryPlan indexedPlan = explainAnalyze(handle, searchParams);
+
+            handle.execute("SET enable_bitmapscan = off");
+            handle.execute("SET enable_indexscan = off");
+            QueryPlan sequentialPlan = explainAnalyze(handle, searchParams);
+            handle.execute("RESET enable_bitmapscan");
+            handle.execute("RESET enable_indexscan");
+
+            LOGGER.info("Search filtered with {} over {} rows took {} ms using the index and {} ms without it", indexName,
+                    NUMBER_OF_ROWS, indexedPlan.getExecutionTime(), sequentialPlan.getExecutionTime());
+
+            assertThat(indexedPlan.usesIndex(indexName)).as(indexedPlan.toString()).isTrue();
+            assertThat(sequentialPlan.usesIndex(indexName)).as(sequentialPlan.toString()).isFalse();
+        });
+    }
+
+    private QueryPlan explainAnalyze(Handle handle, PaymentViewSearchParams searchParams) {
+        return QueryPlan.parse(paymentViewDao.explainSearchPaymentViewPage(handle, searchParams, gatewayAccountFixture.getExternalId(), true));
+    }
+
+    private static String md5Substring(Handle handle, String value, int length) {
+        return handle.createQuery("SELECT substr(md5(:value), 5, :length)")
+                .bind("value", value)
+                .bind("length", length)
+                .mapTo(String.class)
+                .findOnly();
+    }
+}
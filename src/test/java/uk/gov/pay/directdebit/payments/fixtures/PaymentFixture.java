@@ -148,6 +148,7 @@ public class PaymentFixture implements DbFixture<PaymentFixture, Payment> {
                                 "    payments(\n" +
                                 "        id,\n" +
                                 "        mandate_id,\n" +
+                                "        gateway_account_id,\n" +
                                 "        external_id,\n" +
                                 "        amount,\n" +
                                 "        state,\n" +
@@ -159,9 +160,10 @@ public class PaymentFixture implements DbFixture<PaymentFixture, Payment> {
                                 "        payment_provider_id,\n" +
                                 "        charge_date\n" +
                                 "    )\n" +
-                                "   VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)\n",
+                                "   VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)\n",
                         id,
                         mandateFixture.getId(),
+                        mandateFixture.getGatewayAccountFixture().getId(),
                         externalId,
                         amount,
                         state.toString(),
@@ -5,12 +5,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.common.model.CountMode;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.payments.params.PaymentViewSearchParams;
 
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -87,4 +91,50 @@ public class LinksForSearchResultTest {
         assertThat(builder.getNextLink().getHref().contains("?page=4&display_size=10"), is(true));
         assertThat(builder.getSelfLink().getHref().contains("?page=3&display_size=10"), is(true));
     }
+
+    @Test
+    public void shouldShowCursorLinksAlongsidePageLinks_whenSearchingByPageNumber() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withPage(3)
+                .withDisplaySize(10)
+                .build();
+        SearchPage<?> paymentViewPage = new SearchPage<>(List.of(), 100L, 91L, true, true);
+        LinksForSearchResult builder = new LinksForSearchResult(searchParams, mockedUriInfo, 120, gatewayAccountExternalId, paymentViewPage);
+        assertThat(builder.getNextLink().getHref().contains("?page=4&display_size=10"), is(true));
+        assertThat(builder.getPrevCursorLink().getHref().contains("?before=" + SearchCursor.encode(100L) + "&display_size=10"), is(true));
+        assertThat(builder.getNextCursorLink().getHref().contains("?after=" + SearchCursor.encode(91L) + "&display_size=10"), is(true));
+    }
+
+    @Test
+    public void shouldOnlyShowPrevCursorLink_whenSearchingBeforeACursorOnTheFirstPage() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withBefore(SearchCursor.encode(110L))
+                .withDisplaySize(10)
+                .withReference("ref")
+                .build();
+        SearchPage<?> paymentViewPage = new SearchPage<>(List.of(), 120L, 111L, false, true);
+        LinksForSearchResult builder = new LinksForSearchResult(searchParams, mockedUriInfo, 120, gatewayAccountExternalId, paymentViewPage);
+        assertThat(builder.getSelfLink().getHref().contains("?reference=ref&before=" + SearchCursor.encode(110L) + "&display_size=10"), is(true));
+        assertThat(builder.getFirstLink().getHref().contains("?reference=ref&page=1&display_size=10"), is(true));
+        assertThat(builder.getLastLink(), is(nullValue()));
+        assertThat(builder.getPrevLink(), is(nullValue()));
+        assertThat(builder.getPrevCursorLink(), is(nullValue()));
+        assertThat(builder.getNextLink().getHref().contains("?reference=ref&after=" + SearchCursor.encode(111L) + "&display_size=10"), is(true));
+        assertThat(builder.getNextCursorLink(), is(builder.getNextLink()));
+    }
+
+    @Test
+    public void shouldShowNextLinkButNoLastLink_whenTotalIsNotCounted() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withPage(2)
+                .withDisplaySize(10)
+                .withCountMode(CountMode.NONE)
+                .build();
+        SearchPage<?> searchPage = new SearchPage<>(List.of(), 90L, 81L, true, true);
+        LinksForSearchResult builder = new LinksForSearchResult(searchParams, mockedUriInfo, null, gatewayAccountExternalId, searchPage);
+        assertThat(builder.getSelfLink().getHref().contains("?count_mode=none&page=2&display_size=10"), is(true));
+        assertThat(builder.getLastLink(), is(nullValue()));
+        assertThat(builder.getPrevLink().getHref().contains("?count_mode=none&page=1&display_size=10"), is(true));
+        assertThat(builder.getNextLink().getHref().contains("?count_mode=none&page=3&display_size=10"), is(true));
+    }
 }
@@ -27,6 +27,8 @@ import javax.ws.rs.core.Response;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -358,6 +360,65 @@ public class PaymentResourceIT {
                 .statusCode(404);
     }
     
+    @Test
+    public void shouldCollectPaymentsInBulk_returningAResultForEachPayment() throws Exception {
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .withPayerFixture(aPayerFixture())
+                .withPaymentProviderId(SandboxMandateId.valueOf("sandbox-mandate-id"))
+                .withState(MandateState.ACTIVE)
+                .insert(testContext.getJdbi());
+        String accountExternalId = testGatewayAccount.getExternalId();
+        String postBody = new ObjectMapper().writeValueAsString(Map.of("payments", List.of(
+                Map.of(JSON_AMOUNT_KEY, AMOUNT,
+                        JSON_REFERENCE_KEY, "First reference",
+                        JSON_MANDATE_ID_KEY, mandateFixture.getExternalId().toString()),
+                Map.of(JSON_AMOUNT_KEY, AMOUNT,
+                        JSON_REFERENCE_KEY, "Second reference",
+                        JSON_MANDATE_ID_KEY, "FAKEMANDATE"))));
+
+        wireMockAdminUsers.stubFor(post(urlPathEqualTo("/v1/emails/send"))
+                .willReturn(aResponse().withStatus(200)));
+
+        String requestPath = "/v1/api/accounts/{accountId}/charges/collect/bulk"
+                .replace("{accountId}", accountExternalId);
+
+        ValidatableResponse response = givenSetup()
+                .body(postBody)
+                .post(requestPath)
+                .then()
+                .statusCode(OK.getStatusCode())
+                .body("results", hasSize(2))
+                .body("results[0].status", is(201))
+                .body("results[0].payment." + JSON_REFERENCE_KEY, is("First reference"))
+                .body("results[0].payment." + JSON_STATE_STATUS_KEY, is("pending"))
+                .body("results[1].status", is(404))
+                .body("results[1].error.error_identifier", is("MANDATE_ID_INVALID"));
+
+        String paymentExternalId = response.extract().path("results[0].payment." + JSON_PAYMENT_ID_KEY).toString();
+        Map<String, Object> createdPayment = testContext.getDatabaseTestHelper().getPaymentByExternalId(paymentExternalId);
+        assertThat(createdPayment.get("reference"), is("First reference"));
+        assertThat(createdPayment.get("amount"), is(AMOUNT));
+    }
+
+    @Test
+    public void shouldRejectBulkCollectWithMorePaymentsThanTheMaximum() throws Exception {
+        Map<String, Object> payment = Map.of(JSON_AMOUNT_KEY, AMOUNT,
+                JSON_REFERENCE_KEY, "A reference",
+                JSON_MANDATE_ID_KEY, "FAKEMANDATE");
+        String postBody = new ObjectMapper().writeValueAsString(Map.of("payments", Collections.nCopies(6, payment)));
+
+        String requestPath = "/v1/api/accounts/{accountId}/charges/collect/bulk"
+                .replace("{accountId}", testGatewayAccount.getExternalId());
+
+        givenSetup()
+                .body(postBody)
+                .post(requestPath)
+                .then()
+                .statusCode(400)
+                .body("error_identifier", is("GENERIC"));
+    }
+
     private PaymentFixture createTransactionFixtureWith(MandateFixture mandateFixture, PaymentState paymentState,
                                                         String paymentStateDetails) {
         return aPaymentFixture()
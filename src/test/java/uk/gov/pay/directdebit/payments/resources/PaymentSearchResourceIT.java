@@ -6,6 +6,7 @@ import org.junit.After;
 import org.junit.Test;
 import org.junit.Rule;
 import uk.gov.pay.commons.model.ErrorIdentifier;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
 import uk.gov.pay.directdebit.junit.DropwizardAppWithPostgresRule;
 import uk.gov.pay.directdebit.junit.TestContext;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
@@ -19,8 +20,11 @@ import java.time.ZonedDateTime;
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static java.time.ZoneOffset.UTC;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static uk.gov.pay.commons.model.ApiResponseDateTimeFormatter.ISO_INSTANT_MILLISECOND_PRECISION;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
@@ -171,6 +175,51 @@ public class PaymentSearchResourceIT {
                 .body("page", is(2));
     }
 
+    @Test
+    public void shouldReturnPageAfterCursor() {
+        for (int i = 0; i < 15; i++) {
+            MandateFixture mandateFixture = aMandateFixture()
+                    .withGatewayAccountFixture(testGatewayAccount)
+                    .insert(testContext.getJdbi());
+
+            aPaymentFixture()
+                    .withId((long) i)
+                    .withMandateFixture(mandateFixture)
+                    .insert(testContext.getJdbi());
+        }
+
+        String requestPath = "/v1/api/accounts/{accountId}/payments?after=:after&display_size=:display_size"
+                .replace("{accountId}", testGatewayAccount.getExternalId())
+                .replace(":after", SearchCursor.encode(10L))
+                .replace(":display_size", "5");
+
+        givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(JSON)
+                .body("results", hasSize(5))
+                .body("total", is(15))
+                .body("count", is(5))
+                .body("page", is(nullValue()))
+                .body("_links.next_page.href", containsString("after=" + SearchCursor.encode(5L)))
+                .body("_links.prev_page.href", containsString("before=" + SearchCursor.encode(9L)));
+    }
+
+    @Test
+    public void shouldReturn422_whenMalformedCursor() {
+        String requestPath = "/v1/api/accounts/{accountId}/payments?after=:after"
+                .replace("{accountId}", testGatewayAccount.getExternalId())
+                .replace(":after", "not-a-cursor");
+        givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(422)
+                .contentType(JSON)
+                .body("message", contains("Invalid attribute value: after. Must be a cursor from a previous search"))
+                .body("error_identifier", is(ErrorIdentifier.GENERIC.toString()));
+    }
+
     @Test
     public void shouldReturn400_whenMalformedDate() {
         String fromDate = "2018-05-05T15:00Z";
@@ -190,6 +239,76 @@ public class PaymentSearchResourceIT {
                 .body("error_identifier", is(ErrorIdentifier.GENERIC.toString()));
     }
 
+    @Test
+    public void shouldExportEveryMatchingPaymentAsNdjson() {
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi());
+        for (int i = 0; i < 3; i++) {
+            aPaymentFixture()
+                    .withId((long) i)
+                    .withMandateFixture(mandateFixture)
+                    .withReference("EXPORT" + i)
+                    .insert(testContext.getJdbi());
+        }
+
+        String requestPath = "/v1/api/accounts/{accountId}/payments/export?reference=EXPORT&display_size=1"
+                .replace("{accountId}", testGatewayAccount.getExternalId());
+
+        String body = givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines.length, is(3));
+        assertThat(lines[0], containsString("\"reference\":\"EXPORT2\""));
+        assertThat(lines[2], containsString("\"reference\":\"EXPORT0\""));
+    }
+
+    @Test
+    public void shouldExportMatchingPaymentsAsCsv() {
+        MandateFixture mandateFixture = aMandateFixture()
+                .withGatewayAccountFixture(testGatewayAccount)
+                .insert(testContext.getJdbi());
+        aPaymentFixture()
+                .withMandateFixture(mandateFixture)
+                .withReference("REF, WITH COMMA")
+                .withAmount(1234L)
+                .insert(testContext.getJdbi());
+
+        String requestPath = "/v1/api/accounts/{accountId}/payments/export?format=csv"
+                .replace("{accountId}", testGatewayAccount.getExternalId());
+
+        String body = givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType("text/csv")
+                .header("Content-Disposition", is("attachment; filename=\"payments.csv\""))
+                .extract().asString();
+
+        String[] lines = body.split("\r\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[0], is("payment_id,amount,reference,description,state,state_details,mandate_id,provider_id,payment_provider,created_date"));
+        assertThat(lines[1], containsString(",1234,\"REF, WITH COMMA\","));
+    }
+
+    @Test
+    public void shouldReturn422_whenExportFormatIsNotSupported() {
+        String requestPath = "/v1/api/accounts/{accountId}/payments/export?format=xml"
+                .replace("{accountId}", testGatewayAccount.getExternalId());
+
+        givenSetup()
+                .get(requestPath)
+                .then()
+                .statusCode(422)
+                .contentType(JSON)
+                .body("message", contains("Invalid attribute value: format. Must be one of ndjson or csv"));
+    }
+
     private RequestSpecification givenSetup() {
         return given().port(testContext.getPort())
                 .contentType(JSON);
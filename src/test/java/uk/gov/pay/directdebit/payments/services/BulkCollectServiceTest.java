@@ -0,0 +1,236 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.commons.model.ErrorIdentifier;
+import uk.gov.pay.directdebit.common.exception.BadRequestException;
+import uk.gov.pay.directdebit.gatewayaccounts.model.GatewayAccount;
+import uk.gov.pay.directdebit.mandate.model.Mandate;
+import uk.gov.pay.directdebit.mandate.model.MandateState;
+import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateId;
+import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
+import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
+import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentResponse;
+import uk.gov.pay.directdebit.payments.api.BulkCollectPaymentResponse.Result;
+import uk.gov.pay.directdebit.payments.exception.CreatePaymentFailedException;
+import uk.gov.pay.directdebit.payments.model.Payment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.GatewayAccountFixture.aGatewayAccountFixture;
+import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkCollectServiceTest {
+
+    private static final String GATEWAY_ACCOUNT_EXTERNAL_ID = "xyzzy";
+    private static final MandateExternalId FIRST_MANDATE_EXTERNAL_ID = MandateExternalId.valueOf("first-mandate");
+    private static final MandateExternalId SECOND_MANDATE_EXTERNAL_ID = MandateExternalId.valueOf("second-mandate");
+    private static final PaymentProviderMandateId FIRST_PAYMENT_PROVIDER_MANDATE_ID = SandboxMandateId.valueOf("first-provider-mandate-id");
+    private static final PaymentProviderMandateId SECOND_PAYMENT_PROVIDER_MANDATE_ID = SandboxMandateId.valueOf("second-provider-mandate-id");
+
+    @Mock
+    private MandateQueryService mockMandateQueryService;
+
+    @Mock
+    private PaymentService mockPaymentService;
+
+    private GatewayAccount gatewayAccount = aGatewayAccountFixture().withExternalId(GATEWAY_ACCOUNT_EXTERNAL_ID).toEntity();
+
+    private Mandate firstMandate = aMandateFixture()
+            .withExternalId(FIRST_MANDATE_EXTERNAL_ID)
+            .withPaymentProviderId(FIRST_PAYMENT_PROVIDER_MANDATE_ID)
+            .withState(MandateState.ACTIVE)
+            .toEntity();
+
+    private Mandate secondMandate = aMandateFixture()
+            .withExternalId(SECOND_MANDATE_EXTERNAL_ID)
+            .withPaymentProviderId(SECOND_PAYMENT_PROVIDER_MANDATE_ID)
+            .withState(MandateState.SUBMITTED_TO_BANK)
+            .toEntity();
+
+    private Payment firstNewPayment = aPaymentFixture().withAmount(1000L).toEntity();
+    private Payment secondNewPayment = aPaymentFixture().withAmount(2000L).toEntity();
+    private Payment firstCreatedPayment = aPaymentFixture().withId(1L).withAmount(1000L).toEntity();
+    private Payment secondCreatedPayment = aPaymentFixture().withId(2L).withAmount(2000L).toEntity();
+
+    private BulkCollectService bulkCollectService;
+
+    @Before
+    public void setUp() {
+        bulkCollectService = new BulkCollectService(mockMandateQueryService, mockPaymentService,
+                MoreExecutors.newDirectExecutorService(), 3, Duration.seconds(30));
+    }
+
+    @Test
+    public void shouldCreatePaymentsInOneBatchAndReturnResultsInRequestOrder() {
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(FIRST_MANDATE_EXTERNAL_ID, SECOND_MANDATE_EXTERNAL_ID), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(Map.of(FIRST_MANDATE_EXTERNAL_ID, firstMandate, SECOND_MANDATE_EXTERNAL_ID, secondMandate));
+        given(mockPaymentService.newPayment(1000L, "first", "ref1", firstMandate)).willReturn(firstNewPayment);
+        given(mockPaymentService.newPayment(2000L, "second", "ref2", secondMandate)).willReturn(secondNewPayment);
+        given(mockPaymentService.createPayments(List.of(firstNewPayment, secondNewPayment)))
+                .willReturn(List.of(firstCreatedPayment, secondCreatedPayment));
+        given(mockPaymentService.submitPaymentToProvider(firstCreatedPayment, FIRST_PAYMENT_PROVIDER_MANDATE_ID)).willReturn(firstCreatedPayment);
+        given(mockPaymentService.submitPaymentToProvider(secondCreatedPayment, SECOND_PAYMENT_PROVIDER_MANDATE_ID)).willReturn(secondCreatedPayment);
+
+        BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, List.of(
+                collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1"),
+                collectRequest(SECOND_MANDATE_EXTERNAL_ID, "not a number", "invalid", "ref"),
+                collectRequest(SECOND_MANDATE_EXTERNAL_ID, "2000", "second", "ref2")));
+
+        List<Result> results = response.getResults();
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).getStatus(), is(201));
+        assertThat(results.get(0).getPayment().getAmount(), is(1000L));
+        assertThat(results.get(1).getStatus(), is(400));
+        assertThat(results.get(1).getError().getMessages(), is(List.of("Field(s) are invalid: [amount]")));
+        assertThat(results.get(2).getStatus(), is(201));
+        assertThat(results.get(2).getPayment().getAmount(), is(2000L));
+    }
+
+    @Test
+    public void shouldReturnErrorsForMandatesThatCannotBeCollectedFrom() {
+        Mandate cancelledMandate = aMandateFixture()
+                .withExternalId(SECOND_MANDATE_EXTERNAL_ID)
+                .withPaymentProviderId(SECOND_PAYMENT_PROVIDER_MANDATE_ID)
+                .withState(MandateState.CANCELLED)
+                .toEntity();
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(FIRST_MANDATE_EXTERNAL_ID, SECOND_MANDATE_EXTERNAL_ID), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(Map.of(SECOND_MANDATE_EXTERNAL_ID, cancelledMandate));
+        given(mockPaymentService.createPayments(List.of())).willReturn(List.of());
+
+        BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, List.of(
+                collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1"),
+                collectRequest(SECOND_MANDATE_EXTERNAL_ID, "2000", "second", "ref2")));
+
+        List<Result> results = response.getResults();
+        assertThat(results.get(0).getStatus(), is(404));
+        assertThat(results.get(0).getError().getIdentifier(), is(ErrorIdentifier.MANDATE_ID_INVALID));
+        assertThat(results.get(1).getStatus(), is(500));
+        assertThat(results.get(1).getError().getIdentifier(), is(ErrorIdentifier.MANDATE_STATE_INVALID));
+    }
+
+    @Test
+    public void shouldCarryOnSubmittingPaymentsWhenOneFails() {
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(FIRST_MANDATE_EXTERNAL_ID, SECOND_MANDATE_EXTERNAL_ID), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(Map.of(FIRST_MANDATE_EXTERNAL_ID, firstMandate, SECOND_MANDATE_EXTERNAL_ID, secondMandate));
+        given(mockPaymentService.newPayment(1000L, "first", "ref1", firstMandate)).willReturn(firstNewPayment);
+        given(mockPaymentService.newPayment(2000L, "second", "ref2", secondMandate)).willReturn(secondNewPayment);
+        given(mockPaymentService.createPayments(List.of(firstNewPayment, secondNewPayment)))
+                .willReturn(List.of(firstCreatedPayment, secondCreatedPayment));
+        given(mockPaymentService.submitPaymentToProvider(firstCreatedPayment, FIRST_PAYMENT_PROVIDER_MANDATE_ID))
+                .willThrow(new CreatePaymentFailedException(FIRST_MANDATE_EXTERNAL_ID.toString(), firstCreatedPayment.getExternalId()));
+        given(mockPaymentService.submitPaymentToProvider(secondCreatedPayment, SECOND_PAYMENT_PROVIDER_MANDATE_ID)).willReturn(secondCreatedPayment);
+
+        BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, List.of(
+                collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1"),
+                collectRequest(SECOND_MANDATE_EXTERNAL_ID, "2000", "second", "ref2")));
+
+        List<Result> results = response.getResults();
+        assertThat(results.get(0).getStatus(), is(500));
+        assertThat(results.get(0).getError().getIdentifier(), is(ErrorIdentifier.GENERIC));
+        assertThat(results.get(1).getStatus(), is(201));
+        verify(mockPaymentService).submitPaymentToProvider(secondCreatedPayment, SECOND_PAYMENT_PROVIDER_MANDATE_ID);
+    }
+
+    @Test
+    public void shouldNotReturnDetailsOfUnexpectedErrors() {
+        given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                Set.of(FIRST_MANDATE_EXTERNAL_ID), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                .willReturn(Map.of(FIRST_MANDATE_EXTERNAL_ID, firstMandate));
+        given(mockPaymentService.newPayment(1000L, "first", "ref1", firstMandate)).willReturn(firstNewPayment);
+        given(mockPaymentService.createPayments(List.of(firstNewPayment))).willReturn(List.of(firstCreatedPayment));
+        given(mockPaymentService.submitPaymentToProvider(firstCreatedPayment, FIRST_PAYMENT_PROVIDER_MANDATE_ID))
+                .willThrow(new IllegalStateException("connection to db-primary.internal:5432 refused"));
+
+        BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, List.of(
+                collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1")));
+
+        Result result = response.getResults().get(0);
+        assertThat(result.getStatus(), is(500));
+        assertThat(result.getError().getIdentifier(), is(ErrorIdentifier.GENERIC));
+        assertThat(result.getError().getMessages(), is(List.of("Payment could not be collected")));
+    }
+
+    @Test
+    public void shouldWaitForPaymentsWithTheProviderAndAbandonTheRestOnceTimedOut() throws InterruptedException {
+        ExecutorService submissionExecutorService = Executors.newSingleThreadExecutor();
+        try {
+            bulkCollectService = new BulkCollectService(mockMandateQueryService, mockPaymentService,
+                    submissionExecutorService, 3, Duration.milliseconds(50));
+            given(mockMandateQueryService.findByExternalIdsAndGatewayAccountExternalId(
+                    Set.of(FIRST_MANDATE_EXTERNAL_ID, SECOND_MANDATE_EXTERNAL_ID), GATEWAY_ACCOUNT_EXTERNAL_ID))
+                    .willReturn(Map.of(FIRST_MANDATE_EXTERNAL_ID, firstMandate, SECOND_MANDATE_EXTERNAL_ID, secondMandate));
+            given(mockPaymentService.newPayment(1000L, "first", "ref1", firstMandate)).willReturn(firstNewPayment);
+            given(mockPaymentService.newPayment(2000L, "second", "ref2", secondMandate)).willReturn(secondNewPayment);
+            given(mockPaymentService.createPayments(List.of(firstNewPayment, secondNewPayment)))
+                    .willReturn(List.of(firstCreatedPayment, secondCreatedPayment));
+            given(mockPaymentService.submitPaymentToProvider(firstCreatedPayment, FIRST_PAYMENT_PROVIDER_MANDATE_ID))
+                    .willAnswer(invocation -> {
+                        Thread.sleep(200);
+                        return firstCreatedPayment;
+                    });
+
+            BulkCollectPaymentResponse response = bulkCollectService.collect(gatewayAccount, List.of(
+                    collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1"),
+                    collectRequest(SECOND_MANDATE_EXTERNAL_ID, "2000", "second", "ref2")));
+
+            List<Result> results = response.getResults();
+            assertThat(results.get(0).getStatus(), is(201));
+            assertThat(results.get(0).getPayment().getAmount(), is(1000L));
+            assertThat(results.get(1).getStatus(), is(503));
+            assertThat(results.get(1).getError().getIdentifier(), is(ErrorIdentifier.GENERIC));
+            verify(mockPaymentService).abandonSubmissionToProvider(secondCreatedPayment);
+        } finally {
+            submissionExecutorService.shutdown();
+            submissionExecutorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        verify(mockPaymentService, never()).submitPaymentToProvider(secondCreatedPayment, SECOND_PAYMENT_PROVIDER_MANDATE_ID);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectMorePaymentsThanTheMaximum() {
+        try {
+            bulkCollectService.collect(gatewayAccount,
+                    Collections.nCopies(4, collectRequest(FIRST_MANDATE_EXTERNAL_ID, "1000", "first", "ref1")));
+        } finally {
+            verifyNoInteractions(mockMandateQueryService, mockPaymentService);
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void shouldRejectRequestWithNoPayments() {
+        bulkCollectService.collect(gatewayAccount, List.of());
+    }
+
+    private static Map<String, String> collectRequest(MandateExternalId mandateExternalId, String amount,
+                                                      String description, String reference) {
+        return Map.of(
+                "mandate_id", mandateExternalId.toString(),
+                "amount", amount,
+                "description", description,
+                "reference", reference);
+    }
+}
@@ -1,5 +1,7 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -13,6 +15,9 @@ import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 
 import java.util.List;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
 
@@ -24,11 +29,13 @@ public class GoCardlessEventServiceTest {
     @Mock
     private GoCardlessEventDao mockedGoCardlessEventDao;
 
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
     private GoCardlessEventService service;
 
     @Before
     public void setUp() {
-        service = new GoCardlessEventService(mockedGoCardlessEventDao);
+        service = new GoCardlessEventService(mockedGoCardlessEventDao, Duration.minutes(10), metricRegistry);
     }  
     
     @Test
@@ -37,4 +44,54 @@ public class GoCardlessEventServiceTest {
         service.storeEvents(goCardlessEvents);
         verify(mockedGoCardlessEventDao).insert(goCardlessEvents);
     }
+
+    @Test
+    public void storeEvents_shouldReturnOnlyNewlyStoredEventsAndCountDuplicates() {
+        GoCardlessEvent redeliveredEvent = aGoCardlessEventFixture().toEntity();
+        GoCardlessEvent newEvent = aGoCardlessEventFixture().toEntity();
+        List<GoCardlessEvent> goCardlessEvents = List.of(redeliveredEvent, newEvent);
+        given(mockedGoCardlessEventDao.insert(goCardlessEvents)).willReturn(List.of(newEvent));
+
+        List<GoCardlessEvent> storedEvents = service.storeEvents(goCardlessEvents);
+
+        assertThat(storedEvents, is(List.of(newEvent)));
+        assertThat(metricRegistry.counter("gocardless-webhook-events.duplicates").getCount(), is(1L));
+    }
+
+    @Test
+    public void claimUnprocessedEvents_shouldClaimWithTheClaimTimeoutAndReturnEventsOldestFirst() {
+        GoCardlessEvent olderEvent = aGoCardlessEventFixture().withId(1L).toEntity();
+        GoCardlessEvent newerEvent = aGoCardlessEventFixture().withId(2L).toEntity();
+        given(mockedGoCardlessEventDao.claimUnprocessedEvents(600000L, 100)).willReturn(List.of(newerEvent, olderEvent));
+
+        List<GoCardlessEvent> claimedEvents = service.claimUnprocessedEvents(100);
+
+        assertThat(claimedEvents, is(List.of(olderEvent, newerEvent)));
+    }
+
+    @Test
+    public void storeEvents_shouldAlsoReturnRedeliveredEventsThatWereNeverProcessedInTheOrderGiven() {
+        GoCardlessEvent unprocessedRedeliveredEvent = aGoCardlessEventFixture().toEntity();
+        GoCardlessEvent processedRedeliveredEvent = aGoCardlessEventFixture().toEntity();
+        GoCardlessEvent newEvent = aGoCardlessEventFixture().toEntity();
+        List<GoCardlessEvent> goCardlessEvents = List.of(unprocessedRedeliveredEvent, processedRedeliveredEvent, newEvent);
+        given(mockedGoCardlessEventDao.insert(goCardlessEvents)).willReturn(List.of(newEvent));
+        given(mockedGoCardlessEventDao.claimUnprocessedEvents(List.of(unprocessedRedeliveredEvent.getGoCardlessEventId(),
+                processedRedeliveredEvent.getGoCardlessEventId()), 600000L)).willReturn(List.of(unprocessedRedeliveredEvent));
+
+        List<GoCardlessEvent> eventsToProcess = service.storeEvents(goCardlessEvents);
+
+        assertThat(eventsToProcess, is(List.of(unprocessedRedeliveredEvent, newEvent)));
+        assertThat(metricRegistry.counter("gocardless-webhook-events.duplicates").getCount(), is(1L));
+        assertThat(metricRegistry.counter("gocardless-webhook-events.reprocessed").getCount(), is(1L));
+    }
+
+    @Test
+    public void releaseClaims_shouldReleaseClaimsOnTheEvents() {
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().toEntity();
+
+        service.releaseClaims(List.of(goCardlessEvent));
+
+        verify(mockedGoCardlessEventDao).releaseClaims(List.of(goCardlessEvent.getGoCardlessEventId()));
+    }
 }
@@ -1,7 +1,9 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import com.codahale.metrics.MetricRegistry;
 import com.gocardless.errors.GoCardlessApiException;
 import com.gocardless.errors.ValidationFailedException;
+import io.dropwizard.util.Duration;
 import org.hamcrest.core.Is;
 import org.junit.Before;
 import org.junit.Rule;
@@ -9,7 +11,6 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.InOrder;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.common.clients.GoCardlessClientFacade;
@@ -25,6 +26,7 @@ import uk.gov.pay.directdebit.mandate.model.PaymentProviderMandateIdAndBankRefer
 import uk.gov.pay.directdebit.mandate.model.SandboxMandateId;
 import uk.gov.pay.directdebit.mandate.model.subtype.MandateExternalId;
 import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessService;
+import uk.gov.pay.directdebit.mandate.services.gocardless.GoCardlessSunNameCache;
 import uk.gov.pay.directdebit.payers.api.BankAccountValidationResponse;
 import uk.gov.pay.directdebit.payers.dao.GoCardlessCustomerDao;
 import uk.gov.pay.directdebit.payers.fixtures.PayerFixture;
@@ -51,7 +53,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
@@ -63,6 +68,7 @@ public class GoCardlessServiceTest {
 
     private static final String CUSTOMER_ID = "CU328471";
     private static final String BANK_ACCOUNT_ID = "BA34983496";
+    private static final Long GOCARDLESS_CUSTOMER_ID = 42L;
     private static final MandateExternalId MANDATE_ID = MandateExternalId.valueOf("sdkfhsdkjfhjdks");
     private static final String TRANSACTION_ID = "sdkfhsd2jfhjdks";
     private static final SortCode SORT_CODE = SortCode.of("123456");
@@ -86,7 +92,8 @@ public class GoCardlessServiceTest {
     @Mock
     protected ValidationFailedException mockedGoCardlessValidationFailedException;
 
-    @InjectMocks
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
     private GoCardlessService service;
 
     private GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture()
@@ -97,7 +104,7 @@ public class GoCardlessServiceTest {
     private GoCardlessCustomer goCardlessCustomer = aGoCardlessCustomerFixture()
             .withPayerId(payerFixture.getId())
             .withCustomerId(CUSTOMER_ID)
-            .withCustomerBankAccountId(BANK_ACCOUNT_ID).toEntity();
+            .withCustomerBankAccountId(null).toEntity();
 
     private MandateFixture mandateFixture = aMandateFixture()
             .withPayerFixture(payerFixture)
@@ -114,9 +121,12 @@ public class GoCardlessServiceTest {
 
     @Before
     public void setUp() {
+        service = new GoCardlessService(mockedGoCardlessClientFactory, mockedGoCardlessCustomerDao,
+                new GoCardlessSunNameCache(Duration.hours(1), Runnable::run), metricRegistry);
         when(mockedGoCardlessClientFactory.getClientFor(Optional.of(gatewayAccountFixture.getAccessToken()))).thenReturn(mockedGoCardlessClientFacade);
         when(mockedGoCardlessClientFacade.createCustomer(MANDATE_ID, payerFixture.toEntity())).thenReturn(goCardlessCustomer);
-        when(mockedGoCardlessClientFacade.createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER)).thenReturn(goCardlessCustomer);
+        when(mockedGoCardlessClientFacade.createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER))
+                .thenAnswer(invocation -> goCardlessCustomer.setCustomerBankAccountId(BANK_ACCOUNT_ID));
     }
 
     @Test
@@ -182,14 +192,25 @@ public class GoCardlessServiceTest {
         assertThat(service.getSunName(mandate), is(Optional.of(sunName)));
     }
 
+    @Test
+    public void shouldFetchSunNameOncePerOrganisation() {
+        SunName sunName = SunName.of("testServiceUserNumber");
+        given(mockedGoCardlessClientFacade.getSunName()).willReturn(Optional.of(sunName));
+
+        service.getSunName(mandateFixture.toEntity());
+
+        assertThat(service.getSunName(mandateFixture.toEntity()), is(Optional.of(sunName)));
+        verify(mockedGoCardlessClientFacade, times(1)).getSunName();
+    }
+
     @Test
     public void shouldReturnEmptyWhenCreditorIdHasNoSunName() {
         assertThat(service.getSunName(mandateFixture.toEntity()), is(Optional.empty()));
     }
 
     void verifyCreateCustomerBankAccountFailedException() {
-        when(mockedGoCardlessClientFacade.createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER))
-                .thenThrow(new RuntimeException("oops"));
+        doThrow(new RuntimeException("oops"))
+                .when(mockedGoCardlessClientFacade).createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER);
 
         thrown.expect(CreateCustomerBankAccountFailedException.class);
         thrown.expectMessage(format("Failed to create customer bank account in gocardless, mandate id: %s, payer id: %s",
@@ -201,20 +222,77 @@ public class GoCardlessServiceTest {
     public void confirm_shouldCreateAGoCardlessCustomerBankAccountMandateAndPaymentWhenReceivingConfirmTransaction() {
         Mandate mandate = mandateFixture.toEntity();
 
+        when(mockedGoCardlessCustomerDao.insert(goCardlessCustomer)).thenReturn(GOCARDLESS_CUSTOMER_ID);
         when(mockedGoCardlessClientFacade.createMandate(mandate, goCardlessCustomer))
                 .thenReturn(new PaymentProviderMandateIdAndBankReference(
                         SandboxMandateId.valueOf("aPaymentProviderId"),
                         MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
 
         var paymentProviderMandateIdAndBankReference = service.confirmMandate(mandate, bankAccountDetails);
-        verify(mockedGoCardlessCustomerDao).insert(goCardlessCustomer);
-        InOrder orderedCalls = inOrder(mockedGoCardlessClientFacade);
+        InOrder orderedCalls = inOrder(mockedGoCardlessClientFacade, mockedGoCardlessCustomerDao);
 
         orderedCalls.verify(mockedGoCardlessClientFacade).createCustomer(MANDATE_ID, payerFixture.toEntity());
+        orderedCalls.verify(mockedGoCardlessCustomerDao).insert(goCardlessCustomer);
         orderedCalls.verify(mockedGoCardlessClientFacade).createCustomerBankAccount(MANDATE_ID, goCardlessCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER);
+        orderedCalls.verify(mockedGoCardlessCustomerDao).updateBankAccountId(GOCARDLESS_CUSTOMER_ID, BANK_ACCOUNT_ID);
         orderedCalls.verify(mockedGoCardlessClientFacade).createMandate(mandate, goCardlessCustomer);
 
         assertThat(paymentProviderMandateIdAndBankReference.getMandateBankStatementReference(), Is.is(MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
+        assertThat(metricRegistry.timer("gocardless.confirm-mandate.customer").getCount(), is(1L));
+        assertThat(metricRegistry.timer("gocardless.confirm-mandate.bank-account").getCount(), is(1L));
+        assertThat(metricRegistry.timer("gocardless.confirm-mandate.mandate").getCount(), is(1L));
+    }
+
+    @Test
+    public void confirm_shouldNotCreateCustomerAgain_ifAnEarlierConfirmationCreatedIt() {
+        Mandate mandate = mandateFixture.toEntity();
+        GoCardlessCustomer existingCustomer = new GoCardlessCustomer(GOCARDLESS_CUSTOMER_ID, payerFixture.getId(), CUSTOMER_ID, null);
+
+        when(mockedGoCardlessCustomerDao.findByPayerId(payerFixture.getId())).thenReturn(Optional.of(existingCustomer));
+        when(mockedGoCardlessClientFacade.createCustomerBankAccount(MANDATE_ID, existingCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER))
+                .thenAnswer(invocation -> existingCustomer.setCustomerBankAccountId(BANK_ACCOUNT_ID));
+        when(mockedGoCardlessClientFacade.createMandate(mandate, existingCustomer))
+                .thenReturn(new PaymentProviderMandateIdAndBankReference(
+                        SandboxMandateId.valueOf("aPaymentProviderId"),
+                        MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
+
+        service.confirmMandate(mandate, bankAccountDetails);
+
+        verify(mockedGoCardlessClientFacade, never()).createCustomer(MANDATE_ID, payerFixture.toEntity());
+        verify(mockedGoCardlessCustomerDao, never()).insert(existingCustomer);
+        verify(mockedGoCardlessCustomerDao).updateBankAccountId(GOCARDLESS_CUSTOMER_ID, BANK_ACCOUNT_ID);
+        assertThat(metricRegistry.counter("gocardless.confirm-mandate.resumed").getCount(), is(1L));
+    }
+
+    @Test
+    public void confirm_shouldOnlyCreateMandate_ifAnEarlierConfirmationCreatedCustomerAndBankAccount() {
+        Mandate mandate = mandateFixture.toEntity();
+        GoCardlessCustomer existingCustomer = new GoCardlessCustomer(GOCARDLESS_CUSTOMER_ID, payerFixture.getId(), CUSTOMER_ID, BANK_ACCOUNT_ID);
+
+        when(mockedGoCardlessCustomerDao.findByPayerId(payerFixture.getId())).thenReturn(Optional.of(existingCustomer));
+        when(mockedGoCardlessClientFacade.createMandate(mandate, existingCustomer))
+                .thenReturn(new PaymentProviderMandateIdAndBankReference(
+                        SandboxMandateId.valueOf("aPaymentProviderId"),
+                        MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
+
+        var paymentProviderMandateIdAndBankReference = service.confirmMandate(mandate, bankAccountDetails);
+
+        verify(mockedGoCardlessClientFacade, never()).createCustomer(MANDATE_ID, payerFixture.toEntity());
+        verify(mockedGoCardlessClientFacade, never()).createCustomerBankAccount(MANDATE_ID, existingCustomer, payerFixture.getName(), SORT_CODE, ACCOUNT_NUMBER);
+        verify(mockedGoCardlessCustomerDao, never()).updateBankAccountId(GOCARDLESS_CUSTOMER_ID, BANK_ACCOUNT_ID);
+        assertThat(paymentProviderMandateIdAndBankReference.getMandateBankStatementReference(), Is.is(MandateBankStatementReference.valueOf(BANK_ACCOUNT_ID)));
+    }
+
+    @Test
+    public void confirm_shouldKeepCreatedCustomer_ifFailingToCreateCustomerBankAccountInGoCardless() {
+        when(mockedGoCardlessCustomerDao.insert(goCardlessCustomer)).thenReturn(GOCARDLESS_CUSTOMER_ID);
+        verifyCreateCustomerBankAccountFailedException();
+
+        try {
+            service.confirmMandate(mandateFixture.toEntity(), bankAccountDetails);
+        } finally {
+            verify(mockedGoCardlessCustomerDao).insert(goCardlessCustomer);
+        }
     }
 
     @Test
@@ -20,11 +20,14 @@ import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateStateUpdater;
 import uk.gov.pay.directdebit.payments.model.Payment;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.MANDATE;
@@ -62,6 +65,9 @@ public class GovUkPayEventServiceTest {
     @Captor
     private ArgumentCaptor<GovUkPayEvent> eventCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<GovUkPayEvent>> eventsCaptor;
+
     private Long mandateId = 1L;
     private Mandate mandate;
 
@@ -150,6 +156,135 @@ public class GovUkPayEventServiceTest {
         govUkPayEventService.storeEventAndUpdateStateForMandate(mandate, eventType);
     }
 
+    @Test
+    public void insertMandateEvents_insertedInOneBatchForValidTransitions() {
+        Mandate mandateWithNoEvents = aMandateFixture().withId(3L).toEntity();
+        var previousEvent = aGovUkPayEventFixture()
+                .withResourceType(MANDATE)
+                .withMandateId(mandateId)
+                .withEventType(MANDATE_CREATED)
+                .toEntity();
+        GovUkPayEventType newEventType = MANDATE_USER_SETUP_EXPIRED;
+
+        when(mockGovUkPayEventDao.findLatestEventsForMandates(List.of(mandateId, 3L))).thenReturn(List.of(previousEvent));
+        when(mockGovUkPayEventStateGraph.isValidTransition(MANDATE_CREATED, newEventType)).thenReturn(true);
+        when(mockGovUkPayEventStateGraph.isValidStartValue(newEventType)).thenReturn(true);
+
+        govUkPayEventService.storeEventsAndUpdateStatesForMandates(List.of(mandate, mandateWithNoEvents), newEventType);
+
+        verify(mockGovUkPayEventDao).insert(eventsCaptor.capture());
+        verify(mockMandateStateUpdater).updateStatesIfNecessary(List.of(mandate, mandateWithNoEvents));
+
+        List<GovUkPayEvent> insertedEvents = eventsCaptor.getValue();
+        assertThat(insertedEvents.size(), is(2));
+        assertThat(insertedEvents.get(0).getMandateId(), is(Optional.of(mandateId)));
+        assertThat(insertedEvents.get(1).getMandateId(), is(Optional.of(3L)));
+        insertedEvents.forEach(insertedEvent -> {
+            assertThat(insertedEvent.getEventType(), is(newEventType));
+            assertThat(insertedEvent.getResourceType(), is(MANDATE));
+        });
+    }
+
+    @Test
+    public void insertMandateEvents_shouldSkipMandatesWithInvalidTransitionsAndInsertTheRest() {
+        Mandate expiredMandate = aMandateFixture().withId(3L).toEntity();
+        var createdEvent = aGovUkPayEventFixture()
+                .withResourceType(MANDATE)
+                .withMandateId(mandateId)
+                .withEventType(MANDATE_CREATED)
+                .toEntity();
+        var expiredEvent = aGovUkPayEventFixture()
+                .withResourceType(MANDATE)
+                .withMandateId(3L)
+                .withEventType(MANDATE_USER_SETUP_EXPIRED)
+                .toEntity();
+
+        when(mockGovUkPayEventDao.findLatestEventsForMandates(List.of(mandateId, 3L))).thenReturn(List.of(createdEvent, expiredEvent));
+        when(mockGovUkPayEventStateGraph.isValidTransition(MANDATE_CREATED, MANDATE_USER_SETUP_EXPIRED)).thenReturn(true);
+        when(mockGovUkPayEventStateGraph.isValidTransition(MANDATE_USER_SETUP_EXPIRED, MANDATE_USER_SETUP_EXPIRED)).thenReturn(false);
+
+        List<Mandate> updatedMandates = govUkPayEventService.storeEventsAndUpdateStatesForMandates(List.of(mandate, expiredMandate),
+                MANDATE_USER_SETUP_EXPIRED);
+
+        assertThat(updatedMandates, is(List.of(mandate)));
+        verify(mockGovUkPayEventDao).insert(eventsCaptor.capture());
+        verify(mockMandateStateUpdater).updateStatesIfNecessary(List.of(mandate));
+        List<GovUkPayEvent> insertedEvents = eventsCaptor.getValue();
+        assertThat(insertedEvents.size(), is(1));
+        assertThat(insertedEvents.get(0).getMandateId(), is(Optional.of(mandateId)));
+    }
+
+    @Test
+    public void insertMandateEvents_shouldInsertNothingIfEveryTransitionIsInvalid() {
+        var previousEvent = aGovUkPayEventFixture()
+                .withResourceType(MANDATE)
+                .withMandateId(mandateId)
+                .withEventType(MANDATE_USER_SETUP_EXPIRED)
+                .toEntity();
+
+        when(mockGovUkPayEventDao.findLatestEventsForMandates(List.of(mandateId))).thenReturn(List.of(previousEvent));
+        when(mockGovUkPayEventStateGraph.isValidTransition(MANDATE_USER_SETUP_EXPIRED, MANDATE_USER_SETUP_EXPIRED)).thenReturn(false);
+
+        List<Mandate> updatedMandates = govUkPayEventService.storeEventsAndUpdateStatesForMandates(List.of(mandate),
+                MANDATE_USER_SETUP_EXPIRED);
+
+        assertThat(updatedMandates, is(List.of()));
+        verify(mockGovUkPayEventDao, never()).insert(eventsCaptor.capture());
+        verify(mockMandateStateUpdater, never()).updateStatesIfNecessary(anyCollection());
+    }
+
+    @Test
+    public void insertPaymentEvents_shouldSkipPaymentsWithInvalidInitialEventsAndInsertTheRest() {
+        Payment paymentWithNoEvents = aPaymentFixture().withId(3L).toEntity();
+        var previousEvent = aGovUkPayEventFixture()
+                .withResourceType(PAYMENT)
+                .withPaymentId(paymentId)
+                .withEventType(PAYMENT_CREATED)
+                .toEntity();
+
+        when(mockGovUkPayEventDao.findLatestEventsForPayments(List.of(paymentId, 3L))).thenReturn(List.of(previousEvent));
+        when(mockGovUkPayEventStateGraph.isValidTransition(PAYMENT_CREATED, PAYMENT_SUBMITTED)).thenReturn(true);
+        when(mockGovUkPayEventStateGraph.isValidStartValue(PAYMENT_SUBMITTED)).thenReturn(false);
+
+        List<Payment> updatedPayments = govUkPayEventService.storeEventsAndUpdateStatesForPayments(List.of(payment, paymentWithNoEvents),
+                PAYMENT_SUBMITTED);
+
+        assertThat(updatedPayments, is(List.of(payment)));
+        verify(mockGovUkPayEventDao).insert(eventsCaptor.capture());
+        verify(mockPaymentStateUpdater).updateStatesIfNecessary(List.of(payment));
+        List<GovUkPayEvent> insertedEvents = eventsCaptor.getValue();
+        assertThat(insertedEvents.size(), is(1));
+        assertThat(insertedEvents.get(0).getPaymentId(), is(Optional.of(paymentId)));
+    }
+
+    @Test
+    public void insertPaymentEvents_insertedInOneBatchForValidTransitions() {
+        Payment paymentWithNoEvents = aPaymentFixture().withId(3L).toEntity();
+        var previousEvent = aGovUkPayEventFixture()
+                .withResourceType(PAYMENT)
+                .withPaymentId(paymentId)
+                .withEventType(PAYMENT_CREATED)
+                .toEntity();
+
+        when(mockGovUkPayEventDao.findLatestEventsForPayments(List.of(paymentId, 3L))).thenReturn(List.of(previousEvent));
+        when(mockGovUkPayEventStateGraph.isValidTransition(PAYMENT_CREATED, PAYMENT_SUBMITTED)).thenReturn(true);
+        when(mockGovUkPayEventStateGraph.isValidStartValue(PAYMENT_SUBMITTED)).thenReturn(true);
+
+        govUkPayEventService.storeEventsAndUpdateStatesForPayments(List.of(payment, paymentWithNoEvents), PAYMENT_SUBMITTED);
+
+        verify(mockGovUkPayEventDao).insert(eventsCaptor.capture());
+        verify(mockPaymentStateUpdater).updateStatesIfNecessary(List.of(payment, paymentWithNoEvents));
+
+        List<GovUkPayEvent> insertedEvents = eventsCaptor.getValue();
+        assertThat(insertedEvents.size(), is(2));
+        assertThat(insertedEvents.get(0).getPaymentId(), is(Optional.of(paymentId)));
+        assertThat(insertedEvents.get(1).getPaymentId(), is(Optional.of(3L)));
+        insertedEvents.forEach(insertedEvent -> {
+            assertThat(insertedEvent.getEventType(), is(PAYMENT_SUBMITTED));
+            assertThat(insertedEvent.getResourceType(), is(PAYMENT));
+        });
+    }
+
     @Test
     public void insertPaymentEvent_insertedForValidInitialEvent() {
         GovUkPayEventType eventType = PAYMENT_CREATED;
@@ -1,5 +1,6 @@
 package uk.gov.pay.directdebit.payments.services;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -17,6 +18,8 @@ import uk.gov.pay.directdebit.payments.model.GoCardlessPaymentId;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.SandboxPaymentId;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -94,6 +97,30 @@ public class PaymentQueryServiceTest {
         assertThat(result, is(Optional.empty()));
     }
 
+    @Test
+    public void findByGoCardlessPaymentIdsAndOrganisationIdsLooksThemAllUpInOneQuery() {
+        GoCardlessPaymentId missingPaymentId = GoCardlessPaymentId.valueOf("PM456");
+        gatewayAccountFixture.withOrganisation(GOCARDLESS_ORGANISATION_ID);
+        Payment payment = paymentFixture.withPaymentProviderId(GOCARDLESS_PAYMENT_ID).toEntity();
+        given(mockPaymentDao.findPaymentsByProviderIdsAndOrganisationIds(GOCARDLESS,
+                new String[]{"PM123", "PM456"}, new String[]{"OR123", "OR123"}))
+                .willReturn(List.of(payment));
+
+        Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, Payment> result = paymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(
+                Pair.of(GOCARDLESS_PAYMENT_ID, GOCARDLESS_ORGANISATION_ID),
+                Pair.of(missingPaymentId, GOCARDLESS_ORGANISATION_ID)));
+
+        assertThat(result, is(Map.of(Pair.of(GOCARDLESS_PAYMENT_ID, GOCARDLESS_ORGANISATION_ID), payment)));
+    }
+
+    @Test
+    public void findByGoCardlessPaymentIdsAndOrganisationIdsDoesNotQueryForNoIds() {
+        Map<Pair<GoCardlessPaymentId, GoCardlessOrganisationId>, Payment> result = paymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of());
+
+        assertThat(result, is(Map.of()));
+        verifyZeroInteractions(mockPaymentDao);
+    }
+
     @Test
     public void findByTransactionExternalIdAndAccountId_shouldFindATransaction() {
         when(mockPaymentDao.findByExternalId(paymentFixture.getExternalId()))
@@ -8,7 +8,12 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.app.config.SearchConfig;
+import uk.gov.pay.directdebit.common.model.CountMode;
+import uk.gov.pay.directdebit.common.model.SearchCursor;
+import uk.gov.pay.directdebit.common.model.SearchPage;
 import uk.gov.pay.directdebit.common.model.SearchResponse;
+import uk.gov.pay.directdebit.common.services.SearchCounter;
 import uk.gov.pay.directdebit.common.util.RandomIdGenerator;
 import uk.gov.pay.directdebit.payments.api.ExternalPaymentState;
 import uk.gov.pay.directdebit.payments.api.ExternalPaymentStateWithDetails;
@@ -52,7 +57,7 @@ public class PaymentSearchServiceTest {
                 UriBuilder.fromUri("http://app.com"));
         when(mockUriInfo.getPath()).thenReturn("/v1/api/accounts/" + gatewayAccountExternalId + "/transactions/view");
 
-        paymentSearchService = new PaymentSearchService(mockPaymentViewDao).withUriInfo(mockUriInfo);
+        paymentSearchService = new PaymentSearchService(mockPaymentViewDao, new SearchCounter(new SearchConfig())).withUriInfo(mockUriInfo);
     }
 
     @Test
@@ -66,7 +71,8 @@ public class PaymentSearchServiceTest {
 
         List<PaymentResponse> paymentResponses = createPaymentResponses(4);
 
-        when(mockPaymentViewDao.searchPaymentView(searchParams, gatewayAccountExternalId)).thenReturn(paymentResponses);
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(new SearchPage<>(paymentResponses, 4L, 1L, false, false));
         when(mockPaymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)).thenReturn(4);
         
         SearchResponse<PaymentResponse> response = paymentSearchService.getPaymentSearchResponse(searchParams,
@@ -88,7 +94,8 @@ public class PaymentSearchServiceTest {
                 .build();
 
         when(mockPaymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)).thenReturn(50);
-        when(mockPaymentViewDao.searchPaymentView(searchParams, gatewayAccountExternalId)).thenReturn(paymentResponses);
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(new SearchPage<>(paymentResponses, 30L, 11L, true, true));
 
         SearchResponse paymentViewResponse = paymentSearchService.getPaymentSearchResponse(searchParams,
                 gatewayAccountExternalId);
@@ -112,7 +119,8 @@ public class PaymentSearchServiceTest {
                 .build();
 
         when(mockPaymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)).thenReturn(18);
-        when(mockPaymentViewDao.searchPaymentView(searchParams, gatewayAccountExternalId)).thenReturn(paymentViewList);
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(new SearchPage<>(paymentViewList, null, null, true, false));
 
         SearchResponse<PaymentResponse> paymentViewResponse = paymentSearchService.getPaymentSearchResponse(searchParams,
                 gatewayAccountExternalId);
@@ -128,6 +136,57 @@ public class PaymentSearchServiceTest {
         assertThat(paymentViewResponse.getLinksForSearchResult().getSelfLink().getHref().contains("?page=2&display_size=500"), is(true));
     }
 
+    @Test
+    public void shouldReturnCursorLinks_whenSearchingAfterACursor() {
+        List<PaymentResponse> paymentResponses = createPaymentResponses(20);
+
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withAfter(SearchCursor.encode(51L))
+                .withDisplaySize(20)
+                .build();
+
+        when(mockPaymentViewDao.getPaymentViewCount(searchParams, gatewayAccountExternalId)).thenReturn(70);
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(new SearchPage<>(paymentResponses, 50L, 31L, true, true));
+
+        SearchResponse<PaymentResponse> paymentViewResponse = paymentSearchService.getPaymentSearchResponse(searchParams,
+                gatewayAccountExternalId);
+
+        assertThat(paymentViewResponse.getCount(), is(20));
+        assertThat(paymentViewResponse.getPage(), is(nullValue()));
+        assertThat(paymentViewResponse.getTotal(), is(70));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getSelfLink().getHref()
+                .contains("?after=" + SearchCursor.encode(51L) + "&display_size=20"), is(true));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getFirstLink().getHref().contains("?page=1&display_size=20"), is(true));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getLastLink(), is(nullValue()));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getPrevLink().getHref()
+                .contains("?before=" + SearchCursor.encode(50L) + "&display_size=20"), is(true));
+        assertThat(paymentViewResponse.getLinksForSearchResult().getNextLink().getHref()
+                .contains("?after=" + SearchCursor.encode(31L) + "&display_size=20"), is(true));
+    }
+
+    @Test
+    public void shouldReturnCappedTotalWithoutLastPageLink_whenCountModeIsEstimateAndThereAreMorePaymentsThanTheLimit() {
+        PaymentViewSearchParams searchParams = aPaymentViewSearchParams()
+                .withDisplaySize(20)
+                .withCountMode(CountMode.ESTIMATE)
+                .build();
+        int estimateCountLimit = new SearchConfig().getEstimateCountLimit();
+
+        List<PaymentResponse> paymentResponses = createPaymentResponses(20);
+        when(mockPaymentViewDao.countPaymentViewUpTo(searchParams, gatewayAccountExternalId, estimateCountLimit + 1))
+                .thenReturn(estimateCountLimit + 1);
+        when(mockPaymentViewDao.searchPaymentViewPage(searchParams, gatewayAccountExternalId))
+                .thenReturn(new SearchPage<>(paymentResponses, 20L, 1L, false, true));
+
+        SearchResponse<PaymentResponse> response = paymentSearchService.getPaymentSearchResponse(searchParams,
+                gatewayAccountExternalId);
+
+        assertThat(response.getTotal(), is(estimateCountLimit));
+        assertThat(response.getTotalCapped(), is(true));
+        assertThat(response.getLinksForSearchResult().getLastLink(), is(nullValue()));
+        assertThat(response.getLinksForSearchResult().getNextLink().getHref().contains("count_mode=estimate&page=2&display_size=20"), is(true));
+    }
 
     @NotNull
     private List<PaymentResponse> createPaymentResponses(int numberOfPayments) {
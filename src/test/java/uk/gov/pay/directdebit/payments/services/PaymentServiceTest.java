@@ -7,6 +7,8 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.exception.InvalidGovUkPayEventInsertionException;
+import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.services.GovUkPayEventService;
 import uk.gov.pay.directdebit.mandate.fixtures.MandateFixture;
 import uk.gov.pay.directdebit.mandate.model.Mandate;
@@ -24,14 +26,18 @@ import uk.gov.pay.directdebit.payments.model.PaymentProviderPaymentIdAndChargeDa
 import uk.gov.pay.directdebit.payments.model.SandboxPaymentId;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_CREATED;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_ERROR_SUBMITTING_TO_PROVIDER;
@@ -90,6 +96,38 @@ public class PaymentServiceTest {
         assertThat(paymentResponse.getReference(), is(paymentFixture.getReference()));
     }
 
+    @Test
+    public void createPaymentsShouldInsertPaymentsAndEventsInOneTransaction() {
+        Mandate mandate = mandateFixture.toEntity();
+        Payment firstPayment = service.newPayment(100L, "first description", "first reference", mandate);
+        Payment secondPayment = service.newPayment(200L, "second description", "second reference", mandate);
+        List<Payment> insertedPayments = List.of(fromPayment(firstPayment).withId(11L).build(),
+                fromPayment(secondPayment).withId(12L).build());
+
+        when(mockedPaymentDao.insertWithEvents(List.of(firstPayment, secondPayment), PAYMENT_CREATED)).thenReturn(insertedPayments);
+
+        List<Payment> createdPayments = service.createPayments(List.of(firstPayment, secondPayment));
+
+        assertThat(createdPayments, is(insertedPayments));
+        verify(mockedGovUkPayEventService).validateInitialEventForPayment(firstPayment, PAYMENT_CREATED);
+        verify(mockedGovUkPayEventService).validateInitialEventForPayment(secondPayment, PAYMENT_CREATED);
+    }
+
+    @Test
+    public void createPaymentsShouldStoreNothingWhenTheCreationEventIsInvalid() {
+        Mandate mandate = mandateFixture.toEntity();
+        Payment payment = service.newPayment(100L, "description", "reference", mandate);
+        doThrow(new InvalidGovUkPayEventInsertionException(new GovUkPayEvent(payment, PAYMENT_CREATED)))
+                .when(mockedGovUkPayEventService).validateInitialEventForPayment(payment, PAYMENT_CREATED);
+
+        try {
+            service.createPayments(List.of(payment));
+            fail("Expected InvalidGovUkPayEventInsertionException");
+        } catch (InvalidGovUkPayEventInsertionException e) {
+            verifyNoInteractions(mockedPaymentDao);
+        }
+    }
+
     @Test
     public void createShouldCreatePayment() {
         Mandate mandate = mandateFixture.toEntity();
@@ -154,6 +192,15 @@ public class PaymentServiceTest {
         assertThat(returnedPayment, is(paymentWithUpdatedState));
     }
 
+    @Test
+    public void abandonSubmissionToProvider_shouldRegisterErrorSubmittingToProvider() {
+        Payment payment = PaymentFixture.aPaymentFixture().withMandateFixture(mandateFixture).toEntity();
+
+        service.abandonSubmissionToProvider(payment);
+
+        verify(mockedGovUkPayEventService).storeEventAndUpdateStateForPayment(payment, PAYMENT_ERROR_SUBMITTING_TO_PROVIDER);
+    }
+
     @Test
     public void submitPaymentToProvider_shouldRegisterErrorSubmittingToProviderWhenCreatePaymentFailedException() {
         Mandate mandate = mandateFixture.withPaymentProviderId(SANDBOX_MANDATE_ID).toEntity();
@@ -14,6 +14,9 @@ import uk.gov.pay.directdebit.payments.model.PaymentState;
 import uk.gov.pay.directdebit.payments.services.gocardless.GoCardlessPaymentStateCalculator;
 import uk.gov.pay.directdebit.payments.services.sandbox.SandboxPaymentStateCalculator;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -77,6 +80,28 @@ public class PaymentStateUpdaterTest {
         verify(mockPaymentUpdateService, never()).updateState(any(), any());
     }
 
+    @Test
+    public void updatesPaymentsWithStatesReturnedByCalculatorForEachPaymentProvider() {
+        Payment goCardlessPayment = createPayment(GOCARDLESS);
+        Payment sandboxPayment = createPayment(SANDBOX);
+        Payment paymentWithoutNewState = createPayment(GOCARDLESS);
+
+        var goCardlessPaymentState = new DirectDebitStateWithDetails<>(PaymentState.PAID_OUT);
+        var sandboxPaymentState = new DirectDebitStateWithDetails<>(PaymentState.SUBMITTED_TO_PROVIDER);
+
+        given(mockGoCardlessPaymentStateCalculator.calculateAll(List.of(goCardlessPayment, paymentWithoutNewState)))
+                .willReturn(Map.of(goCardlessPayment, goCardlessPaymentState));
+        given(mockSandboxPaymentStateCalculator.calculateAll(List.of(sandboxPayment)))
+                .willReturn(Map.of(sandboxPayment, sandboxPaymentState));
+
+        paymentStateUpdater.updateStatesIfNecessary(List.of(goCardlessPayment, sandboxPayment, paymentWithoutNewState));
+
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> expectedPaymentStates = new HashMap<>();
+        expectedPaymentStates.put(goCardlessPayment, goCardlessPaymentState);
+        expectedPaymentStates.put(sandboxPayment, sandboxPaymentState);
+        verify(mockPaymentUpdateService).updateStates(expectedPaymentStates);
+    }
+
     private Payment createPayment(PaymentProvider paymentProvider) {
         GatewayAccountFixture gatewayAccountFixture = aGatewayAccountFixture().withPaymentProvider(paymentProvider);
         MandateFixture mandateFixture = aMandateFixture().withGatewayAccountFixture(gatewayAccountFixture);
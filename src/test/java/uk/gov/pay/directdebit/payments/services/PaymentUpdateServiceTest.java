@@ -10,12 +10,18 @@ import uk.gov.pay.directdebit.payments.dao.PaymentDao;
 import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static uk.gov.pay.directdebit.payments.fixtures.PaymentFixture.aPaymentFixture;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.FAILED;
+import static uk.gov.pay.directdebit.payments.model.PaymentState.PAID_OUT;
 import static uk.gov.pay.directdebit.payments.model.PaymentState.SUBMITTED_TO_PROVIDER;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -64,4 +70,27 @@ public class PaymentUpdateServiceTest {
         assertThat(updatedPayment.getStateDetailsDescription(), is(Optional.of(description)));
     }
 
+
+    @Test
+    public void callsToUpdateStatesOfAllPaymentsInOneBatch() {
+        Payment otherPayment = aPaymentFixture().toEntity();
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> paymentStates = new LinkedHashMap<>();
+        paymentStates.put(payment, new DirectDebitStateWithDetails<>(PAID_OUT, "paid-details", "paid-description"));
+        paymentStates.put(otherPayment, new DirectDebitStateWithDetails<>(FAILED, "failed-details", "failed-description"));
+
+        paymentUpdateService.updateStates(paymentStates);
+
+        verify(mockPaymentDao).updateStateAndDetails(
+                List.of(payment.getId(), otherPayment.getId()),
+                List.of(PAID_OUT, FAILED),
+                List.of("paid-details", "failed-details"),
+                List.of("paid-description", "failed-description"));
+    }
+
+    @Test
+    public void doesNothingWhenThereAreNoStatesToUpdate() {
+        paymentUpdateService.updateStates(Map.of());
+
+        verifyNoInteractions(mockPaymentDao);
+    }
 }
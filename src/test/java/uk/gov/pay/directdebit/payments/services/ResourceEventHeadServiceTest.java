@@ -0,0 +1,55 @@
+package uk.gov.pay.directdebit.payments.services;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
+import uk.gov.pay.directdebit.events.services.ResourceEventHeadService;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceEventHeadServiceTest {
+
+    @Mock
+    private ResourceEventHeadDao mockResourceEventHeadDao;
+
+    private ResourceEventHeadService service;
+
+    @Before
+    public void setUp() {
+        service = new ResourceEventHeadService(mockResourceEventHeadDao);
+    }
+
+    @Test
+    public void rebuild_shouldRebuildHeadsInBatchesUpToTheLatestIds() {
+        given(mockResourceEventHeadDao.findMaxMandateId()).willReturn(250L);
+        given(mockResourceEventHeadDao.findMaxPaymentId()).willReturn(100L);
+
+        service.rebuild(100);
+
+        verify(mockResourceEventHeadDao).rebuildMandateHeads(0, 100);
+        verify(mockResourceEventHeadDao).rebuildMandateHeads(100, 200);
+        verify(mockResourceEventHeadDao).rebuildMandateHeads(200, 250);
+        verify(mockResourceEventHeadDao).rebuildPaymentHeads(0, 100);
+        verify(mockResourceEventHeadDao, never()).rebuildPaymentHeads(100, 200);
+    }
+
+    @Test
+    public void rebuild_shouldDoNothingWhenThereAreNoMandatesOrPayments() {
+        service.rebuild(100);
+
+        verify(mockResourceEventHeadDao, never()).rebuildMandateHeads(anyLong(), anyLong());
+        verify(mockResourceEventHeadDao, never()).rebuildPaymentHeads(anyLong(), anyLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rebuild_shouldRejectBatchSizeLessThanOne() {
+        service.rebuild(0);
+    }
+}
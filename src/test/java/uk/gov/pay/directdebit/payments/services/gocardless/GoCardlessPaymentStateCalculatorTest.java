@@ -14,9 +14,11 @@ import org.mockito.junit.MockitoRule;
 import uk.gov.pay.directdebit.common.model.DirectDebitStateWithDetails;
 import uk.gov.pay.directdebit.events.dao.GoCardlessEventDao;
 import uk.gov.pay.directdebit.events.dao.GovUkPayEventDao;
+import uk.gov.pay.directdebit.events.dao.ResourceEventHeadDao;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEvent;
 import uk.gov.pay.directdebit.events.model.GovUkPayEventType;
+import uk.gov.pay.directdebit.events.model.ResourceEventHead;
 import uk.gov.pay.directdebit.gatewayaccounts.exception.GatewayAccountMissingOrganisationIdException;
 import uk.gov.pay.directdebit.gatewayaccounts.model.GoCardlessOrganisationId;
 import uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider;
@@ -27,12 +29,18 @@ import uk.gov.pay.directdebit.payments.model.Payment;
 import uk.gov.pay.directdebit.payments.model.PaymentState;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.time.ZoneOffset.UTC;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static uk.gov.pay.directdebit.events.model.GovUkPayEvent.ResourceType.PAYMENT;
 import static uk.gov.pay.directdebit.events.model.GovUkPayEventType.PAYMENT_SUBMITTED;
 import static uk.gov.pay.directdebit.gatewayaccounts.model.PaymentProvider.GOCARDLESS;
 import static uk.gov.pay.directdebit.mandate.fixtures.MandateFixture.aMandateFixture;
@@ -55,6 +63,9 @@ public class GoCardlessPaymentStateCalculatorTest {
     @Mock
     private GovUkPayEventDao mockGovUkPayEventDao;
 
+    @Mock
+    private ResourceEventHeadDao mockResourceEventHeadDao;
+
     @InjectMocks
     private GoCardlessPaymentStateCalculator goCardlessPaymentStateCalculator;
 
@@ -214,4 +225,114 @@ public class GoCardlessPaymentStateCalculatorTest {
         goCardlessPaymentStateCalculator.calculate(payment);
     }
 
+    @Test
+    public void calculatesStatesForManyPaymentsFromLatestEventsLookedUpInBulk() {
+        MandateFixture mandateFixture = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId));
+        GoCardlessPaymentId otherGoCardlessPaymentId = GoCardlessPaymentId.valueOf("another-payment-id");
+        GoCardlessPaymentId goCardlessPaymentIdWithNoEvents = GoCardlessPaymentId.valueOf("payment-with-no-events");
+        Payment otherPayment = aPaymentFixture()
+                .withMandateFixture(mandateFixture)
+                .withPaymentProviderId(otherGoCardlessPaymentId)
+                .toEntity();
+        Payment paymentWithNoEvents = aPaymentFixture()
+                .withMandateFixture(mandateFixture)
+                .withPaymentProviderId(goCardlessPaymentIdWithNoEvents)
+                .toEntity();
+
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withAction("paid_out")
+                .withLinksPayment(goCardlessPaymentId)
+                .withLinksOrganisation(goCardlessOrganisationId)
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockGoCardlessEventDao.findLatestApplicableEventsForPayments(
+                new String[]{goCardlessPaymentId.toString(), otherGoCardlessPaymentId.toString(), goCardlessPaymentIdWithNoEvents.toString()},
+                new String[]{goCardlessOrganisationId.toString(), goCardlessOrganisationId.toString(), goCardlessOrganisationId.toString()},
+                GOCARDLESS_ACTIONS_THAT_CHANGE_PAYMENT_STATE))
+                .willReturn(List.of(goCardlessEvent));
+
+        GovUkPayEvent earlierGovUkPayEvent = aGovUkPayEventFixture()
+                .withPaymentId(payment.getId())
+                .withEventType(PAYMENT_SUBMITTED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        GovUkPayEvent otherGovUkPayEvent = aGovUkPayEventFixture()
+                .withPaymentId(otherPayment.getId())
+                .withEventType(PAYMENT_SUBMITTED)
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForPayments(
+                List.of(payment.getId(), otherPayment.getId(), paymentWithNoEvents.getId()),
+                GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE))
+                .willReturn(List.of(earlierGovUkPayEvent, otherGovUkPayEvent));
+
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> result
+                = goCardlessPaymentStateCalculator.calculateAll(List.of(payment, otherPayment, paymentWithNoEvents));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(payment).getState(), is(PaymentState.PAID_OUT));
+        assertThat(result.get(otherPayment).getState(), is(PaymentState.SUBMITTED_TO_PROVIDER));
+    }
+
+    @Test
+    public void resolvesStateFromEventHeadWithoutLookingThroughEventHistory() {
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture()
+                .withId(10L)
+                .withAction("failed")
+                .withCreatedAt(ZonedDateTime.of(2019, 7, 22, 9, 0, 0, 0, UTC))
+                .toEntity();
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withId(20L)
+                .withEventType(PAYMENT_SUBMITTED)
+                .withEventDate(ZonedDateTime.of(2019, 7, 22, 10, 0, 0, 0, UTC))
+                .toEntity();
+        given(mockResourceEventHeadDao.findByResource(PAYMENT, payment.getId()))
+                .willReturn(Optional.of(new ResourceEventHead(PAYMENT, payment.getId(), 10L, 20L)));
+        given(mockGoCardlessEventDao.findById(10L)).willReturn(Optional.of(goCardlessEvent));
+        given(mockGovUkPayEventDao.findById(20L)).willReturn(Optional.of(govUkPayEvent));
+
+        Optional<DirectDebitStateWithDetails<PaymentState>> result = goCardlessPaymentStateCalculator.calculate(payment);
+
+        assertThat(result.get().getState(), is(PaymentState.SUBMITTED_TO_PROVIDER));
+        verify(mockGoCardlessEventDao, never()).findLatestApplicableEventForPayment(any(), any(), any());
+        verify(mockGovUkPayEventDao, never()).findLatestApplicableEventForPayment(any(), any());
+    }
+
+    @Test
+    public void calculatesStatesForManyPaymentsFromEventHeadsFallingBackToEventHistory() {
+        MandateFixture mandateFixture = aMandateFixture().withGatewayAccountFixture(aGatewayAccountFixture()
+                .withPaymentProvider(GOCARDLESS)
+                .withOrganisation(goCardlessOrganisationId));
+        Payment paymentWithHead = aPaymentFixture()
+                .withId(1L)
+                .withMandateFixture(mandateFixture)
+                .withPaymentProviderId(goCardlessPaymentId)
+                .toEntity();
+        Payment paymentWithoutHead = aPaymentFixture()
+                .withId(2L)
+                .withMandateFixture(mandateFixture)
+                .withPaymentProviderId(GoCardlessPaymentId.valueOf("payment-without-head"))
+                .toEntity();
+
+        given(mockResourceEventHeadDao.findByResources(PAYMENT, List.of(1L, 2L)))
+                .willReturn(List.of(new ResourceEventHead(PAYMENT, 1L, 10L, null)));
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withId(10L).withAction("paid_out").toEntity();
+        given(mockGoCardlessEventDao.findByIds(List.of(10L))).willReturn(List.of(goCardlessEvent));
+
+        GovUkPayEvent govUkPayEvent = aGovUkPayEventFixture()
+                .withPaymentId(2L)
+                .withEventType(PAYMENT_SUBMITTED)
+                .toEntity();
+        given(mockGovUkPayEventDao.findLatestApplicableEventsForPayments(List.of(2L), GOV_UK_PAY_EVENT_TYPES_THAT_CHANGE_PAYMENT_STATE))
+                .willReturn(List.of(govUkPayEvent));
+
+        Map<Payment, DirectDebitStateWithDetails<PaymentState>> result
+                = goCardlessPaymentStateCalculator.calculateAll(List.of(paymentWithHead, paymentWithoutHead));
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(paymentWithHead).getState(), is(PaymentState.PAID_OUT));
+        assertThat(result.get(paymentWithoutHead).getState(), is(PaymentState.SUBMITTED_TO_PROVIDER));
+        verify(mockGovUkPayEventDao, never()).findByIds(any());
+    }
 }
@@ -14,6 +14,7 @@ import uk.gov.pay.directdebit.mandate.model.Mandate;
 import uk.gov.pay.directdebit.mandate.services.MandateQueryService;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,9 +44,26 @@ public class ExpireServiceTest {
         when(mockMandateQueryService
                 .findAllMandatesBySetOfStatesAndMaxCreationTime(any(), any()))
                 .thenReturn(Collections.singletonList(mandate));
+        when(mockGovUkPayEventService.storeEventsAndUpdateStatesForMandates(List.of(mandate), GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED))
+                .thenReturn(List.of(mandate));
+        int numberOfExpiredMandates = expireService.expireMandates();
+
+        verify(mockGovUkPayEventService).storeEventsAndUpdateStatesForMandates(List.of(mandate), GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
+        assertEquals(1, numberOfExpiredMandates);
+    }
+
+    @Test
+    public void expireMandates_shouldOnlyCountMandatesThatCouldBeExpired() {
+        Mandate mandate = MandateFixture.aMandateFixture().withState(CREATED).toEntity();
+        Mandate mandateInBadState = MandateFixture.aMandateFixture().withState(CREATED).toEntity();
+        when(mockMandateQueryService
+                .findAllMandatesBySetOfStatesAndMaxCreationTime(any(), any()))
+                .thenReturn(List.of(mandateInBadState, mandate));
+        when(mockGovUkPayEventService.storeEventsAndUpdateStatesForMandates(List.of(mandateInBadState, mandate),
+                GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED)).thenReturn(List.of(mandate));
+
         int numberOfExpiredMandates = expireService.expireMandates();
 
-        verify(mockGovUkPayEventService).storeEventAndUpdateStateForMandate(mandate, GovUkPayEventType.MANDATE_USER_SETUP_EXPIRED);
         assertEquals(1, numberOfExpiredMandates);
     }
 }
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -147,6 +148,47 @@ public class GoCardlessWebhookParserTest {
         parser.parse("");
     }
     
+    @Test
+    public void shouldStoreTheJsonOfEachEventExactlyAsItWasReceived() {
+        String firstEvent = "{\n  \"id\": \"EV1\",\n  \"created_at\": \"2020-07-01T10:00:00.000Z\",\n" +
+                "  \"resource_type\": \"payments\", \"action\": \"confirmed\",\n" +
+                "  \"details\": {\"cause\": \"payment_confirmed\", \"description\": \"Zahlung bestätigt – £10\"},\n" +
+                "  \"metadata\": {\"nested\": [1, {\"links\": {}}]},\n" +
+                "  \"links\": {\"payment\": \"PM1\", \"organisation\": \"OR1\"}\n}";
+        String secondEvent = "{\"links\": {\"organisation\": \"OR1\", \"mandate\": \"MD1\"}, \"resource_type\": \"mandates\", " +
+                "\"action\": \"active\", \"id\": \"EV2\", \"details\": {}, \"created_at\": \"2020-07-01T10:00:01.000Z\"}";
+        String payload = "{\"meta\": {\"webhook_id\": \"WB1\"}, \"events\": [ " + firstEvent + " ,\n" + secondEvent + "]}";
+
+        List<GoCardlessEvent> parsedEvents = parser.parse(payload.getBytes(UTF_8));
+
+        assertThat(parsedEvents.size(), is(2));
+        assertThat(parsedEvents.get(0).getJson(), is(firstEvent));
+        assertThat(parsedEvents.get(0).getResourceId(), is("PM1"));
+        assertThat(parsedEvents.get(0).getDetailsDescription(), is("Zahlung bestätigt – £10"));
+        assertThat(parsedEvents.get(1).getJson(), is(secondEvent));
+        assertThat(parsedEvents.get(1).getResourceType(), is(MANDATES));
+        assertThat(parsedEvents.get(1).getResourceId(), is("MD1"));
+        assertThat(parsedEvents.get(1).getLinksMandate().get().toString(), is("MD1"));
+        assertThat(parsedEvents.get(1).getLinksOrganisation(), is(GoCardlessOrganisationId.valueOf("OR1")));
+    }
+
+    @Test
+    public void shouldThrow_ifWebhookPayloadHasNoEvents() {
+        thrown.expect(WebhookParserException.class);
+        thrown.expectMessage("Failed to parse webhooks, body: ");
+        thrown.reportMissingExceptionWithMessage("WebhookParserException expected");
+        parser.parse("{\"meta\": {}}");
+    }
+
+    @Test
+    public void shouldThrow_ifAnEventIsMissingItsResourceLink() {
+        thrown.expect(WebhookParserException.class);
+        thrown.expectMessage("Failed to parse webhooks, body: ");
+        thrown.reportMissingExceptionWithMessage("WebhookParserException expected");
+        parser.parse("{\"events\": [{\"id\": \"EV1\", \"action\": \"confirmed\", \"resource_type\": \"payments\", " +
+                "\"created_at\": \"2020-07-01T10:00:00.000Z\", \"details\": {}, \"links\": {\"organisation\": \"OR1\"}}]}");
+    }
+
     private String buildValidEvent(String eventId, String action, GoCardlessResourceType resourceType, String resourceId,
                                    ZonedDateTime createdAt, GoCardlessOrganisationId organisationIdentifier) {
         return Json.createObjectBuilder()
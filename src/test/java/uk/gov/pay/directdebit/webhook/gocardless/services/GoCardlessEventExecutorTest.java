@@ -0,0 +1,119 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.setup.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.directdebit.app.config.WebhookProcessingConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class GoCardlessEventExecutorTest {
+
+    private Environment environment;
+
+    @Before
+    public void setUp() {
+        environment = new Environment("test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (var managed : environment.lifecycle().getManagedObjects()) {
+            managed.stop();
+        }
+    }
+
+    @Test
+    public void shouldKeepItemsWithTheSameKeyInOrderInOnePartition() throws Exception {
+        var executor = GoCardlessEventExecutor.from(asynchronousConfig(4, 10), environment);
+        var itemsSeenByThread = new ConcurrentHashMap<String, List<String>>();
+        var latch = new CountDownLatch(1);
+
+        executor.executeInPartitions(List.of("MD1-a", "MD2-a", "MD1-b", "MD2-b", "MD1-c"), item -> item.substring(0, 3), items -> {
+            itemsSeenByThread.computeIfAbsent(Thread.currentThread().getName(), name -> new CopyOnWriteArrayList<>()).addAll(items);
+            if (itemsSeenByThread.values().stream().mapToInt(List::size).sum() == 5) {
+                latch.countDown();
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        List<String> md1Items = itemsSeenByThread.values().stream()
+                .filter(items -> items.contains("MD1-a"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(md1Items.indexOf("MD1-a") < md1Items.indexOf("MD1-b"), is(true));
+        assertThat(md1Items.indexOf("MD1-b") < md1Items.indexOf("MD1-c"), is(true));
+    }
+
+    @Test
+    public void shouldRunAllItemsAtOnceOnCallingThreadWhenSynchronous() {
+        var executor = GoCardlessEventExecutor.from(webhookProcessingConfig(Map.of("asynchronous", false)), environment);
+        var callingThread = Thread.currentThread();
+        var batches = new CopyOnWriteArrayList<List<String>>();
+
+        executor.executeInPartitions(List.of("a", "b", "c"), item -> item, items -> {
+            assertThat(Thread.currentThread(), is(callingThread));
+            batches.add(items);
+        });
+
+        assertThat(batches, is(List.of(List.of("a", "b", "c"))));
+    }
+
+    @Test
+    public void shouldLeaveItemsForLaterRatherThanBlockWhenPartitionQueueStaysFull() throws Exception {
+        var executor = GoCardlessEventExecutor.from(webhookProcessingConfig(Map.of(
+                "asynchronous", true, "threads", 1, "queueCapacity", 1, "queueTimeout", "10ms")), environment);
+        var workerStarted = new CountDownLatch(1);
+        var releaseWorker = new CountDownLatch(1);
+        var processedItems = new CopyOnWriteArrayList<String>();
+
+        executor.executeInPartitions(List.of("running"), item -> item, items -> {
+            workerStarted.countDown();
+            try {
+                releaseWorker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processedItems.addAll(items);
+        });
+        assertThat(workerStarted.await(5, TimeUnit.SECONDS), is(true));
+        executor.executeInPartitions(List.of("queued"), item -> item, processedItems::addAll);
+
+        long startedAt = System.nanoTime();
+        executor.executeInPartitions(List.of("dropped"), item -> item, processedItems::addAll);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        releaseWorker.countDown();
+        waitUntilProcessed(processedItems, "queued");
+        executor.executeInPartitions(List.of("last"), item -> item, processedItems::addAll);
+        waitUntilProcessed(processedItems, "last");
+
+        assertThat(waitedMillis < 1000, is(true));
+        assertThat(processedItems, is(List.of("running", "queued", "last")));
+        assertThat(environment.metrics().meter("gocardless-webhook-events.queue.dropped").getCount(), is(1L));
+    }
+
+    private static void waitUntilProcessed(List<String> processedItems, String item) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && !processedItems.contains(item); attempt++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static WebhookProcessingConfig asynchronousConfig(int threads, int queueCapacity) {
+        return webhookProcessingConfig(Map.of("asynchronous", true, "threads", threads, "queueCapacity", queueCapacity));
+    }
+
+    private static WebhookProcessingConfig webhookProcessingConfig(Map<String, Object> properties) {
+        return new ObjectMapper().convertValue(properties, WebhookProcessingConfig.class);
+    }
+}
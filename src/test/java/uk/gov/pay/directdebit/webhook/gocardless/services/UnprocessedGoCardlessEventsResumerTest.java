@@ -0,0 +1,103 @@
+package uk.gov.pay.directdebit.webhook.gocardless.services;
+
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
+import uk.gov.pay.directdebit.events.services.GoCardlessEventService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.directdebit.payments.fixtures.GoCardlessEventFixture.aGoCardlessEventFixture;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UnprocessedGoCardlessEventsResumerTest {
+
+    @Mock
+    private GoCardlessEventService mockedGoCardlessEventService;
+
+    @Mock
+    private WebhookGoCardlessService mockedWebhookGoCardlessService;
+
+    @Mock
+    private ScheduledExecutorService mockedScheduledExecutorService;
+
+    private UnprocessedGoCardlessEventsResumer resumer;
+
+    @Before
+    public void setUp() {
+        resumer = new UnprocessedGoCardlessEventsResumer(mockedGoCardlessEventService, mockedWebhookGoCardlessService,
+                mockedScheduledExecutorService, Duration.minutes(1));
+    }
+
+    @Test
+    public void shouldLookForUnprocessedEventsPeriodically() {
+        resumer.start();
+
+        verify(mockedScheduledExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(60000L), eq(60000L),
+                eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldProcessClaimedEventsPageByPageUntilAPageIsNotFull() {
+        List<GoCardlessEvent> firstPage = page(1L, 100);
+        List<GoCardlessEvent> secondPage = List.of(aGoCardlessEventFixture().withId(101L).toEntity());
+        when(mockedGoCardlessEventService.claimUnprocessedEvents(100)).thenReturn(firstPage, secondPage);
+
+        resumer.resumeUnprocessedEvents();
+
+        verify(mockedWebhookGoCardlessService).dispatchStoredEvents(firstPage);
+        verify(mockedWebhookGoCardlessService).dispatchStoredEvents(secondPage);
+    }
+
+    @Test
+    public void shouldCarryOnWithTheNextPageIfProcessingAPageFails() {
+        List<GoCardlessEvent> firstPage = page(1L, 100);
+        List<GoCardlessEvent> secondPage = List.of(aGoCardlessEventFixture().withId(101L).toEntity());
+        when(mockedGoCardlessEventService.claimUnprocessedEvents(100)).thenReturn(firstPage, secondPage);
+        doThrow(new RuntimeException("oops")).when(mockedWebhookGoCardlessService).dispatchStoredEvents(firstPage);
+
+        resumer.resumeUnprocessedEvents();
+
+        verify(mockedWebhookGoCardlessService).dispatchStoredEvents(secondPage);
+    }
+
+    @Test
+    public void shouldDoNothingIfThereAreNoUnclaimedUnprocessedEvents() {
+        when(mockedGoCardlessEventService.claimUnprocessedEvents(100)).thenReturn(List.of());
+
+        resumer.resumeUnprocessedEvents();
+
+        verify(mockedWebhookGoCardlessService, never()).dispatchStoredEvents(anyList());
+    }
+
+    @Test
+    public void shouldNotThrowIfClaimingEventsFails() {
+        when(mockedGoCardlessEventService.claimUnprocessedEvents(100)).thenThrow(new RuntimeException("database is down"));
+
+        resumer.resumeUnprocessedEvents();
+
+        verify(mockedWebhookGoCardlessService, never()).dispatchStoredEvents(anyList());
+    }
+
+    private static List<GoCardlessEvent> page(long firstId, int size) {
+        List<GoCardlessEvent> events = new ArrayList<>();
+        for (long id = firstId; id < firstId + size; id++) {
+            events.add(aGoCardlessEventFixture().withId(id).toEntity());
+        }
+        return events;
+    }
+}
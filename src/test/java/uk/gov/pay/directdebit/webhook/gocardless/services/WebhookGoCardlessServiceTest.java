@@ -1,9 +1,13 @@
 package uk.gov.pay.directdebit.webhook.gocardless.services;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.directdebit.events.model.GoCardlessEvent;
 import uk.gov.pay.directdebit.events.model.GoCardlessResourceType;
@@ -25,12 +29,18 @@ import uk.gov.pay.directdebit.webhook.gocardless.services.handlers.UnhandledGoCa
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.MANDATES;
 import static uk.gov.pay.directdebit.events.model.GoCardlessResourceType.PAYMENTS;
@@ -59,18 +69,22 @@ public class WebhookGoCardlessServiceTest {
     @Mock
     private UnhandledGoCardlessEventsLogger mockedUnhandledGoCardlessEventsLogger;
 
+    @Spy
+    private GoCardlessEventExecutor goCardlessEventExecutor = GoCardlessEventExecutor.synchronous(new MetricRegistry());
+
     @InjectMocks
     private WebhookGoCardlessService webhookGoCardlessService;
 
+    @Before
+    public void setUp() {
+        when(mockedGoCardlessEventService.storeEvents(any())).then(returnsFirstArg());
+    }
+
     @Test
     public void shouldInsertEvents() {
         Arrays.stream(GoCardlessResourceType.values()).forEach(t -> {
                     GoCardlessEvent event = aGoCardlessEventFixture().withResourceType(t).toEntity();
 
-                    when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                            event.getLinksMandate().get(), event.getLinksOrganisation()))
-                            .thenReturn(mock(Mandate.class));
-
                     List<GoCardlessEvent> events = List.of(event);
                     webhookGoCardlessService.processEvents(events);
                     verify(mockedGoCardlessEventService).storeEvents(events);
@@ -99,9 +113,9 @@ public class WebhookGoCardlessServiceTest {
         GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(MANDATES).withAction("created").toEntity();
         List<GoCardlessEvent> events = Collections.singletonList(goCardlessEvent);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(
-                goCardlessEvent.getLinksMandate().get(), goCardlessEvent.getLinksOrganisation()))
-                .thenReturn(mock(Mandate.class));
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(
+                List.of(Pair.of(goCardlessEvent.getLinksMandate().get(), goCardlessEvent.getLinksOrganisation()))))
+                .thenReturn(Map.of(Pair.of(goCardlessEvent.getLinksMandate().get(), goCardlessEvent.getLinksOrganisation()), mock(Mandate.class)));
 
         doThrow(new GoCardlessMandateNotFoundException("error", "OOPSIE"))
                 .when(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
@@ -170,23 +184,24 @@ public class WebhookGoCardlessServiceTest {
         Mandate mandate2 = mock(Mandate.class);
         Mandate mandate3 = mock(Mandate.class);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId1, goCardlessOrganisationId1))
-                .thenReturn(mandate1);
-
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId2, goCardlessOrganisationId1))
-                .thenReturn(mandate2);
-
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(goCardlessMandateId1, goCardlessOrganisationId2))
-                .thenReturn(mandate3);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(
+                Pair.of(goCardlessMandateId1, goCardlessOrganisationId1),
+                Pair.of(goCardlessMandateId2, goCardlessOrganisationId1),
+                Pair.of(goCardlessMandateId1, goCardlessOrganisationId2))))
+                .thenReturn(Map.of(
+                        Pair.of(goCardlessMandateId1, goCardlessOrganisationId1), mandate1,
+                        Pair.of(goCardlessMandateId2, goCardlessOrganisationId1), mandate2,
+                        Pair.of(goCardlessMandateId1, goCardlessOrganisationId2), mandate3));
 
         Payment payment1 = mock(Payment.class);
         Payment payment2 = mock(Payment.class);
 
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId1, goCardlessOrganisationId1))
-                .thenReturn(Optional.of(payment1));
-
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(goCardlessPaymentId2, goCardlessOrganisationId1))
-                .thenReturn(Optional.of(payment2));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(
+                Pair.of(goCardlessPaymentId1, goCardlessOrganisationId1),
+                Pair.of(goCardlessPaymentId2, goCardlessOrganisationId1))))
+                .thenReturn(Map.of(
+                        Pair.of(goCardlessPaymentId1, goCardlessOrganisationId1), payment1,
+                        Pair.of(goCardlessPaymentId2, goCardlessOrganisationId1), payment2));
 
         webhookGoCardlessService.processEvents(List.of(
                 goCardlessOrganisation1Mandate1Event,
@@ -196,11 +211,8 @@ public class WebhookGoCardlessServiceTest {
                 goCardlessOrganisation1Payment2Event,
                 goCardlessOrganisation2Mandate1Event));
 
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate1);
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate2);
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate3);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment1);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment2);
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate1, mandate2, mandate3));
+        verify(mockedPaymentStateUpdater).updateStatesIfNecessary(List.of(payment1, payment2));
     }
 
     @Test
@@ -239,13 +251,13 @@ public class WebhookGoCardlessServiceTest {
 
         Mandate mandate = mock(Mandate.class);
 
-        when(mockedMandateQueryService.findByGoCardlessMandateIdAndOrganisationId(mandateId, organisationId))
-                .thenReturn(mandate);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(Pair.of(mandateId, organisationId))))
+                .thenReturn(Map.of(Pair.of(mandateId, organisationId), mandate));
 
         Payment payment = mock(Payment.class);
 
-        when(mockedPaymentQueryService.findByGoCardlessPaymentIdAndOrganisationId(paymentId, organisationId))
-                .thenReturn(Optional.of(payment));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(Pair.of(paymentId, organisationId))))
+                .thenReturn(Map.of(Pair.of(paymentId, organisationId), payment));
 
         webhookGoCardlessService.processEvents(List.of(
                 legitimateMandateEvent,
@@ -253,8 +265,122 @@ public class WebhookGoCardlessServiceTest {
                 cursedMandateEventNotLinkedToMandate,
                 cursedPaymentEventNotLinkedToPayment));
 
-        verify(mockedMandateStateUpdater).updateStateIfNecessary(mandate);
-        verify(mockedPaymentStateUpdater).updateStateIfNecessary(payment);
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate));
+        verify(mockedPaymentStateUpdater).updateStatesIfNecessary(List.of(payment));
+    }
+
+    @Test
+    public void shouldMarkEventsAsProcessedOnceTheyHaveBeenHandled() {
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("created").toEntity();
+        List<GoCardlessEvent> events = List.of(goCardlessEvent);
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedGoCardlessEventService).storeEvents(events);
+        verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
+        verify(mockedUnhandledGoCardlessEventsLogger).logUnhandledEvents(events);
+        verify(mockedGoCardlessEventService).markEventsAsProcessed(events);
+    }
+
+    @Test
+    public void shouldNotHandleEventsThatHadAlreadyBeenStored() {
+        GoCardlessEvent redeliveredEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("confirmed").toEntity();
+        GoCardlessEvent newEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("created").toEntity();
+        List<GoCardlessEvent> events = List.of(redeliveredEvent, newEvent);
+        when(mockedGoCardlessEventService.storeEvents(events)).thenReturn(List.of(newEvent));
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(List.of(newEvent));
+        verify(mockedGoCardlessEventService).markEventsAsProcessed(List.of(newEvent));
+    }
+
+    @Test
+    public void shouldDoNothingMoreWhenAllEventsHadAlreadyBeenStored() {
+        GoCardlessEvent redeliveredEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("confirmed").toEntity();
+        List<GoCardlessEvent> events = List.of(redeliveredEvent);
+        when(mockedGoCardlessEventService.storeEvents(events)).thenReturn(List.of());
+
+        webhookGoCardlessService.processEvents(events);
+
+        verifyNoInteractions(goCardlessEventExecutor, mockedSendEmailsForGoCardlessEventsHandler, mockedUnhandledGoCardlessEventsLogger,
+                mockedPaymentQueryService, mockedPaymentStateUpdater);
     }
 
+    @Test
+    public void shouldOnlyStoreEventsOnTheCallingThreadWhenProcessingIsHandedOff() {
+        GoCardlessEventExecutor mockedGoCardlessEventExecutor = mock(GoCardlessEventExecutor.class);
+        var service = new WebhookGoCardlessService(mockedGoCardlessEventService, mockedMandateStateUpdater,
+                mockedPaymentStateUpdater, mockedMandateQueryService, mockedPaymentQueryService,
+                mockedSendEmailsForGoCardlessEventsHandler, mockedUnhandledGoCardlessEventsLogger, mockedGoCardlessEventExecutor);
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("created").toEntity();
+        List<GoCardlessEvent> events = List.of(goCardlessEvent);
+
+        service.processEvents(events);
+
+        verify(mockedGoCardlessEventService).storeEvents(events);
+        verify(mockedGoCardlessEventExecutor).executeInPartitions(eq(events), any(), any());
+        verifyNoInteractions(mockedSendEmailsForGoCardlessEventsHandler, mockedUnhandledGoCardlessEventsLogger,
+                mockedPaymentQueryService, mockedPaymentStateUpdater);
+    }
+
+    @Test
+    public void shouldOnlyUpdateStatesForMandatesAndPaymentsThatWereFound() {
+        GoCardlessOrganisationId organisationId = GoCardlessOrganisationId.valueOf("OR1");
+        GoCardlessMandateId foundMandateId = GoCardlessMandateId.valueOf("MD1");
+        GoCardlessMandateId missingMandateId = GoCardlessMandateId.valueOf("MD2");
+        GoCardlessPaymentId missingPaymentId = GoCardlessPaymentId.valueOf("PM1");
+
+        GoCardlessEvent foundMandateEvent = aGoCardlessEventFixture().withResourceType(MANDATES).withAction("active")
+                .withLinksMandate(foundMandateId).withLinksOrganisation(organisationId).toEntity();
+        GoCardlessEvent missingMandateEvent = aGoCardlessEventFixture().withResourceType(MANDATES).withAction("active")
+                .withLinksMandate(missingMandateId).withLinksOrganisation(organisationId).toEntity();
+        GoCardlessEvent missingPaymentEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("confirmed")
+                .withLinksPayment(missingPaymentId).withLinksOrganisation(organisationId).toEntity();
+
+        Mandate mandate = mock(Mandate.class);
+        when(mockedMandateQueryService.findByGoCardlessMandateIdsAndOrganisationIds(List.of(
+                Pair.of(foundMandateId, organisationId), Pair.of(missingMandateId, organisationId))))
+                .thenReturn(Map.of(Pair.of(foundMandateId, organisationId), mandate));
+        when(mockedPaymentQueryService.findByGoCardlessPaymentIdsAndOrganisationIds(List.of(Pair.of(missingPaymentId, organisationId))))
+                .thenReturn(Map.of());
+
+        webhookGoCardlessService.processEvents(List.of(foundMandateEvent, missingMandateEvent, missingPaymentEvent));
+
+        verify(mockedMandateStateUpdater).updateStatesIfNecessary(List.of(mandate));
+        verify(mockedPaymentStateUpdater).updateStatesIfNecessary(List.of());
+    }
+
+    @Test
+    public void shouldProcessRedeliveredEventsAgainWhenProcessingThemFailedBefore() {
+        GoCardlessEvent goCardlessEvent = aGoCardlessEventFixture().withResourceType(PAYMENTS).withAction("confirmed").toEntity();
+        List<GoCardlessEvent> events = List.of(goCardlessEvent);
+        doThrow(new GoCardlessPaymentNotFoundException("OOPSIE"))
+                .doNothing()
+                .when(mockedSendEmailsForGoCardlessEventsHandler).sendEmails(events);
+
+        try {
+            webhookGoCardlessService.processEvents(events);
+            fail("Expected GoCardlessPaymentNotFoundException.");
+        } catch (GoCardlessPaymentNotFoundException expected) {
+        }
+        verify(mockedGoCardlessEventService).releaseClaims(events);
+        verify(mockedGoCardlessEventService, never()).markEventsAsProcessed(events);
+
+        webhookGoCardlessService.processEvents(events);
+
+        verify(mockedSendEmailsForGoCardlessEventsHandler, times(2)).sendEmails(events);
+        verify(mockedGoCardlessEventService).markEventsAsProcessed(events);
+    }
+
+    @Test
+    public void shouldNotProcessAnythingWhenAllEventsHaveAlreadyBeenProcessed() {
+        List<GoCardlessEvent> events = List.of(aGoCardlessEventFixture().withResourceType(PAYMENTS).toEntity());
+        when(mockedGoCardlessEventService.storeEvents(events)).thenReturn(List.of());
+
+        webhookGoCardlessService.processEvents(events);
+
+        verifyNoInteractions(mockedSendEmailsForGoCardlessEventsHandler);
+        verify(mockedGoCardlessEventService, never()).markEventsAsProcessed(any());
+    }
 }
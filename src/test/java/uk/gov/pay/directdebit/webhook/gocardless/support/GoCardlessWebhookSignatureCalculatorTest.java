@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 
+import static com.google.common.io.BaseEncoding.base16;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -28,4 +29,19 @@ public class GoCardlessWebhookSignatureCalculatorTest {
         assertThat(signature, is("b0344c61d8db38535ca8afceaf0bf12b881dc200c9833da726e9376c2e32cff7"));
     }
 
+    @Test
+    public void calculateDigestReturnsSameHmacSha256DigestWhenCalledRepeatedly() {
+        byte[] secretKeyBytes = new byte[20];
+        Arrays.fill(secretKeyBytes, (byte) 0xb);
+        String secretKey = new String(secretKeyBytes, UTF_8);
+
+        goCardlessWebhookSignatureCalculator = new GoCardlessWebhookSignatureCalculator(secretKey);
+
+        byte[] firstDigest = goCardlessWebhookSignatureCalculator.calculateDigest("Hi There".getBytes(UTF_8));
+        byte[] secondDigest = goCardlessWebhookSignatureCalculator.calculateDigest("Hi There".getBytes(UTF_8));
+
+        assertThat(base16().lowerCase().encode(firstDigest), is("b0344c61d8db38535ca8afceaf0bf12b881dc200c9833da726e9376c2e32cff7"));
+        assertThat(secondDigest, is(firstDigest));
+    }
+
 }